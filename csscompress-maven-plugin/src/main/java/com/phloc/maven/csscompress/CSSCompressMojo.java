@@ -41,6 +41,8 @@ import com.phloc.css.decl.CascadingStyleSheet;
 import com.phloc.css.handler.ICSSParseExceptionHandler;
 import com.phloc.css.parser.ParseException;
 import com.phloc.css.reader.CSSReader;
+import com.phloc.css.tools.CSSMinificationResult;
+import com.phloc.css.tools.CSSStructuralMinifier;
 import com.phloc.css.writer.CSSWriter;
 import com.phloc.css.writer.CSSWriterSettings;
 
@@ -58,6 +60,7 @@ public final class CSSCompressMojo extends AbstractMojo
                                                                             "-min.css",
                                                                             ".minified.css",
                                                                             "-minified.css" };
+  private static final String EXTENSION_GZIP = ".gz";
 
   /**
    * The Maven Project.
@@ -187,6 +190,36 @@ public final class CSSCompressMojo extends AbstractMojo
    */
   private String targetFileExtension = CCSS.FILE_EXTENSION_MIN_CSS;
 
+  /**
+   * Should a GZIP compressed version of each compressed CSS file be written as
+   * well? The file name is the name of the compressed CSS file plus
+   * <code>.gz</code>. Both files are written in a single pass.
+   * 
+   * @parameter property="writeGZIP" default-value="false"
+   * @since 1.2.3
+   */
+  private boolean writeGZIP = false;
+
+  /**
+   * The deflater compression level to use for the GZIP compressed files. Must
+   * be between -1 (default level) and 9 (best compression).
+   * 
+   * @parameter property="gzipCompressionLevel" default-value="9"
+   * @since 1.2.3
+   */
+  private int gzipCompressionLevel = CSSWriter.DEFAULT_GZIP_COMPRESSION_LEVEL;
+
+  /**
+   * Should the style sheets be minified on the model level before they are
+   * written? This removes duplicate rules and merges rules with identical
+   * selectors or identical declarations where this does not change the
+   * cascade.
+   * 
+   * @parameter property="minifyStructure" default-value="false"
+   * @since 1.2.3
+   */
+  private boolean minifyStructure = false;
+
   @SuppressFBWarnings ({ "NP_UNWRITTEN_FIELD", "UWF_UNWRITTEN_FIELD" })
   public void setSourceDirectory (final File aDir)
   {
@@ -274,6 +307,21 @@ public final class CSSCompressMojo extends AbstractMojo
     targetFileExtension = sTargetFileExtension;
   }
 
+  public void setWriteGZIP (final boolean bWriteGZIP)
+  {
+    writeGZIP = bWriteGZIP;
+  }
+
+  public void setGzipCompressionLevel (final int nGZIPCompressionLevel)
+  {
+    gzipCompressionLevel = nGZIPCompressionLevel;
+  }
+
+  public void setMinifyStructure (final boolean bMinifyStructure)
+  {
+    minifyStructure = bMinifyStructure;
+  }
+
   /**
    * Check if the passed file is already compressed. The check is only done
    * using the file extension of the file name.
@@ -302,7 +350,10 @@ public final class CSSCompressMojo extends AbstractMojo
     // file. Note: lastModified on a non-existing file returns 0L
     final File aCompressed = new File (FilenameHelper.getWithoutExtension (aChild.getAbsolutePath ()) +
                                        targetFileExtension);
-    if (aCompressed.lastModified () < aChild.lastModified () || forceCompress)
+    final File aGZIPCompressed = new File (aCompressed.getAbsolutePath () + EXTENSION_GZIP);
+    if (aCompressed.lastModified () < aChild.lastModified () ||
+        (writeGZIP && aGZIPCompressed.lastModified () < aChild.lastModified ()) ||
+        forceCompress)
     {
       if (verbose)
         getLog ().info ("Start compressing CSS file " + _getRelativePath (aChild));
@@ -336,7 +387,40 @@ public final class CSSCompressMojo extends AbstractMojo
           aWriterSettings.setWriteViewportRules (writeViewportRules);
           aWriterSettings.setWriteSupportsRules (writeSupportsRules);
           aWriterSettings.setWriteUnknownRules (writeUnknownRules);
-          new CSSWriter (aWriterSettings).writeCSS (aCSS, aDestFile.getWriter (aSourceEncoding, EAppend.TRUNCATE));
+          if (minifyStructure)
+          {
+            final CSSMinificationResult aResult = CSSStructuralMinifier.minify (aCSS, aWriterSettings);
+            final String sMsg = "Structurally minified CSS file " +
+                                _getRelativePath (aChild) +
+                                " saving " +
+                                aResult.getBytesSaved () +
+                                " bytes";
+            if (verbose)
+              getLog ().info (sMsg);
+            else
+              getLog ().debug (sMsg);
+          }
+          final CSSWriter aWriter = new CSSWriter (aWriterSettings);
+          if (writeGZIP)
+          {
+            // Write the compressed and the GZIP compressed file in one pass
+            aWriter.setGZIPCompressionLevel (gzipCompressionLevel);
+            aWriter.writeCSSAsGZIP (aCSS,
+                                    aSourceEncoding,
+                                    aDestFile.getOutputStream (EAppend.TRUNCATE),
+                                    new FileSystemResource (aGZIPCompressed).getOutputStream (EAppend.TRUNCATE));
+            getLog ().info ("Compressed CSS file " +
+                            _getRelativePath (aChild) +
+                            " from " +
+                            aChild.length () +
+                            " bytes to " +
+                            aCompressed.length () +
+                            " bytes (" +
+                            aGZIPCompressed.length () +
+                            " bytes GZIP compressed)");
+          }
+          else
+            aWriter.writeCSS (aCSS, aDestFile.getWriter (aSourceEncoding, EAppend.TRUNCATE));
         }
         catch (final IOException ex)
         {
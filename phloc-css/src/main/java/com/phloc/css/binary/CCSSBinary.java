@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.binary;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.decl.ECSSAttributeOperator;
+import com.phloc.css.decl.ECSSExpressionOperator;
+import com.phloc.css.decl.ECSSMathOperator;
+import com.phloc.css.decl.ECSSSelectorCombinator;
+import com.phloc.css.decl.ECSSSupportsConditionOperator;
+import com.phloc.css.property.ECSSProperty;
+
+/**
+ * Constants for the binary CSS format as written by {@link CSSBinaryWriter}
+ * and read by {@link CSSBinaryReader}.
+ * <p>
+ * Layout: the {@link #MAGIC} bytes are followed by the format version, a flag
+ * byte and the fingerprints of the enumerations whose ordinals are used in the
+ * data. Afterwards a sequence of tagged top-level items follows which is
+ * terminated by {@link #TAG_END}. All integer values are written as unsigned
+ * LEB128 variable length integers and all strings are written via a string
+ * table that is built while streaming.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CCSSBinary
+{
+  /** The magic bytes at the beginning of each binary CSS stream */
+  public static final byte [] MAGIC = new byte [] { 'P', 'C', 'S', 'B' };
+
+  /**
+   * The current format version. Must be incremented with every incompatible
+   * change of the layout.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /** Flag: source locations are contained */
+  public static final int FLAG_SOURCE_LOCATIONS = 0x01;
+
+  // Top-level items
+  static final int TAG_END = 0;
+  static final int TAG_IMPORT = 1;
+  static final int TAG_NAMESPACE = 2;
+  static final int TAG_STYLE = 3;
+  static final int TAG_PAGE = 4;
+  static final int TAG_MEDIA = 5;
+  static final int TAG_FONT_FACE = 6;
+  static final int TAG_KEYFRAMES = 7;
+  static final int TAG_VIEWPORT = 8;
+  static final int TAG_SUPPORTS = 9;
+  static final int TAG_UNKNOWN = 10;
+
+  // Expression members
+  static final int EXPR_TERM_SIMPLE = 0;
+  static final int EXPR_TERM_NUMBER = 1;
+  static final int EXPR_TERM_URI = 2;
+  static final int EXPR_FUNCTION = 3;
+  static final int EXPR_MATH = 4;
+  static final int EXPR_OPERATOR = 5;
+
+  // Math members
+  static final int MATH_PRODUCT = 0;
+  static final int MATH_UNIT_SIMPLE = 1;
+  static final int MATH_UNIT_PRODUCT = 2;
+  static final int MATH_OPERATOR = 3;
+
+  // Selector members
+  static final int SELECTOR_SIMPLE = 0;
+  static final int SELECTOR_ATTRIBUTE = 1;
+  static final int SELECTOR_NOT = 2;
+  static final int SELECTOR_FUNCTION = 3;
+  static final int SELECTOR_COMBINATOR = 4;
+
+  // Supports condition members
+  static final int SUPPORTS_DECLARATION = 0;
+  static final int SUPPORTS_NEGATION = 1;
+  static final int SUPPORTS_NESTED = 2;
+  static final int SUPPORTS_OPERATOR = 3;
+
+  // String table references
+  static final int STRING_NULL = 0;
+  static final int STRING_NEW = 1;
+  static final int STRING_FIRST_INDEX = 2;
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CCSSBinary s_aInstance = new CCSSBinary ();
+
+  private CCSSBinary ()
+  {}
+
+  private static int _getEnumFingerprint (final int nPrev, @Nonnull final Class <? extends Enum <?>> aEnumClass)
+  {
+    int ret = nPrev;
+    for (final Enum <?> e : aEnumClass.getEnumConstants ())
+      ret = 31 * ret + e.name ().hashCode ();
+    return 31 * ret + aEnumClass.getEnumConstants ().length;
+  }
+
+  /**
+   * Get the fingerprint of all enumerations that are encoded via their
+   * ordinals. As the fingerprint is based on the names of all enum constants, a
+   * binary stream written with a different set of constants is rejected instead
+   * of silently being read with wrong values.
+   * 
+   * @return The fingerprint of the enumerations used.
+   */
+  static int getEnumFingerprint ()
+  {
+    int ret = 0;
+    ret = _getEnumFingerprint (ret, ECSSProperty.class);
+    ret = _getEnumFingerprint (ret, ECSSUnit.class);
+    ret = _getEnumFingerprint (ret, ECSSAttributeOperator.class);
+    ret = _getEnumFingerprint (ret, ECSSExpressionOperator.class);
+    ret = _getEnumFingerprint (ret, ECSSMathOperator.class);
+    ret = _getEnumFingerprint (ret, ECSSSelectorCombinator.class);
+    ret = _getEnumFingerprint (ret, ECSSSupportsConditionOperator.class);
+    ret = _getEnumFingerprint (ret, CSSMediaQuery.EModifier.class);
+    return ret;
+  }
+}
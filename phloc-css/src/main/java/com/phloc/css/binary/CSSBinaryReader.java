@@ -0,0 +1,773 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.binary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.streams.NonBlockingBufferedInputStream;
+import com.phloc.commons.io.streams.NonBlockingByteArrayInputStream;
+import com.phloc.commons.io.streams.StreamUtils;
+import com.phloc.css.CSSSourceArea;
+import com.phloc.css.CSSSourceLocation;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.ICSSSourceLocationAware;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberMath;
+import com.phloc.css.decl.CSSExpressionMemberMathProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermURI;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSImportRule;
+import com.phloc.css.decl.CSSKeyframesBlock;
+import com.phloc.css.decl.CSSKeyframesRule;
+import com.phloc.css.decl.CSSMediaExpression;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSNamespaceRule;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorAttribute;
+import com.phloc.css.decl.CSSSelectorMemberFunctionLike;
+import com.phloc.css.decl.CSSSelectorMemberNot;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSSupportsConditionDeclaration;
+import com.phloc.css.decl.CSSSupportsConditionNegation;
+import com.phloc.css.decl.CSSSupportsConditionNested;
+import com.phloc.css.decl.CSSSupportsRule;
+import com.phloc.css.decl.CSSURI;
+import com.phloc.css.decl.CSSUnknownRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ECSSAttributeOperator;
+import com.phloc.css.decl.ECSSExpressionOperator;
+import com.phloc.css.decl.ECSSMathOperator;
+import com.phloc.css.decl.ECSSSelectorCombinator;
+import com.phloc.css.decl.ECSSSupportsConditionOperator;
+import com.phloc.css.decl.ICSSExpressionMathMember;
+import com.phloc.css.decl.ICSSSupportsConditionMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.property.ECSSProperty;
+
+/**
+ * Streaming reader for the compact binary CSS format as written by
+ * {@link CSSBinaryWriter}. The header is read and validated in the
+ * constructor, afterwards the single top-level items can be read one after
+ * another with {@link #readNextItem()} or all at once with
+ * {@link #readStyleSheet()}. No reflection is used when reading.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public final class CSSBinaryReader implements Closeable
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CSSBinaryReader.class);
+  private static final Charset CHARSET = CCharset.CHARSET_UTF_8_OBJ;
+
+  // Cached enum values to avoid the array copy of values ()
+  private static final ECSSProperty [] PROPERTIES = ECSSProperty.values ();
+  private static final ECSSUnit [] UNITS = ECSSUnit.values ();
+  private static final ECSSAttributeOperator [] ATTRIBUTE_OPERATORS = ECSSAttributeOperator.values ();
+  private static final ECSSExpressionOperator [] EXPRESSION_OPERATORS = ECSSExpressionOperator.values ();
+  private static final ECSSMathOperator [] MATH_OPERATORS = ECSSMathOperator.values ();
+  private static final ECSSSelectorCombinator [] SELECTOR_COMBINATORS = ECSSSelectorCombinator.values ();
+  private static final ECSSSupportsConditionOperator [] SUPPORTS_OPERATORS = ECSSSupportsConditionOperator.values ();
+  private static final CSSMediaQuery.EModifier [] MEDIA_MODIFIERS = CSSMediaQuery.EModifier.values ();
+
+  private final InputStream m_aIS;
+  private final boolean m_bSourceLocations;
+  private final List <String> m_aStringTable = new ArrayList <String> ();
+  private byte [] m_aBuffer = new byte [256];
+  private boolean m_bEndReached = false;
+
+  /**
+   * Constructor.
+   * 
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>. The
+   *        stream is closed when this reader is closed.
+   * @throws IOException
+   *         If reading fails or if the header is invalid.
+   */
+  public CSSBinaryReader (@Nonnull @WillCloseWhenClosed final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    m_aIS = aIS instanceof NonBlockingBufferedInputStream || aIS instanceof NonBlockingByteArrayInputStream ? aIS
+                                                                                                           : new NonBlockingBufferedInputStream (aIS);
+
+    // Header
+    for (final byte nMagic : CCSSBinary.MAGIC)
+      if (_readByte () != (nMagic & 0xff))
+        throw new IOException ("The passed data is not in the binary CSS format");
+    final int nVersion = _readVarInt ();
+    if (nVersion != CCSSBinary.FORMAT_VERSION)
+      throw new IOException ("Unsupported binary CSS format version " +
+                             nVersion +
+                             " - expected version " +
+                             CCSSBinary.FORMAT_VERSION);
+    final int nFlags = _readByte ();
+    m_bSourceLocations = (nFlags & CCSSBinary.FLAG_SOURCE_LOCATIONS) != 0;
+    if (_readInt () != CCSSBinary.getEnumFingerprint ())
+      throw new IOException ("The binary CSS data was written with a different set of enumeration constants");
+  }
+
+  /**
+   * @return <code>true</code> if the binary data contains source locations,
+   *         <code>false</code> if not.
+   */
+  public boolean isSourceLocationsContained ()
+  {
+    return m_bSourceLocations;
+  }
+
+  private int _readByte () throws IOException
+  {
+    final int ret = m_aIS.read ();
+    if (ret < 0)
+      throw new EOFException ("Unexpected end of binary CSS data");
+    return ret;
+  }
+
+  private int _readVarInt () throws IOException
+  {
+    int ret = 0;
+    int nShift = 0;
+    while (true)
+    {
+      final int nByte = _readByte ();
+      ret |= (nByte & 0x7f) << nShift;
+      if ((nByte & 0x80) == 0)
+        return ret;
+      nShift += 7;
+      if (nShift > 28)
+        throw new IOException ("Malformed variable length integer");
+    }
+  }
+
+  private int _readInt () throws IOException
+  {
+    return (_readByte () << 24) | (_readByte () << 16) | (_readByte () << 8) | _readByte ();
+  }
+
+  private boolean _readBoolean () throws IOException
+  {
+    return _readByte () != 0;
+  }
+
+  @Nonnull
+  private static <T> T _getFromOrdinal (@Nonnull final T [] aValues, final int nOrdinal) throws IOException
+  {
+    if (nOrdinal < 0 || nOrdinal >= aValues.length)
+      throw new IOException ("Invalid enum ordinal " + nOrdinal);
+    return aValues[nOrdinal];
+  }
+
+  @Nullable
+  private String _readString () throws IOException
+  {
+    final int nRef = _readVarInt ();
+    if (nRef == CCSSBinary.STRING_NULL)
+      return null;
+    if (nRef == CCSSBinary.STRING_NEW)
+    {
+      final int nLength = _readVarInt ();
+      if (nLength > m_aBuffer.length)
+        m_aBuffer = new byte [Math.max (nLength, m_aBuffer.length * 2)];
+      int nRead = 0;
+      while (nRead < nLength)
+      {
+        final int nCount = m_aIS.read (m_aBuffer, nRead, nLength - nRead);
+        if (nCount < 0)
+          throw new EOFException ("Unexpected end of binary CSS data");
+        nRead += nCount;
+      }
+      final String ret = new String (m_aBuffer, 0, nLength, CHARSET);
+      m_aStringTable.add (ret);
+      return ret;
+    }
+
+    final int nIndex = nRef - CCSSBinary.STRING_FIRST_INDEX;
+    if (nIndex >= m_aStringTable.size ())
+      throw new IOException ("Invalid string table index " + nIndex);
+    return m_aStringTable.get (nIndex);
+  }
+
+  @Nonnull
+  private String _readNonNullString () throws IOException
+  {
+    final String ret = _readString ();
+    if (ret == null)
+      throw new IOException ("Unexpected null string");
+    return ret;
+  }
+
+  @Nullable
+  private CSSSourceArea _readSourceArea () throws IOException
+  {
+    if (!_readBoolean ())
+      return null;
+    final int nBeginLine = _readVarInt () - 1;
+    final int nBeginColumn = _readVarInt () - 1;
+    final int nEndLine = _readVarInt () - 1;
+    final int nEndColumn = _readVarInt () - 1;
+    return new CSSSourceArea (nBeginLine, nBeginColumn, nEndLine, nEndColumn);
+  }
+
+  private void _readSourceLocation (@Nonnull final ICSSSourceLocationAware aObject) throws IOException
+  {
+    if (m_bSourceLocations && _readBoolean ())
+    {
+      final CSSSourceArea aFirstTokenArea = _readSourceArea ();
+      final CSSSourceArea aLastTokenArea = _readSourceArea ();
+      aObject.setSourceLocation (new CSSSourceLocation (aFirstTokenArea, aLastTokenArea));
+    }
+  }
+
+  @Nonnull
+  private CSSURI _readURI () throws IOException
+  {
+    final CSSURI ret = new CSSURI (_readNonNullString ());
+    _readSourceLocation (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private CSSExpression _readExpression () throws IOException
+  {
+    final CSSExpression ret = new CSSExpression ();
+    final int nMembers = _readVarInt ();
+    for (int i = 0; i < nMembers; ++i)
+    {
+      final int nTag = _readVarInt ();
+      switch (nTag)
+      {
+        case CCSSBinary.EXPR_TERM_SIMPLE:
+        {
+          final CSSExpressionMemberTermSimple aTerm = new CSSExpressionMemberTermSimple (_readNonNullString ());
+          _readSourceLocation (aTerm);
+          ret.addMember (aTerm);
+          break;
+        }
+        case CCSSBinary.EXPR_TERM_NUMBER:
+        {
+          final String sNumber = _readNonNullString ();
+          final ECSSUnit eUnit = _getFromOrdinal (UNITS, _readVarInt ());
+          final CSSExpressionMemberTermSimple aTerm = new CSSExpressionMemberTermSimple (sNumber + eUnit.getName ());
+          _readSourceLocation (aTerm);
+          ret.addMember (aTerm);
+          break;
+        }
+        case CCSSBinary.EXPR_TERM_URI:
+        {
+          final CSSExpressionMemberTermURI aTerm = new CSSExpressionMemberTermURI (_readURI ());
+          _readSourceLocation (aTerm);
+          ret.addMember (aTerm);
+          break;
+        }
+        case CCSSBinary.EXPR_FUNCTION:
+        {
+          final String sFunctionName = _readNonNullString ();
+          final CSSExpression aExpr = _readBoolean () ? _readExpression () : null;
+          final CSSExpressionMemberFunction aFunction = new CSSExpressionMemberFunction (sFunctionName, aExpr);
+          _readSourceLocation (aFunction);
+          ret.addMember (aFunction);
+          break;
+        }
+        case CCSSBinary.EXPR_MATH:
+        {
+          final CSSExpressionMemberMath aMath = new CSSExpressionMemberMath (_readMathMembers ());
+          _readSourceLocation (aMath);
+          ret.addMember (aMath);
+          break;
+        }
+        case CCSSBinary.EXPR_OPERATOR:
+          ret.addMember (_getFromOrdinal (EXPRESSION_OPERATORS, _readVarInt ()));
+          break;
+        default:
+          throw new IOException ("Invalid expression member tag " + nTag);
+      }
+    }
+    _readSourceLocation (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private List <ICSSExpressionMathMember> _readMathMembers () throws IOException
+  {
+    final int nMembers = _readVarInt ();
+    final List <ICSSExpressionMathMember> ret = new ArrayList <ICSSExpressionMathMember> (nMembers);
+    for (int i = 0; i < nMembers; ++i)
+    {
+      final int nTag = _readVarInt ();
+      switch (nTag)
+      {
+        case CCSSBinary.MATH_PRODUCT:
+          ret.add (_readMathProduct ());
+          break;
+        case CCSSBinary.MATH_UNIT_SIMPLE:
+        {
+          final CSSExpressionMemberMathUnitSimple aUnit = new CSSExpressionMemberMathUnitSimple (_readNonNullString ());
+          _readSourceLocation (aUnit);
+          ret.add (aUnit);
+          break;
+        }
+        case CCSSBinary.MATH_UNIT_PRODUCT:
+        {
+          final CSSExpressionMemberMathUnitProduct aUnit = new CSSExpressionMemberMathUnitProduct (_readMathProduct ());
+          _readSourceLocation (aUnit);
+          ret.add (aUnit);
+          break;
+        }
+        case CCSSBinary.MATH_OPERATOR:
+          ret.add (_getFromOrdinal (MATH_OPERATORS, _readVarInt ()));
+          break;
+        default:
+          throw new IOException ("Invalid math member tag " + nTag);
+      }
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private CSSExpressionMemberMathProduct _readMathProduct () throws IOException
+  {
+    final CSSExpressionMemberMathProduct ret = new CSSExpressionMemberMathProduct ();
+    for (final ICSSExpressionMathMember aMember : _readMathMembers ())
+      ret.addMember (aMember);
+    _readSourceLocation (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private CSSDeclaration _readDeclaration () throws IOException
+  {
+    final int nPropertyCode = _readVarInt ();
+    final boolean bImportant = (nPropertyCode & 1) != 0;
+    final int nPropertyIndex = nPropertyCode >>> 1;
+    final String sProperty = nPropertyIndex == 0 ? _readNonNullString ()
+                                                 : _getFromOrdinal (PROPERTIES, nPropertyIndex - 1).getName ();
+    final CSSDeclaration ret = new CSSDeclaration (sProperty, _readExpression (), bImportant);
+    _readSourceLocation (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private List <CSSDeclaration> _readDeclarations () throws IOException
+  {
+    final int nDecls = _readVarInt ();
+    final List <CSSDeclaration> ret = new ArrayList <CSSDeclaration> (nDecls);
+    for (int i = 0; i < nDecls; ++i)
+      ret.add (_readDeclaration ());
+    return ret;
+  }
+
+  @Nonnull
+  private CSSSelector _readSelector () throws IOException
+  {
+    final CSSSelector ret = new CSSSelector ();
+    final int nMembers = _readVarInt ();
+    for (int i = 0; i < nMembers; ++i)
+    {
+      final int nTag = _readVarInt ();
+      switch (nTag)
+      {
+        case CCSSBinary.SELECTOR_SIMPLE:
+        {
+          final CSSSelectorSimpleMember aSimple = new CSSSelectorSimpleMember (_readNonNullString ());
+          _readSourceLocation (aSimple);
+          ret.addMember (aSimple);
+          break;
+        }
+        case CCSSBinary.SELECTOR_ATTRIBUTE:
+        {
+          final String sNamespacePrefix = _readString ();
+          final String sAttrName = _readNonNullString ();
+          final int nOperator = _readVarInt ();
+          final CSSSelectorAttribute aAttr = nOperator == 0 ? new CSSSelectorAttribute (sNamespacePrefix, sAttrName)
+                                                            : new CSSSelectorAttribute (sNamespacePrefix,
+                                                                                        sAttrName,
+                                                                                        _getFromOrdinal (ATTRIBUTE_OPERATORS,
+                                                                                                         nOperator - 1),
+                                                                                        _readNonNullString ());
+          _readSourceLocation (aAttr);
+          ret.addMember (aAttr);
+          break;
+        }
+        case CCSSBinary.SELECTOR_NOT:
+        {
+          final CSSSelectorMemberNot aNot = new CSSSelectorMemberNot (_readSelectors ());
+          _readSourceLocation (aNot);
+          ret.addMember (aNot);
+          break;
+        }
+        case CCSSBinary.SELECTOR_FUNCTION:
+        {
+          final String sFunctionName = _readNonNullString ();
+          final CSSSelectorMemberFunctionLike aFunction = new CSSSelectorMemberFunctionLike (sFunctionName,
+                                                                                             _readExpression ());
+          _readSourceLocation (aFunction);
+          ret.addMember (aFunction);
+          break;
+        }
+        case CCSSBinary.SELECTOR_COMBINATOR:
+          ret.addMember (_getFromOrdinal (SELECTOR_COMBINATORS, _readVarInt ()));
+          break;
+        default:
+          throw new IOException ("Invalid selector member tag " + nTag);
+      }
+    }
+    _readSourceLocation (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private List <CSSSelector> _readSelectors () throws IOException
+  {
+    final int nSelectors = _readVarInt ();
+    final List <CSSSelector> ret = new ArrayList <CSSSelector> (nSelectors);
+    for (int i = 0; i < nSelectors; ++i)
+      ret.add (_readSelector ());
+    return ret;
+  }
+
+  @Nonnull
+  private List <CSSMediaQuery> _readMediaQueries () throws IOException
+  {
+    final int nMediaQueries = _readVarInt ();
+    final List <CSSMediaQuery> ret = new ArrayList <CSSMediaQuery> (nMediaQueries);
+    for (int i = 0; i < nMediaQueries; ++i)
+    {
+      final CSSMediaQuery.EModifier eModifier = _getFromOrdinal (MEDIA_MODIFIERS, _readVarInt ());
+      final CSSMediaQuery aMediaQuery = new CSSMediaQuery (eModifier, _readString ());
+      final int nMediaExprs = _readVarInt ();
+      for (int j = 0; j < nMediaExprs; ++j)
+      {
+        final String sFeature = _readNonNullString ();
+        final CSSExpression aValue = _readBoolean () ? _readExpression () : null;
+        final CSSMediaExpression aMediaExpr = new CSSMediaExpression (sFeature, aValue);
+        _readSourceLocation (aMediaExpr);
+        aMediaQuery.addMediaExpression (aMediaExpr);
+      }
+      _readSourceLocation (aMediaQuery);
+      ret.add (aMediaQuery);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private ICSSSupportsConditionMember _readSupportsConditionMember () throws IOException
+  {
+    final int nTag = _readVarInt ();
+    switch (nTag)
+    {
+      case CCSSBinary.SUPPORTS_DECLARATION:
+      {
+        final CSSSupportsConditionDeclaration ret = new CSSSupportsConditionDeclaration (_readDeclaration ());
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.SUPPORTS_NEGATION:
+      {
+        final CSSSupportsConditionNegation ret = new CSSSupportsConditionNegation (_readSupportsConditionMember ());
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.SUPPORTS_NESTED:
+      {
+        final CSSSupportsConditionNested ret = new CSSSupportsConditionNested ();
+        for (final ICSSSupportsConditionMember aMember : _readSupportsConditionMembers ())
+          ret.addMember (aMember);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.SUPPORTS_OPERATOR:
+        return _getFromOrdinal (SUPPORTS_OPERATORS, _readVarInt ());
+      default:
+        throw new IOException ("Invalid supports condition member tag " + nTag);
+    }
+  }
+
+  @Nonnull
+  private List <ICSSSupportsConditionMember> _readSupportsConditionMembers () throws IOException
+  {
+    final int nMembers = _readVarInt ();
+    final List <ICSSSupportsConditionMember> ret = new ArrayList <ICSSSupportsConditionMember> (nMembers);
+    for (int i = 0; i < nMembers; ++i)
+      ret.add (_readSupportsConditionMember ());
+    return ret;
+  }
+
+  @Nonnull
+  private List <ICSSTopLevelRule> _readRules () throws IOException
+  {
+    final int nRules = _readVarInt ();
+    final List <ICSSTopLevelRule> ret = new ArrayList <ICSSTopLevelRule> (nRules);
+    for (int i = 0; i < nRules; ++i)
+    {
+      final int nTag = _readVarInt ();
+      final ICSSTopLevelRule aRule = _readRule (nTag);
+      if (aRule == null)
+        throw new IOException ("Invalid nested rule tag " + nTag);
+      ret.add (aRule);
+    }
+    return ret;
+  }
+
+  @Nullable
+  private ICSSTopLevelRule _readRule (final int nTag) throws IOException
+  {
+    switch (nTag)
+    {
+      case CCSSBinary.TAG_STYLE:
+      {
+        final CSSStyleRule ret = new CSSStyleRule ();
+        for (final CSSSelector aSelector : _readSelectors ())
+          ret.addSelector (aSelector);
+        for (final CSSDeclaration aDecl : _readDeclarations ())
+          ret.addDeclaration (aDecl);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_PAGE:
+      {
+        final CSSPageRule ret = new CSSPageRule (_readString ());
+        for (final CSSDeclaration aDecl : _readDeclarations ())
+          ret.addDeclaration (aDecl);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_MEDIA:
+      {
+        final CSSMediaRule ret = new CSSMediaRule ();
+        for (final CSSMediaQuery aMediaQuery : _readMediaQueries ())
+          ret.addMediaQuery (aMediaQuery);
+        for (final ICSSTopLevelRule aRule : _readRules ())
+          ret.addRule (aRule);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_FONT_FACE:
+      {
+        final CSSFontFaceRule ret = new CSSFontFaceRule ();
+        for (final CSSDeclaration aDecl : _readDeclarations ())
+          ret.addDeclaration (aDecl);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_KEYFRAMES:
+      {
+        final String sDeclaration = _readNonNullString ();
+        final CSSKeyframesRule ret = new CSSKeyframesRule (sDeclaration, _readNonNullString ());
+        final int nBlocks = _readVarInt ();
+        for (int i = 0; i < nBlocks; ++i)
+        {
+          final int nKeyframesSelectors = _readVarInt ();
+          final List <String> aKeyframesSelectors = new ArrayList <String> (nKeyframesSelectors);
+          for (int j = 0; j < nKeyframesSelectors; ++j)
+            aKeyframesSelectors.add (_readNonNullString ());
+          final CSSKeyframesBlock aBlock = new CSSKeyframesBlock (aKeyframesSelectors);
+          for (final CSSDeclaration aDecl : _readDeclarations ())
+            aBlock.addDeclaration (aDecl);
+          _readSourceLocation (aBlock);
+          ret.addBlock (aBlock);
+        }
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_VIEWPORT:
+      {
+        final CSSViewportRule ret = new CSSViewportRule (_readNonNullString ());
+        for (final CSSDeclaration aDecl : _readDeclarations ())
+          ret.addDeclaration (aDecl);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_SUPPORTS:
+      {
+        final CSSSupportsRule ret = new CSSSupportsRule ();
+        for (final ICSSSupportsConditionMember aMember : _readSupportsConditionMembers ())
+          ret.addSupportConditionMember (aMember);
+        for (final ICSSTopLevelRule aRule : _readRules ())
+          ret.addRule (aRule);
+        _readSourceLocation (ret);
+        return ret;
+      }
+      case CCSSBinary.TAG_UNKNOWN:
+      {
+        final CSSUnknownRule ret = new CSSUnknownRule (_readNonNullString ());
+        ret.setParameterList (_readString ());
+        ret.setBody (_readString ());
+        _readSourceLocation (ret);
+        return ret;
+      }
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Read the next top-level item.
+   * 
+   * @return <code>null</code> if the end of the data was reached. Otherwise
+   *         either a {@link CSSImportRule}, a {@link CSSNamespaceRule} or an
+   *         {@link ICSSTopLevelRule}.
+   * @throws IOException
+   *         In case reading fails or the data is malformed.
+   */
+  @Nullable
+  public ICSSWriteable readNextItem () throws IOException
+  {
+    if (m_bEndReached)
+      return null;
+
+    try
+    {
+      final int nTag = _readVarInt ();
+      switch (nTag)
+      {
+        case CCSSBinary.TAG_END:
+          m_bEndReached = true;
+          return null;
+        case CCSSBinary.TAG_IMPORT:
+        {
+          final CSSImportRule ret = new CSSImportRule (_readURI ());
+          for (final CSSMediaQuery aMediaQuery : _readMediaQueries ())
+            ret.addMediaQuery (aMediaQuery);
+          _readSourceLocation (ret);
+          return ret;
+        }
+        case CCSSBinary.TAG_NAMESPACE:
+        {
+          final String sNamespacePrefix = _readString ();
+          final CSSNamespaceRule ret = new CSSNamespaceRule (sNamespacePrefix, _readNonNullString ());
+          _readSourceLocation (ret);
+          return ret;
+        }
+        default:
+        {
+          final ICSSTopLevelRule ret = _readRule (nTag);
+          if (ret == null)
+            throw new IOException ("Invalid top-level tag " + nTag);
+          return ret;
+        }
+      }
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // Thrown by the constructors of the domain objects
+      throw new IOException ("Malformed binary CSS data: " + ex.getMessage (), ex);
+    }
+  }
+
+  /**
+   * Read all remaining items into a new style sheet.
+   * 
+   * @return The new style sheet. Never <code>null</code>.
+   * @throws IOException
+   *         In case reading fails or the data is malformed.
+   */
+  @Nonnull
+  public CascadingStyleSheet readStyleSheet () throws IOException
+  {
+    final CascadingStyleSheet ret = new CascadingStyleSheet ();
+    ICSSWriteable aItem;
+    while ((aItem = readNextItem ()) != null)
+    {
+      if (aItem instanceof CSSImportRule)
+        ret.addImportRule ((CSSImportRule) aItem);
+      else
+        if (aItem instanceof CSSNamespaceRule)
+          ret.addNamespaceRule ((CSSNamespaceRule) aItem);
+        else
+          ret.addRule ((ICSSTopLevelRule) aItem);
+    }
+    return ret;
+  }
+
+  public void close () throws IOException
+  {
+    m_aIS.close ();
+  }
+
+  /**
+   * Read a style sheet from the passed binary input stream.
+   * 
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>. Is
+   *        automatically closed.
+   * @return <code>null</code> if reading failed or if the data is malformed.
+   */
+  @Nullable
+  public static CascadingStyleSheet readFromStream (@Nonnull @WillClose final InputStream aIS)
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    try
+    {
+      final CSSBinaryReader aReader = new CSSBinaryReader (aIS);
+      return aReader.readStyleSheet ();
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.error ("Failed to read binary CSS", ex);
+      return null;
+    }
+    finally
+    {
+      StreamUtils.close (aIS);
+    }
+  }
+
+  /**
+   * Read a style sheet from the passed binary data.
+   * 
+   * @param aData
+   *        The binary data to read. May not be <code>null</code>.
+   * @return <code>null</code> if the data is malformed.
+   */
+  @Nullable
+  public static CascadingStyleSheet readFromBytes (@Nonnull final byte [] aData)
+  {
+    ValueEnforcer.notNull (aData, "Data");
+
+    return readFromStream (new NonBlockingByteArrayInputStream (aData));
+  }
+}
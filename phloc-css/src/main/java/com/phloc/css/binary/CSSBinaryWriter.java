@@ -0,0 +1,840 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.binary;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.streams.NonBlockingBufferedOutputStream;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.commons.io.streams.StreamUtils;
+import com.phloc.css.CSSSourceArea;
+import com.phloc.css.CSSSourceLocation;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.ICSSSourceLocationAware;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberMath;
+import com.phloc.css.decl.CSSExpressionMemberMathProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermURI;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSImportRule;
+import com.phloc.css.decl.CSSKeyframesBlock;
+import com.phloc.css.decl.CSSKeyframesRule;
+import com.phloc.css.decl.CSSMediaExpression;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSNamespaceRule;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorAttribute;
+import com.phloc.css.decl.CSSSelectorMemberFunctionLike;
+import com.phloc.css.decl.CSSSelectorMemberNot;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSSupportsConditionDeclaration;
+import com.phloc.css.decl.CSSSupportsConditionNegation;
+import com.phloc.css.decl.CSSSupportsConditionNested;
+import com.phloc.css.decl.CSSSupportsRule;
+import com.phloc.css.decl.CSSURI;
+import com.phloc.css.decl.CSSUnknownRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ECSSAttributeOperator;
+import com.phloc.css.decl.ECSSExpressionOperator;
+import com.phloc.css.decl.ECSSMathOperator;
+import com.phloc.css.decl.ECSSSelectorCombinator;
+import com.phloc.css.decl.ECSSSupportsConditionOperator;
+import com.phloc.css.decl.ICSSExpressionMathMember;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.ICSSSelectorMember;
+import com.phloc.css.decl.ICSSSupportsConditionMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.property.ECSSProperty;
+
+/**
+ * Streaming writer for the compact binary CSS format. The header is written
+ * in the constructor, afterwards an arbitrary number of import rules, namespace
+ * rules and top-level rules can be written one after another. The stream is
+ * terminated when this writer is closed. The binary data can be read with
+ * {@link CSSBinaryReader}.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public final class CSSBinaryWriter implements Closeable, Flushable
+{
+  private static final Charset CHARSET = CCharset.CHARSET_UTF_8_OBJ;
+
+  /** All units sorted by descending name length for suffix matching */
+  private static final ECSSUnit [] UNITS_LONGEST_FIRST;
+
+  static
+  {
+    UNITS_LONGEST_FIRST = ECSSUnit.values ().clone ();
+    Arrays.sort (UNITS_LONGEST_FIRST, new Comparator <ECSSUnit> ()
+    {
+      public int compare (final ECSSUnit aUnit1, final ECSSUnit aUnit2)
+      {
+        return aUnit2.getName ().length () - aUnit1.getName ().length ();
+      }
+    });
+  }
+
+  private final OutputStream m_aOS;
+  private final boolean m_bWriteSourceLocations;
+  private final Map <String, Integer> m_aStringTable = new HashMap <String, Integer> ();
+  private boolean m_bClosed = false;
+
+  /**
+   * Constructor that does not write source locations.
+   * 
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. The
+   *        stream is closed when this writer is closed.
+   * @throws IOException
+   *         If writing the header fails
+   */
+  public CSSBinaryWriter (@Nonnull @WillCloseWhenClosed final OutputStream aOS) throws IOException
+  {
+    this (aOS, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. The
+   *        stream is closed when this writer is closed.
+   * @param bWriteSourceLocations
+   *        <code>true</code> to include the source locations of all objects,
+   *        <code>false</code> to skip them.
+   * @throws IOException
+   *         If writing the header fails
+   */
+  public CSSBinaryWriter (@Nonnull @WillCloseWhenClosed final OutputStream aOS, final boolean bWriteSourceLocations) throws IOException
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    m_aOS = aOS instanceof NonBlockingBufferedOutputStream || aOS instanceof NonBlockingByteArrayOutputStream ? aOS
+                                                                                                              : new NonBlockingBufferedOutputStream (aOS);
+    m_bWriteSourceLocations = bWriteSourceLocations;
+
+    // Header
+    m_aOS.write (CCSSBinary.MAGIC);
+    _writeVarInt (CCSSBinary.FORMAT_VERSION);
+    m_aOS.write (bWriteSourceLocations ? CCSSBinary.FLAG_SOURCE_LOCATIONS : 0);
+    _writeInt (CCSSBinary.getEnumFingerprint ());
+  }
+
+  /**
+   * @return <code>true</code> if source locations are written,
+   *         <code>false</code> if not.
+   */
+  public boolean isWriteSourceLocations ()
+  {
+    return m_bWriteSourceLocations;
+  }
+
+  private void _checkOpen ()
+  {
+    if (m_bClosed)
+      throw new IllegalStateException ("This writer is already closed!");
+  }
+
+  private void _writeVarInt (final int nValue) throws IOException
+  {
+    int nRest = nValue;
+    while ((nRest & ~0x7f) != 0)
+    {
+      m_aOS.write ((nRest & 0x7f) | 0x80);
+      nRest >>>= 7;
+    }
+    m_aOS.write (nRest);
+  }
+
+  private void _writeInt (final int nValue) throws IOException
+  {
+    m_aOS.write (nValue >>> 24);
+    m_aOS.write (nValue >>> 16);
+    m_aOS.write (nValue >>> 8);
+    m_aOS.write (nValue);
+  }
+
+  private void _writeBoolean (final boolean bValue) throws IOException
+  {
+    m_aOS.write (bValue ? 1 : 0);
+  }
+
+  private void _writeString (@Nullable final String sValue) throws IOException
+  {
+    if (sValue == null)
+    {
+      _writeVarInt (CCSSBinary.STRING_NULL);
+      return;
+    }
+
+    final Integer aIndex = m_aStringTable.get (sValue);
+    if (aIndex != null)
+    {
+      // Reference an already written string
+      _writeVarInt (CCSSBinary.STRING_FIRST_INDEX + aIndex.intValue ());
+    }
+    else
+    {
+      // Write new string and remember its index
+      final byte [] aBytes = sValue.getBytes (CHARSET);
+      _writeVarInt (CCSSBinary.STRING_NEW);
+      _writeVarInt (aBytes.length);
+      m_aOS.write (aBytes);
+      m_aStringTable.put (sValue, Integer.valueOf (m_aStringTable.size ()));
+    }
+  }
+
+  private void _writeSourceArea (@Nullable final CSSSourceArea aArea) throws IOException
+  {
+    if (aArea == null)
+      _writeBoolean (false);
+    else
+    {
+      _writeBoolean (true);
+      // All values may be -1
+      _writeVarInt (aArea.getTokenBeginLineNumber () + 1);
+      _writeVarInt (aArea.getTokenBeginColumnNumber () + 1);
+      _writeVarInt (aArea.getTokenEndLineNumber () + 1);
+      _writeVarInt (aArea.getTokenEndColumnNumber () + 1);
+    }
+  }
+
+  private void _writeSourceLocation (@Nonnull final ICSSSourceLocationAware aObject) throws IOException
+  {
+    if (m_bWriteSourceLocations)
+    {
+      final CSSSourceLocation aSourceLocation = aObject.getSourceLocation ();
+      if (aSourceLocation == null)
+        _writeBoolean (false);
+      else
+      {
+        _writeBoolean (true);
+        _writeSourceArea (aSourceLocation.getFirstTokenArea ());
+        _writeSourceArea (aSourceLocation.getLastTokenArea ());
+      }
+    }
+  }
+
+  private void _writeURI (@Nonnull final CSSURI aURI) throws IOException
+  {
+    _writeString (aURI.getURI ());
+    _writeSourceLocation (aURI);
+  }
+
+  /**
+   * Find the unit of a simple term value, if the value consists of a plain
+   * number directly followed by the exact name of a unit.
+   * 
+   * @param sValue
+   *        Simple value to check.
+   * @return <code>null</code> if the value is not a number with a unit
+   */
+  @Nullable
+  private static ECSSUnit _getNumberUnit (@Nonnull final String sValue)
+  {
+    for (final ECSSUnit eUnit : UNITS_LONGEST_FIRST)
+    {
+      final String sUnit = eUnit.getName ();
+      if (sValue.length () > sUnit.length () && sValue.endsWith (sUnit))
+      {
+        // Check that the prefix is a plain number
+        final int nNumberLen = sValue.length () - sUnit.length ();
+        boolean bHasDigit = false;
+        for (int i = 0; i < nNumberLen; ++i)
+        {
+          final char c = sValue.charAt (i);
+          if (c >= '0' && c <= '9')
+            bHasDigit = true;
+          else
+            if (c != '.' && !(i == 0 && (c == '-' || c == '+')))
+              return null;
+        }
+        return bHasDigit ? eUnit : null;
+      }
+    }
+    return null;
+  }
+
+  private void _writeExpressionMember (@Nonnull final ICSSExpressionMember aMember) throws IOException
+  {
+    if (aMember instanceof CSSExpressionMemberTermSimple)
+    {
+      final CSSExpressionMemberTermSimple aTerm = (CSSExpressionMemberTermSimple) aMember;
+      final String sValue = aTerm.getValue ();
+      final ECSSUnit eUnit = _getNumberUnit (sValue);
+      if (eUnit != null)
+      {
+        // Store number and unit separately to maximize the string table hits
+        _writeVarInt (CCSSBinary.EXPR_TERM_NUMBER);
+        _writeString (sValue.substring (0, sValue.length () - eUnit.getName ().length ()));
+        _writeVarInt (eUnit.ordinal ());
+      }
+      else
+      {
+        _writeVarInt (CCSSBinary.EXPR_TERM_SIMPLE);
+        _writeString (sValue);
+      }
+      _writeSourceLocation (aTerm);
+    }
+    else
+      if (aMember instanceof CSSExpressionMemberTermURI)
+      {
+        final CSSExpressionMemberTermURI aTerm = (CSSExpressionMemberTermURI) aMember;
+        _writeVarInt (CCSSBinary.EXPR_TERM_URI);
+        _writeURI (aTerm.getURI ());
+        _writeSourceLocation (aTerm);
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberFunction)
+        {
+          final CSSExpressionMemberFunction aFunction = (CSSExpressionMemberFunction) aMember;
+          _writeVarInt (CCSSBinary.EXPR_FUNCTION);
+          _writeString (aFunction.getFunctionName ());
+          final CSSExpression aExpr = aFunction.getExpression ();
+          _writeBoolean (aExpr != null);
+          if (aExpr != null)
+            _writeExpression (aExpr);
+          _writeSourceLocation (aFunction);
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberMath)
+          {
+            final CSSExpressionMemberMath aMath = (CSSExpressionMemberMath) aMember;
+            _writeVarInt (CCSSBinary.EXPR_MATH);
+            _writeMathMembers (aMath.getAllMembers ());
+            _writeSourceLocation (aMath);
+          }
+          else
+            if (aMember instanceof ECSSExpressionOperator)
+            {
+              _writeVarInt (CCSSBinary.EXPR_OPERATOR);
+              _writeVarInt (((ECSSExpressionOperator) aMember).ordinal ());
+            }
+            else
+              throw new IllegalArgumentException ("Unsupported expression member: " + aMember);
+  }
+
+  private void _writeMathMembers (@Nonnull final List <ICSSExpressionMathMember> aMembers) throws IOException
+  {
+    _writeVarInt (aMembers.size ());
+    for (final ICSSExpressionMathMember aMember : aMembers)
+    {
+      if (aMember instanceof CSSExpressionMemberMathProduct)
+      {
+        _writeVarInt (CCSSBinary.MATH_PRODUCT);
+        _writeMathProduct ((CSSExpressionMemberMathProduct) aMember);
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberMathUnitSimple)
+        {
+          final CSSExpressionMemberMathUnitSimple aUnit = (CSSExpressionMemberMathUnitSimple) aMember;
+          _writeVarInt (CCSSBinary.MATH_UNIT_SIMPLE);
+          _writeString (aUnit.getText ());
+          _writeSourceLocation (aUnit);
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberMathUnitProduct)
+          {
+            final CSSExpressionMemberMathUnitProduct aUnit = (CSSExpressionMemberMathUnitProduct) aMember;
+            _writeVarInt (CCSSBinary.MATH_UNIT_PRODUCT);
+            _writeMathProduct (aUnit.getProduct ());
+            _writeSourceLocation (aUnit);
+          }
+          else
+            if (aMember instanceof ECSSMathOperator)
+            {
+              _writeVarInt (CCSSBinary.MATH_OPERATOR);
+              _writeVarInt (((ECSSMathOperator) aMember).ordinal ());
+            }
+            else
+              throw new IllegalArgumentException ("Unsupported math member: " + aMember);
+    }
+  }
+
+  private void _writeMathProduct (@Nonnull final CSSExpressionMemberMathProduct aProduct) throws IOException
+  {
+    _writeMathMembers (aProduct.getAllMembers ());
+    _writeSourceLocation (aProduct);
+  }
+
+  private void _writeExpression (@Nonnull final CSSExpression aExpr) throws IOException
+  {
+    final List <ICSSExpressionMember> aMembers = aExpr.getAllMembers ();
+    _writeVarInt (aMembers.size ());
+    for (final ICSSExpressionMember aMember : aMembers)
+      _writeExpressionMember (aMember);
+    _writeSourceLocation (aExpr);
+  }
+
+  private void _writeDeclaration (@Nonnull final CSSDeclaration aDecl) throws IOException
+  {
+    // Use the enum ordinal for all known properties
+    final String sProperty = aDecl.getProperty ();
+    final ECSSProperty eProperty = ECSSProperty.getFromNameOrNull (sProperty);
+    final int nImportant = aDecl.isImportant () ? 1 : 0;
+    if (eProperty != null && eProperty.getName ().equals (sProperty))
+      _writeVarInt (((eProperty.ordinal () + 1) << 1) | nImportant);
+    else
+    {
+      _writeVarInt (nImportant);
+      _writeString (sProperty);
+    }
+    _writeExpression (aDecl.getExpression ());
+    _writeSourceLocation (aDecl);
+  }
+
+  private void _writeDeclarations (@Nonnull final List <CSSDeclaration> aDecls) throws IOException
+  {
+    _writeVarInt (aDecls.size ());
+    for (final CSSDeclaration aDecl : aDecls)
+      _writeDeclaration (aDecl);
+  }
+
+  private void _writeSelector (@Nonnull final CSSSelector aSelector) throws IOException
+  {
+    final List <ICSSSelectorMember> aMembers = aSelector.getAllMembers ();
+    _writeVarInt (aMembers.size ());
+    for (final ICSSSelectorMember aMember : aMembers)
+    {
+      if (aMember instanceof CSSSelectorSimpleMember)
+      {
+        final CSSSelectorSimpleMember aSimple = (CSSSelectorSimpleMember) aMember;
+        _writeVarInt (CCSSBinary.SELECTOR_SIMPLE);
+        _writeString (aSimple.getValue ());
+        _writeSourceLocation (aSimple);
+      }
+      else
+        if (aMember instanceof CSSSelectorAttribute)
+        {
+          final CSSSelectorAttribute aAttr = (CSSSelectorAttribute) aMember;
+          _writeVarInt (CCSSBinary.SELECTOR_ATTRIBUTE);
+          _writeString (aAttr.getNamespacePrefix ());
+          _writeString (aAttr.getAttrName ());
+          final ECSSAttributeOperator eOperator = aAttr.getOperator ();
+          if (eOperator == null)
+            _writeVarInt (0);
+          else
+          {
+            _writeVarInt (eOperator.ordinal () + 1);
+            _writeString (aAttr.getAttrValue ());
+          }
+          _writeSourceLocation (aAttr);
+        }
+        else
+          if (aMember instanceof CSSSelectorMemberNot)
+          {
+            final CSSSelectorMemberNot aNot = (CSSSelectorMemberNot) aMember;
+            _writeVarInt (CCSSBinary.SELECTOR_NOT);
+            _writeSelectors (aNot.getAllSelectors ());
+            _writeSourceLocation (aNot);
+          }
+          else
+            if (aMember instanceof CSSSelectorMemberFunctionLike)
+            {
+              final CSSSelectorMemberFunctionLike aFunction = (CSSSelectorMemberFunctionLike) aMember;
+              _writeVarInt (CCSSBinary.SELECTOR_FUNCTION);
+              _writeString (aFunction.getFunctionName ());
+              _writeExpression (aFunction.getParameterExpression ());
+              _writeSourceLocation (aFunction);
+            }
+            else
+              if (aMember instanceof ECSSSelectorCombinator)
+              {
+                _writeVarInt (CCSSBinary.SELECTOR_COMBINATOR);
+                _writeVarInt (((ECSSSelectorCombinator) aMember).ordinal ());
+              }
+              else
+                throw new IllegalArgumentException ("Unsupported selector member: " + aMember);
+    }
+    _writeSourceLocation (aSelector);
+  }
+
+  private void _writeSelectors (@Nonnull final List <CSSSelector> aSelectors) throws IOException
+  {
+    _writeVarInt (aSelectors.size ());
+    for (final CSSSelector aSelector : aSelectors)
+      _writeSelector (aSelector);
+  }
+
+  private void _writeMediaQueries (@Nonnull final List <CSSMediaQuery> aMediaQueries) throws IOException
+  {
+    _writeVarInt (aMediaQueries.size ());
+    for (final CSSMediaQuery aMediaQuery : aMediaQueries)
+    {
+      _writeVarInt (aMediaQuery.getModifier ().ordinal ());
+      _writeString (aMediaQuery.getMedium ());
+      final List <CSSMediaExpression> aMediaExprs = aMediaQuery.getAllMediaExpressions ();
+      _writeVarInt (aMediaExprs.size ());
+      for (final CSSMediaExpression aMediaExpr : aMediaExprs)
+      {
+        _writeString (aMediaExpr.getFeature ());
+        final CSSExpression aValue = aMediaExpr.getValue ();
+        _writeBoolean (aValue != null);
+        if (aValue != null)
+          _writeExpression (aValue);
+        _writeSourceLocation (aMediaExpr);
+      }
+      _writeSourceLocation (aMediaQuery);
+    }
+  }
+
+  private void _writeSupportsConditionMember (@Nonnull final ICSSSupportsConditionMember aMember) throws IOException
+  {
+    if (aMember instanceof CSSSupportsConditionDeclaration)
+    {
+      final CSSSupportsConditionDeclaration aDecl = (CSSSupportsConditionDeclaration) aMember;
+      _writeVarInt (CCSSBinary.SUPPORTS_DECLARATION);
+      _writeDeclaration (aDecl.getDeclaration ());
+      _writeSourceLocation (aDecl);
+    }
+    else
+      if (aMember instanceof CSSSupportsConditionNegation)
+      {
+        final CSSSupportsConditionNegation aNegation = (CSSSupportsConditionNegation) aMember;
+        _writeVarInt (CCSSBinary.SUPPORTS_NEGATION);
+        _writeSupportsConditionMember (aNegation.getSupportsMember ());
+        _writeSourceLocation (aNegation);
+      }
+      else
+        if (aMember instanceof CSSSupportsConditionNested)
+        {
+          final CSSSupportsConditionNested aNested = (CSSSupportsConditionNested) aMember;
+          _writeVarInt (CCSSBinary.SUPPORTS_NESTED);
+          _writeSupportsConditionMembers (aNested.getAllMembers ());
+          _writeSourceLocation (aNested);
+        }
+        else
+          if (aMember instanceof ECSSSupportsConditionOperator)
+          {
+            _writeVarInt (CCSSBinary.SUPPORTS_OPERATOR);
+            _writeVarInt (((ECSSSupportsConditionOperator) aMember).ordinal ());
+          }
+          else
+            throw new IllegalArgumentException ("Unsupported supports condition member: " + aMember);
+  }
+
+  private void _writeSupportsConditionMembers (@Nonnull final List <ICSSSupportsConditionMember> aMembers) throws IOException
+  {
+    _writeVarInt (aMembers.size ());
+    for (final ICSSSupportsConditionMember aMember : aMembers)
+      _writeSupportsConditionMember (aMember);
+  }
+
+  private void _writeRules (@Nonnull final List <ICSSTopLevelRule> aRules) throws IOException
+  {
+    _writeVarInt (aRules.size ());
+    for (final ICSSTopLevelRule aRule : aRules)
+      _writeRule (aRule);
+  }
+
+  private void _writeRule (@Nonnull final ICSSTopLevelRule aRule) throws IOException
+  {
+    if (aRule instanceof CSSStyleRule)
+    {
+      final CSSStyleRule aStyleRule = (CSSStyleRule) aRule;
+      _writeVarInt (CCSSBinary.TAG_STYLE);
+      _writeSelectors (aStyleRule.getAllSelectors ());
+      _writeDeclarations (aStyleRule.getAllDeclarations ());
+      _writeSourceLocation (aStyleRule);
+    }
+    else
+      if (aRule instanceof CSSPageRule)
+      {
+        final CSSPageRule aPageRule = (CSSPageRule) aRule;
+        _writeVarInt (CCSSBinary.TAG_PAGE);
+        _writeString (aPageRule.getPseudoPage ());
+        _writeDeclarations (aPageRule.getAllDeclarations ());
+        _writeSourceLocation (aPageRule);
+      }
+      else
+        if (aRule instanceof CSSMediaRule)
+        {
+          final CSSMediaRule aMediaRule = (CSSMediaRule) aRule;
+          _writeVarInt (CCSSBinary.TAG_MEDIA);
+          _writeMediaQueries (aMediaRule.getAllMediaQueries ());
+          _writeRules (aMediaRule.getAllRules ());
+          _writeSourceLocation (aMediaRule);
+        }
+        else
+          if (aRule instanceof CSSFontFaceRule)
+          {
+            final CSSFontFaceRule aFontFaceRule = (CSSFontFaceRule) aRule;
+            _writeVarInt (CCSSBinary.TAG_FONT_FACE);
+            _writeDeclarations (aFontFaceRule.getAllDeclarations ());
+            _writeSourceLocation (aFontFaceRule);
+          }
+          else
+            if (aRule instanceof CSSKeyframesRule)
+            {
+              final CSSKeyframesRule aKeyframesRule = (CSSKeyframesRule) aRule;
+              _writeVarInt (CCSSBinary.TAG_KEYFRAMES);
+              _writeString (aKeyframesRule.getDeclaration ());
+              _writeString (aKeyframesRule.getAnimationName ());
+              final List <CSSKeyframesBlock> aBlocks = aKeyframesRule.getAllBlocks ();
+              _writeVarInt (aBlocks.size ());
+              for (final CSSKeyframesBlock aBlock : aBlocks)
+              {
+                final List <String> aKeyframesSelectors = aBlock.getAllKeyframesSelectors ();
+                _writeVarInt (aKeyframesSelectors.size ());
+                for (final String sKeyframesSelector : aKeyframesSelectors)
+                  _writeString (sKeyframesSelector);
+                _writeDeclarations (aBlock.getAllDeclarations ());
+                _writeSourceLocation (aBlock);
+              }
+              _writeSourceLocation (aKeyframesRule);
+            }
+            else
+              if (aRule instanceof CSSViewportRule)
+              {
+                final CSSViewportRule aViewportRule = (CSSViewportRule) aRule;
+                _writeVarInt (CCSSBinary.TAG_VIEWPORT);
+                _writeString (aViewportRule.getDeclaration ());
+                _writeDeclarations (aViewportRule.getAllDeclarations ());
+                _writeSourceLocation (aViewportRule);
+              }
+              else
+                if (aRule instanceof CSSSupportsRule)
+                {
+                  final CSSSupportsRule aSupportsRule = (CSSSupportsRule) aRule;
+                  _writeVarInt (CCSSBinary.TAG_SUPPORTS);
+                  _writeSupportsConditionMembers (aSupportsRule.getAllSupportConditionMembers ());
+                  _writeRules (aSupportsRule.getAllRules ());
+                  _writeSourceLocation (aSupportsRule);
+                }
+                else
+                  if (aRule instanceof CSSUnknownRule)
+                  {
+                    final CSSUnknownRule aUnknownRule = (CSSUnknownRule) aRule;
+                    _writeVarInt (CCSSBinary.TAG_UNKNOWN);
+                    _writeString (aUnknownRule.getDeclaration ());
+                    _writeString (aUnknownRule.getParameterList ());
+                    _writeString (aUnknownRule.getBody ());
+                    _writeSourceLocation (aUnknownRule);
+                  }
+                  else
+                    throw new IllegalArgumentException ("Unsupported top-level rule: " + aRule);
+  }
+
+  /**
+   * Write a single import rule.
+   * 
+   * @param aImportRule
+   *        The import rule to write. May not be <code>null</code>.
+   * @return this
+   * @throws IOException
+   *         In case writing fails
+   */
+  @Nonnull
+  public CSSBinaryWriter writeImportRule (@Nonnull final CSSImportRule aImportRule) throws IOException
+  {
+    ValueEnforcer.notNull (aImportRule, "ImportRule");
+    _checkOpen ();
+
+    _writeVarInt (CCSSBinary.TAG_IMPORT);
+    _writeURI (aImportRule.getLocation ());
+    _writeMediaQueries (aImportRule.getAllMediaQueries ());
+    _writeSourceLocation (aImportRule);
+    return this;
+  }
+
+  /**
+   * Write a single namespace rule.
+   * 
+   * @param aNamespaceRule
+   *        The namespace rule to write. May not be <code>null</code>.
+   * @return this
+   * @throws IOException
+   *         In case writing fails
+   */
+  @Nonnull
+  public CSSBinaryWriter writeNamespaceRule (@Nonnull final CSSNamespaceRule aNamespaceRule) throws IOException
+  {
+    ValueEnforcer.notNull (aNamespaceRule, "NamespaceRule");
+    _checkOpen ();
+
+    _writeVarInt (CCSSBinary.TAG_NAMESPACE);
+    _writeString (aNamespaceRule.getNamespacePrefix ());
+    _writeString (aNamespaceRule.getNamespaceURL ());
+    _writeSourceLocation (aNamespaceRule);
+    return this;
+  }
+
+  /**
+   * Write a single top-level rule.
+   * 
+   * @param aRule
+   *        The rule to write. May not be <code>null</code>.
+   * @return this
+   * @throws IOException
+   *         In case writing fails
+   */
+  @Nonnull
+  public CSSBinaryWriter writeRule (@Nonnull final ICSSTopLevelRule aRule) throws IOException
+  {
+    ValueEnforcer.notNull (aRule, "Rule");
+    _checkOpen ();
+
+    _writeRule (aRule);
+    return this;
+  }
+
+  /**
+   * Write all import rules, namespace rules and top-level rules of the passed
+   * style sheet. The source location of the style sheet itself is not written.
+   * 
+   * @param aCSS
+   *        The style sheet to write. May not be <code>null</code>.
+   * @return this
+   * @throws IOException
+   *         In case writing fails
+   */
+  @Nonnull
+  public CSSBinaryWriter writeStyleSheet (@Nonnull final CascadingStyleSheet aCSS) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    for (final CSSImportRule aImportRule : aCSS.getAllImportRules ())
+      writeImportRule (aImportRule);
+    for (final CSSNamespaceRule aNamespaceRule : aCSS.getAllNamespaceRules ())
+      writeNamespaceRule (aNamespaceRule);
+    for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+      writeRule (aRule);
+    return this;
+  }
+
+  public void flush () throws IOException
+  {
+    m_aOS.flush ();
+  }
+
+  /**
+   * Write the end marker and close the underlying stream. Calling this method
+   * more than once has no effect.
+   */
+  public void close () throws IOException
+  {
+    if (!m_bClosed)
+    {
+      m_bClosed = true;
+      try
+      {
+        _writeVarInt (CCSSBinary.TAG_END);
+        m_aOS.flush ();
+      }
+      finally
+      {
+        StreamUtils.close (m_aOS);
+      }
+    }
+  }
+
+  /**
+   * Write the passed style sheet in the binary format to the passed output
+   * stream.
+   * 
+   * @param aCSS
+   *        The style sheet to write. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        automatically closed after writing.
+   * @param bWriteSourceLocations
+   *        <code>true</code> to include the source locations of all objects.
+   * @throws IOException
+   *         In case writing fails
+   */
+  public static void writeCSS (@Nonnull final CascadingStyleSheet aCSS,
+                               @Nonnull @WillCloseWhenClosed final OutputStream aOS,
+                               final boolean bWriteSourceLocations) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    final CSSBinaryWriter aWriter = new CSSBinaryWriter (aOS, bWriteSourceLocations);
+    try
+    {
+      aWriter.writeStyleSheet (aCSS);
+    }
+    finally
+    {
+      aWriter.close ();
+    }
+  }
+
+  /**
+   * Get the passed style sheet in the binary format without source locations.
+   * 
+   * @param aCSS
+   *        The style sheet to convert. May not be <code>null</code>.
+   * @return The binary representation. Never <code>null</code>.
+   */
+  @Nonnull
+  public static byte [] getAsBytes (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    return getAsBytes (aCSS, false);
+  }
+
+  /**
+   * Get the passed style sheet in the binary format.
+   * 
+   * @param aCSS
+   *        The style sheet to convert. May not be <code>null</code>.
+   * @param bWriteSourceLocations
+   *        <code>true</code> to include the source locations of all objects.
+   * @return The binary representation. Never <code>null</code>.
+   */
+  @Nonnull
+  public static byte [] getAsBytes (@Nonnull final CascadingStyleSheet aCSS, final boolean bWriteSourceLocations)
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try
+    {
+      writeCSS (aCSS, aBAOS, bWriteSourceLocations);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to write to byte array", ex);
+    }
+    return aBAOS.toByteArray ();
+  }
+}
@@ -0,0 +1,659 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.cascade;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.equals.EqualsUtils;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSDeclarationList;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSSupportsRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSTopLevelRules;
+import com.phloc.css.handler.DoNothingCSSParseExceptionHandler;
+import com.phloc.css.handler.ICSSParseExceptionHandler;
+import com.phloc.css.match.CSSCompiledSelector;
+import com.phloc.css.match.CSSCompiledSelectorCache;
+import com.phloc.css.match.ICSSElementNavigator;
+import com.phloc.css.match.MicroElementNavigator;
+import com.phloc.css.match.W3CElementNavigator;
+import com.phloc.css.media.ICSSMediaContext;
+import com.phloc.css.property.ECSSProperty;
+import com.phloc.css.propertyvalue.CCSSValue;
+import com.phloc.css.reader.CSSReaderDeclarationList;
+import com.phloc.css.reader.errorhandler.DoNothingCSSParseErrorHandler;
+import com.phloc.css.reader.errorhandler.ICSSParseErrorHandler;
+
+/**
+ * Determines the cascaded value of each property for the elements of a
+ * document, as needed for server-side rendering (e.g. of e-mails or PDFs).
+ * <p>
+ * Style sheets are added together with their origin. Only the style rules of
+ * <code>@media</code> rules that apply in the media context are considered.
+ * The content of <code>@supports</code> rules is always considered.
+ * <code>@import</code> rules are not resolved - the imported style sheets
+ * must be added explicitly. For every element, the matching selectors are
+ * determined and the declarations are ordered by origin and
+ * <code>!important</code>, by specificity and by source order. The
+ * declarations of the HTML <code>style</code> attribute win over all normal
+ * author declarations. The keywords <code>inherit</code>,
+ * <code>initial</code> and <code>unset</code> are applied, and the values of
+ * all properties that are inherited by default (see
+ * {@link ECSSProperty#isInherited()}) and all custom properties are
+ * inherited from the parent element. Shorthand properties are not expanded -
+ * instead the declarations are kept in cascade order (see
+ * {@link CSSComputedStyle}).
+ * <p>
+ * Dynamic pseudo classes (like <code>:hover</code>) and pseudo elements never
+ * match.
+ * <p>
+ * For fast matching, the selectors are indexed by the ID, the first class or
+ * the element name of their rightmost compound selector, so that for each
+ * element only the selectors that can match at all are evaluated. Elements
+ * with the same parent style, the same matching rules and the same
+ * <code>style</code> attribute share a single {@link CSSComputedStyle}
+ * object, which is typical for sibling elements. In this case the cascade is
+ * only calculated once.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSCascadeResolver
+{
+  /**
+   * A single selector of a style rule.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class RuleEntry
+  {
+    private final int m_nID;
+    private final int m_nOrder;
+    private final ECSSOrigin m_eOrigin;
+    private final CSSCompiledSelector m_aSelector;
+    private final List <CSSDeclaration> m_aDeclarations;
+
+    RuleEntry (@Nonnegative final int nID,
+               @Nonnegative final int nOrder,
+               @Nonnull final ECSSOrigin eOrigin,
+               @Nonnull final CSSCompiledSelector aSelector,
+               @Nonnull final List <CSSDeclaration> aDeclarations)
+    {
+      m_nID = nID;
+      m_nOrder = nOrder;
+      m_eOrigin = eOrigin;
+      m_aSelector = aSelector;
+      m_aDeclarations = aDeclarations;
+    }
+  }
+
+  /**
+   * Orders rule entries by specificity and source order.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class RuleEntryComparator implements Comparator <RuleEntry>
+  {
+    static final RuleEntryComparator INSTANCE = new RuleEntryComparator ();
+
+    public int compare (@Nonnull final RuleEntry aEntry1, @Nonnull final RuleEntry aEntry2)
+    {
+      final int ret = aEntry1.m_aSelector.getSpecificity ().compareTo (aEntry2.m_aSelector.getSpecificity ());
+      if (ret != 0)
+        return ret;
+      return aEntry1.m_nOrder < aEntry2.m_nOrder ? -1 : aEntry1.m_nOrder == aEntry2.m_nOrder ? 0 : 1;
+    }
+  }
+
+  /**
+   * Key for sharing computed styles: the parent style (by identity), the IDs
+   * of all matching rule entries and the inline style.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class StyleKey
+  {
+    private final CSSComputedStyle m_aParentStyle;
+    private final int [] m_aRuleEntryIDs;
+    private final String m_sInlineStyle;
+    private final int m_nHashCode;
+
+    StyleKey (@Nullable final CSSComputedStyle aParentStyle,
+              @Nonnull final int [] aRuleEntryIDs,
+              @Nullable final String sInlineStyle)
+    {
+      m_aParentStyle = aParentStyle;
+      m_aRuleEntryIDs = aRuleEntryIDs;
+      m_sInlineStyle = sInlineStyle;
+      // Calculated manually, as this is called for each element
+      m_nHashCode = (System.identityHashCode (aParentStyle) * 31 + Arrays.hashCode (aRuleEntryIDs)) * 31 +
+                    (sInlineStyle == null ? 0 : sInlineStyle.hashCode ());
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof StyleKey))
+        return false;
+      final StyleKey rhs = (StyleKey) o;
+      return m_aParentStyle == rhs.m_aParentStyle &&
+             Arrays.equals (m_aRuleEntryIDs, rhs.m_aRuleEntryIDs) &&
+             EqualsUtils.equals (m_sInlineStyle, rhs.m_sInlineStyle);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The state of a single resolution run.
+   * 
+   * @author Philip Helger
+   */
+  @NotThreadSafe
+  private static final class Context
+  {
+    private final Map <StyleKey, CSSComputedStyle> m_aSharedStyles = new HashMap <StyleKey, CSSComputedStyle> ();
+    private final Map <String, List <CSSDeclaration>> m_aInlineStyles = new HashMap <String, List <CSSDeclaration>> ();
+  }
+
+  private final ICSSMediaContext m_aMediaContext;
+  private final Map <String, List <RuleEntry>> m_aIDRules = new HashMap <String, List <RuleEntry>> ();
+  private final Map <String, List <RuleEntry>> m_aClassRules = new HashMap <String, List <RuleEntry>> ();
+  private final Map <String, List <RuleEntry>> m_aElementRules = new HashMap <String, List <RuleEntry>> ();
+  private final List <RuleEntry> m_aUniversalRules = new ArrayList <RuleEntry> ();
+  private int m_nRuleEntryCount = 0;
+  private int m_nStyleRuleCount = 0;
+
+  /**
+   * Constructor
+   * 
+   * @param aMediaContext
+   *        The media context to evaluate <code>@media</code> rules with. May
+   *        not be <code>null</code>.
+   */
+  public CSSCascadeResolver (@Nonnull final ICSSMediaContext aMediaContext)
+  {
+    m_aMediaContext = ValueEnforcer.notNull (aMediaContext, "MediaContext");
+  }
+
+  /**
+   * @return The media context passed in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public ICSSMediaContext getMediaContext ()
+  {
+    return m_aMediaContext;
+  }
+
+  /**
+   * @return The number of indexed selectors of all added style sheets. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public int getRuleEntryCount ()
+  {
+    return m_nRuleEntryCount;
+  }
+
+  private static void _addToIndex (@Nonnull final Map <String, List <RuleEntry>> aIndex,
+                                   @Nonnull final String sKey,
+                                   @Nonnull final RuleEntry aEntry)
+  {
+    List <RuleEntry> aEntries = aIndex.get (sKey);
+    if (aEntries == null)
+    {
+      aEntries = new ArrayList <RuleEntry> ();
+      aIndex.put (sKey, aEntries);
+    }
+    aEntries.add (aEntry);
+  }
+
+  private void _addRules (@Nonnull final IHasCSSTopLevelRules aRules, @Nonnull final ECSSOrigin eOrigin)
+  {
+    for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+      if (aRule instanceof CSSStyleRule)
+      {
+        final CSSStyleRule aStyleRule = (CSSStyleRule) aRule;
+        final List <CSSDeclaration> aDeclarations = aStyleRule.getAllDeclarations ();
+        if (aDeclarations.isEmpty ())
+          continue;
+
+        final int nOrder = m_nStyleRuleCount++;
+        for (final CSSSelector aSelector : aStyleRule.getAllSelectors ())
+        {
+          final CSSCompiledSelector aCompiled = CSSCompiledSelectorCache.getCompiledSelector (aSelector);
+          final RuleEntry aEntry = new RuleEntry (m_nRuleEntryCount++, nOrder, eOrigin, aCompiled, aDeclarations);
+          if (aCompiled.getSubjectID () != null)
+            _addToIndex (m_aIDRules, aCompiled.getSubjectID (), aEntry);
+          else
+            if (aCompiled.getSubjectClass () != null)
+              _addToIndex (m_aClassRules, aCompiled.getSubjectClass (), aEntry);
+            else
+              if (aCompiled.getSubjectElementName () != null)
+                _addToIndex (m_aElementRules, aCompiled.getSubjectElementName (), aEntry);
+              else
+                m_aUniversalRules.add (aEntry);
+        }
+      }
+      else
+        if (aRule instanceof CSSMediaRule)
+        {
+          final CSSMediaRule aMediaRule = (CSSMediaRule) aRule;
+          if (m_aMediaContext.matchesMediaQueries (aMediaRule.getAllMediaQueries ()))
+            _addRules (aMediaRule, eOrigin);
+        }
+        else
+          if (aRule instanceof CSSSupportsRule)
+            _addRules ((CSSSupportsRule) aRule, eOrigin);
+  }
+
+  /**
+   * Add a style sheet. Style sheets must be added in source order - e.g. in
+   * the order of the <code>link</code> and <code>style</code> elements of an
+   * HTML document. Later modifications of the style sheet are not considered.
+   * 
+   * @param aCSS
+   *        The style sheet to add. May not be <code>null</code>.
+   * @param eOrigin
+   *        The origin of the style sheet. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSCascadeResolver addStyleSheet (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final ECSSOrigin eOrigin)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (eOrigin, "Origin");
+
+    _addRules (aCSS, eOrigin);
+    return this;
+  }
+
+  private static void _addCandidates (@Nullable final List <RuleEntry> aEntries,
+                                      @Nonnull final List <RuleEntry> aCandidates)
+  {
+    if (aEntries != null)
+      aCandidates.addAll (aEntries);
+  }
+
+  @Nonnull
+  private <ELEMENTTYPE> List <RuleEntry> _getMatchingRules (@Nonnull final ELEMENTTYPE aElement,
+                                                            @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav)
+  {
+    final List <RuleEntry> aCandidates = new ArrayList <RuleEntry> ();
+    final String sID = aNav.getAttribute (aElement, "id");
+    if (sID != null)
+      _addCandidates (m_aIDRules.get (sID), aCandidates);
+    final String sClasses = aNav.getAttribute (aElement, "class");
+    if (sClasses != null)
+    {
+      final Set <String> aClasses = new HashSet <String> ();
+      final int nLength = sClasses.length ();
+      int nStart = 0;
+      while (nStart < nLength)
+      {
+        while (nStart < nLength && Character.isWhitespace (sClasses.charAt (nStart)))
+          ++nStart;
+        int nEnd = nStart;
+        while (nEnd < nLength && !Character.isWhitespace (sClasses.charAt (nEnd)))
+          ++nEnd;
+        if (nEnd > nStart)
+        {
+          final String sClass = sClasses.substring (nStart, nEnd);
+          if (aClasses.add (sClass))
+            _addCandidates (m_aClassRules.get (sClass), aCandidates);
+        }
+        nStart = nEnd;
+      }
+    }
+    _addCandidates (m_aElementRules.get (aNav.getElementName (aElement).toLowerCase (Locale.US)), aCandidates);
+    aCandidates.addAll (m_aUniversalRules);
+
+    final List <RuleEntry> ret = new ArrayList <RuleEntry> ();
+    for (final RuleEntry aEntry : aCandidates)
+      if (aEntry.m_aSelector.matches (aElement, aNav, false))
+        ret.add (aEntry);
+    Collections.sort (ret, RuleEntryComparator.INSTANCE);
+    return ret;
+  }
+
+  @Nonnull
+  private static List <CSSDeclaration> _getInlineDeclarations (@Nonnull final String sInlineStyle,
+                                                               @Nonnull final Context aContext)
+  {
+    List <CSSDeclaration> ret = aContext.m_aInlineStyles.get (sInlineStyle);
+    if (ret == null)
+    {
+      // Invalid declarations are skipped, like in browsers
+      final ICSSParseErrorHandler aErrorHandler = DoNothingCSSParseErrorHandler.getInstance ();
+      final ICSSParseExceptionHandler aExceptionHandler = DoNothingCSSParseExceptionHandler.getInstance ();
+      final CSSDeclarationList aList = CSSReaderDeclarationList.readFromString (sInlineStyle,
+                                                                                ECSSVersion.CSS30,
+                                                                                aErrorHandler,
+                                                                                aExceptionHandler);
+      ret = aList == null ? new ArrayList <CSSDeclaration> () : aList.getAllDeclarations ();
+      aContext.m_aInlineStyles.put (sInlineStyle, ret);
+    }
+    return ret;
+  }
+
+  private static void _apply (@Nonnull final List <CSSDeclaration> aDeclarations,
+                              final boolean bImportant,
+                              @Nonnull final Map <String, CSSDeclaration> aTarget)
+  {
+    for (final CSSDeclaration aDeclaration : aDeclarations)
+      if (aDeclaration.isImportant () == bImportant)
+      {
+        // Remove first, so that the new declaration is added at the end
+        aTarget.remove (aDeclaration.getProperty ());
+        aTarget.put (aDeclaration.getProperty (), aDeclaration);
+      }
+  }
+
+  private static void _apply (@Nonnull final List <RuleEntry> aMatchingRules,
+                              @Nonnull final ECSSOrigin eOrigin,
+                              final boolean bImportant,
+                              @Nonnull final Map <String, CSSDeclaration> aTarget)
+  {
+    for (final RuleEntry aEntry : aMatchingRules)
+      if (aEntry.m_eOrigin == eOrigin)
+        _apply (aEntry.m_aDeclarations, bImportant, aTarget);
+  }
+
+  /**
+   * Check if the passed property is inherited by default.
+   * 
+   * @param sProperty
+   *        The lower case property name. May not be <code>null</code>.
+   * @return <code>true</code> for all custom properties and for all
+   *         properties marked as inherited in {@link ECSSProperty}.
+   */
+  public static boolean isInheritedProperty (@Nonnull final String sProperty)
+  {
+    if (sProperty.startsWith ("--"))
+      return true;
+    final ECSSProperty eProperty = ECSSProperty.getFromNameOrNullHandlingHacks (sProperty);
+    return eProperty != null && eProperty.isInherited ();
+  }
+
+  @Nullable
+  private static String _getCSSWideKeyword (@Nonnull final CSSDeclaration aDeclaration)
+  {
+    final List <ICSSExpressionMember> aMembers = aDeclaration.getExpression ().getAllMembers ();
+    if (aMembers.size () == 1 && aMembers.get (0) instanceof CSSExpressionMemberTermSimple)
+    {
+      final String sValue = ((CSSExpressionMemberTermSimple) aMembers.get (0)).getValue ().toLowerCase (Locale.US);
+      if (sValue.equals (CCSSValue.INHERIT) || sValue.equals (CCSSValue.INITIAL) || sValue.equals (CCSSValue.UNSET))
+        return sValue;
+    }
+    return null;
+  }
+
+  @Nonnull
+  private static CSSComputedStyle _createStyle (@Nonnull final List <RuleEntry> aMatchingRules,
+                                                @Nonnull final List <CSSDeclaration> aInlineDeclarations,
+                                                @Nullable final CSSComputedStyle aParentStyle)
+  {
+    // The cascade: later declarations overwrite earlier ones
+    final Map <String, CSSDeclaration> aCascaded = new LinkedHashMap <String, CSSDeclaration> ();
+    _apply (aMatchingRules, ECSSOrigin.USER_AGENT, false, aCascaded);
+    _apply (aMatchingRules, ECSSOrigin.USER, false, aCascaded);
+    _apply (aMatchingRules, ECSSOrigin.AUTHOR, false, aCascaded);
+    _apply (aInlineDeclarations, false, aCascaded);
+    _apply (aMatchingRules, ECSSOrigin.AUTHOR, true, aCascaded);
+    _apply (aInlineDeclarations, true, aCascaded);
+    _apply (aMatchingRules, ECSSOrigin.USER, true, aCascaded);
+    _apply (aMatchingRules, ECSSOrigin.USER_AGENT, true, aCascaded);
+
+    final Map <String, CSSDeclaration> aDeclarations = new LinkedHashMap <String, CSSDeclaration> ();
+    final Set <String> aInherited = new HashSet <String> ();
+    final Map <String, CSSDeclaration> aParentDeclarations = aParentStyle == null ? null
+                                                                                 : aParentStyle.getDeclarationMap ();
+
+    // Inherited values come first, so that they are overwritten by the
+    // element's own declarations
+    if (aParentDeclarations != null)
+      for (final Map.Entry <String, CSSDeclaration> aEntry : aParentDeclarations.entrySet ())
+      {
+        final String sProperty = aEntry.getKey ();
+        if (!aCascaded.containsKey (sProperty) && isInheritedProperty (sProperty))
+        {
+          aDeclarations.put (sProperty, aEntry.getValue ());
+          aInherited.add (sProperty);
+        }
+      }
+
+    for (final Map.Entry <String, CSSDeclaration> aEntry : aCascaded.entrySet ())
+    {
+      final String sProperty = aEntry.getKey ();
+      final String sKeyword = _getCSSWideKeyword (aEntry.getValue ());
+      if (sKeyword == null)
+        aDeclarations.put (sProperty, aEntry.getValue ());
+      else
+        if (sKeyword.equals (CCSSValue.INHERIT) ||
+            (sKeyword.equals (CCSSValue.UNSET) && isInheritedProperty (sProperty)))
+        {
+          final CSSDeclaration aParentDeclaration = aParentDeclarations == null ? null
+                                                                                : aParentDeclarations.get (sProperty);
+          if (aParentDeclaration != null)
+          {
+            aDeclarations.put (sProperty, aParentDeclaration);
+            aInherited.add (sProperty);
+          }
+        }
+      // else the initial value is used, which is not known here
+    }
+    return new CSSComputedStyle (aDeclarations, aInherited);
+  }
+
+  @Nonnull
+  private <ELEMENTTYPE> CSSComputedStyle _getComputedStyle (@Nonnull final ELEMENTTYPE aElement,
+                                                            @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                                            @Nullable final CSSComputedStyle aParentStyle,
+                                                            @Nonnull final Context aContext)
+  {
+    final List <RuleEntry> aMatchingRules = _getMatchingRules (aElement, aNav);
+    final int [] aRuleEntryIDs = new int [aMatchingRules.size ()];
+    for (int i = 0; i < aRuleEntryIDs.length; ++i)
+      aRuleEntryIDs[i] = aMatchingRules.get (i).m_nID;
+    final String sInlineStyle = aNav.getAttribute (aElement, "style");
+
+    final StyleKey aKey = new StyleKey (aParentStyle, aRuleEntryIDs, sInlineStyle);
+    CSSComputedStyle ret = aContext.m_aSharedStyles.get (aKey);
+    if (ret == null)
+    {
+      final List <CSSDeclaration> aInlineDeclarations = sInlineStyle == null ? new ArrayList <CSSDeclaration> ()
+                                                                             : _getInlineDeclarations (sInlineStyle,
+                                                                                                       aContext);
+      ret = _createStyle (aMatchingRules, aInlineDeclarations, aParentStyle);
+      aContext.m_aSharedStyles.put (aKey, ret);
+    }
+    return ret;
+  }
+
+  private <ELEMENTTYPE> void _getAllComputedStyles (@Nonnull final ELEMENTTYPE aElement,
+                                                    @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                                    @Nullable final CSSComputedStyle aParentStyle,
+                                                    @Nonnull final Context aContext,
+                                                    @Nonnull final Map <ELEMENTTYPE, CSSComputedStyle> aTarget)
+  {
+    final CSSComputedStyle aStyle = _getComputedStyle (aElement, aNav, aParentStyle, aContext);
+    aTarget.put (aElement, aStyle);
+    for (ELEMENTTYPE aChild = aNav.getFirstChildElement (aElement); aChild != null;
+         aChild = aNav.getNextSiblingElement (aChild))
+      _getAllComputedStyles (aChild, aNav, aStyle, aContext, aTarget);
+  }
+
+  /**
+   * Determine the computed styles of the passed element and all its
+   * descendant elements.
+   * 
+   * @param aRootElement
+   *        The element to start at. Styles are inherited from the ancestors
+   *        of this element. May not be <code>null</code>.
+   * @param aNav
+   *        The navigator for the element tree. May not be <code>null</code>.
+   * @return A map from element (by identity) to its computed style. Never
+   *         <code>null</code>.
+   * @param <ELEMENTTYPE>
+   *        The element type
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public <ELEMENTTYPE> Map <ELEMENTTYPE, CSSComputedStyle> getAllComputedStyles (@Nonnull final ELEMENTTYPE aRootElement,
+                                                                                @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav)
+  {
+    ValueEnforcer.notNull (aRootElement, "RootElement");
+    ValueEnforcer.notNull (aNav, "Nav");
+
+    final Context aContext = new Context ();
+    final ELEMENTTYPE aParent = aNav.getParentElement (aRootElement);
+    final CSSComputedStyle aParentStyle = aParent == null ? null : _getComputedStyle (aParent, aNav, aContext);
+    final Map <ELEMENTTYPE, CSSComputedStyle> ret = new IdentityHashMap <ELEMENTTYPE, CSSComputedStyle> ();
+    _getAllComputedStyles (aRootElement, aNav, aParentStyle, aContext, ret);
+    return ret;
+  }
+
+  /**
+   * Determine the computed styles of all elements of the passed micro
+   * document.
+   * 
+   * @param aDoc
+   *        The document to use. May not be <code>null</code>.
+   * @return A map from element (by identity) to its computed style. Never
+   *         <code>null</code> but empty if the document has no document
+   *         element.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Map <IMicroElement, CSSComputedStyle> getAllComputedStyles (@Nonnull final IMicroDocument aDoc)
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+
+    final IMicroElement aRoot = aDoc.getDocumentElement ();
+    if (aRoot == null)
+      return new IdentityHashMap <IMicroElement, CSSComputedStyle> ();
+    return getAllComputedStyles (aRoot, MicroElementNavigator.getInstance ());
+  }
+
+  /**
+   * Determine the computed styles of all elements of the passed W3C
+   * document.
+   * 
+   * @param aDoc
+   *        The document to use. May not be <code>null</code>.
+   * @return A map from element (by identity) to its computed style. Never
+   *         <code>null</code> but empty if the document has no document
+   *         element.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Map <Element, CSSComputedStyle> getAllComputedStyles (@Nonnull final Document aDoc)
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+
+    final Element aRoot = aDoc.getDocumentElement ();
+    if (aRoot == null)
+      return new IdentityHashMap <Element, CSSComputedStyle> ();
+    return getAllComputedStyles (aRoot, W3CElementNavigator.getInstance ());
+  }
+
+  @Nonnull
+  private <ELEMENTTYPE> CSSComputedStyle _getComputedStyle (@Nonnull final ELEMENTTYPE aElement,
+                                                            @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                                            @Nonnull final Context aContext)
+  {
+    final ELEMENTTYPE aParent = aNav.getParentElement (aElement);
+    final CSSComputedStyle aParentStyle = aParent == null ? null : _getComputedStyle (aParent, aNav, aContext);
+    return _getComputedStyle (aElement, aNav, aParentStyle, aContext);
+  }
+
+  /**
+   * Determine the computed style of a single element. This includes the
+   * computed styles of all ancestor elements, so if the styles of many
+   * elements are needed, use
+   * {@link #getAllComputedStyles(Object, ICSSElementNavigator)} instead.
+   * 
+   * @param aElement
+   *        The element to use. May not be <code>null</code>.
+   * @param aNav
+   *        The navigator for the element tree. May not be <code>null</code>.
+   * @return The computed style of the element. Never <code>null</code>.
+   * @param <ELEMENTTYPE>
+   *        The element type
+   */
+  @Nonnull
+  public <ELEMENTTYPE> CSSComputedStyle getComputedStyle (@Nonnull final ELEMENTTYPE aElement,
+                                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav)
+  {
+    ValueEnforcer.notNull (aElement, "Element");
+    ValueEnforcer.notNull (aNav, "Nav");
+
+    return _getComputedStyle (aElement, aNav, new Context ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("mediaContext", m_aMediaContext)
+                                       .append ("ruleEntryCount", m_nRuleEntryCount)
+                                       .toString ();
+  }
+}
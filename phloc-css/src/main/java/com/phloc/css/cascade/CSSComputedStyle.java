@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.cascade;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * The result of the cascade for a single element: the winning declaration of
+ * each property, including the values inherited from the parent element. The
+ * declarations are kept in cascade order, so that declarations that win over
+ * others come later. This is relevant for shorthand properties - e.g. if a
+ * <code>margin-top</code> declaration wins over a <code>margin</code>
+ * declaration, it comes after it and writing all declarations as an inline
+ * style gives the same result.
+ * <p>
+ * The contained declarations are the objects of the source style sheets and
+ * must not be modified. Computed styles are shared between elements that
+ * have the same parent style and match the same rules.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSComputedStyle
+{
+  private static final CSSWriterSettings s_aSettings = new CSSWriterSettings (ECSSVersion.CSS30);
+
+  // Property name to declaration, in cascade order
+  private final Map <String, CSSDeclaration> m_aDeclarations;
+  private final Set <String> m_aInheritedProperties;
+
+  CSSComputedStyle (@Nonnull final Map <String, CSSDeclaration> aDeclarations,
+                    @Nonnull final Set <String> aInheritedProperties)
+  {
+    m_aDeclarations = aDeclarations;
+    m_aInheritedProperties = aInheritedProperties;
+  }
+
+  /**
+   * @return The internal map from property name to declaration. Never
+   *         <code>null</code>. Must not be modified.
+   */
+  @Nonnull
+  Map <String, CSSDeclaration> getDeclarationMap ()
+  {
+    return m_aDeclarations;
+  }
+
+  @Nonnull
+  private static String _getKey (@Nonnull final String sProperty)
+  {
+    ValueEnforcer.notNull (sProperty, "Property");
+    return sProperty.toLowerCase (Locale.US);
+  }
+
+  /**
+   * @return <code>true</code> if no property has a value.
+   */
+  public boolean isEmpty ()
+  {
+    return m_aDeclarations.isEmpty ();
+  }
+
+  /**
+   * @return The number of properties with a value. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getDeclarationCount ()
+  {
+    return m_aDeclarations.size ();
+  }
+
+  /**
+   * @param sProperty
+   *        The property name to check. May not be <code>null</code>.
+   * @return <code>true</code> if the passed property has a value.
+   */
+  public boolean containsProperty (@Nonnull final String sProperty)
+  {
+    return m_aDeclarations.containsKey (_getKey (sProperty));
+  }
+
+  /**
+   * @param sProperty
+   *        The property name to query. May not be <code>null</code>.
+   * @return The winning declaration of the passed property (maybe inherited
+   *         from the parent element) or <code>null</code> if the property has
+   *         no value.
+   */
+  @Nullable
+  public CSSDeclaration getDeclaration (@Nonnull final String sProperty)
+  {
+    return m_aDeclarations.get (_getKey (sProperty));
+  }
+
+  /**
+   * @param sProperty
+   *        The property name to query. May not be <code>null</code>.
+   * @return The value of the winning declaration of the passed property,
+   *         without <code>!important</code>, or <code>null</code> if the
+   *         property has no value.
+   */
+  @Nullable
+  public String getValue (@Nonnull final String sProperty)
+  {
+    final CSSDeclaration aDeclaration = getDeclaration (sProperty);
+    return aDeclaration == null ? null : aDeclaration.getExpression ().getAsCSSString (s_aSettings, 0);
+  }
+
+  /**
+   * @param sProperty
+   *        The property name to query. May not be <code>null</code>.
+   * @return <code>true</code> if the value of the passed property is
+   *         inherited from the parent element, <code>false</code> if it was
+   *         specified for the element itself or if the property has no value.
+   */
+  public boolean isInherited (@Nonnull final String sProperty)
+  {
+    return m_aInheritedProperties.contains (_getKey (sProperty));
+  }
+
+  /**
+   * @return All winning declarations in cascade order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <CSSDeclaration> getAllDeclarations ()
+  {
+    return new ArrayList <CSSDeclaration> (m_aDeclarations.values ());
+  }
+
+  /**
+   * Get all winning declarations as the content of an HTML
+   * <code>style</code> attribute.
+   * 
+   * @param aSettings
+   *        The writer settings to use. May not be <code>null</code>.
+   * @return The declarations in cascade order. Never <code>null</code> but
+   *         maybe empty.
+   */
+  @Nonnull
+  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final String sSeparator = aSettings.isOptimizedOutput () ? ";" : "; ";
+    final StringBuilder aSB = new StringBuilder ();
+    for (final CSSDeclaration aDeclaration : m_aDeclarations.values ())
+    {
+      if (aSB.length () > 0)
+        aSB.append (sSeparator);
+      aSB.append (aDeclaration.getAsCSSString (aSettings, 0));
+    }
+    return aSB.toString ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("declarations", m_aDeclarations)
+                                       .append ("inheritedProperties", m_aInheritedProperties)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.cascade;
+
+/**
+ * The origin of a style sheet in the cascade. Normal declarations of later
+ * origins win over normal declarations of earlier origins, for
+ * <code>!important</code> declarations the order is reversed.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public enum ECSSOrigin
+{
+  /** The default style sheet of the user agent */
+  USER_AGENT,
+  /** A style sheet defined by the user */
+  USER,
+  /** A style sheet of the document author */
+  AUTHOR;
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The hash code of a CSS declaration object together with the deep
+ * modification count at the time it was calculated. Hash code and count are
+ * always published together, so that another thread can never see a new
+ * count with an old hash code.<br>
+ * Determining the deep modification count walks the whole subtree. To avoid
+ * this for every call, the global modification count (see
+ * {@link CSSModificationCounter#getModificationCount()}) at the time of the
+ * last check is stored as well. As long as no CSS object at all was modified
+ * since, the cached hash code is used without any further check.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+final class CSSCachedHashCode
+{
+  private final long m_nValidatedCount;
+  private final long m_nModificationCount;
+  private final int m_nHashCode;
+
+  CSSCachedHashCode (final long nValidatedCount, final long nModificationCount, final int nHashCode)
+  {
+    m_nValidatedCount = nValidatedCount;
+    m_nModificationCount = nModificationCount;
+    m_nHashCode = nHashCode;
+  }
+
+  /**
+   * @return <code>true</code> if no CSS object was modified since the hash
+   *         code was calculated or checked the last time.
+   */
+  boolean isValidated ()
+  {
+    return m_nValidatedCount == CSSModificationCounter.getModificationCount ();
+  }
+
+  /**
+   * Get a copy of this object that was checked at the passed global
+   * modification count.
+   * 
+   * @param nValidatedCount
+   *        The global modification count that was read before the deep
+   *        modification count was checked.
+   * @return The new object. Never <code>null</code>.
+   */
+  @Nonnull
+  CSSCachedHashCode getRevalidated (final long nValidatedCount)
+  {
+    return new CSSCachedHashCode (nValidatedCount, m_nModificationCount, m_nHashCode);
+  }
+
+  /**
+   * @return The deep modification count of the object at the time the hash
+   *         code was calculated.
+   * @see IHasCSSModificationCount#getDeepModificationCount()
+   */
+  long getModificationCount ()
+  {
+    return m_nModificationCount;
+  }
+
+  /**
+   * @return The cached hash code.
+   */
+  int getHashCode ()
+  {
+    return m_nHashCode;
+  }
+}
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.Locale;
 
 import javax.annotation.Nonnegative;
@@ -24,6 +25,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableObject;
@@ -32,9 +34,10 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CCSS;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.property.ECSSProperty;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single element in a CSS style rule. (eg. <code>color:red;</code>
@@ -44,7 +47,7 @@ import com.phloc.css.property.ECSSProperty;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSDeclaration implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSDeclaration>
 {
   public static final boolean DEFAULT_IMPORTANT = false;
 
@@ -52,6 +55,9 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   private CSSExpression m_aExpression;
   private boolean m_bIsImportant;
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   /**
    * Constructor for non-important values.
@@ -113,6 +119,7 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   public CSSDeclaration setProperty (@Nonnull @Nonempty final String sProperty)
   {
     m_sProperty = ValueEnforcer.notEmpty (sProperty, "Property").toLowerCase (Locale.US);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -155,6 +162,7 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   public CSSDeclaration setExpression (@Nonnull final CSSExpression aExpression)
   {
     m_aExpression = ValueEnforcer.notNull (aExpression, "Expression");
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -180,6 +188,7 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   public CSSDeclaration setImportant (final boolean bIsImportant)
   {
     m_bIsImportant = bIsImportant;
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -187,10 +196,33 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return m_sProperty +
-           CCSS.SEPARATOR_PROPERTY_VALUE +
-           m_aExpression.getAsCSSString (aSettings, nIndentLevel) +
-           (m_bIsImportant ? CCSS.IMPORTANT_SUFFIX : "");
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (m_sProperty).append (CCSS.SEPARATOR_PROPERTY_VALUE);
+    if (CSSExpressionTermOptimizer.isUnitlessZeroAllowedInProperty (m_sProperty))
+      m_aExpression.appendTo (aSettings, nIndentLevel, aTarget);
+    else
+      m_aExpression.appendTo (aSettings, nIndentLevel, aTarget, false);
+    if (m_bIsImportant)
+      aTarget.append (CCSS.IMPORTANT_SUFFIX);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aExpression);
+  }
+
+  @Nonnull
+  public CSSDeclaration getClone ()
+  {
+    final CSSDeclaration ret = new CSSDeclaration (m_sProperty, m_aExpression.getClone (), m_bIsImportant);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -220,10 +252,25 @@ public class CSSDeclaration implements ICSSWriteable, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sProperty)
-                                       .append (m_aExpression)
-                                       .append (m_bIsImportant)
-                                       .getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_sProperty)
+                                                          .append (m_aExpression)
+                                                          .append (m_bIsImportant)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,12 +17,15 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
 
 /**
  * Represents a common container of {@link CSSDeclaration} objects. In contrary
@@ -41,34 +44,50 @@ public class CSSDeclarationContainer extends CSSDeclarationList
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  @Override
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
-    final StringBuilder aSB = new StringBuilder ();
     final int nDeclCount = getDeclarationCount ();
     if (nDeclCount == 0)
     {
-      aSB.append (bOptimizedOutput ? "{}" : " {}");
+      aTarget.append (bOptimizedOutput ? "{}" : " {}");
     }
     else
     {
       if (nDeclCount == 1)
       {
         // A single declaration
-        aSB.append (bOptimizedOutput ? "{" : " { ");
-        aSB.append (super.getAsCSSString (aSettings, nIndentLevel));
-        aSB.append (bOptimizedOutput ? "}" : " }");
+        aTarget.append (bOptimizedOutput ? "{" : " { ");
+        super.appendTo (aSettings, nIndentLevel, aTarget);
+        aTarget.append (bOptimizedOutput ? "}" : " }");
       }
       else
       {
         // More than one declaration
-        aSB.append (bOptimizedOutput ? "{" : " {\n");
-        aSB.append (super.getAsCSSString (aSettings, nIndentLevel));
+        aTarget.append (bOptimizedOutput ? "{" : " {\n");
+        super.appendTo (aSettings, nIndentLevel, aTarget);
         if (!bOptimizedOutput)
-          aSB.append (aSettings.getIndent (nIndentLevel));
-        aSB.append ('}');
+          aTarget.append (aSettings.getIndent (nIndentLevel));
+        aTarget.append ('}');
       }
     }
-    return aSB.toString ();
+  }
+
+  @Override
+  @Nonnull
+  public CSSDeclarationContainer getClone ()
+  {
+    final CSSDeclarationContainer ret = new CSSDeclarationContainer ();
+    copyDeclarationsTo (ret);
+    ret.setSourceLocation (getSourceLocation ());
+    return ret;
   }
 }
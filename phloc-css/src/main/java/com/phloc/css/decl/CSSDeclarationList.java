@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
@@ -37,6 +39,8 @@ import com.phloc.css.CCSS;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a list of {@link CSSDeclaration} objects. This class emits all
@@ -45,10 +49,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocationAware
+public class CSSDeclarationList implements IHasCSSDeclarations, ICSSStreamingWriteable, ICSSSourceLocationAware, ICloneable <CSSDeclarationList>
 {
   private final List <CSSDeclaration> m_aDeclarations = new ArrayList <CSSDeclaration> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSDeclarationList ()
   {}
@@ -59,6 +66,7 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
     ValueEnforcer.notNull (aNewDeclaration, "NewDeclaration");
 
     m_aDeclarations.add (aNewDeclaration);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -80,13 +88,17 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
       m_aDeclarations.add (aNewDeclaration);
     else
       m_aDeclarations.add (nIndex, aNewDeclaration);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public final EChange removeDeclaration (@Nonnull final CSSDeclaration aDeclaration)
   {
-    return EChange.valueOf (m_aDeclarations.remove (aDeclaration));
+    final EChange eChange = EChange.valueOf (m_aDeclarations.remove (aDeclaration));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -94,7 +106,10 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
   {
     if (nDeclarationIndex < 0 || nDeclarationIndex >= m_aDeclarations.size ())
       return EChange.UNCHANGED;
-    return EChange.valueOf (m_aDeclarations.remove (nDeclarationIndex) != null);
+    final EChange eChange = EChange.valueOf (m_aDeclarations.remove (nDeclarationIndex) != null);
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -110,6 +125,7 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
     if (m_aDeclarations.isEmpty ())
       return EChange.UNCHANGED;
     m_aDeclarations.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -137,6 +153,7 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
       m_aDeclarations.add (aNewDeclaration);
     else
       m_aDeclarations.set (nIndex, aNewDeclaration);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -198,41 +215,72 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
     final int nDeclCount = m_aDeclarations.size ();
     if (nDeclCount == 0)
-      return "";
+      return;
     if (nDeclCount == 1)
     {
       // A single declaration
-      final StringBuilder aSB = new StringBuilder ();
-      aSB.append (ContainerHelper.getFirstElement (m_aDeclarations).getAsCSSString (aSettings, nIndentLevel));
+      ContainerHelper.getFirstElement (m_aDeclarations).appendTo (aSettings, nIndentLevel, aTarget);
       // No ';' at the last entry
       if (!bOptimizedOutput)
-        aSB.append (CCSS.DEFINITION_END);
-      return aSB.toString ();
+        aTarget.append (CCSS.DEFINITION_END);
+      return;
     }
 
     // More than one declaration
-    final StringBuilder aSB = new StringBuilder ();
     int nIndex = 0;
     for (final CSSDeclaration aDeclaration : m_aDeclarations)
     {
       // Indentation
       if (!bOptimizedOutput)
-        aSB.append (aSettings.getIndent (nIndentLevel + 1));
+        aTarget.append (aSettings.getIndent (nIndentLevel + 1));
       // Emit the main declaration plus the semicolon
-      aSB.append (aDeclaration.getAsCSSString (aSettings, nIndentLevel + 1));
+      aDeclaration.appendTo (aSettings, nIndentLevel + 1, aTarget);
       // No ';' at the last decl
       if (!bOptimizedOutput || nIndex < nDeclCount - 1)
-        aSB.append (CCSS.DEFINITION_END);
+        aTarget.append (CCSS.DEFINITION_END);
       if (!bOptimizedOutput)
-        aSB.append ('\n');
+        aTarget.append ('\n');
       ++nIndex;
     }
-    return aSB.toString ();
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aDeclarations);
+  }
+
+  /**
+   * Add a deep copy of all contained declarations to the passed declaration
+   * list.
+   * 
+   * @param aTarget
+   *        The list to add the copies to. May not be <code>null</code>.
+   */
+  final void copyDeclarationsTo (@Nonnull final CSSDeclarationList aTarget)
+  {
+    for (final CSSDeclaration aDeclaration : m_aDeclarations)
+      aTarget.addDeclaration (aDeclaration.getClone ());
+  }
+
+  @Nonnull
+  public CSSDeclarationList getClone ()
+  {
+    final CSSDeclarationList ret = new CSSDeclarationList ();
+    copyDeclarationsTo (ret);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -260,7 +308,22 @@ public class CSSDeclarationList implements IHasCSSDeclarations, ICSSSourceLocati
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
@@ -35,8 +37,10 @@ import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSSharingWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single expression consisting of several expression members
@@ -44,10 +48,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSExpression implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSExpression>
 {
   private final List <ICSSExpressionMember> m_aMembers = new ArrayList <ICSSExpressionMember> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSExpression ()
   {}
@@ -65,6 +72,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (aMember, "ExpressionMember");
 
     m_aMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -87,6 +95,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
       m_aMembers.add (aMember);
     else
       m_aMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -100,7 +109,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addTermSimple (@Nonnull @Nonempty final String sValue)
   {
-    return addMember (new CSSExpressionMemberTermSimple (sValue));
+    return addMember (CSSExpressionFlyweights.createTerm (sValue));
   }
 
   /**
@@ -115,7 +124,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addTermSimple (@Nonnegative final int nIndex, @Nonnull @Nonempty final String sValue)
   {
-    return addMember (nIndex, new CSSExpressionMemberTermSimple (sValue));
+    return addMember (nIndex, CSSExpressionFlyweights.createTerm (sValue));
   }
 
   /**
@@ -128,7 +137,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (final int nValue)
   {
-    return addMember (new CSSExpressionMemberTermSimple (nValue));
+    return addMember (CSSExpressionFlyweights.createTerm (Integer.toString (nValue)));
   }
 
   /**
@@ -143,7 +152,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (@Nonnegative final int nIndex, final int nValue)
   {
-    return addMember (nIndex, new CSSExpressionMemberTermSimple (nValue));
+    return addMember (nIndex, CSSExpressionFlyweights.createTerm (Integer.toString (nValue)));
   }
 
   /**
@@ -156,7 +165,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (final long nValue)
   {
-    return addMember (new CSSExpressionMemberTermSimple (nValue));
+    return addMember (CSSExpressionFlyweights.createTerm (Long.toString (nValue)));
   }
 
   /**
@@ -171,7 +180,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (@Nonnegative final int nIndex, final long nValue)
   {
-    return addMember (nIndex, new CSSExpressionMemberTermSimple (nValue));
+    return addMember (nIndex, CSSExpressionFlyweights.createTerm (Long.toString (nValue)));
   }
 
   /**
@@ -184,7 +193,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (final float fValue)
   {
-    return addMember (new CSSExpressionMemberTermSimple (fValue));
+    return addMember (CSSExpressionFlyweights.createTerm (Float.toString (fValue)));
   }
 
   /**
@@ -199,7 +208,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (@Nonnegative final int nIndex, final float fValue)
   {
-    return addMember (nIndex, new CSSExpressionMemberTermSimple (fValue));
+    return addMember (nIndex, CSSExpressionFlyweights.createTerm (Float.toString (fValue)));
   }
 
   /**
@@ -212,7 +221,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (final double dValue)
   {
-    return addMember (new CSSExpressionMemberTermSimple (dValue));
+    return addMember (CSSExpressionFlyweights.createTerm (Double.toString (dValue)));
   }
 
   /**
@@ -227,7 +236,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public CSSExpression addNumber (@Nonnegative final int nIndex, final double dValue)
   {
-    return addMember (nIndex, new CSSExpressionMemberTermSimple (dValue));
+    return addMember (nIndex, CSSExpressionFlyweights.createTerm (Double.toString (dValue)));
   }
 
   @Nonnull
@@ -303,7 +312,10 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public EChange removeMember (@Nullable final ICSSExpressionMember aMember)
   {
-    return EChange.valueOf (m_aMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -319,6 +331,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
     if (nMemberIndex < 0 || nMemberIndex >= m_aMembers.size ())
       return EChange.UNCHANGED;
     m_aMembers.remove (nMemberIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -335,6 +348,7 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
     if (m_aMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -388,20 +402,81 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    final StringBuilder aSB = new StringBuilder ();
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    // Independent of the indentation - the text may be shared with other
+    // settings
+    if (aSettings instanceof CSSSharingWriterSettings)
+    {
+      ((CSSSharingWriterSettings) aSettings).appendSharedText (this, aTarget);
+      return;
+    }
+    appendTo (aSettings, nIndentLevel, aTarget, true);
+  }
+
+  /**
+   * Append the expression in a context where a unitless zero may be invalid.
+   * 
+   * @param aSettings
+   *        The settings to be used. May not be <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @param bAllowUnitlessZero
+   *        <code>false</code> if a zero length must keep its unit, e.g. inside
+   *        <code>max()</code> or in the <code>flex</code> shorthand.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                 @Nonnegative final int nIndentLevel,
+                 @Nonnull final Appendable aTarget,
+                 final boolean bAllowUnitlessZero) throws IOException
+  {
+
+    boolean bFirst = true;
     boolean bPrevWasOperator = false;
     for (final ICSSExpressionMember aMember : m_aMembers)
     {
       final boolean bIsOp = aMember instanceof ECSSExpressionOperator;
-      if (!bIsOp && !bPrevWasOperator && aSB.length () > 0)
-      {
-        // The space is required for separating values like "solid 1px black"
-        aSB.append (' ');
-      }
-      aSB.append (aMember.getAsCSSString (aSettings, nIndentLevel));
+      if (bFirst)
+        bFirst = false;
+      else
+        if (!bIsOp && !bPrevWasOperator)
+        {
+          // The space is required for separating values like "solid 1px black"
+          aTarget.append (' ');
+        }
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+        ((CSSExpressionMemberTermSimple) aMember).appendTo (aSettings, aTarget, bAllowUnitlessZero);
+      else
+        if (aMember instanceof CSSExpressionMemberFunction)
+          ((CSSExpressionMemberFunction) aMember).appendTo (aSettings, nIndentLevel, aTarget, bAllowUnitlessZero);
+        else
+          CSSWriterHelper.appendTo (aMember, aSettings, nIndentLevel, aTarget);
       bPrevWasOperator = bIsOp;
     }
-    return aSB.toString ();
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMembers);
+  }
+
+  @Nonnull
+  public CSSExpression getClone ()
+  {
+    final CSSExpression ret = new CSSExpression ();
+    for (final ICSSExpressionMember aMember : m_aMembers)
+      ret.m_aMembers.add (aMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -429,7 +504,22 @@ public class CSSExpression implements ICSSWriteable, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aMembers).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aMembers).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+
+/**
+ * A fixed table of shared (flyweight) values for the most common simple
+ * expression values like <code>0</code>, <code>auto</code> or
+ * <code>none</code>. The model objects themselves are never shared - every
+ * term created by this class is a new, private object. Only the immutable
+ * value strings (original and optimized) are shared, so that they are neither
+ * copied out of the parsed text nor optimized again for every occurrence.
+ * Reading a model object never modifies it, and modifying a term (e.g. with
+ * {@link CSSExpressionMemberTermSimple#setValue(String)}) simply replaces the
+ * shared strings of that term.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSExpressionFlyweights
+{
+  // All values that have a shared instance
+  private static final String [] SHARED_VALUES = new String [] { "0",
+                                                                 "1",
+                                                                 "2",
+                                                                 "0px",
+                                                                 "1px",
+                                                                 "2px",
+                                                                 "3px",
+                                                                 "4px",
+                                                                 "5px",
+                                                                 "10px",
+                                                                 "0%",
+                                                                 "50%",
+                                                                 "100%",
+                                                                 "1em",
+                                                                 "auto",
+                                                                 "none",
+                                                                 "inherit",
+                                                                 "initial",
+                                                                 "transparent",
+                                                                 "normal",
+                                                                 "bold",
+                                                                 "italic",
+                                                                 "hidden",
+                                                                 "visible",
+                                                                 "block",
+                                                                 "inline",
+                                                                 "inline-block",
+                                                                 "left",
+                                                                 "right",
+                                                                 "center",
+                                                                 "top",
+                                                                 "middle",
+                                                                 "bottom",
+                                                                 "both",
+                                                                 "relative",
+                                                                 "absolute",
+                                                                 "fixed",
+                                                                 "solid",
+                                                                 "pointer",
+                                                                 "nowrap",
+                                                                 "underline",
+                                                                 "uppercase",
+                                                                 "repeat",
+                                                                 "no-repeat",
+                                                                 "white",
+                                                                 "black",
+                                                                 "#fff",
+                                                                 "#000" };
+
+  // Prototypes with the shared strings - never handed out
+  private static final Map <String, CSSExpressionMemberTermSimple> s_aTerms = new HashMap <String, CSSExpressionMemberTermSimple> ();
+
+  static
+  {
+    for (final String sValue : SHARED_VALUES)
+      s_aTerms.put (sValue, new CSSExpressionMemberTermSimple (sValue));
+  }
+
+  @PresentForCodeCoverage
+  @SuppressWarnings ("unused")
+  private static final CSSExpressionFlyweights s_aInstance = new CSSExpressionFlyweights ();
+
+  private CSSExpressionFlyweights ()
+  {}
+
+  /**
+   * @return A copy of all shared values.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static Set <String> getAllSharedValues ()
+  {
+    return ContainerHelper.newSet (s_aTerms.keySet ());
+  }
+
+  /**
+   * Check if a shared value is available for the passed value.
+   * 
+   * @param sValue
+   *        The value to check. May be <code>null</code>.
+   * @return <code>true</code> if a shared value is available.
+   */
+  public static boolean isSharedValue (@Nullable final String sValue)
+  {
+    return sValue != null && s_aTerms.containsKey (sValue);
+  }
+
+  /**
+   * Create a new term for the passed value. If a shared value is available,
+   * the new term uses the shared strings.
+   * 
+   * @param sValue
+   *        The value to use. May neither be <code>null</code> nor empty.
+   * @return A new term. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSExpressionMemberTermSimple createTerm (@Nonnull @Nonempty final String sValue)
+  {
+    final CSSExpressionMemberTermSimple aPrototype = s_aTerms.get (sValue);
+    return aPrototype != null ? aPrototype.getClone () : new CSSExpressionMemberTermSimple (sValue);
+  }
+}
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,6 +32,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a CSS function element
@@ -37,7 +41,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberFunction implements ICSSExpressionMember, ICSSSourceLocationAware
+public class CSSExpressionMemberFunction implements ICSSExpressionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sFunctionName;
   private final CSSExpression m_aExpression;
@@ -111,26 +115,74 @@ public class CSSExpressionMemberFunction implements ICSSExpressionMember, ICSSSo
   }
 
   @Nonnull
-  public CSSExpressionMemberFunction getClone ()
+  @Nonempty
+  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return new CSSExpressionMemberFunction (m_sFunctionName, m_aExpression);
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
   }
 
-  @Nonnull
-  @Nonempty
-  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    appendTo (aSettings, nIndentLevel, aTarget, true);
+  }
+
+  /**
+   * Append the function in a context where a unitless zero may be invalid.
+   * Within math functions like <code>max()</code> zero lengths always keep
+   * their unit.
+   * 
+   * @param aSettings
+   *        The settings to be used. May not be <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @param bAllowUnitlessZero
+   *        <code>false</code> if a zero length must keep its unit in the
+   *        context of this function.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                 @Nonnegative final int nIndentLevel,
+                 @Nonnull final Appendable aTarget,
+                 final boolean bAllowUnitlessZero) throws IOException
   {
     if (m_aExpression == null)
     {
       // No parameter expressions
-      if (m_sFunctionName.endsWith (")"))
+      aTarget.append (m_sFunctionName);
+      if (!m_sFunctionName.endsWith (")"))
       {
-        // E.g. for special IE expression functions!
-        return m_sFunctionName;
+        // Not for special IE expression functions!
+        aTarget.append ("()");
       }
-      return m_sFunctionName + "()";
     }
-    return m_sFunctionName + "(" + m_aExpression.getAsCSSString (aSettings, nIndentLevel) + ")";
+    else
+    {
+      aTarget.append (m_sFunctionName).append ('(');
+      m_aExpression.appendTo (aSettings,
+                              nIndentLevel,
+                              aTarget,
+                              bAllowUnitlessZero &&
+                                  CSSExpressionTermOptimizer.isUnitlessZeroAllowedInFunction (m_sFunctionName));
+      aTarget.append (')');
+    }
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aExpression);
+  }
+
+  @Nonnull
+  public CSSExpressionMemberFunction getClone ()
+  {
+    final CSSExpressionMemberFunction ret = new CSSExpressionMemberFunction (m_sFunctionName, m_aExpression == null ? null : m_aExpression.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
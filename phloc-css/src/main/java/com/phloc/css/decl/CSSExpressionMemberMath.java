@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +38,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a CSS calc() element
@@ -44,10 +47,11 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSStreamingWriteable, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final List <ICSSExpressionMathMember> m_aMembers = new ArrayList <ICSSExpressionMathMember> ();
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSExpressionMemberMath ()
   {}
@@ -62,6 +66,7 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
   {
     ValueEnforcer.notNull (aMember, "Member");
     m_aMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -76,13 +81,17 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
       m_aMembers.add (aMember);
     else
       m_aMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeMember (@Nonnull final ICSSExpressionMathMember aMember)
   {
-    return EChange.valueOf (m_aMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -91,6 +100,7 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
     if (nMemberIndex < 0 || nMemberIndex >= m_aMembers.size ())
       return EChange.UNCHANGED;
     m_aMembers.remove (nMemberIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -107,6 +117,7 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
     if (m_aMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -124,20 +135,26 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
   }
 
   @Nonnull
-  public CSSExpressionMemberMath getClone ()
+  @Nonempty
+  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return new CSSExpressionMemberMath (m_aMembers);
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
   }
 
-  @Nonnull
-  @Nonempty
-  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    final StringBuilder aSB = new StringBuilder ("calc(");
+    aTarget.append ("calc(");
     for (final ICSSExpressionMathMember aMember : m_aMembers)
-      aSB.append (aMember.getAsCSSString (aSettings, nIndentLevel));
-    return aSB.append (")").toString ();
+      CSSWriterHelper.appendTo (aMember, aSettings, nIndentLevel, aTarget);
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMembers);
   }
 
   @Nonnull
@@ -146,6 +163,16 @@ public class CSSExpressionMemberMath implements ICSSExpressionMember, ICSSVersio
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSExpressionMemberMath getClone ()
+  {
+    final CSSExpressionMemberMath ret = new CSSExpressionMemberMath ();
+    for (final ICSSExpressionMathMember aMember : m_aMembers)
+      ret.m_aMembers.add (aMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,6 +37,8 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Part of a CSS calc element
@@ -43,10 +46,11 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember, ICSSSourceLocationAware
+public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final List <ICSSExpressionMathMember> m_aMembers = new ArrayList <ICSSExpressionMathMember> ();
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSExpressionMemberMathProduct ()
   {}
@@ -57,6 +61,7 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
     ValueEnforcer.notNull (aMember, "ExpressionMathMember");
 
     m_aMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -71,13 +76,17 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
       m_aMembers.add (aMember);
     else
       m_aMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeMember (@Nonnull final ICSSExpressionMathMember aMember)
   {
-    return EChange.valueOf (m_aMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -86,6 +95,7 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
     if (nMemberIndex < 0 || nMemberIndex >= m_aMembers.size ())
       return EChange.UNCHANGED;
     m_aMembers.remove (nMemberIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -102,6 +112,7 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
     if (m_aMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -121,12 +132,22 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    final StringBuilder aSB = new StringBuilder ();
     for (final ICSSExpressionMathMember aMember : m_aMembers)
-      aSB.append (aMember.getAsCSSString (aSettings, nIndentLevel));
-    return aSB.toString ();
+      CSSWriterHelper.appendTo (aMember, aSettings, nIndentLevel, aTarget);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMembers);
   }
 
   @Nonnull
@@ -135,6 +156,16 @@ public class CSSExpressionMemberMathProduct implements ICSSExpressionMathMember,
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSExpressionMemberMathProduct getClone ()
+  {
+    final CSSExpressionMemberMathProduct ret = new CSSExpressionMemberMathProduct ();
+    for (final ICSSExpressionMathMember aMember : m_aMembers)
+      ret.m_aMembers.add (aMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,6 +32,8 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Part of a CSS calc element
@@ -37,7 +41,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberMathUnitProduct implements ICSSExpressionMathMember, ICSSSourceLocationAware
+public class CSSExpressionMemberMathUnitProduct implements ICSSExpressionMathMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final CSSExpressionMemberMathProduct m_aProduct;
 
@@ -55,9 +59,23 @@ public class CSSExpressionMemberMathUnitProduct implements ICSSExpressionMathMem
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    return "(" + m_aProduct.getAsCSSString (aSettings, nIndentLevel) + ")";
+    aTarget.append ('(');
+    m_aProduct.appendTo (aSettings, nIndentLevel, aTarget);
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aProduct);
   }
 
   @Nonnull
@@ -66,6 +84,12 @@ public class CSSExpressionMemberMathUnitProduct implements ICSSExpressionMathMem
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSExpressionMemberMathUnitProduct getClone ()
+  {
+    return new CSSExpressionMemberMathUnitProduct (m_aProduct.getClone ());
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aProduct.setSourceLocation (aSourceLocation);
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -32,6 +34,7 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.utils.CSSNumberHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Part of a CSS calc element
@@ -39,7 +42,7 @@ import com.phloc.css.utils.CSSNumberHelper;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberMathUnitSimple implements ICSSExpressionMathMember, ICSSSourceLocationAware
+public class CSSExpressionMemberMathUnitSimple implements ICSSExpressionMathMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sText;
   private final ECSSUnit m_eUnit;
@@ -80,12 +83,33 @@ public class CSSExpressionMemberMathUnitSimple implements ICSSExpressionMathMemb
     return m_sText;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
   @Nonnull
   public ECSSVersion getMinimumCSSVersion ()
   {
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSExpressionMemberMathUnitSimple getClone ()
+  {
+    final CSSExpressionMemberMathUnitSimple ret = new CSSExpressionMemberMathUnitSimple (m_sText);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
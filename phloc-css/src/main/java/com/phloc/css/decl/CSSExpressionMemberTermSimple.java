@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +31,7 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a simple expression member
@@ -36,11 +39,12 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberTermSimple implements ICSSExpressionMember, ICSSSourceLocationAware
+public class CSSExpressionMemberTermSimple implements ICSSExpressionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private String m_sValue;
   private String m_sOptimizedValue;
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSExpressionMemberTermSimple (final int nValue)
   {
@@ -67,12 +71,29 @@ public class CSSExpressionMemberTermSimple implements ICSSExpressionMember, ICSS
     setValue (sValue);
   }
 
+  /**
+   * Copy constructor. The strings are immutable and can therefore be reused
+   * without optimizing them again. The copy is a new object, so taking over the
+   * modification count does not bump the global modification counter.
+   * 
+   * @param aOther
+   *        The term to copy. May not be <code>null</code>.
+   */
+  private CSSExpressionMemberTermSimple (@Nonnull final CSSExpressionMemberTermSimple aOther)
+  {
+    m_sValue = aOther.m_sValue;
+    m_sOptimizedValue = aOther.m_sOptimizedValue;
+    m_aSourceLocation = aOther.m_aSourceLocation;
+    m_nLastModification = aOther.m_nLastModification;
+  }
+
   @Nonnull
   public CSSExpressionMemberTermSimple setValue (@Nonnull @Nonempty final String sValue)
   {
     ValueEnforcer.notEmpty (sValue, "Value");
     m_sValue = sValue;
     m_sOptimizedValue = CSSExpressionTermOptimizer.getOptimizedValue (sValue);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -99,16 +120,57 @@ public class CSSExpressionMemberTermSimple implements ICSSExpressionMember, ICSS
   }
 
   @Nonnull
-  public CSSExpressionMemberTermSimple getClone ()
+  @Nonempty
+  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return aSettings.isOptimizedOutput () ? m_sOptimizedValue : m_sValue;
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
-    return new CSSExpressionMemberTermSimple (m_sValue);
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  /**
+   * Append the value in a context where a unitless zero may be invalid.
+   * 
+   * @param aSettings
+   *        The settings to be used. May not be <code>null</code>.
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @param bAllowUnitlessZero
+   *        <code>false</code> if a zero length must keep its unit, e.g. inside
+   *        <code>max()</code> or in the <code>flex</code> shorthand.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                 @Nonnull final Appendable aTarget,
+                 final boolean bAllowUnitlessZero) throws IOException
+  {
+    if (!aSettings.isOptimizedOutput ())
+      aTarget.append (m_sValue);
+    else
+      if (!bAllowUnitlessZero && m_sOptimizedValue.equals ("0"))
+      {
+        // Don't strip the unit of a zero length
+        aTarget.append (m_sValue);
+      }
+      else
+        aTarget.append (m_sOptimizedValue);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return m_nLastModification;
   }
 
   @Nonnull
-  @Nonempty
-  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  public CSSExpressionMemberTermSimple getClone ()
   {
-    return aSettings.isOptimizedOutput () ? m_sOptimizedValue : m_sValue;
+    return new CSSExpressionMemberTermSimple (this);
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +31,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents an expression member URI
@@ -36,9 +40,10 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSExpressionMemberTermURI implements ICSSExpressionMember, ICSSSourceLocationAware
+public class CSSExpressionMemberTermURI implements ICSSExpressionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private CSSURI m_aURI;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSExpressionMemberTermURI (@Nonnull @Nonempty final String sURIString)
   {
@@ -80,6 +85,7 @@ public class CSSExpressionMemberTermURI implements ICSSExpressionMember, ICSSSou
   public CSSExpressionMemberTermURI setURI (@Nonnull final CSSURI aURI)
   {
     m_aURI = ValueEnforcer.notNull (aURI, "URI");
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -99,16 +105,28 @@ public class CSSExpressionMemberTermURI implements ICSSExpressionMember, ICSSSou
   }
 
   @Nonnull
-  public CSSExpressionMemberTermURI getClone ()
+  @Nonempty
+  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
-    return new CSSExpressionMemberTermURI (m_aURI);
+    m_aURI.appendTo (aSettings, nIndentLevel, aTarget);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aURI);
   }
 
   @Nonnull
-  @Nonempty
-  public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  public CSSExpressionMemberTermURI getClone ()
   {
-    return m_aURI.getAsCSSString (aSettings, nIndentLevel);
+    return new CSSExpressionMemberTermURI (m_aURI.getClone ());
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -19,12 +19,15 @@ package com.phloc.css.decl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.css.ECSSUnit;
 import com.phloc.css.propertyvalue.CCSSValue;
 
@@ -37,12 +40,30 @@ import com.phloc.css.propertyvalue.CCSSValue;
 public final class CSSExpressionTermOptimizer
 {
   private static final List <String> s_aUnitValues0 = new ArrayList <String> ();
+  /**
+   * Properties in which a zero length must keep its unit, because in the
+   * <code>flex</code> shorthand a unitless zero is a flex factor and IE
+   * ignores <code>1 1 0</code>.
+   */
+  private static final Set <String> s_aZeroUnitProperties = ContainerHelper.newSet ("flex", "-webkit-flex", "-ms-flex");
+  /**
+   * Functions that are evaluated like <code>calc()</code>, where a unitless
+   * zero would change the type of the expression.
+   */
+  private static final Set <String> s_aMathFunctions = ContainerHelper.newSet ("calc",
+                                                                              "-webkit-calc",
+                                                                              "-moz-calc",
+                                                                              "min",
+                                                                              "max",
+                                                                              "clamp");
 
   static
   {
-    // Save all "0" formatted unit values
+    // Save all "0" formatted length values - a unitless 0 is only valid for
+    // lengths and not e.g. for times or angles
     for (final ECSSUnit eUnit : ECSSUnit.values ())
-      s_aUnitValues0.add (eUnit.format (0));
+      if (eUnit.getMetaUnit ().isLength ())
+        s_aUnitValues0.add (eUnit.format (0));
   }
 
   @SuppressWarnings ("unused")
@@ -75,4 +96,33 @@ public final class CSSExpressionTermOptimizer
     // Don't change - return as is
     return sValue;
   }
+
+  /**
+   * Check if a zero length may be written without unit in the value of the
+   * passed property.
+   * 
+   * @param sProperty
+   *        The lower case property name. May not be <code>null</code>.
+   * @return <code>false</code> for the <code>flex</code> shorthand.
+   * @since 3.8.1
+   */
+  public static boolean isUnitlessZeroAllowedInProperty (@Nonnull final String sProperty)
+  {
+    return !s_aZeroUnitProperties.contains (sProperty);
+  }
+
+  /**
+   * Check if a zero length may be written without unit in the arguments of the
+   * passed function.
+   * 
+   * @param sFunctionName
+   *        The function name without brackets. May not be <code>null</code>.
+   * @return <code>false</code> for <code>calc()</code>, <code>min()</code>,
+   *         <code>max()</code> and <code>clamp()</code>.
+   * @since 3.8.1
+   */
+  public static boolean isUnitlessZeroAllowedInFunction (@Nonnull final String sFunctionName)
+  {
+    return !s_aMathFunctions.contains (sFunctionName.toLowerCase (Locale.US));
+  }
 }
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -34,6 +35,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@font-face</code> rule.<br>
@@ -47,10 +50,12 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSFontFaceRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSFontFaceRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final CSSDeclarationContainer m_aDeclarations = new CSSDeclarationContainer ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
 
   public CSSFontFaceRule ()
   {}
@@ -157,21 +162,32 @@ public class CSSFontFaceRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     // Always ignore font-face rules?
     if (!aSettings.isWriteFontFaceRules ())
-      return "";
+      return;
 
     if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
-      return "";
+      return;
 
-    final StringBuilder aSB = new StringBuilder ("@font-face");
-    aSB.append (m_aDeclarations.getAsCSSString (aSettings, nIndentLevel));
+    aTarget.append ("@font-face");
+    m_aDeclarations.appendTo (aSettings, nIndentLevel, aTarget);
     if (!aSettings.isOptimizedOutput ())
-      aSB.append ('\n');
-    return aSB.toString ();
+      aTarget.append ('\n');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aDeclarations);
   }
 
   @Nonnull
@@ -180,6 +196,15 @@ public class CSSFontFaceRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSFontFaceRule getClone ()
+  {
+    final CSSFontFaceRule ret = new CSSFontFaceRule ();
+    m_aDeclarations.copyDeclarationsTo (ret.m_aDeclarations);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -205,7 +230,22 @@ public class CSSFontFaceRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -27,10 +29,11 @@ import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSVersionAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.propertyvalue.CCSSValue;
 import com.phloc.css.utils.CSSColorHelper;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single HSL color value (hue, saturation, lightness).
@@ -38,7 +41,7 @@ import com.phloc.css.utils.CSSColorHelper;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSHSL implements ICSSWriteable, ICSSVersionAware
+public class CSSHSL implements ICSSStreamingWriteable, ICSSVersionAware
 {
   private String m_sHue;
   private String m_sSaturation;
@@ -158,9 +161,22 @@ public class CSSHSL implements ICSSWriteable, ICSSVersionAware
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    return CCSSValue.PREFIX_HSL_OPEN + m_sHue + ',' + m_sSaturation + ',' + m_sLightness + CCSSValue.SUFFIX_HSL_CLOSE;
+    aTarget.append (CCSSValue.PREFIX_HSL_OPEN)
+           .append (m_sHue)
+           .append (',')
+           .append (m_sSaturation)
+           .append (',')
+           .append (m_sLightness)
+           .append (CCSSValue.SUFFIX_HSL_CLOSE);
   }
 
   @Nonnull
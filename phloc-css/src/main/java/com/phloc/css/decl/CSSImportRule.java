@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
@@ -34,8 +36,9 @@ import com.phloc.commons.state.EChange;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single import rule on top level. It consists of a mandatory URI
@@ -46,11 +49,14 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSImportRule implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSImportRule>
 {
   private CSSURI m_aLocation;
   private final List <CSSMediaQuery> m_aMediaQueries = new ArrayList <CSSMediaQuery> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSImportRule (@Nonnull @Nonempty final String sLocation)
   {
@@ -93,6 +99,7 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (aMediaQuery, "MediaQuery");
 
     m_aMediaQueries.add (aMediaQuery);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -115,6 +122,7 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
       m_aMediaQueries.add (aMediaQuery);
     else
       m_aMediaQueries.add (nIndex, aMediaQuery);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -128,7 +136,10 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public EChange removeMediaQuery (@Nullable final CSSMediaQuery aMediaQuery)
   {
-    return EChange.valueOf (m_aMediaQueries.remove (aMediaQuery));
+    final EChange eChange = EChange.valueOf (m_aMediaQueries.remove (aMediaQuery));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -144,6 +155,7 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
     if (nMediumIndex < 0 || nMediumIndex >= m_aMediaQueries.size ())
       return EChange.UNCHANGED;
     m_aMediaQueries.remove (nMediumIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -158,6 +170,7 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
     if (m_aMediaQueries.isEmpty ())
       return EChange.UNCHANGED;
     m_aMediaQueries.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -205,6 +218,7 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (aLocation, "Location");
 
     m_aLocation = aLocation;
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -225,25 +239,48 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
-    final StringBuilder aSB = new StringBuilder ();
-    aSB.append ("@import ").append (m_aLocation.getAsCSSString (aSettings, nIndentLevel));
+    aTarget.append ("@import ");
+    m_aLocation.appendTo (aSettings, nIndentLevel, aTarget);
     if (!m_aMediaQueries.isEmpty ())
     {
-      aSB.append (' ');
+      aTarget.append (' ');
       boolean bFirst = true;
       for (final CSSMediaQuery aMediaQuery : m_aMediaQueries)
       {
         if (bFirst)
           bFirst = false;
         else
-          aSB.append (bOptimizedOutput ? "," : ", ");
-        aSB.append (aMediaQuery.getAsCSSString (aSettings, nIndentLevel));
+          aTarget.append (bOptimizedOutput ? "," : ", ");
+        aMediaQuery.appendTo (aSettings, nIndentLevel, aTarget);
       }
     }
-    return aSB.append (";\n").toString ();
+    aTarget.append (";\n");
+  }
+
+  public long getDeepModificationCount ()
+  {
+    final long nLocation = CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aLocation);
+    return CSSModificationCounter.getDeepModificationCount (nLocation, m_aMediaQueries);
+  }
+
+  @Nonnull
+  public CSSImportRule getClone ()
+  {
+    final CSSImportRule ret = new CSSImportRule (m_aLocation.getClone ());
+    for (final CSSMediaQuery aMediaQuery : m_aMediaQueries)
+      ret.m_aMediaQueries.add (aMediaQuery.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -271,7 +308,22 @@ public class CSSImportRule implements ICSSWriteable, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aLocation).append (m_aMediaQueries).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aLocation).append (m_aMediaQueries).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -24,6 +25,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
@@ -36,6 +38,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * keyframes block
@@ -43,11 +47,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSKeyframesBlock implements IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSKeyframesBlock implements IHasCSSDeclarations, ICSSStreamingWriteable, ICSSVersionAware, ICSSSourceLocationAware, ICloneable <CSSKeyframesBlock>
 {
   private final List <String> m_aKeyframesSelectors;
   private final CSSDeclarationContainer m_aDeclarations = new CSSDeclarationContainer ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
 
   public CSSKeyframesBlock (@Nonnull @Nonempty final String... aKeyframesSelectors)
   {
@@ -170,26 +176,38 @@ public class CSSKeyframesBlock implements IHasCSSDeclarations, ICSSVersionAware,
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
-      return "";
+      return;
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
-    final StringBuilder aSB = new StringBuilder ();
-
     // Emit all selectors
+    boolean bFirst = true;
     for (final String sSelector : m_aKeyframesSelectors)
     {
-      if (aSB.length () > 0)
-        aSB.append (bOptimizedOutput ? "," : ", ");
-      aSB.append (sSelector);
+      if (bFirst)
+        bFirst = false;
+      else
+        aTarget.append (bOptimizedOutput ? "," : ", ");
+      aTarget.append (sSelector);
     }
 
-    aSB.append (m_aDeclarations.getAsCSSString (aSettings, nIndentLevel));
-    return aSB.toString ();
+    m_aDeclarations.appendTo (aSettings, nIndentLevel, aTarget);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aDeclarations);
   }
 
   @Nonnull
@@ -198,6 +216,15 @@ public class CSSKeyframesBlock implements IHasCSSDeclarations, ICSSVersionAware,
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSKeyframesBlock getClone ()
+  {
+    final CSSKeyframesBlock ret = new CSSKeyframesBlock (m_aKeyframesSelectors);
+    m_aDeclarations.copyDeclarationsTo (ret.m_aDeclarations);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -223,7 +250,24 @@ public class CSSKeyframesBlock implements IHasCSSDeclarations, ICSSVersionAware,
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aKeyframesSelectors).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aKeyframesSelectors)
+                                                          .append (m_aDeclarations)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +39,9 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSPrefixingAppendable;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single @keyframes rule.<br>
@@ -50,12 +54,15 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSStreamingWriteable, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final String m_sDeclaration;
   private final String m_sAnimationName;
   private final List <CSSKeyframesBlock> m_aBlocks = new ArrayList <CSSKeyframesBlock> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public static boolean isValidDeclaration (@Nonnull @Nonempty final String sDeclaration)
   {
@@ -106,6 +113,7 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
     ValueEnforcer.notNull (aKeyframesBlock, "KeyframesBlock");
 
     m_aBlocks.add (aKeyframesBlock);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -119,13 +127,17 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
       m_aBlocks.add (aKeyframesBlock);
     else
       m_aBlocks.add (nIndex, aKeyframesBlock);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeBlock (@Nonnull final CSSKeyframesBlock aKeyframesBlock)
   {
-    return EChange.valueOf (m_aBlocks.remove (aKeyframesBlock));
+    final EChange eChange = EChange.valueOf (m_aBlocks.remove (aKeyframesBlock));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -133,7 +145,10 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
   {
     if (nBlockIndex < 0 || nBlockIndex >= m_aBlocks.size ())
       return EChange.UNCHANGED;
-    return EChange.valueOf (m_aBlocks.remove (nBlockIndex) != null);
+    final EChange eChange = EChange.valueOf (m_aBlocks.remove (nBlockIndex) != null);
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -149,6 +164,7 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
     if (m_aBlocks.isEmpty ())
       return EChange.UNCHANGED;
     m_aBlocks.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -170,42 +186,49 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     // Always ignore keyframes rules?
     if (!aSettings.isWriteKeyframesRules ())
-      return "";
+      return;
 
     if (aSettings.isRemoveUnnecessaryCode () && m_aBlocks.isEmpty ())
-      return "";
+      return;
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
-    final StringBuilder aSB = new StringBuilder (m_sDeclaration);
-    aSB.append (' ').append (m_sAnimationName).append (bOptimizedOutput ? "{" : " {");
+    aTarget.append (m_sDeclaration).append (' ').append (m_sAnimationName).append (bOptimizedOutput ? "{" : " {");
     if (!bOptimizedOutput)
-      aSB.append ('\n');
+      aTarget.append ('\n');
 
-    // Add all blocks
+    // Add all blocks - indentation and newline only for blocks creating output
+    final String sPrefix = bOptimizedOutput ? null : aSettings.getIndent (nIndentLevel + 1);
+    final CSSPrefixingAppendable aBlockTarget = new CSSPrefixingAppendable (aTarget);
     for (final CSSKeyframesBlock aBlock : m_aBlocks)
     {
-      final String sBlockCSS = aBlock.getAsCSSString (aSettings, nIndentLevel + 1);
-      if (StringHelper.hasText (sBlockCSS))
-      {
-        if (!bOptimizedOutput)
-          aSB.append (aSettings.getIndent (nIndentLevel + 1));
-        aSB.append (sBlockCSS);
-        if (!bOptimizedOutput)
-          aSB.append ('\n');
-      }
+      aBlockTarget.startItem (sPrefix);
+      aBlock.appendTo (aSettings, nIndentLevel + 1, aBlockTarget);
+      if (!bOptimizedOutput && aBlockTarget.hasItemContent ())
+        aTarget.append ('\n');
     }
     if (!bOptimizedOutput)
-      aSB.append (aSettings.getIndent (nIndentLevel));
-    aSB.append ('}');
+      aTarget.append (aSettings.getIndent (nIndentLevel));
+    aTarget.append ('}');
     if (!bOptimizedOutput)
-      aSB.append ('\n');
-    return aSB.toString ();
+      aTarget.append ('\n');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aBlocks);
   }
 
   @Nonnull
@@ -214,6 +237,16 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSKeyframesRule getClone ()
+  {
+    final CSSKeyframesRule ret = new CSSKeyframesRule (m_sDeclaration, m_sAnimationName);
+    for (final CSSKeyframesBlock aBlock : m_aBlocks)
+      ret.m_aBlocks.add (aBlock.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -241,10 +274,25 @@ public class CSSKeyframesRule implements ICSSTopLevelRule, ICSSVersionAware, ICS
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sDeclaration)
-                                       .append (m_sAnimationName)
-                                       .append (m_aBlocks)
-                                       .getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_sDeclaration)
+                                                          .append (m_sAnimationName)
+                                                          .append (m_aBlocks)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
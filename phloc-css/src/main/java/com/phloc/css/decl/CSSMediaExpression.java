@@ -17,11 +17,14 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.equals.EqualsUtils;
@@ -32,15 +35,16 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.media.ECSSMediaExpressionFeature;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single media expression
  */
 @NotThreadSafe
-public class CSSMediaExpression implements ICSSWriteable, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSMediaExpression implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSVersionAware, ICSSSourceLocationAware, ICloneable <CSSMediaExpression>
 {
   private final String m_sFeature;
   private final CSSExpression m_aValue;
@@ -84,13 +88,28 @@ public class CSSMediaExpression implements ICSSWriteable, ICSSVersionAware, ICSS
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
-    final StringBuilder aSB = new StringBuilder ("(").append (m_sFeature);
+    aTarget.append ('(').append (m_sFeature);
     if (m_aValue != null)
-      aSB.append (CCSS.SEPARATOR_PROPERTY_VALUE).append (m_aValue.getAsCSSString (aSettings, nIndentLevel));
-    return aSB.append (')').toString ();
+    {
+      aTarget.append (CCSS.SEPARATOR_PROPERTY_VALUE);
+      m_aValue.appendTo (aSettings, nIndentLevel, aTarget);
+    }
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aValue);
   }
 
   @Nonnull
@@ -99,6 +118,14 @@ public class CSSMediaExpression implements ICSSWriteable, ICSSVersionAware, ICSS
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSMediaExpression getClone ()
+  {
+    final CSSMediaExpression ret = new CSSMediaExpression (m_sFeature, m_aValue == null ? null : m_aValue.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
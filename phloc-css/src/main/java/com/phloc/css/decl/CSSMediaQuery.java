@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
@@ -35,8 +37,9 @@ import com.phloc.commons.state.EChange;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single media query
@@ -44,7 +47,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSMediaQuery implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSMediaQuery>
 {
   /**
    * A global modifier that can be used in front of a single CSS media query.
@@ -75,6 +78,9 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
   private final String m_sMedium;
   private final List <CSSMediaExpression> m_aMediaExpressions = new ArrayList <CSSMediaExpression> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   /**
    * Constructor without a modifier. This implicitly uses the modifier
@@ -169,6 +175,7 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (aMediaExpression, "MediaExpression");
 
     m_aMediaExpressions.add (aMediaExpression);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -193,6 +200,7 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
       m_aMediaExpressions.add (aMediaExpression);
     else
       m_aMediaExpressions.add (nIndex, aMediaExpression);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -207,7 +215,10 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public EChange removeMediaExpression (@Nullable final CSSMediaExpression aMediaExpression)
   {
-    return EChange.valueOf (m_aMediaExpressions.remove (aMediaExpression));
+    final EChange eChange = EChange.valueOf (m_aMediaExpressions.remove (aMediaExpression));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -223,7 +234,10 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
   {
     if (nExpressionIndex < 0 || nExpressionIndex >= m_aMediaExpressions.size ())
       return EChange.UNCHANGED;
-    return EChange.valueOf (m_aMediaExpressions.remove (nExpressionIndex) != null);
+    final EChange eChange = EChange.valueOf (m_aMediaExpressions.remove (nExpressionIndex) != null);
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -239,6 +253,7 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
     if (m_aMediaExpressions.isEmpty ())
       return EChange.UNCHANGED;
     m_aMediaExpressions.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -272,16 +287,21 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    final StringBuilder aSB = new StringBuilder ();
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
     // The modifier already contains a trailing space if necessary!
-    aSB.append (m_eModifier.getCSSText ());
+    aTarget.append (m_eModifier.getCSSText ());
 
     boolean bIsFirstExpression = true;
     if (m_sMedium != null)
     {
       // Medium is optional
-      aSB.append (m_sMedium);
+      aTarget.append (m_sMedium);
       bIsFirstExpression = false;
     }
 
@@ -298,13 +318,26 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
           // "projector and")!
           // The trailing blank is required, because otherwise it is considered
           // a function ("and(")!
-          aSB.append (" and ");
+          aTarget.append (" and ");
         }
-        aSB.append (aMediaExpression.getAsCSSString (aSettings, nIndentLevel));
+        aMediaExpression.appendTo (aSettings, nIndentLevel, aTarget);
       }
     }
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMediaExpressions);
+  }
 
-    return aSB.toString ();
+  @Nonnull
+  public CSSMediaQuery getClone ()
+  {
+    final CSSMediaQuery ret = new CSSMediaQuery (m_eModifier, m_sMedium);
+    for (final CSSMediaExpression aMediaExpression : m_aMediaExpressions)
+      ret.m_aMediaExpressions.add (aMediaExpression.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -334,10 +367,25 @@ public class CSSMediaQuery implements ICSSWriteable, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_eModifier)
-                                       .append (m_sMedium)
-                                       .append (m_aMediaExpressions)
-                                       .getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_eModifier)
+                                                          .append (m_sMedium)
+                                                          .append (m_aMediaExpressions)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,11 +32,13 @@ import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.state.EChange;
-import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSPrefixingAppendable;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@media</code> rule: a list of style rules only
@@ -50,11 +53,14 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
+public class CSSMediaRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSTopLevelRules, ICSSSourceLocationAware
 {
   private final List <CSSMediaQuery> m_aMediaQueries = new ArrayList <CSSMediaQuery> ();
   private final List <ICSSTopLevelRule> m_aRules = new ArrayList <ICSSTopLevelRule> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSMediaRule ()
   {}
@@ -76,6 +82,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     ValueEnforcer.notNull (aMediaQuery, "MediaQuery");
 
     m_aMediaQueries.add (aMediaQuery);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -89,13 +96,17 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
       m_aMediaQueries.add (aMediaQuery);
     else
       m_aMediaQueries.add (nIndex, aMediaQuery);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeMediaQuery (@Nonnull final CSSMediaQuery aMediaQuery)
   {
-    return EChange.valueOf (m_aMediaQueries.remove (aMediaQuery));
+    final EChange eChange = EChange.valueOf (m_aMediaQueries.remove (aMediaQuery));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -104,6 +115,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     if (nMediumIndex < 0 || nMediumIndex >= m_aMediaQueries.size ())
       return EChange.UNCHANGED;
     m_aMediaQueries.remove (nMediumIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -120,6 +132,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     if (m_aMediaQueries.isEmpty ())
       return EChange.UNCHANGED;
     m_aMediaQueries.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -155,6 +168,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     ValueEnforcer.notNull (aRule, "Rule");
 
     m_aRules.add (aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -168,13 +182,17 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
       m_aRules.add (aRule);
     else
       m_aRules.add (nIndex, aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeRule (@Nonnull final ICSSTopLevelRule aRule)
   {
-    return EChange.valueOf (m_aRules.remove (aRule));
+    final EChange eChange = EChange.valueOf (m_aRules.remove (aRule));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -183,6 +201,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     if (nRuleIndex < 0 || nRuleIndex >= m_aRules.size ())
       return EChange.UNCHANGED;
     m_aRules.remove (nRuleIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -199,6 +218,7 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
     if (m_aRules.isEmpty ())
       return EChange.UNCHANGED;
     m_aRules.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -220,60 +240,81 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     // Always ignore media rules?
     if (!aSettings.isWriteMediaRules ())
-      return "";
+      return;
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
     final int nRuleCount = m_aRules.size ();
 
     if (aSettings.isRemoveUnnecessaryCode () && nRuleCount == 0)
-      return "";
+      return;
 
-    final StringBuilder aSB = new StringBuilder ("@media ");
-    boolean bFirst = true;
+    aTarget.append ("@media ");
+    boolean bFirstMedium = true;
     for (final CSSMediaQuery sMedium : m_aMediaQueries)
     {
-      if (bFirst)
-        bFirst = false;
+      if (bFirstMedium)
+        bFirstMedium = false;
       else
-        aSB.append (bOptimizedOutput ? "," : ", ");
-      aSB.append (sMedium.getAsCSSString (aSettings, nIndentLevel));
+        aTarget.append (bOptimizedOutput ? "," : ", ");
+      sMedium.appendTo (aSettings, nIndentLevel, aTarget);
     }
 
     if (nRuleCount == 0)
     {
-      aSB.append (bOptimizedOutput ? "{}" : " {}\n");
+      aTarget.append (bOptimizedOutput ? "{}" : " {}\n");
     }
     else
     {
       // At least one rule present
-      aSB.append (bOptimizedOutput ? "{" : " {\n");
-      bFirst = true;
+      aTarget.append (bOptimizedOutput ? "{" : " {\n");
+
+      // Separator and indentation are only emitted for rules creating output
+      final String sFirstPrefix = bOptimizedOutput ? null : aSettings.getIndent (nIndentLevel + 1);
+      final String sNextPrefix = bOptimizedOutput ? null : "\n" + sFirstPrefix;
+      final CSSPrefixingAppendable aRuleTarget = new CSSPrefixingAppendable (aTarget);
+      boolean bFirst = true;
       for (final ICSSTopLevelRule aRule : m_aRules)
       {
-        final String sRuleCSS = aRule.getAsCSSString (aSettings, nIndentLevel + 1);
-        if (StringHelper.hasText (sRuleCSS))
-        {
-          if (bFirst)
-            bFirst = false;
-          else
-            if (!bOptimizedOutput)
-              aSB.append ('\n');
-
-          if (!bOptimizedOutput)
-            aSB.append (aSettings.getIndent (nIndentLevel + 1));
-          aSB.append (sRuleCSS);
-        }
+        aRuleTarget.startItem (bFirst ? sFirstPrefix : sNextPrefix);
+        CSSWriterHelper.appendTo (aRule, aSettings, nIndentLevel + 1, aRuleTarget);
+        if (aRuleTarget.hasItemContent ())
+          bFirst = false;
       }
       if (!bOptimizedOutput)
-        aSB.append (aSettings.getIndent (nIndentLevel));
-      aSB.append ('}');
+        aTarget.append (aSettings.getIndent (nIndentLevel));
+      aTarget.append ('}');
       if (!bOptimizedOutput)
-        aSB.append ('\n');
+        aTarget.append ('\n');
     }
-    return aSB.toString ();
+  }
+
+  public long getDeepModificationCount ()
+  {
+    final long nMediaQueries = CSSModificationCounter.getDeepModificationCount (m_nLastModification,
+                                                                               m_aMediaQueries);
+    return CSSModificationCounter.getDeepModificationCount (nMediaQueries, m_aRules);
+  }
+
+  @Nonnull
+  public CSSMediaRule getClone ()
+  {
+    final CSSMediaRule ret = new CSSMediaRule ();
+    for (final CSSMediaQuery aMediaQuery : m_aMediaQueries)
+      ret.m_aMediaQueries.add (aMediaQuery.getClone ());
+    for (final ICSSTopLevelRule aRule : m_aRules)
+      ret.m_aRules.add (aRule.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -301,7 +342,22 @@ public class CSSMediaRule implements ICSSTopLevelRule, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aMediaQueries).append (m_aRules).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aMediaQueries).append (m_aRules).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.state.EChange;
+
+/**
+ * A global counter that is incremented each time an object of the CSS
+ * declaration model is modified. Each object remembers the value of its last
+ * modification. The declaration objects don't know their parents (and the
+ * same object may even be contained in several parents), so a change cannot
+ * be propagated upwards. Instead cached values (like hash codes or the
+ * serialized form of a rule) remember the result of
+ * {@link IHasCSSModificationCount#getDeepModificationCount()} at the time they
+ * were calculated and are only valid as long as it did not change. So
+ * modifying or reading another style sheet never invalidates them.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@ThreadSafe
+public final class CSSModificationCounter
+{
+  /** The value that is never returned by {@link #getModificationCount()} */
+  public static final long ILLEGAL_MODIFICATION_COUNT = 0;
+
+  private static final AtomicLong s_aCounter = new AtomicLong (ILLEGAL_MODIFICATION_COUNT + 1);
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSModificationCounter s_aInstance = new CSSModificationCounter ();
+
+  private CSSModificationCounter ()
+  {}
+
+  /**
+   * @return The current modification count. Each modification of any CSS
+   *         declaration object results in a different value. Never
+   *         {@link #ILLEGAL_MODIFICATION_COUNT}.
+   */
+  public static long getModificationCount ()
+  {
+    return s_aCounter.get ();
+  }
+
+  /**
+   * Must be called after a CSS declaration object was modified in a way that
+   * affects <code>equals</code> and <code>hashCode</code>.
+   * 
+   * @return The new modification count. Objects implementing
+   *         {@link IHasCSSModificationCount} remember this value as the time of
+   *         their last modification.
+   */
+  public static long onModification ()
+  {
+    return s_aCounter.incrementAndGet ();
+  }
+
+  /**
+   * Call {@link #onModification()} if the passed change indicator is
+   * {@link EChange#CHANGED}.
+   * 
+   * @param eChange
+   *        The change indicator. May not be <code>null</code>.
+   * @return The passed change indicator. Never <code>null</code>.
+   */
+  @Nonnull
+  public static EChange onModification (@Nonnull final EChange eChange)
+  {
+    if (eChange.isChanged ())
+      onModification ();
+    return eChange;
+  }
+
+  /**
+   * Get the highest deep modification count of the passed object and the
+   * passed start value.
+   * 
+   * @param nModificationCount
+   *        The modification count to start with.
+   * @param aObject
+   *        The object to be checked. May be <code>null</code>.
+   * @return The maximum of the passed modification count and
+   *         {@link IHasCSSModificationCount#getDeepModificationCount()} of the
+   *         passed object.
+   */
+  public static long getDeepModificationCount (final long nModificationCount,
+                                               @Nullable final IHasCSSModificationCount aObject)
+  {
+    return aObject == null ? nModificationCount : Math.max (nModificationCount, aObject.getDeepModificationCount ());
+  }
+
+  /**
+   * Get the highest deep modification count of all passed objects and the
+   * passed start value.
+   * 
+   * @param nModificationCount
+   *        The modification count to start with.
+   * @param aObjects
+   *        The objects to be checked. May not be <code>null</code>.
+   * @return The maximum of the passed modification count and
+   *         {@link IHasCSSModificationCount#getDeepModificationCount()} of all
+   *         passed objects.
+   */
+  public static long getDeepModificationCount (final long nModificationCount,
+                                               @Nonnull final Iterable <? extends IHasCSSModificationCount> aObjects)
+  {
+    long ret = nModificationCount;
+    for (final IHasCSSModificationCount aObject : aObjects)
+      ret = Math.max (ret, aObject.getDeepModificationCount ());
+    return ret;
+  }
+}
@@ -17,11 +17,14 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.equals.EqualsUtils;
@@ -30,9 +33,10 @@ import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.utils.CSSURLHelper;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single namespace rule on top level.<br>
@@ -42,11 +46,13 @@ import com.phloc.css.utils.CSSURLHelper;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSNamespaceRule implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSNamespaceRule implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSNamespaceRule>
 {
   private String m_sPrefix;
   private String m_sURL;
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   /**
    * Constructor for the default namespace
@@ -84,6 +90,7 @@ public class CSSNamespaceRule implements ICSSWriteable, ICSSSourceLocationAware
   public CSSNamespaceRule setNamespacePrefix (@Nullable final String sNamespacePrefix)
   {
     m_sPrefix = sNamespacePrefix;
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -102,26 +109,46 @@ public class CSSNamespaceRule implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (sURL, "URL");
 
     m_sURL = sURL;
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     // Always ignore namespace rules?
     if (!aSettings.isWriteNamespaceRules ())
-      return "";
+      return;
 
-    final StringBuilder aSB = new StringBuilder ();
-    aSB.append ("@namespace ");
+    aTarget.append ("@namespace ");
     if (StringHelper.hasText (m_sPrefix))
-      aSB.append (m_sPrefix).append (' ');
+      aTarget.append (m_sPrefix).append (' ');
     if (StringHelper.hasText (m_sURL))
-      aSB.append (CSSURLHelper.getAsCSSURL (m_sURL, false));
+      aTarget.append (CSSURLHelper.getAsCSSURL (m_sURL, false));
     else
-      aSB.append ("\"\"");
-    return aSB.append (";\n").toString ();
+      aTarget.append ("\"\"");
+    aTarget.append (";\n");
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return m_nLastModification;
+  }
+
+  @Nonnull
+  public CSSNamespaceRule getClone ()
+  {
+    final CSSNamespaceRule ret = new CSSNamespaceRule (m_sPrefix, m_sURL);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
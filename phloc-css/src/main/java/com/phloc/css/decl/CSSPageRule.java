@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -35,6 +36,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@page</code> rule.<br>
@@ -47,11 +50,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSPageRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSPageRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final String m_sPseudoPage;
   private final CSSDeclarationContainer m_aDeclarations = new CSSDeclarationContainer ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
 
   public CSSPageRule (@Nullable final String sPseudoPage)
   {
@@ -165,28 +170,36 @@ public class CSSPageRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSV
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     // Always ignore page rules?
     if (!aSettings.isWritePageRules ())
-      return "";
+      return;
 
     if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
-      return "";
+      return;
 
-    final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
-
-    final StringBuilder aSB = new StringBuilder ("@page");
+    aTarget.append ("@page");
 
     if (StringHelper.hasText (m_sPseudoPage))
-      aSB.append (' ').append (m_sPseudoPage);
+      aTarget.append (' ').append (m_sPseudoPage);
 
-    aSB.append (m_aDeclarations.getAsCSSString (aSettings, nIndentLevel));
-    if (!bOptimizedOutput)
-      aSB.append ('\n');
+    m_aDeclarations.appendTo (aSettings, nIndentLevel, aTarget);
+    if (!aSettings.isOptimizedOutput ())
+      aTarget.append ('\n');
+  }
 
-    return aSB.toString ();
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aDeclarations);
   }
 
   @Nonnull
@@ -195,6 +208,15 @@ public class CSSPageRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSV
     return ECSSVersion.CSS21;
   }
 
+  @Nonnull
+  public CSSPageRule getClone ()
+  {
+    final CSSPageRule ret = new CSSPageRule (m_sPseudoPage);
+    m_aDeclarations.copyDeclarationsTo (ret.m_aDeclarations);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -220,7 +242,22 @@ public class CSSPageRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSV
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aDeclarations).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -25,10 +27,11 @@ import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.propertyvalue.CCSSValue;
 import com.phloc.css.utils.CSSColorHelper;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single RGBA color value (red, green, blue, opacity)
@@ -36,7 +39,7 @@ import com.phloc.css.utils.CSSColorHelper;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSRGBA implements ICSSWriteable
+public class CSSRGBA implements ICSSStreamingWriteable
 {
   private String m_sRed;
   private String m_sGreen;
@@ -177,15 +180,22 @@ public class CSSRGBA implements ICSSWriteable
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return CCSSValue.PREFIX_RGBA_OPEN +
-           m_sRed +
-           ',' +
-           m_sGreen +
-           ',' +
-           m_sBlue +
-           ',' +
-           m_sOpacity +
-           CCSSValue.SUFFIX_RGBA_CLOSE;
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (CCSSValue.PREFIX_RGBA_OPEN)
+           .append (m_sRed)
+           .append (',')
+           .append (m_sGreen)
+           .append (',')
+           .append (m_sBlue)
+           .append (',')
+           .append (m_sOpacity)
+           .append (CCSSValue.SUFFIX_RGBA_CLOSE);
   }
 
   @Override
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -25,9 +27,10 @@ import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.propertyvalue.CCSSValue;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single CSS rectangle
@@ -35,7 +38,7 @@ import com.phloc.css.propertyvalue.CCSSValue;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSRect implements ICSSWriteable
+public class CSSRect implements ICSSStreamingWriteable
 {
   private String m_sTop;
   private String m_sRight;
@@ -184,15 +187,22 @@ public class CSSRect implements ICSSWriteable
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return CCSSValue.PREFIX_RECT_OPEN +
-           m_sTop +
-           ',' +
-           m_sRight +
-           ',' +
-           m_sBottom +
-           ',' +
-           m_sLeft +
-           CCSSValue.SUFFIX_RECT_CLOSE;
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (CCSSValue.PREFIX_RECT_OPEN)
+           .append (m_sTop)
+           .append (',')
+           .append (m_sRight)
+           .append (',')
+           .append (m_sBottom)
+           .append (',')
+           .append (m_sLeft)
+           .append (CCSSValue.SUFFIX_RECT_CLOSE);
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
@@ -33,8 +35,10 @@ import com.phloc.commons.state.EChange;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSSharingWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single selector as the aggregation of selector members. An
@@ -45,10 +49,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSSelector implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSSelector>
 {
   private final List <ICSSSelectorMember> m_aMembers = new ArrayList <ICSSSelectorMember> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSSelector ()
   {}
@@ -70,6 +77,7 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
     ValueEnforcer.notNull (aMember, "Member");
 
     m_aMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -83,13 +91,17 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
       m_aMembers.add (aMember);
     else
       m_aMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeMember (@Nonnull final ICSSSelectorMember aMember)
   {
-    return EChange.valueOf (m_aMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -98,6 +110,7 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
     if (nMemberIndex < 0 || nMemberIndex >= m_aMembers.size ())
       return EChange.UNCHANGED;
     m_aMembers.remove (nMemberIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -113,6 +126,7 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
     if (m_aMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -134,10 +148,38 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
   @Nonnull
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    final StringBuilder aSB = new StringBuilder ();
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    // Independent of the indentation - the text may be shared with other
+    // settings
+    if (aSettings instanceof CSSSharingWriterSettings)
+    {
+      ((CSSSharingWriterSettings) aSettings).appendSharedText (this, aTarget);
+      return;
+    }
+
+    for (final ICSSSelectorMember aMember : m_aMembers)
+      CSSWriterHelper.appendTo (aMember, aSettings, nIndentLevel, aTarget);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMembers);
+  }
+
+  @Nonnull
+  public CSSSelector getClone ()
+  {
+    final CSSSelector ret = new CSSSelector ();
     for (final ICSSSelectorMember aMember : m_aMembers)
-      aSB.append (aMember.getAsCSSString (aSettings, nIndentLevel));
-    return aSB.toString ();
+      ret.m_aMembers.add (aMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -165,7 +207,22 @@ public class CSSSelector implements ICSSWriteable, ICSSSourceLocationAware
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aMembers).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aMembers).getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
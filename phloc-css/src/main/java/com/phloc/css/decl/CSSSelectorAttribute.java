@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -31,6 +33,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * A single CSS selector attribute.
@@ -39,7 +43,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSelectorAttribute implements ICSSSelectorMember, ICSSSourceLocationAware
+public class CSSSelectorAttribute implements ICSSSelectorMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sNamespacePrefix;
   private final String m_sAttrName;
@@ -110,14 +114,41 @@ public class CSSSelectorAttribute implements ICSSSelectorMember, ICSSSourceLocat
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    final StringBuilder aSB = new StringBuilder ();
-    aSB.append ('[');
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append ('[');
     if (StringHelper.hasText (m_sNamespacePrefix))
-      aSB.append (m_sNamespacePrefix);
-    aSB.append (m_sAttrName);
+      aTarget.append (m_sNamespacePrefix);
+    aTarget.append (m_sAttrName);
     if (m_eOperator != null)
-      aSB.append (m_eOperator.getAsCSSString (aSettings, nIndentLevel)).append (m_sAttrValue);
-    return aSB.append (']').toString ();
+    {
+      m_eOperator.appendTo (aSettings, nIndentLevel, aTarget);
+      aTarget.append (m_sAttrValue);
+    }
+    aTarget.append (']');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
+  @Nonnull
+  public CSSSelectorAttribute getClone ()
+  {
+    final CSSSelectorAttribute ret = m_eOperator == null ? new CSSSelectorAttribute (m_sNamespacePrefix, m_sAttrName)
+                                                         : new CSSSelectorAttribute (m_sNamespacePrefix,
+                                                                                     m_sAttrName,
+                                                                                     m_eOperator,
+                                                                                     m_sAttrValue);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
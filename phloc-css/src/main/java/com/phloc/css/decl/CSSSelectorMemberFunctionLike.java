@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +31,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single CSS complex selector pseudo element. Like
@@ -37,7 +41,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSelectorMemberFunctionLike implements ICSSSelectorMember, ICSSSourceLocationAware
+public class CSSSelectorMemberFunctionLike implements ICSSSelectorMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sFuncName;
   private final CSSExpression m_aParamExpr;
@@ -75,7 +79,29 @@ public class CSSSelectorMemberFunctionLike implements ICSSSelectorMember, ICSSSo
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    return m_sFuncName + m_aParamExpr.getAsCSSString (aSettings, nIndentLevel) + ')';
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (m_sFuncName);
+    m_aParamExpr.appendTo (aSettings, nIndentLevel, aTarget);
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aParamExpr);
+  }
+
+  @Nonnull
+  public CSSSelectorMemberFunctionLike getClone ()
+  {
+    final CSSSelectorMemberFunctionLike ret = new CSSSelectorMemberFunctionLike (m_sFuncName, m_aParamExpr.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -36,6 +38,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents an inverted CSS selector, used for the ":not()" CSS function.<br>
@@ -44,10 +48,11 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSStreamingWriteable, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final List <CSSSelector> m_aNestedSelectors;
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSSelectorMemberNot (@Nonnull final CSSSelector aNestedSelector)
   {
@@ -92,6 +97,7 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
     ValueEnforcer.notNull (aSelector, "Selector");
 
     m_aNestedSelectors.add (aSelector);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -114,13 +120,17 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
       m_aNestedSelectors.add (aSelector);
     else
       m_aNestedSelectors.add (nIndex, aSelector);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeSelector (@Nonnull final CSSSelector aSelector)
   {
-    return EChange.valueOf (m_aNestedSelectors.remove (aSelector));
+    final EChange eChange = EChange.valueOf (m_aNestedSelectors.remove (aSelector));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -129,6 +139,7 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
     if (nSelectorIndex < 0 || nSelectorIndex >= m_aNestedSelectors.size ())
       return EChange.UNCHANGED;
     m_aNestedSelectors.remove (nSelectorIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -144,6 +155,7 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
     if (m_aNestedSelectors.isEmpty ())
       return EChange.UNCHANGED;
     m_aNestedSelectors.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -163,21 +175,33 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
-    final StringBuilder aSB = new StringBuilder (":not(");
+    aTarget.append (":not(");
     boolean bFirst = true;
     for (final CSSSelector aNestedSelector : m_aNestedSelectors)
     {
       if (bFirst)
         bFirst = false;
       else
-        aSB.append (bOptimizedOutput ? "," : ", ");
-      aSB.append (aNestedSelector.getAsCSSString (aSettings, 0));
+        aTarget.append (bOptimizedOutput ? "," : ", ");
+      aNestedSelector.appendTo (aSettings, 0, aTarget);
     }
-    return aSB.append (')').toString ();
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aNestedSelectors);
   }
 
   @Nonnull
@@ -186,6 +210,17 @@ public class CSSSelectorMemberNot implements ICSSSelectorMember, ICSSVersionAwar
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSSelectorMemberNot getClone ()
+  {
+    final List <CSSSelector> aNestedSelectors = new ArrayList <CSSSelector> (m_aNestedSelectors.size ());
+    for (final CSSSelector aNestedSelector : m_aNestedSelectors)
+      aNestedSelectors.add (aNestedSelector.getClone ());
+    final CSSSelectorMemberNot ret = new CSSSelectorMemberNot (aNestedSelectors);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
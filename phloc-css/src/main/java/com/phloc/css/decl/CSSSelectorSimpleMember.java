@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +31,7 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single CSS selector like an element name, a hash value (ID), a
@@ -37,7 +40,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSelectorSimpleMember implements ICSSSelectorMember, ICSSSourceLocationAware
+public class CSSSelectorSimpleMember implements ICSSSelectorMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sValue;
   private CSSSourceLocation m_aSourceLocation;
@@ -94,6 +97,27 @@ public class CSSSelectorSimpleMember implements ICSSSelectorMember, ICSSSourceLo
     return m_sValue;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
+  @Nonnull
+  public CSSSelectorSimpleMember getClone ()
+  {
+    final CSSSelectorSimpleMember ret = new CSSSelectorSimpleMember (m_sValue);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * The original source text of a {@link CascadingStyleSheet} together with the
+ * offset range of each top-level rule within that text. This allows writers to
+ * copy the original text of all rules that were not modified since reading.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSSourceText
+{
+  private static final class RuleRange
+  {
+    private final int m_nStartOffset;
+    private final int m_nEndOffset;
+    private final long m_nModificationCount;
+
+    RuleRange (final int nStartOffset, final int nEndOffset, final long nModificationCount)
+    {
+      m_nStartOffset = nStartOffset;
+      m_nEndOffset = nEndOffset;
+      m_nModificationCount = nModificationCount;
+    }
+  }
+
+  private final String m_sText;
+  private final Map <ICSSTopLevelRule, RuleRange> m_aRanges = new IdentityHashMap <ICSSTopLevelRule, RuleRange> ();
+
+  /**
+   * Constructor
+   * 
+   * @param sText
+   *        The complete original source text. May not be <code>null</code>.
+   */
+  public CSSSourceText (@Nonnull final String sText)
+  {
+    m_sText = ValueEnforcer.notNull (sText, "Text");
+  }
+
+  /**
+   * @return The complete original source text. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getText ()
+  {
+    return m_sText;
+  }
+
+  /**
+   * Remember the offset range of the passed rule. The current modification
+   * count of the rule is stored as well, so that later modifications of the
+   * rule can be detected.
+   * 
+   * @param aRule
+   *        The rule to be added. May not be <code>null</code>.
+   * @param nStartOffset
+   *        The offset of the first character of the rule (incl.).
+   * @param nEndOffset
+   *        The offset after the last character of the rule (excl.).
+   * @return this
+   */
+  @Nonnull
+  public CSSSourceText addRule (@Nonnull final ICSSTopLevelRule aRule,
+                                @Nonnegative final int nStartOffset,
+                                @Nonnegative final int nEndOffset)
+  {
+    ValueEnforcer.notNull (aRule, "Rule");
+    ValueEnforcer.isBetweenInclusive (nStartOffset, "StartOffset", 0, m_sText.length ());
+    ValueEnforcer.isBetweenInclusive (nEndOffset, "EndOffset", nStartOffset, m_sText.length ());
+    m_aRanges.put (aRule, new RuleRange (nStartOffset, nEndOffset, aRule.getDeepModificationCount ()));
+    return this;
+  }
+
+  /**
+   * @return The number of contained rule ranges. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getRuleCount ()
+  {
+    return m_aRanges.size ();
+  }
+
+  /**
+   * Get the start offset of the passed rule.
+   * 
+   * @param aRule
+   *        The rule to search. May be <code>null</code>.
+   * @return -1 if the rule is not contained.
+   */
+  @CheckForSigned
+  public int getStartOffset (@Nullable final ICSSTopLevelRule aRule)
+  {
+    final RuleRange aRange = m_aRanges.get (aRule);
+    return aRange == null ? -1 : aRange.m_nStartOffset;
+  }
+
+  /**
+   * Get the end offset (excl.) of the passed rule.
+   * 
+   * @param aRule
+   *        The rule to search. May be <code>null</code>.
+   * @return -1 if the rule is not contained.
+   */
+  @CheckForSigned
+  public int getEndOffset (@Nullable final ICSSTopLevelRule aRule)
+  {
+    final RuleRange aRange = m_aRanges.get (aRule);
+    return aRange == null ? -1 : aRange.m_nEndOffset;
+  }
+
+  /**
+   * Get the original text of the passed rule, if the rule was not modified
+   * since it was added.
+   * 
+   * @param aRule
+   *        The rule to search. May be <code>null</code>.
+   * @return <code>null</code> if the rule is not contained or if it was
+   *         modified.
+   */
+  @Nullable
+  public String getUnmodifiedRuleText (@Nullable final ICSSTopLevelRule aRule)
+  {
+    final RuleRange aRange = m_aRanges.get (aRule);
+    if (aRange == null || aRule.getDeepModificationCount () != aRange.m_nModificationCount)
+      return null;
+    return m_sText.substring (aRange.m_nStartOffset, aRange.m_nEndOffset);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("textLength", m_sText.length ())
+                                       .append ("rules", m_aRanges.size ())
+                                       .toString ();
+  }
+}
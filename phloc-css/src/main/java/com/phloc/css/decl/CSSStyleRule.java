@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,6 +36,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single CSS style rule. A style rule consists of a number of
@@ -46,11 +49,14 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSSourceLocationAware
+public class CSSStyleRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSDeclarations, ICSSSourceLocationAware
 {
   private final List <CSSSelector> m_aSelectors = new ArrayList <CSSSelector> ();
   private final CSSDeclarationContainer m_aDeclarations = new CSSDeclarationContainer ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSStyleRule ()
   {}
@@ -80,6 +86,7 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
     ValueEnforcer.notNull (aSelector, "Selector");
 
     m_aSelectors.add (aSelector);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -102,13 +109,17 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
       m_aSelectors.add (aSelector);
     else
       m_aSelectors.add (nIndex, aSelector);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeSelector (@Nonnull final CSSSelector aSelector)
   {
-    return EChange.valueOf (m_aSelectors.remove (aSelector));
+    final EChange eChange = EChange.valueOf (m_aSelectors.remove (aSelector));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -117,6 +128,7 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
     if (nSelectorIndex < 0 || nSelectorIndex >= m_aSelectors.size ())
       return EChange.UNCHANGED;
     m_aSelectors.remove (nSelectorIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -133,6 +145,7 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
     if (m_aSelectors.isEmpty ())
       return EChange.UNCHANGED;
     m_aSelectors.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -252,8 +265,39 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
   public String getSelectorsAsCSSString (@Nonnull final ICSSWriterSettings aSettings,
                                          @Nonnegative final int nIndentLevel)
   {
-    final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
     final StringBuilder aSB = new StringBuilder ();
+    try
+    {
+      appendSelectorsTo (aSettings, nIndentLevel, aSB);
+    }
+    catch (final IOException ex)
+    {
+      // Should never occur since StringBuilder does not throw such an exception
+      throw new IllegalStateException ("Totally unexpected", ex);
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Append all selectors of this rule, separated by commas, to the passed
+   * {@link Appendable}.
+   * 
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   * @since 3.8.1
+   */
+  public void appendSelectorsTo (@Nonnull final ICSSWriterSettings aSettings,
+                                 @Nonnegative final int nIndentLevel,
+                                 @Nonnull final Appendable aTarget) throws IOException
+  {
+    final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
     boolean bFirst = true;
     for (final CSSSelector aSelector : m_aSelectors)
     {
@@ -262,33 +306,51 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
       else
       {
         if (bOptimizedOutput)
-          aSB.append (',');
+          aTarget.append (',');
         else
-          aSB.append (",\n").append (aSettings.getIndent (nIndentLevel));
+          aTarget.append (",\n").append (aSettings.getIndent (nIndentLevel));
       }
-      aSB.append (aSelector.getAsCSSString (aSettings, nIndentLevel));
+      aSelector.appendTo (aSettings, nIndentLevel, aTarget);
     }
-    return aSB.toString ();
   }
 
   @Nonnull
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
-      return "";
-
-    final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
 
-    final StringBuilder aSB = new StringBuilder ();
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
+      return;
 
     // Append the selectors
-    aSB.append (getSelectorsAsCSSString (aSettings, nIndentLevel));
+    appendSelectorsTo (aSettings, nIndentLevel, aTarget);
 
     // Append the declarations
-    aSB.append (m_aDeclarations.getAsCSSString (aSettings, nIndentLevel));
-    if (!bOptimizedOutput)
-      aSB.append ('\n');
-    return aSB.toString ();
+    m_aDeclarations.appendTo (aSettings, nIndentLevel, aTarget);
+    if (!aSettings.isOptimizedOutput ())
+      aTarget.append ('\n');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    final long nSelectors = CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aSelectors);
+    return CSSModificationCounter.getDeepModificationCount (nSelectors, m_aDeclarations);
+  }
+
+  @Nonnull
+  public CSSStyleRule getClone ()
+  {
+    final CSSStyleRule ret = new CSSStyleRule ();
+    for (final CSSSelector aSelector : m_aSelectors)
+      ret.m_aSelectors.add (aSelector.getClone ());
+    m_aDeclarations.copyDeclarationsTo (ret.m_aDeclarations);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -316,7 +378,24 @@ public class CSSStyleRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSS
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aSelectors).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aSelectors)
+                                                          .append (m_aDeclarations)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
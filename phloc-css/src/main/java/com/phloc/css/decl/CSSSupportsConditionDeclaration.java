@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,6 +32,8 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single supports condition with a declaration. E.g.
@@ -38,7 +42,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSupportsConditionDeclaration implements ICSSSupportsConditionMember, ICSSSourceLocationAware
+public class CSSSupportsConditionDeclaration implements ICSSSupportsConditionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final CSSDeclaration m_aDeclaration;
   private CSSSourceLocation m_aSourceLocation;
@@ -66,9 +70,23 @@ public class CSSSupportsConditionDeclaration implements ICSSSupportsConditionMem
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    return "(" + m_aDeclaration.getAsCSSString (aSettings, nIndentLevel) + ")";
+    aTarget.append ('(');
+    m_aDeclaration.appendTo (aSettings, nIndentLevel, aTarget);
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aDeclaration);
   }
 
   @Nonnull
@@ -77,6 +95,14 @@ public class CSSSupportsConditionDeclaration implements ICSSSupportsConditionMem
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSSupportsConditionDeclaration getClone ()
+  {
+    final CSSSupportsConditionDeclaration ret = new CSSSupportsConditionDeclaration (m_aDeclaration.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,6 +32,8 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single negation supports condition. E.g. "not (color: blue)"
@@ -37,7 +41,7 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSupportsConditionNegation implements ICSSSupportsConditionMember, ICSSSourceLocationAware
+public class CSSSupportsConditionNegation implements ICSSSupportsConditionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final ICSSSupportsConditionMember m_aSupportsMember;
   private CSSSourceLocation m_aSourceLocation;
@@ -59,9 +63,22 @@ public class CSSSupportsConditionNegation implements ICSSSupportsConditionMember
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    return "not " + m_aSupportsMember.getAsCSSString (aSettings, nIndentLevel);
+    aTarget.append ("not ");
+    CSSWriterHelper.appendTo (m_aSupportsMember, aSettings, nIndentLevel, aTarget);
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aSupportsMember);
   }
 
   @Nonnull
@@ -70,6 +87,14 @@ public class CSSSupportsConditionNegation implements ICSSSupportsConditionMember
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSSupportsConditionNegation getClone ()
+  {
+    final CSSSupportsConditionNegation ret = new CSSSupportsConditionNegation (m_aSupportsMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,6 +37,8 @@ import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single negation supports condition
@@ -43,10 +46,11 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSupportsConditionNested implements ICSSSupportsConditionMember, ICSSSourceLocationAware
+public class CSSSupportsConditionNested implements ICSSSupportsConditionMember, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final List <ICSSSupportsConditionMember> m_aMembers = new ArrayList <ICSSSupportsConditionMember> ();
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSSupportsConditionNested ()
   {}
@@ -78,6 +82,7 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
     ValueEnforcer.notNull (aMember, "SupportsConditionMember");
 
     m_aMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -92,6 +97,7 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
       m_aMembers.add (aMember);
     else
       m_aMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -108,7 +114,10 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
   @Nonnull
   public EChange removeMember (@Nonnull final ICSSSupportsConditionMember aMember)
   {
-    return EChange.valueOf (m_aMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -127,6 +136,7 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
     if (nIndex < 0 || nIndex >= m_aMembers.size ())
       return EChange.UNCHANGED;
     m_aMembers.remove (nIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -143,6 +153,7 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
     if (m_aMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -174,19 +185,31 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
-    final StringBuilder aSB = new StringBuilder ("(");
+    aTarget.append ('(');
     boolean bFirst = true;
     for (final ICSSSupportsConditionMember aMember : m_aMembers)
     {
       if (bFirst)
         bFirst = false;
       else
-        aSB.append (' ');
-      aSB.append (aMember.getAsCSSString (aSettings, nIndentLevel));
+        aTarget.append (' ');
+      CSSWriterHelper.appendTo (aMember, aSettings, nIndentLevel, aTarget);
     }
-    return aSB.append (')').toString ();
+    aTarget.append (')');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aMembers);
   }
 
   @Nonnull
@@ -195,6 +218,16 @@ public class CSSSupportsConditionNested implements ICSSSupportsConditionMember,
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSSupportsConditionNested getClone ()
+  {
+    final CSSSupportsConditionNested ret = new CSSSupportsConditionNested ();
+    for (final ICSSSupportsConditionMember aMember : m_aMembers)
+      ret.m_aMembers.add (aMember.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,7 +32,6 @@ import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.state.EChange;
-import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ECSSSpecification;
@@ -39,6 +39,9 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSPrefixingAppendable;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@supports/code> rule: a list of style rules only
@@ -51,11 +54,14 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAware, ICSSVersionAware
+public class CSSSupportsRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSTopLevelRules, ICSSSourceLocationAware, ICSSVersionAware
 {
   private final List <ICSSSupportsConditionMember> m_aConditionMembers = new ArrayList <ICSSSupportsConditionMember> ();
   private final List <ICSSTopLevelRule> m_aRules = new ArrayList <ICSSTopLevelRule> ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSSupportsRule ()
   {}
@@ -77,6 +83,7 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     ValueEnforcer.notNull (aMember, "SupportsConditionMember");
 
     m_aConditionMembers.add (aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -91,13 +98,17 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
       m_aConditionMembers.add (aMember);
     else
       m_aConditionMembers.add (nIndex, aMember);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeSupportsConditionMember (@Nonnull final ICSSSupportsConditionMember aMember)
   {
-    return EChange.valueOf (m_aConditionMembers.remove (aMember));
+    final EChange eChange = EChange.valueOf (m_aConditionMembers.remove (aMember));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -106,6 +117,7 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     if (nIndex < 0 || nIndex >= m_aConditionMembers.size ())
       return EChange.UNCHANGED;
     m_aConditionMembers.remove (nIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -122,6 +134,7 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     if (m_aConditionMembers.isEmpty ())
       return EChange.UNCHANGED;
     m_aConditionMembers.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -157,6 +170,7 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     ValueEnforcer.notNull (aRule, "Rule");
 
     m_aRules.add (aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -170,13 +184,17 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
       m_aRules.add (aRule);
     else
       m_aRules.add (nIndex, aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
   @Nonnull
   public EChange removeRule (@Nonnull final ICSSTopLevelRule aRule)
   {
-    return EChange.valueOf (m_aRules.remove (aRule));
+    final EChange eChange = EChange.valueOf (m_aRules.remove (aRule));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   @Nonnull
@@ -185,6 +203,7 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     if (nRuleIndex < 0 || nRuleIndex >= m_aRules.size ())
       return EChange.UNCHANGED;
     m_aRules.remove (nRuleIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -201,16 +220,32 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
    * 
    * @return {@link EChange#CHANGED} if any rule was removed,
    *         {@link EChange#UNCHANGED} otherwise. Never <code>null</code>.
-   * @since 3.7.3
+   * @since 3.8.1
    */
   @Nonnull
-  public EChange removeAllDeclarations ()
+  public EChange removeAllRules ()
   {
     if (m_aRules.isEmpty ())
       return EChange.UNCHANGED;
     m_aRules.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
+  /**
+   * Remove all rules.
+   * 
+   * @return {@link EChange#CHANGED} if any rule was removed,
+   *         {@link EChange#UNCHANGED} otherwise. Never <code>null</code>.
+   * @since 3.7.3
+   * @deprecated Use {@link #removeAllRules()} instead
+   */
+  @Deprecated
+  @Nonnull
+  public EChange removeAllDeclarations ()
+  {
+    return removeAllRules ();
+  }
+
 
   @Nonnull
   @ReturnsMutableCopy
@@ -222,62 +257,71 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     // Always ignore SupportsCondition rules?
     if (!aSettings.isWriteSupportsRules ())
-      return "";
+      return;
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
     final int nRuleCount = m_aRules.size ();
 
     if (aSettings.isRemoveUnnecessaryCode () && nRuleCount == 0)
-      return "";
+      return;
 
-    final StringBuilder aSB = new StringBuilder ("@supports ");
-    boolean bFirst = true;
+    aTarget.append ("@supports ");
+    boolean bFirstCondition = true;
     for (final ICSSSupportsConditionMember aCondition : m_aConditionMembers)
     {
-      if (bFirst)
-        bFirst = false;
+      if (bFirstCondition)
+        bFirstCondition = false;
       else
-        aSB.append (' ');
-      aSB.append (aCondition.getAsCSSString (aSettings, nIndentLevel));
+        aTarget.append (' ');
+      CSSWriterHelper.appendTo (aCondition, aSettings, nIndentLevel, aTarget);
     }
 
     if (nRuleCount == 0)
     {
-      aSB.append (bOptimizedOutput ? "{}" : " {}\n");
+      aTarget.append (bOptimizedOutput ? "{}" : " {}\n");
     }
     else
     {
       // At least one rule present
-      aSB.append (bOptimizedOutput ? "{" : " {\n");
-      bFirst = true;
+      aTarget.append (bOptimizedOutput ? "{" : " {\n");
+
+      // Separator and indentation are only emitted for rules creating output
+      final String sFirstPrefix = bOptimizedOutput ? null : aSettings.getIndent (nIndentLevel + 1);
+      final String sNextPrefix = bOptimizedOutput ? null : "\n" + sFirstPrefix;
+      final CSSPrefixingAppendable aRuleTarget = new CSSPrefixingAppendable (aTarget);
+      boolean bFirst = true;
       for (final ICSSTopLevelRule aRule : m_aRules)
       {
-        final String sRuleCSS = aRule.getAsCSSString (aSettings, nIndentLevel + 1);
-        if (StringHelper.hasText (sRuleCSS))
-        {
-          if (bFirst)
-            bFirst = false;
-          else
-            if (!bOptimizedOutput)
-              aSB.append ('\n');
-
-          if (!bOptimizedOutput)
-            aSB.append (aSettings.getIndent (nIndentLevel + 1));
-          aSB.append (sRuleCSS);
-        }
+        aRuleTarget.startItem (bFirst ? sFirstPrefix : sNextPrefix);
+        CSSWriterHelper.appendTo (aRule, aSettings, nIndentLevel + 1, aRuleTarget);
+        if (aRuleTarget.hasItemContent ())
+          bFirst = false;
       }
       if (!bOptimizedOutput)
-        aSB.append (aSettings.getIndent (nIndentLevel));
-      aSB.append ('}');
+        aTarget.append (aSettings.getIndent (nIndentLevel));
+      aTarget.append ('}');
       if (!bOptimizedOutput)
-        aSB.append ('\n');
+        aTarget.append ('\n');
     }
-    return aSB.toString ();
+  }
+
+  public long getDeepModificationCount ()
+  {
+    final long nConditions = CSSModificationCounter.getDeepModificationCount (m_nLastModification,
+                                                                             m_aConditionMembers);
+    return CSSModificationCounter.getDeepModificationCount (nConditions, m_aRules);
   }
 
   @Nonnull
@@ -286,6 +330,18 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSSupportsRule getClone ()
+  {
+    final CSSSupportsRule ret = new CSSSupportsRule ();
+    for (final ICSSSupportsConditionMember aConditionMember : m_aConditionMembers)
+      ret.m_aConditionMembers.add (aConditionMember.getClone ());
+    for (final ICSSTopLevelRule aRule : m_aRules)
+      ret.m_aRules.add (aRule.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -311,7 +367,24 @@ public class CSSSupportsRule implements ICSSTopLevelRule, ICSSSourceLocationAwar
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aConditionMembers).append (m_aRules).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aConditionMembers)
+                                                          .append (m_aRules)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,22 +17,25 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.utils.CSSDataURL;
 import com.phloc.css.utils.CSSDataURLHelper;
 import com.phloc.css.utils.CSSURLHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single CSS URI. The contained URI might be modified using
@@ -41,10 +44,11 @@ import com.phloc.css.utils.CSSURLHelper;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSURI implements ICSSWriteable, ICSSSourceLocationAware
+public class CSSURI implements ICSSStreamingWriteable, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CSSURI>
 {
   private String m_sURI;
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CSSURI (@Nonnull @Nonempty final String sURI)
   {
@@ -78,6 +82,7 @@ public class CSSURI implements ICSSWriteable, ICSSSourceLocationAware
       throw new IllegalArgumentException ("Only the URI and not the CSS-URI value must be passed!");
 
     m_sURI = sURI;
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -111,6 +116,26 @@ public class CSSURI implements ICSSWriteable, ICSSSourceLocationAware
     return CSSURLHelper.getAsCSSURL (m_sURI, aSettings.isQuoteURLs ());
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return m_nLastModification;
+  }
+
+  @Nonnull
+  public CSSURI getClone ()
+  {
+    final CSSURI ret = new CSSURI (m_sURI);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,6 +32,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.CSSSourceLocation;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@</code> rule that is non-standard and/or unknown.
@@ -37,12 +41,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSUnknownRule implements ICSSTopLevelRule, ICSSSourceLocationAware
+public class CSSUnknownRule implements ICSSTopLevelRule, ICSSStreamingWriteable, ICSSSourceLocationAware
 {
   private final String m_sDeclaration;
   private String m_sParameterList;
   private String m_sBody;
   private CSSSourceLocation m_aSourceLocation;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public static boolean isValidDeclaration (@Nonnull @Nonempty final String sDeclaration)
   {
@@ -71,6 +76,7 @@ public class CSSUnknownRule implements ICSSTopLevelRule, ICSSSourceLocationAware
   public CSSUnknownRule setParameterList (@Nullable final String sParameterList)
   {
     m_sParameterList = StringHelper.trim (sParameterList);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -88,6 +94,7 @@ public class CSSUnknownRule implements ICSSTopLevelRule, ICSSSourceLocationAware
   public CSSUnknownRule setBody (@Nullable final String sBody)
   {
     m_sBody = StringHelper.trim (sBody);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -104,36 +111,57 @@ public class CSSUnknownRule implements ICSSTopLevelRule, ICSSSourceLocationAware
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     // Always ignore unknown rules?
     if (!aSettings.isWriteUnknownRules ())
-      return "";
+      return;
 
     final boolean bOptimizedOutput = aSettings.isOptimizedOutput ();
 
-    final StringBuilder aSB = new StringBuilder (m_sDeclaration);
+    aTarget.append (m_sDeclaration);
 
     if (StringHelper.hasText (m_sParameterList))
-      aSB.append (' ').append (m_sParameterList);
+      aTarget.append (' ').append (m_sParameterList);
 
     if (StringHelper.hasNoText (m_sBody))
     {
-      aSB.append (bOptimizedOutput ? "{}" : " {}\n");
+      aTarget.append (bOptimizedOutput ? "{}" : " {}\n");
     }
     else
     {
       // At least one rule present
-      aSB.append (bOptimizedOutput ? "{" : " {\n");
+      aTarget.append (bOptimizedOutput ? "{" : " {\n");
       if (!bOptimizedOutput)
-        aSB.append (aSettings.getIndent (nIndentLevel));
-      aSB.append (m_sBody);
+        aTarget.append (aSettings.getIndent (nIndentLevel));
+      aTarget.append (m_sBody);
       if (!bOptimizedOutput)
-        aSB.append (aSettings.getIndent (nIndentLevel));
-      aSB.append ('}');
+        aTarget.append (aSettings.getIndent (nIndentLevel));
+      aTarget.append ('}');
       if (!bOptimizedOutput)
-        aSB.append ('\n');
+        aTarget.append ('\n');
     }
-    return aSB.toString ();
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return m_nLastModification;
+  }
+
+  @Nonnull
+  public CSSUnknownRule getClone ()
+  {
+    final CSSUnknownRule ret = new CSSUnknownRule (m_sDeclaration);
+    ret.m_sParameterList = m_sParameterList;
+    ret.m_sBody = m_sBody;
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
   }
 
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -35,6 +36,8 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSSourceLocationAware;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a single <code>@viewport</code> rule.<br>
@@ -44,11 +47,13 @@ import com.phloc.css.ICSSWriterSettings;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSViewportRule implements ICSSTopLevelRule, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
+public class CSSViewportRule implements ICSSTopLevelRule, ICSSStreamingWriteable, IHasCSSDeclarations, ICSSVersionAware, ICSSSourceLocationAware
 {
   private final String m_sDeclaration;
   private final CSSDeclarationContainer m_aDeclarations = new CSSDeclarationContainer ();
   private CSSSourceLocation m_aSourceLocation;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
 
   public static boolean isValidDeclaration (@Nonnull @Nonempty final String sDeclaration)
   {
@@ -176,21 +181,32 @@ public class CSSViewportRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
   @Nonnull
   @Nonempty
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (this);
 
     // Always ignore viewport rules?
     if (!aSettings.isWriteViewportRules ())
-      return "";
+      return;
 
     if (aSettings.isRemoveUnnecessaryCode () && !hasDeclarations ())
-      return "";
+      return;
 
-    final StringBuilder aSB = new StringBuilder (m_sDeclaration);
-    aSB.append (m_aDeclarations.getAsCSSString (aSettings, nIndentLevel));
+    aTarget.append (m_sDeclaration);
+    m_aDeclarations.appendTo (aSettings, nIndentLevel, aTarget);
     if (!aSettings.isOptimizedOutput ())
-      aSB.append ('\n');
-    return aSB.toString ();
+      aTarget.append ('\n');
+  }
+
+  public long getDeepModificationCount ()
+  {
+    return CSSModificationCounter.getDeepModificationCount (CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT, m_aDeclarations);
   }
 
   @Nonnull
@@ -199,6 +215,15 @@ public class CSSViewportRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public CSSViewportRule getClone ()
+  {
+    final CSSViewportRule ret = new CSSViewportRule (m_sDeclaration);
+    m_aDeclarations.copyDeclarationsTo (ret.m_aDeclarations);
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -224,7 +249,24 @@ public class CSSViewportRule implements ICSSTopLevelRule, IHasCSSDeclarations, I
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sDeclaration).append (m_aDeclarations).getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_sDeclaration)
+                                                          .append (m_aDeclarations)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -26,6 +26,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
@@ -44,12 +45,16 @@ import com.phloc.css.ICSSSourceLocationAware;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializable
+public class CascadingStyleSheet implements IHasCSSTopLevelRules, IHasCSSModificationCount, ICSSSourceLocationAware, ICloneable <CascadingStyleSheet>, Serializable
 {
   private final List <CSSImportRule> m_aImportRules = new ArrayList <CSSImportRule> ();
   private final List <CSSNamespaceRule> m_aNamespaceRules = new ArrayList <CSSNamespaceRule> ();
   private final List <ICSSTopLevelRule> m_aRules = new ArrayList <ICSSTopLevelRule> ();
   private CSSSourceLocation m_aSourceLocation;
+  private transient CSSSourceText m_aSourceText;
+  // Status vars
+  private transient volatile CSSCachedHashCode m_aCachedHashCode;
+  private transient long m_nLastModification = CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
 
   public CascadingStyleSheet ()
   {}
@@ -101,6 +106,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     ValueEnforcer.notNull (aImportRule, "ImportRule");
 
     m_aImportRules.add (aImportRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -126,6 +132,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
       m_aImportRules.add (aImportRule);
     else
       m_aImportRules.add (nIndex, aImportRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -140,7 +147,10 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
   @Nonnull
   public EChange removeImportRule (@Nullable final CSSImportRule aImportRule)
   {
-    return EChange.valueOf (m_aImportRules.remove (aImportRule));
+    final EChange eChange = EChange.valueOf (m_aImportRules.remove (aImportRule));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -157,6 +167,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (nImportRuleIndex < 0 || nImportRuleIndex >= m_aImportRules.size ())
       return EChange.UNCHANGED;
     m_aImportRules.remove (nImportRuleIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -173,6 +184,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (m_aImportRules.isEmpty ())
       return EChange.UNCHANGED;
     m_aImportRules.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -235,6 +247,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     ValueEnforcer.notNull (aNamespaceRule, "NamespaceRule");
 
     m_aNamespaceRules.add (aNamespaceRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -259,6 +272,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
       m_aNamespaceRules.add (aNamespaceRule);
     else
       m_aNamespaceRules.add (nIndex, aNamespaceRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -274,7 +288,10 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
   @Nonnull
   public EChange removeNamespaceRule (@Nullable final CSSNamespaceRule aNamespaceRule)
   {
-    return EChange.valueOf (m_aNamespaceRules.remove (aNamespaceRule));
+    final EChange eChange = EChange.valueOf (m_aNamespaceRules.remove (aNamespaceRule));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -292,6 +309,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (nNamespaceRuleIndex < 0 || nNamespaceRuleIndex >= m_aNamespaceRules.size ())
       return EChange.UNCHANGED;
     m_aNamespaceRules.remove (nNamespaceRuleIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -308,6 +326,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (m_aNamespaceRules.isEmpty ())
       return EChange.UNCHANGED;
     m_aNamespaceRules.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -376,6 +395,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     ValueEnforcer.notNull (aRule, "Rule");
 
     m_aRules.add (aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -400,6 +420,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
       m_aRules.add (aRule);
     else
       m_aRules.add (nIndex, aRule);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return this;
   }
 
@@ -415,7 +436,10 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
   @Nonnull
   public EChange removeRule (@Nullable final ICSSTopLevelRule aRule)
   {
-    return EChange.valueOf (m_aRules.remove (aRule));
+    final EChange eChange = EChange.valueOf (m_aRules.remove (aRule));
+    if (eChange.isChanged ())
+      m_nLastModification = CSSModificationCounter.onModification ();
+    return eChange;
   }
 
   /**
@@ -435,6 +459,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (nRuleIndex < 0 || nRuleIndex >= m_aRules.size ())
       return EChange.UNCHANGED;
     m_aRules.remove (nRuleIndex);
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -451,6 +476,7 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     if (m_aRules.isEmpty ())
       return EChange.UNCHANGED;
     m_aRules.clear ();
+    m_nLastModification = CSSModificationCounter.onModification ();
     return EChange.CHANGED;
   }
 
@@ -1072,6 +1098,34 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     return ret;
   }
 
+  /**
+   * @return A deep copy of this style sheet. All contained rules, selectors,
+   *         declarations and expressions are copied as well, so the returned
+   *         object can be modified without affecting this object. Never
+   *         <code>null</code>.
+   * @since 3.8.1
+   */
+  public long getDeepModificationCount ()
+  {
+    long ret = CSSModificationCounter.getDeepModificationCount (m_nLastModification, m_aImportRules);
+    ret = CSSModificationCounter.getDeepModificationCount (ret, m_aNamespaceRules);
+    return CSSModificationCounter.getDeepModificationCount (ret, m_aRules);
+  }
+
+  @Nonnull
+  public CascadingStyleSheet getClone ()
+  {
+    final CascadingStyleSheet ret = new CascadingStyleSheet ();
+    for (final CSSImportRule aImportRule : m_aImportRules)
+      ret.m_aImportRules.add (aImportRule.getClone ());
+    for (final CSSNamespaceRule aNamespaceRule : m_aNamespaceRules)
+      ret.m_aNamespaceRules.add (aNamespaceRule.getClone ());
+    for (final ICSSTopLevelRule aRule : m_aRules)
+      ret.m_aRules.add (aRule.getClone ());
+    ret.m_aSourceLocation = m_aSourceLocation;
+    return ret;
+  }
+
   public void setSourceLocation (@Nullable final CSSSourceLocation aSourceLocation)
   {
     m_aSourceLocation = aSourceLocation;
@@ -1083,6 +1137,31 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
     return m_aSourceLocation;
   }
 
+  /**
+   * @return The original source text of this style sheet. Only present if
+   *         the reader was configured to keep it. Is not copied when cloning
+   *         and not serialized. May be <code>null</code>.
+   * @see com.phloc.css.reader.CSSReader#setDefaultKeepSourceText(boolean)
+   * @since 3.8.1
+   */
+  @Nullable
+  public CSSSourceText getSourceText ()
+  {
+    return m_aSourceText;
+  }
+
+  /**
+   * Set the original source text of this style sheet.
+   * 
+   * @param aSourceText
+   *        The source text to use. May be <code>null</code>.
+   * @since 3.8.1
+   */
+  public void setSourceText (@Nullable final CSSSourceText aSourceText)
+  {
+    m_aSourceText = aSourceText;
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -1099,10 +1178,25 @@ public class CascadingStyleSheet implements ICSSSourceLocationAware, Serializabl
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aImportRules)
-                                       .append (m_aNamespaceRules)
-                                       .append (m_aRules)
-                                       .getHashCode ();
+    // Cached until this object or an object contained in it is modified
+    CSSCachedHashCode aCached = m_aCachedHashCode;
+    if (aCached == null || !aCached.isValidated ())
+    {
+      final long nValidatedCount = CSSModificationCounter.getModificationCount ();
+      final long nModificationCount = getDeepModificationCount ();
+      if (aCached != null && aCached.getModificationCount () == nModificationCount)
+        aCached = aCached.getRevalidated (nValidatedCount);
+      else
+      {
+        final int nHashCode = new HashCodeGenerator (this).append (m_aImportRules)
+                                                          .append (m_aNamespaceRules)
+                                                          .append (m_aRules)
+                                                          .getHashCode ();
+        aCached = new CSSCachedHashCode (nValidatedCount, nModificationCount, nHashCode);
+      }
+      m_aCachedHashCode = aCached;
+    }
+    return aCached.getHashCode ();
   }
 
   @Override
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,8 +28,8 @@ import com.phloc.commons.lang.EnumHelper;
 import com.phloc.commons.name.IHasName;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSVersionAware;
-import com.phloc.css.ICSSWriteable;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Enumeration with selector attribute operations as in
@@ -35,7 +37,7 @@ import com.phloc.css.ICSSWriterSettings;
  * 
  * @author Philip Helger
  */
-public enum ECSSAttributeOperator implements ICSSVersionAware, ICSSWriteable, IHasName
+public enum ECSSAttributeOperator implements ICSSVersionAware, ICSSStreamingWriteable, IHasName
 {
   EQUALS ("=", ECSSVersion.CSS21),
   INCLUDES ("~=", ECSSVersion.CSS21),
@@ -74,6 +76,13 @@ public enum ECSSAttributeOperator implements ICSSVersionAware, ICSSWriteable, IH
     return m_sName;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
   @Nullable
   public static ECSSAttributeOperator getFromNameOrNull (@Nullable final String sName)
   {
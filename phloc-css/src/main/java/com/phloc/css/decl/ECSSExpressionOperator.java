@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -25,6 +27,7 @@ import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.lang.EnumHelper;
 import com.phloc.commons.name.IHasName;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Enumeration with expression operators. E.g. used in
@@ -32,7 +35,7 @@ import com.phloc.css.ICSSWriterSettings;
  *
  * @author Philip Helger
  */
-public enum ECSSExpressionOperator implements ICSSExpressionMember, IHasName
+public enum ECSSExpressionOperator implements ICSSExpressionMember, ICSSStreamingWriteable, IHasName
 {
   SLASH ("/"),
   COMMA (","),
@@ -59,6 +62,19 @@ public enum ECSSExpressionOperator implements ICSSExpressionMember, IHasName
     return m_sName;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
   @Nonnull
   public ECSSExpressionOperator getClone ()
   {
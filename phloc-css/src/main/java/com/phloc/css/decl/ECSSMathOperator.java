@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,13 +28,14 @@ import com.phloc.commons.lang.EnumHelper;
 import com.phloc.commons.name.IHasName;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents the different math operators available.
  * 
  * @author Philip Helger
  */
-public enum ECSSMathOperator implements ICSSExpressionMathMember, IHasName
+public enum ECSSMathOperator implements ICSSExpressionMathMember, ICSSStreamingWriteable, IHasName
 {
   // plus and minus require a whitespace around it when writing!
   PLUS ("+", " + "),
@@ -70,6 +73,26 @@ public enum ECSSMathOperator implements ICSSExpressionMathMember, IHasName
     return m_sText;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
+  @Nonnull
+  public ECSSMathOperator getClone ()
+  {
+    // No possibility to clone :)
+    return this;
+  }
+
   @Nullable
   public static ECSSMathOperator getFromNameOrNull (@Nullable final String sName)
   {
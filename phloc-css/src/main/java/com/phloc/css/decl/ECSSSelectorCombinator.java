@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -27,6 +29,7 @@ import com.phloc.commons.name.IHasName;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * This enum contains all the selector combinators. E.g. used in
@@ -34,7 +37,7 @@ import com.phloc.css.ICSSWriterSettings;
  * 
  * @author Philip Helger
  */
-public enum ECSSSelectorCombinator implements ICSSSelectorMember, ICSSVersionAware, IHasName
+public enum ECSSSelectorCombinator implements ICSSSelectorMember, ICSSStreamingWriteable, ICSSVersionAware, IHasName
 {
   PLUS ("+"),
   GREATER (">"),
@@ -69,12 +72,32 @@ public enum ECSSSelectorCombinator implements ICSSSelectorMember, ICSSVersionAwa
     return m_sName;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
   @Nonnull
   public ECSSVersion getMinimumCSSVersion ()
   {
     return m_eVersion;
   }
 
+  @Nonnull
+  public ECSSSelectorCombinator getClone ()
+  {
+    // No possibility to clone :)
+    return this;
+  }
+
   @Nullable
   public static ECSSSelectorCombinator getFromNameOrNull (@Nullable final String sName)
   {
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.decl;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,6 +28,7 @@ import com.phloc.commons.lang.EnumHelper;
 import com.phloc.commons.name.IHasName;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Contains the binary operators for the @supports rule as in
@@ -33,7 +36,7 @@ import com.phloc.css.ICSSWriterSettings;
  * 
  * @author Philip Helger
  */
-public enum ECSSSupportsConditionOperator implements ICSSSupportsConditionMember, IHasName
+public enum ECSSSupportsConditionOperator implements ICSSSupportsConditionMember, ICSSStreamingWriteable, IHasName
 {
   AND ("and"),
   OR ("or");
@@ -59,12 +62,32 @@ public enum ECSSSupportsConditionOperator implements ICSSSupportsConditionMember
     return m_sName;
   }
 
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aSettings, nIndentLevel));
+  }
+
+  public long getDeepModificationCount ()
+  {
+    // Immutable
+    return CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+  }
+
   @Nonnull
   public ECSSVersion getMinimumCSSVersion ()
   {
     return ECSSVersion.CSS30;
   }
 
+  @Nonnull
+  public ECSSSupportsConditionOperator getClone ()
+  {
+    // No possibility to clone :)
+    return this;
+  }
+
   @Nullable
   public static ECSSSupportsConditionOperator getFromNameCaseInsensitiveOrNull (@Nullable final String sName)
   {
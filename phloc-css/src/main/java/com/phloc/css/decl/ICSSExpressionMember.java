@@ -25,7 +25,7 @@ import com.phloc.css.ICSSWriteable;
  *
  * @author Philip Helger
  */
-public interface ICSSExpressionMember extends ICSSWriteable, ICloneable <ICSSExpressionMember>
+public interface ICSSExpressionMember extends ICSSWriteable, IHasCSSModificationCount, ICloneable <ICSSExpressionMember>
 {
   /* empty */
 }
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.css.ICSSWriteable;
 
 /**
@@ -24,7 +25,7 @@ import com.phloc.css.ICSSWriteable;
  * 
  * @author Philip Helger
  */
-public interface ICSSSelectorMember extends ICSSWriteable
+public interface ICSSSelectorMember extends ICSSWriteable, IHasCSSModificationCount, ICloneable <ICSSSelectorMember>
 {
   /* empty */
 }
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.css.ICSSVersionAware;
 import com.phloc.css.ICSSWriteable;
 
@@ -25,7 +26,7 @@ import com.phloc.css.ICSSWriteable;
  * 
  * @author Philip Helger
  */
-public interface ICSSSupportsConditionMember extends ICSSWriteable, ICSSVersionAware
+public interface ICSSSupportsConditionMember extends ICSSWriteable, IHasCSSModificationCount, ICSSVersionAware, ICloneable <ICSSSupportsConditionMember>
 {
   /* empty */
 }
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.decl;
 
+import com.phloc.commons.ICloneable;
 import com.phloc.commons.annotations.MustImplementEqualsAndHashcode;
 import com.phloc.css.ICSSWriteable;
 
@@ -47,7 +48,7 @@ import com.phloc.css.ICSSWriteable;
  * @author Philip Helger
  */
 @MustImplementEqualsAndHashcode
-public interface ICSSTopLevelRule extends ICSSWriteable
+public interface ICSSTopLevelRule extends ICSSWriteable, IHasCSSModificationCount, ICloneable <ICSSTopLevelRule>
 {
   /* empty */
 }
@@ -33,7 +33,7 @@ import com.phloc.css.ICSSWriteable;
  * 
  * @author Philip Helger
  */
-public interface IHasCSSDeclarations extends ICSSWriteable
+public interface IHasCSSDeclarations extends ICSSWriteable, IHasCSSModificationCount
 {
   /**
    * Add a new declaration.
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+/**
+ * Interface for CSS declaration objects that know when they or one of the
+ * objects contained in them were last modified.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public interface IHasCSSModificationCount
+{
+  /**
+   * @return The highest modification count (as returned by
+   *         {@link CSSModificationCounter#onModification()}) of this object and
+   *         of all objects contained in it, or
+   *         {@link CSSModificationCounter#ILLEGAL_MODIFICATION_COUNT} if none
+   *         of them was modified after its creation. If this value is not
+   *         greater than the value of
+   *         {@link CSSModificationCounter#getModificationCount()} at a certain
+   *         point in time, this object was not modified since then.
+   */
+  long getDeepModificationCount ();
+}
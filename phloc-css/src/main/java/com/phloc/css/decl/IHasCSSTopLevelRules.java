@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.state.EChange;
+
+/**
+ * Sanity interface for all objects having nested top-level rules (the style
+ * sheet itself, <code>@media</code> rules and <code>@supports</code> rules).
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public interface IHasCSSTopLevelRules
+{
+  /**
+   * @return <code>true</code> if at least one rule is present,
+   *         <code>false</code> otherwise.
+   */
+  boolean hasRules ();
+
+  /**
+   * @return The number of contained rules. Always &ge; 0.
+   */
+  @Nonnegative
+  int getRuleCount ();
+
+  /**
+   * Add a new rule at the end.
+   * 
+   * @param aRule
+   *        The rule to be added. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  IHasCSSTopLevelRules addRule (@Nonnull ICSSTopLevelRule aRule);
+
+  /**
+   * Add a new rule at the specified index.
+   * 
+   * @param nIndex
+   *        The index where the rule should be added. Must be &ge; 0. If the
+   *        index is &ge; {@link #getRuleCount()} the rule is added at the end.
+   * @param aRule
+   *        The rule to be added. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  IHasCSSTopLevelRules addRule (@Nonnegative int nIndex, @Nonnull ICSSTopLevelRule aRule);
+
+  /**
+   * Remove the rule at the specified index.
+   * 
+   * @param nRuleIndex
+   *        The index of the rule to be removed. Should be &ge; 0.
+   * @return {@link EChange#CHANGED} if the rule was successfully removed,
+   *         {@link EChange#UNCHANGED} if the index was invalid.
+   */
+  @Nonnull
+  EChange removeRule (@Nonnegative int nRuleIndex);
+
+  /**
+   * Remove all rules.
+   * 
+   * @return {@link EChange#CHANGED} if any rule was removed,
+   *         {@link EChange#UNCHANGED} otherwise. Never <code>null</code>.
+   */
+  @Nonnull
+  EChange removeAllRules ();
+
+  /**
+   * @return A copy of all contained rules. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <ICSSTopLevelRule> getAllRules ();
+}
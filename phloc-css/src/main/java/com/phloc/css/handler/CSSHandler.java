@@ -55,13 +55,34 @@ public final class CSSHandler
   @Nonnull
   public static CascadingStyleSheet readCascadingStyleSheetFromNode (@Nonnull final ECSSVersion eVersion,
                                                                      @Nonnull final CSSNode aNode)
+  {
+    return readCascadingStyleSheetFromNode (eVersion, aNode, false);
+  }
+
+  /**
+   * Create a {@link CascadingStyleSheet} object from a parsed object.
+   * 
+   * @param eVersion
+   *        The CSS version to use. May not be <code>null</code>.
+   * @param aNode
+   *        The parsed CSS object to read. May not be <code>null</code>.
+   * @param bUseSharedExpressions
+   *        <code>true</code> to use shared values for common simple
+   *        expression values.
+   * @return Never <code>null</code>.
+   * @since 3.8.1
+   */
+  @Nonnull
+  public static CascadingStyleSheet readCascadingStyleSheetFromNode (@Nonnull final ECSSVersion eVersion,
+                                                                     @Nonnull final CSSNode aNode,
+                                                                     final boolean bUseSharedExpressions)
   {
     ValueEnforcer.notNull (eVersion, "Version");
     ValueEnforcer.notNull (aNode, "Node");
     if (!ECSSNodeType.ROOT.isNode (aNode, eVersion))
       throw new CSSHandlingException (aNode, "Passed node is not a root node!");
 
-    return new CSSNodeToDomainObject (eVersion).createCascadingStyleSheetFromNode (aNode);
+    return new CSSNodeToDomainObject (eVersion, bUseSharedExpressions).createCascadingStyleSheetFromNode (aNode);
   }
 
   /**
@@ -76,12 +97,33 @@ public final class CSSHandler
   @Nonnull
   public static CSSDeclarationList readDeclarationListFromNode (@Nonnull final ECSSVersion eVersion,
                                                                 @Nonnull final CSSNode aNode)
+  {
+    return readDeclarationListFromNode (eVersion, aNode, false);
+  }
+
+  /**
+   * Create a {@link CSSDeclarationList} object from a parsed object.
+   * 
+   * @param eVersion
+   *        The CSS version to use. May not be <code>null</code>.
+   * @param aNode
+   *        The parsed CSS object to read. May not be <code>null</code>.
+   * @param bUseSharedExpressions
+   *        <code>true</code> to use shared values for common simple
+   *        expression values.
+   * @return Never <code>null</code>.
+   * @since 3.8.1
+   */
+  @Nonnull
+  public static CSSDeclarationList readDeclarationListFromNode (@Nonnull final ECSSVersion eVersion,
+                                                                @Nonnull final CSSNode aNode,
+                                                                final boolean bUseSharedExpressions)
   {
     ValueEnforcer.notNull (eVersion, "Version");
     ValueEnforcer.notNull (aNode, "Node");
     if (!ECSSNodeType.STYLEDECLARATIONLIST.isNode (aNode, eVersion))
       throw new CSSHandlingException (aNode, "Passed node is not a style declaration node!");
 
-    return new CSSNodeToDomainObject (eVersion).createDeclarationListFromNode (aNode);
+    return new CSSNodeToDomainObject (eVersion, bUseSharedExpressions).createDeclarationListFromNode (aNode);
   }
 }
@@ -33,6 +33,7 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.decl.CSSDeclaration;
 import com.phloc.css.decl.CSSDeclarationList;
 import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionFlyweights;
 import com.phloc.css.decl.CSSExpressionMemberFunction;
 import com.phloc.css.decl.CSSExpressionMemberMath;
 import com.phloc.css.decl.CSSExpressionMemberMathProduct;
@@ -91,6 +92,7 @@ final class CSSNodeToDomainObject
   private static final Logger s_aLogger = LoggerFactory.getLogger (CSSNodeToDomainObject.class);
 
   private final ECSSVersion m_eVersion;
+  private final boolean m_bUseSharedExpressions;
 
   /**
    * Constructor
@@ -99,8 +101,24 @@ final class CSSNodeToDomainObject
    *        The CSS version to use. May not be <code>null</code>.
    */
   public CSSNodeToDomainObject (@Nonnull final ECSSVersion eVersion)
+  {
+    this (eVersion, false);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param eVersion
+   *        The CSS version to use. May not be <code>null</code>.
+   * @param bUseSharedExpressions
+   *        <code>true</code> to use the shared values of
+   *        {@link CSSExpressionFlyweights} for common simple values.
+   * @since 3.8.1
+   */
+  public CSSNodeToDomainObject (@Nonnull final ECSSVersion eVersion, final boolean bUseSharedExpressions)
   {
     m_eVersion = ValueEnforcer.notNull (eVersion, "Version");
+    m_bUseSharedExpressions = bUseSharedExpressions;
   }
 
   private void _expectNodeType (@Nonnull final CSSNode aNode, @Nonnull final ECSSNodeType eExpected)
@@ -260,7 +278,7 @@ final class CSSNodeToDomainObject
       final List <CSSSelector> aNestedSelectors = new ArrayList <CSSSelector> ();
       for (int i = 0; i < nChildCount; ++i)
       {
-        final CSSNode aChildNode = aNode.jjtGetChild (0);
+        final CSSNode aChildNode = aNode.jjtGetChild (i);
         final CSSSelector aSelector = _createSelector (aChildNode);
         aNestedSelectors.add (aSelector);
       }
@@ -464,7 +482,9 @@ final class CSSNodeToDomainObject
     // Simple value
     if (nChildCount == 0)
     {
-      final CSSExpressionMemberTermSimple ret = new CSSExpressionMemberTermSimple (aNode.getText ());
+      final String sText = aNode.getText ();
+      final CSSExpressionMemberTermSimple ret = m_bUseSharedExpressions ? CSSExpressionFlyweights.createTerm (sText)
+                                                                        : new CSSExpressionMemberTermSimple (sText);
       ret.setSourceLocation (aNode.getSourceLocation ());
       return ret;
     }
@@ -0,0 +1,793 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorAttribute;
+import com.phloc.css.decl.CSSSelectorMemberFunctionLike;
+import com.phloc.css.decl.CSSSelectorMemberNot;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.ECSSAttributeOperator;
+import com.phloc.css.decl.ECSSSelectorCombinator;
+import com.phloc.css.decl.ICSSSelectorMember;
+import com.phloc.css.parser.ParseUtils;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * A {@link CSSSelector} compiled for fast matching. The selector is split into
+ * compound selectors that are matched from right to left, starting at the
+ * element to be checked. For every compound selector the element name, the ID
+ * and the classes are checked first, because they reject most elements.
+ * Element and attribute names are compared case insensitive, classes, IDs and
+ * attribute values case sensitive. Namespace prefixes are ignored.
+ * <p>
+ * Only the structural pseudo classes (like <code>:first-child</code> or
+ * <code>:nth-of-type(2n+1)</code>), <code>:root</code>, <code>:empty</code>,
+ * <code>:lang()</code> and <code>:not()</code> can be evaluated on a static
+ * document. All other pseudo classes (like <code>:hover</code> or
+ * <code>:checked</code>) and all pseudo elements depend on the dynamic state
+ * of the document. The caller decides whether these are assumed to match or
+ * not.
+ * <p>
+ * Compiled selectors are immutable and independent of the source selector, so
+ * they can be shared between threads. Use {@link CSSCompiledSelectorCache} to
+ * reuse them.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSCompiledSelector
+{
+  private static final CSSWriterSettings s_aSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  /**
+   * A single condition of a compound selector, that is not an element name, an
+   * ID or a class.
+   * 
+   * @author Philip Helger
+   */
+  private interface ICondition
+  {
+    <ELEMENTTYPE> boolean matches (@Nonnull ELEMENTTYPE aElement,
+                                   @Nonnull ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                   boolean bAssumeDynamicStates);
+  }
+
+  /**
+   * A pseudo class or pseudo element that depends on the document state.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class DynamicCondition implements ICondition
+  {
+    static final DynamicCondition INSTANCE = new DynamicCondition ();
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      return bAssumeDynamicStates;
+    }
+  }
+
+  /**
+   * <code>:root</code>
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class RootCondition implements ICondition
+  {
+    static final RootCondition INSTANCE = new RootCondition ();
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      return aNav.getParentElement (aElement) == null;
+    }
+  }
+
+  /**
+   * <code>:empty</code>
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class EmptyCondition implements ICondition
+  {
+    static final EmptyCondition INSTANCE = new EmptyCondition ();
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      return aNav.isEmpty (aElement);
+    }
+  }
+
+  /**
+   * All <code>:nth-*</code> and <code>:*-child</code> as well as
+   * <code>:*-of-type</code> pseudo classes.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class NthCondition implements ICondition
+  {
+    private final int m_nA;
+    private final int m_nB;
+    private final boolean m_bOfType;
+    private final boolean m_bFromEnd;
+
+    NthCondition (final int nA, final int nB, final boolean bOfType, final boolean bFromEnd)
+    {
+      m_nA = nA;
+      m_nB = nB;
+      m_bOfType = bOfType;
+      m_bFromEnd = bFromEnd;
+    }
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      final String sName = m_bOfType ? aNav.getElementName (aElement) : null;
+      int nPos = 1;
+      ELEMENTTYPE aCur = m_bFromEnd ? aNav.getNextSiblingElement (aElement) : aNav.getPreviousSiblingElement (aElement);
+      while (aCur != null)
+      {
+        if (sName == null || sName.equalsIgnoreCase (aNav.getElementName (aCur)))
+        {
+          ++nPos;
+          // Fixed positions like in :first-child need no further counting
+          if (m_nA == 0 && nPos > m_nB)
+            return false;
+        }
+        aCur = m_bFromEnd ? aNav.getNextSiblingElement (aCur) : aNav.getPreviousSiblingElement (aCur);
+      }
+      if (m_nA == 0)
+        return nPos == m_nB;
+      final int nDiff = nPos - m_nB;
+      return nDiff % m_nA == 0 && nDiff / m_nA >= 0;
+    }
+  }
+
+  /**
+   * <code>:lang()</code>
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class LangCondition implements ICondition
+  {
+    private final String m_sLang;
+    private final String m_sLangPrefix;
+
+    LangCondition (@Nonnull final String sLang)
+    {
+      m_sLang = sLang.toLowerCase (Locale.US);
+      m_sLangPrefix = m_sLang + "-";
+    }
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      for (ELEMENTTYPE aCur = aElement; aCur != null; aCur = aNav.getParentElement (aCur))
+      {
+        final String sElementLang = aNav.getAttribute (aCur, "lang");
+        if (sElementLang != null)
+        {
+          final String sLowerLang = sElementLang.toLowerCase (Locale.US);
+          return sLowerLang.equals (m_sLang) || sLowerLang.startsWith (m_sLangPrefix);
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Attribute selectors
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class AttributeCondition implements ICondition
+  {
+    private final String m_sName;
+    private final ECSSAttributeOperator m_eOperator;
+    private final String m_sValue;
+
+    AttributeCondition (@Nonnull final String sName,
+                        @Nullable final ECSSAttributeOperator eOperator,
+                        @Nullable final String sValue)
+    {
+      m_sName = sName;
+      m_eOperator = eOperator;
+      m_sValue = sValue;
+    }
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      final String sValue = aNav.getAttribute (aElement, m_sName);
+      if (sValue == null)
+        return false;
+      if (m_eOperator == null)
+        return true;
+
+      switch (m_eOperator)
+      {
+        case EQUALS:
+          return sValue.equals (m_sValue);
+        case INCLUDES:
+          return containsWord (sValue, m_sValue);
+        case DASHMATCH:
+          return sValue.equals (m_sValue) || (sValue.startsWith (m_sValue) &&
+                                              sValue.length () > m_sValue.length () &&
+                                              sValue.charAt (m_sValue.length ()) == '-');
+        case BEGINMATCH:
+          return m_sValue.length () > 0 && sValue.startsWith (m_sValue);
+        case ENDMATCH:
+          return m_sValue.length () > 0 && sValue.endsWith (m_sValue);
+        case CONTAINSMATCH:
+          return m_sValue.length () > 0 && sValue.contains (m_sValue);
+        default:
+          throw new IllegalStateException ("Unsupported attribute operator " + m_eOperator);
+      }
+    }
+  }
+
+  /**
+   * <code>:not()</code>
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class NotCondition implements ICondition
+  {
+    private final CSSCompiledSelector [] m_aNested;
+
+    NotCondition (@Nonnull final CSSCompiledSelector [] aNested)
+    {
+      m_aNested = aNested;
+    }
+
+    public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+    {
+      for (final CSSCompiledSelector aNested : m_aNested)
+      {
+        // A negated dynamic state may or may not apply
+        if (bAssumeDynamicStates && aNested.containsDynamicPseudo ())
+          continue;
+        if (aNested.matches (aElement, aNav, false))
+          return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A sequence of simple selectors without combinators.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class Compound
+  {
+    // Lower case
+    private final String m_sElementName;
+    private final String m_sID;
+    private final String [] m_aClasses;
+    private final ICondition [] m_aConditions;
+
+    Compound (@Nullable final String sElementName,
+              @Nullable final String sID,
+              @Nonnull final String [] aClasses,
+              @Nonnull final ICondition [] aConditions)
+    {
+      m_sElementName = sElementName;
+      m_sID = sID;
+      m_aClasses = aClasses;
+      m_aConditions = aConditions;
+    }
+
+    <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                   @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                   final boolean bAssumeDynamicStates)
+    {
+      if (m_sElementName != null && !m_sElementName.equalsIgnoreCase (aNav.getElementName (aElement)))
+        return false;
+      if (m_sID != null && !m_sID.equals (aNav.getAttribute (aElement, "id")))
+        return false;
+      if (m_aClasses.length > 0)
+      {
+        final String sClasses = aNav.getAttribute (aElement, "class");
+        if (sClasses == null)
+          return false;
+        for (final String sClass : m_aClasses)
+          if (!containsWord (sClasses, sClass))
+            return false;
+      }
+      for (final ICondition aCondition : m_aConditions)
+        if (!aCondition.matches (aElement, aNav, bAssumeDynamicStates))
+          return false;
+      return true;
+    }
+  }
+
+  private final String m_sSelector;
+  // Index 0 is the rightmost compound selector
+  private final Compound [] m_aCompounds;
+  // Index i is the combinator between compound i and compound i+1
+  private final ECSSSelectorCombinator [] m_aCombinators;
+  private final CSSSpecificity m_aSpecificity;
+  private final boolean m_bContainsDynamicPseudo;
+
+  private CSSCompiledSelector (@Nonnull final String sSelector,
+                               @Nonnull final Compound [] aCompounds,
+                               @Nonnull final ECSSSelectorCombinator [] aCombinators,
+                               @Nonnull final CSSSpecificity aSpecificity,
+                               final boolean bContainsDynamicPseudo)
+  {
+    m_sSelector = sSelector;
+    m_aCompounds = aCompounds;
+    m_aCombinators = aCombinators;
+    m_aSpecificity = aSpecificity;
+    m_bContainsDynamicPseudo = bContainsDynamicPseudo;
+  }
+
+  /**
+   * Check if the passed whitespace separated list contains the passed word.
+   * 
+   * @param sWords
+   *        The whitespace separated list. May not be <code>null</code>.
+   * @param sWord
+   *        The word to search. May not be <code>null</code>.
+   * @return <code>true</code> if the word is contained
+   */
+  static boolean containsWord (@Nonnull final String sWords, @Nonnull final String sWord)
+  {
+    final int nWordLength = sWord.length ();
+    if (nWordLength == 0)
+      return false;
+    int nIndex = sWords.indexOf (sWord);
+    while (nIndex >= 0)
+    {
+      final int nEnd = nIndex + nWordLength;
+      if ((nIndex == 0 || Character.isWhitespace (sWords.charAt (nIndex - 1))) &&
+          (nEnd == sWords.length () || Character.isWhitespace (sWords.charAt (nEnd))))
+        return true;
+      nIndex = sWords.indexOf (sWord, nIndex + 1);
+    }
+    return false;
+  }
+
+  /**
+   * @return The source selector in optimized CSS notation. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @Nonempty
+  public String getSelectorString ()
+  {
+    return m_sSelector;
+  }
+
+  /**
+   * @return The specificity of the selector. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSSSpecificity getSpecificity ()
+  {
+    return m_aSpecificity;
+  }
+
+  /**
+   * @return <code>true</code> if the selector contains a pseudo class or
+   *         pseudo element that depends on the dynamic document state, also
+   *         inside a negation.
+   */
+  public boolean containsDynamicPseudo ()
+  {
+    return m_bContainsDynamicPseudo;
+  }
+
+  /**
+   * @return The ID required by the rightmost compound selector (the subject of
+   *         the selector) or <code>null</code> if no ID is required. This can
+   *         be used to index selectors.
+   */
+  @Nullable
+  public String getSubjectID ()
+  {
+    return m_aCompounds.length == 0 ? null : m_aCompounds[0].m_sID;
+  }
+
+  /**
+   * @return The first class required by the rightmost compound selector (the
+   *         subject of the selector) or <code>null</code> if no class is
+   *         required. This can be used to index selectors.
+   */
+  @Nullable
+  public String getSubjectClass ()
+  {
+    return m_aCompounds.length == 0 || m_aCompounds[0].m_aClasses.length == 0 ? null
+                                                                             : m_aCompounds[0].m_aClasses[0];
+  }
+
+  /**
+   * @return The lower case element name required by the rightmost compound
+   *         selector (the subject of the selector) or <code>null</code> if any
+   *         element name matches. This can be used to index selectors.
+   */
+  @Nullable
+  public String getSubjectElementName ()
+  {
+    return m_aCompounds.length == 0 ? null : m_aCompounds[0].m_sElementName;
+  }
+
+  private <ELEMENTTYPE> boolean _matches (final int nIndex,
+                                          @Nonnull final ELEMENTTYPE aElement,
+                                          @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                          final boolean bAssumeDynamicStates)
+  {
+    if (!m_aCompounds[nIndex].matches (aElement, aNav, bAssumeDynamicStates))
+      return false;
+    if (nIndex == m_aCombinators.length)
+      return true;
+
+    final int nNext = nIndex + 1;
+    switch (m_aCombinators[nIndex])
+    {
+      case GREATER:
+      {
+        final ELEMENTTYPE aParent = aNav.getParentElement (aElement);
+        return aParent != null && _matches (nNext, aParent, aNav, bAssumeDynamicStates);
+      }
+      case BLANK:
+        for (ELEMENTTYPE aCur = aNav.getParentElement (aElement); aCur != null; aCur = aNav.getParentElement (aCur))
+          if (_matches (nNext, aCur, aNav, bAssumeDynamicStates))
+            return true;
+        return false;
+      case PLUS:
+      {
+        final ELEMENTTYPE aSibling = aNav.getPreviousSiblingElement (aElement);
+        return aSibling != null && _matches (nNext, aSibling, aNav, bAssumeDynamicStates);
+      }
+      case TILDE:
+        for (ELEMENTTYPE aCur = aNav.getPreviousSiblingElement (aElement); aCur != null;
+             aCur = aNav.getPreviousSiblingElement (aCur))
+          if (_matches (nNext, aCur, aNav, bAssumeDynamicStates))
+            return true;
+        return false;
+      default:
+        throw new IllegalStateException ("Unsupported combinator " + m_aCombinators[nIndex]);
+    }
+  }
+
+  /**
+   * Check if this selector matches the passed element.
+   * 
+   * @param aElement
+   *        The element to check. May not be <code>null</code>.
+   * @param aNav
+   *        The navigator for the element tree. May not be <code>null</code>.
+   * @param bAssumeDynamicStates
+   *        <code>true</code> if pseudo classes and pseudo elements that depend
+   *        on the dynamic document state (like <code>:hover</code> or
+   *        <code>::before</code>) should be treated as matching,
+   *        <code>false</code> if they should be treated as not matching.
+   * @return <code>true</code> if the selector matches the element.
+   * @param <ELEMENTTYPE>
+   *        The element type
+   */
+  public <ELEMENTTYPE> boolean matches (@Nonnull final ELEMENTTYPE aElement,
+                                        @Nonnull final ICSSElementNavigator <ELEMENTTYPE> aNav,
+                                        final boolean bAssumeDynamicStates)
+  {
+    if (m_aCompounds.length == 0)
+      return false;
+    return _matches (0, aElement, aNav, bAssumeDynamicStates);
+  }
+
+  /**
+   * Builder for a single compound selector.
+   * 
+   * @author Philip Helger
+   */
+  private static final class CompoundBuilder
+  {
+    private String m_sElementName;
+    private String m_sID;
+    private final List <String> m_aClasses = new ArrayList <String> ();
+    private final List <ICondition> m_aConditions = new ArrayList <ICondition> ();
+    private int m_nIDs;
+    private int m_nClasses;
+    private int m_nElements;
+    private boolean m_bDynamic;
+
+    private void _addPseudo (@Nonnull final String sPseudo)
+    {
+      final String sLowerPseudo = sPseudo.toLowerCase (Locale.US);
+      if (isPseudoElement (sLowerPseudo))
+        m_nElements++;
+      else
+        m_nClasses++;
+
+      if (CSSSelectorMatcher.isDynamicPseudo (sLowerPseudo))
+      {
+        m_aConditions.add (DynamicCondition.INSTANCE);
+        m_bDynamic = true;
+        return;
+      }
+
+      final int nOpen = sLowerPseudo.indexOf ('(');
+      final String sName = nOpen < 0 ? sLowerPseudo.substring (1) : sLowerPseudo.substring (1, nOpen);
+      if (sName.equals ("root"))
+        m_aConditions.add (RootCondition.INSTANCE);
+      else
+        if (sName.equals ("empty"))
+          m_aConditions.add (EmptyCondition.INSTANCE);
+        else
+          if (sName.startsWith ("nth-"))
+          {
+            final int nClose = sLowerPseudo.lastIndexOf (')');
+            int [] aNth = null;
+            if (nOpen >= 0 && nClose > nOpen)
+              aNth = CSSSelectorMatcher.parseNth (sLowerPseudo.substring (nOpen + 1, nClose).trim ());
+            if (aNth == null)
+            {
+              // E.g. the "of S" syntax - cannot be evaluated
+              m_aConditions.add (DynamicCondition.INSTANCE);
+              m_bDynamic = true;
+            }
+            else
+              m_aConditions.add (new NthCondition (aNth[0],
+                                                   aNth[1],
+                                                   sName.endsWith ("-of-type"),
+                                                   sName.startsWith ("nth-last-")));
+          }
+          else
+          {
+            // first-child, last-child, only-child and the "-of-type" variants
+            final boolean bOfType = sName.endsWith ("-of-type");
+            if (!sName.startsWith ("last-"))
+              m_aConditions.add (new NthCondition (0, 1, bOfType, false));
+            if (!sName.startsWith ("first-"))
+              m_aConditions.add (new NthCondition (0, 1, bOfType, true));
+          }
+    }
+
+    void add (@Nonnull final ICSSSelectorMember aMember)
+    {
+      if (aMember instanceof CSSSelectorSimpleMember)
+      {
+        final CSSSelectorSimpleMember aSimple = (CSSSelectorSimpleMember) aMember;
+        final String sValue = aSimple.getValue ();
+        if (aSimple.isClass ())
+        {
+          m_aClasses.add (CSSSelectorMatcher.unescapeIdentifier (sValue.substring (1)));
+          m_nClasses++;
+        }
+        else
+          if (aSimple.isHash ())
+          {
+            final String sID = CSSSelectorMatcher.unescapeIdentifier (sValue.substring (1));
+            if (m_sID != null && !m_sID.equals (sID))
+            {
+              // Two different IDs never match
+              m_aConditions.add (new AttributeCondition ("id", ECSSAttributeOperator.EQUALS, sID));
+            }
+            else
+              m_sID = sID;
+            m_nIDs++;
+          }
+          else
+            if (aSimple.isPseudo ())
+              _addPseudo (sValue);
+            else
+              if (!sValue.endsWith ("|") && !sValue.equals ("*"))
+              {
+                // Namespace prefixes are ignored
+                m_sElementName = CSSSelectorMatcher.unescapeIdentifier (sValue).toLowerCase (Locale.US);
+                m_nElements++;
+              }
+      }
+      else
+        if (aMember instanceof CSSSelectorAttribute)
+        {
+          final CSSSelectorAttribute aAttr = (CSSSelectorAttribute) aMember;
+          String sValue = null;
+          if (aAttr.getOperator () != null)
+            sValue = CSSSelectorMatcher.unescapeIdentifier (ParseUtils.extractStringValue (aAttr.getAttrValue ()));
+          m_aConditions.add (new AttributeCondition (aAttr.getAttrName ().toLowerCase (Locale.US),
+                                                     aAttr.getOperator (),
+                                                     sValue));
+          m_nClasses++;
+        }
+        else
+          if (aMember instanceof CSSSelectorMemberNot)
+          {
+            final List <CSSSelector> aNestedSelectors = ((CSSSelectorMemberNot) aMember).getAllSelectors ();
+            final CSSCompiledSelector [] aNested = new CSSCompiledSelector [aNestedSelectors.size ()];
+            CSSSpecificity aMax = CSSSpecificity.ZERO;
+            for (int i = 0; i < aNested.length; ++i)
+            {
+              aNested[i] = compile (aNestedSelectors.get (i));
+              if (aNested[i].getSpecificity ().compareTo (aMax) > 0)
+                aMax = aNested[i].getSpecificity ();
+              if (aNested[i].containsDynamicPseudo ())
+                m_bDynamic = true;
+            }
+            m_aConditions.add (new NotCondition (aNested));
+            // The negation itself counts like its most specific argument
+            m_nIDs += aMax.getIDs ();
+            m_nClasses += aMax.getClasses ();
+            m_nElements += aMax.getElements ();
+          }
+          else
+            if (aMember instanceof CSSSelectorMemberFunctionLike)
+            {
+              final CSSSelectorMemberFunctionLike aFunction = (CSSSelectorMemberFunctionLike) aMember;
+              final String sFuncName = aFunction.getFunctionName ().toLowerCase (Locale.US);
+              if (isPseudoElement (sFuncName))
+                m_nElements++;
+              else
+                m_nClasses++;
+              if (sFuncName.equals (":lang("))
+              {
+                final String sLang = aFunction.getParameterExpression ().getAsCSSString (s_aSettings, 0).trim ();
+                m_aConditions.add (new LangCondition (ParseUtils.extractStringValue (sLang)));
+              }
+              else
+              {
+                m_aConditions.add (DynamicCondition.INSTANCE);
+                m_bDynamic = true;
+              }
+            }
+            else
+              throw new IllegalArgumentException ("Unsupported selector member " + aMember);
+    }
+
+    @Nonnull
+    Compound build ()
+    {
+      return new Compound (m_sElementName,
+                           m_sID,
+                           m_aClasses.toArray (new String [m_aClasses.size ()]),
+                           m_aConditions.toArray (new ICondition [m_aConditions.size ()]));
+    }
+  }
+
+  /**
+   * Check if the passed pseudo selector is a pseudo element. Besides all
+   * pseudo selectors starting with two colons this includes the legacy CSS 2
+   * pseudo elements <code>:before</code>, <code>:after</code>,
+   * <code>:first-line</code> and <code>:first-letter</code>.
+   * 
+   * @param sPseudo
+   *        The pseudo selector including the leading colon(s). May not be
+   *        <code>null</code>.
+   * @return <code>true</code> if it is a pseudo element.
+   */
+  public static boolean isPseudoElement (@Nonnull final String sPseudo)
+  {
+    if (sPseudo.startsWith ("::"))
+      return true;
+    final String sLowerPseudo = sPseudo.toLowerCase (Locale.US);
+    return sLowerPseudo.equals (":before") ||
+           sLowerPseudo.equals (":after") ||
+           sLowerPseudo.equals (":first-line") ||
+           sLowerPseudo.equals (":first-letter");
+  }
+
+  /**
+   * Compile the passed selector. Compilation is not cheap, so compiled
+   * selectors should be reused - e.g. via {@link CSSCompiledSelectorCache}.
+   * 
+   * @param aSelector
+   *        The selector to compile. May not be <code>null</code>.
+   * @return The compiled selector. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSCompiledSelector compile (@Nonnull final CSSSelector aSelector)
+  {
+    ValueEnforcer.notNull (aSelector, "Selector");
+
+    final List <CompoundBuilder> aBuilders = new ArrayList <CompoundBuilder> ();
+    final List <ECSSSelectorCombinator> aCombinators = new ArrayList <ECSSSelectorCombinator> ();
+    CompoundBuilder aBuilder = null;
+    ECSSSelectorCombinator ePendingCombinator = null;
+    for (final ICSSSelectorMember aMember : aSelector.getAllMembers ())
+    {
+      if (aMember instanceof ECSSSelectorCombinator)
+      {
+        // Leading combinators are ignored
+        aBuilder = null;
+        if (!aBuilders.isEmpty ())
+          ePendingCombinator = (ECSSSelectorCombinator) aMember;
+        continue;
+      }
+      if (aBuilder == null)
+      {
+        aBuilder = new CompoundBuilder ();
+        aBuilders.add (aBuilder);
+        if (ePendingCombinator != null)
+        {
+          aCombinators.add (ePendingCombinator);
+          ePendingCombinator = null;
+        }
+      }
+      aBuilder.add (aMember);
+    }
+
+    // Reverse the order, so that the subject of the selector comes first
+    final int nCompounds = aBuilders.size ();
+    final Compound [] aCompounds = new Compound [nCompounds];
+    final ECSSSelectorCombinator [] aReversedCombinators = new ECSSSelectorCombinator [aCombinators.size ()];
+    int nIDs = 0;
+    int nClasses = 0;
+    int nElements = 0;
+    boolean bDynamic = false;
+    for (int i = 0; i < nCompounds; ++i)
+    {
+      final CompoundBuilder aCur = aBuilders.get (nCompounds - 1 - i);
+      aCompounds[i] = aCur.build ();
+      if (i < aReversedCombinators.length)
+        aReversedCombinators[i] = aCombinators.get (aReversedCombinators.length - 1 - i);
+      nIDs += aCur.m_nIDs;
+      nClasses += aCur.m_nClasses;
+      nElements += aCur.m_nElements;
+      bDynamic |= aCur.m_bDynamic;
+    }
+    return new CSSCompiledSelector (aSelector.getAsCSSString (s_aSettings, 0),
+                                    aCompounds,
+                                    aReversedCombinators,
+                                    new CSSSpecificity (nIDs, nClasses, nElements),
+                                    bDynamic);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("selector", m_sSelector)
+                                       .append ("compounds", m_aCompounds.length)
+                                       .append ("specificity", m_aSpecificity)
+                                       .append ("containsDynamicPseudo", m_bContainsDynamicPseudo)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * A global cache for {@link CSSCompiledSelector} objects. The optimized CSS
+ * text of a selector is used as the cache key, so that equal selectors from
+ * different style sheets share the compiled matcher and the specificity, and
+ * modifications of a selector after compilation are detected. If the maximum
+ * size is exceeded, the oldest entries are evicted.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@ThreadSafe
+public final class CSSCompiledSelectorCache
+{
+  /** The maximum number of cached selectors */
+  public static final int MAX_SIZE = 10000;
+
+  /**
+   * A map that evicts the eldest entries if {@link #MAX_SIZE} is exceeded.
+   * 
+   * @author Philip Helger
+   */
+  private static final class BoundedMap extends LinkedHashMap <String, CSSCompiledSelector>
+  {
+    @Override
+    protected boolean removeEldestEntry (final Map.Entry <String, CSSCompiledSelector> aEldest)
+    {
+      return size () > MAX_SIZE;
+    }
+  }
+
+  private static final CSSWriterSettings s_aSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+  private static final ReadWriteLock s_aRWLock = new ReentrantReadWriteLock ();
+  @GuardedBy ("s_aRWLock")
+  private static final Map <String, CSSCompiledSelector> s_aMap = new BoundedMap ();
+
+  @PresentForCodeCoverage
+  @SuppressWarnings ("unused")
+  private static final CSSCompiledSelectorCache s_aInstance = new CSSCompiledSelectorCache ();
+
+  private CSSCompiledSelectorCache ()
+  {}
+
+  /**
+   * Get the compiled version of the passed selector. If it is not yet
+   * contained in the cache, it is compiled and added.
+   * 
+   * @param aSelector
+   *        The selector to be compiled. May not be <code>null</code>.
+   * @return The compiled selector. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSCompiledSelector getCompiledSelector (@Nonnull final CSSSelector aSelector)
+  {
+    ValueEnforcer.notNull (aSelector, "Selector");
+
+    final String sKey = aSelector.getAsCSSString (s_aSettings, 0);
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      final CSSCompiledSelector aCompiled = s_aMap.get (sKey);
+      if (aCompiled != null)
+        return aCompiled;
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+
+    // Compile outside of the lock - in the worst case a selector is compiled
+    // twice
+    final CSSCompiledSelector aCompiled = CSSCompiledSelector.compile (aSelector);
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      final CSSCompiledSelector aOther = s_aMap.get (sKey);
+      if (aOther != null)
+        return aOther;
+      s_aMap.put (sKey, aCompiled);
+      return aCompiled;
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  /**
+   * Get the specificity of the passed selector.
+   * 
+   * @param aSelector
+   *        The selector to be evaluated. May not be <code>null</code>.
+   * @return The specificity. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSSpecificity getSpecificity (@Nonnull final CSSSelector aSelector)
+  {
+    return getCompiledSelector (aSelector).getSpecificity ();
+  }
+
+  /**
+   * @return The number of currently cached selectors. Always &ge; 0.
+   */
+  @Nonnegative
+  public static int getCacheSize ()
+  {
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      return s_aMap.size ();
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  /**
+   * Remove all cached selectors.
+   */
+  public static void clearCache ()
+  {
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      s_aMap.clear ();
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.string.StringParser;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorMemberFunctionLike;
+import com.phloc.css.decl.CSSSelectorMemberNot;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.ICSSSelectorMember;
+
+/**
+ * Matches {@link CSSSelector} objects against the elements of a micro DOM as
+ * created by {@link HTMLTolerantReader}. The selectors are compiled into
+ * {@link CSSCompiledSelector} objects and kept in the
+ * {@link CSSCompiledSelectorCache}. See {@link CSSCompiledSelector} for the
+ * matching rules.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSSelectorMatcher
+{
+  /** The pseudo classes that only depend on the document structure */
+  private static final Set <String> s_aStructuralPseudoClasses = ContainerHelper.newSet ("root",
+                                                                                        "empty",
+                                                                                        "first-child",
+                                                                                        "last-child",
+                                                                                        "only-child",
+                                                                                        "first-of-type",
+                                                                                        "last-of-type",
+                                                                                        "only-of-type",
+                                                                                        "nth-child",
+                                                                                        "nth-last-child",
+                                                                                        "nth-of-type",
+                                                                                        "nth-last-of-type");
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSSelectorMatcher s_aInstance = new CSSSelectorMatcher ();
+
+  private CSSSelectorMatcher ()
+  {}
+
+  /**
+   * Remove all CSS escape sequences from the passed identifier, so that it can
+   * be compared with HTML attribute values.
+   * 
+   * @param sIdentifier
+   *        The identifier to unescape. May not be <code>null</code>.
+   * @return The unescaped identifier. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String unescapeIdentifier (@Nonnull final String sIdentifier)
+  {
+    int nIndex = sIdentifier.indexOf ('\\');
+    if (nIndex < 0)
+      return sIdentifier;
+
+    final int nLength = sIdentifier.length ();
+    final StringBuilder aSB = new StringBuilder (nLength);
+    aSB.append (sIdentifier, 0, nIndex);
+    while (nIndex < nLength)
+    {
+      final char c = sIdentifier.charAt (nIndex);
+      if (c != '\\' || nIndex == nLength - 1)
+      {
+        aSB.append (c);
+        ++nIndex;
+        continue;
+      }
+
+      // Up to 6 hex digits, optionally followed by a single whitespace
+      int nHexEnd = nIndex + 1;
+      while (nHexEnd < nLength && nHexEnd - nIndex <= 6 && Character.digit (sIdentifier.charAt (nHexEnd), 16) >= 0)
+        ++nHexEnd;
+      if (nHexEnd > nIndex + 1)
+      {
+        final int nCodePoint = StringParser.parseInt (sIdentifier.substring (nIndex + 1, nHexEnd), 16, 0xfffd);
+        aSB.appendCodePoint (nCodePoint > 0 && Character.isValidCodePoint (nCodePoint) ? nCodePoint : 0xfffd);
+        if (nHexEnd < nLength && Character.isWhitespace (sIdentifier.charAt (nHexEnd)))
+          ++nHexEnd;
+        nIndex = nHexEnd;
+      }
+      else
+      {
+        aSB.append (sIdentifier.charAt (nIndex + 1));
+        nIndex += 2;
+      }
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Check if the passed pseudo class or pseudo element depends on the dynamic
+   * state of the document.
+   * 
+   * @param sPseudo
+   *        The pseudo class or element including the leading colon(s) and an
+   *        optional parameter list. May not be <code>null</code>.
+   * @return <code>true</code> if the passed pseudo class or element cannot be
+   *         evaluated on a static document.
+   */
+  public static boolean isDynamicPseudo (@Nonnull final String sPseudo)
+  {
+    if (sPseudo.startsWith ("::"))
+      return true;
+    final String sName = _getPseudoName (sPseudo.toLowerCase (Locale.US));
+    return !s_aStructuralPseudoClasses.contains (sName) && !sName.equals ("lang");
+  }
+
+  /**
+   * Check if the passed selector contains any pseudo class or element that
+   * depends on the dynamic state of the document. Nested negations are
+   * considered as well.
+   * 
+   * @param aSelector
+   *        The selector to check. May not be <code>null</code>.
+   * @return <code>true</code> if at least one dynamic pseudo class or element
+   *         is contained.
+   */
+  public static boolean containsDynamicPseudo (@Nonnull final CSSSelector aSelector)
+  {
+    for (final ICSSSelectorMember aMember : aSelector.getAllMembers ())
+    {
+      if (aMember instanceof CSSSelectorSimpleMember)
+      {
+        final CSSSelectorSimpleMember aSimple = (CSSSelectorSimpleMember) aMember;
+        if (aSimple.isPseudo () && isDynamicPseudo (aSimple.getValue ()))
+          return true;
+      }
+      else
+        if (aMember instanceof CSSSelectorMemberFunctionLike)
+        {
+          if (isDynamicPseudo (((CSSSelectorMemberFunctionLike) aMember).getFunctionName ()))
+            return true;
+        }
+        else
+          if (aMember instanceof CSSSelectorMemberNot)
+            for (final CSSSelector aNested : ((CSSSelectorMemberNot) aMember).getAllSelectors ())
+              if (containsDynamicPseudo (aNested))
+                return true;
+    }
+    return false;
+  }
+
+  @Nonnull
+  private static String _getPseudoName (@Nonnull final String sLowerPseudo)
+  {
+    final int nStart = sLowerPseudo.startsWith ("::") ? 2 : 1;
+    final int nParen = sLowerPseudo.indexOf ('(');
+    return nParen < 0 ? sLowerPseudo.substring (nStart) : sLowerPseudo.substring (nStart, nParen);
+  }
+
+  /**
+   * Parse the argument of an <code>:nth-*</code> pseudo class.
+   * 
+   * @param sArg
+   *        The lower case argument without whitespaces
+   * @return <code>null</code> if the argument is invalid, an array with
+   *         <code>a</code> and <code>b</code> of <code>an+b</code> otherwise.
+   */
+  @Nullable
+  static int [] parseNth (@Nonnull final String sArg)
+  {
+    if (sArg.equals ("odd"))
+      return new int [] { 2, 1 };
+    if (sArg.equals ("even"))
+      return new int [] { 2, 0 };
+
+    final int nN = sArg.indexOf ('n');
+    if (nN < 0)
+    {
+      final int nB = StringParser.parseInt (sArg.startsWith ("+") ? sArg.substring (1) : sArg, Integer.MIN_VALUE);
+      return nB == Integer.MIN_VALUE ? null : new int [] { 0, nB };
+    }
+
+    final String sA = sArg.substring (0, nN);
+    final int nA;
+    if (sA.length () == 0 || sA.equals ("+"))
+      nA = 1;
+    else
+      if (sA.equals ("-"))
+        nA = -1;
+      else
+        nA = StringParser.parseInt (sA.startsWith ("+") ? sA.substring (1) : sA, Integer.MIN_VALUE);
+
+    final String sB = sArg.substring (nN + 1);
+    final int nB;
+    if (sB.length () == 0)
+      nB = 0;
+    else
+      if (sB.startsWith ("+"))
+        nB = StringParser.parseInt (sB.substring (1), Integer.MIN_VALUE);
+      else
+        nB = sB.startsWith ("-") ? StringParser.parseInt (sB, Integer.MIN_VALUE) : Integer.MIN_VALUE;
+
+    if (nA == Integer.MIN_VALUE || nB == Integer.MIN_VALUE)
+      return null;
+    return new int [] { nA, nB };
+  }
+
+  /**
+   * Check if the passed selector matches the passed element.
+   * 
+   * @param aSelector
+   *        The selector to check. May not be <code>null</code>.
+   * @param aElement
+   *        The element to check. May not be <code>null</code>.
+   * @param bAssumeDynamicStates
+   *        <code>true</code> if pseudo classes and pseudo elements that depend
+   *        on the dynamic document state (like <code>:hover</code> or
+   *        <code>::before</code>) should be treated as matching,
+   *        <code>false</code> if they should be treated as not matching.
+   * @return <code>true</code> if the selector matches the element.
+   */
+  public static boolean matches (@Nonnull final CSSSelector aSelector,
+                                 @Nonnull final IMicroElement aElement,
+                                 final boolean bAssumeDynamicStates)
+  {
+    ValueEnforcer.notNull (aSelector, "Selector");
+    ValueEnforcer.notNull (aElement, "Element");
+
+    return CSSCompiledSelectorCache.getCompiledSelector (aSelector).matches (aElement,
+                                                                             MicroElementNavigator.getInstance (),
+                                                                             bAssumeDynamicStates);
+  }
+}
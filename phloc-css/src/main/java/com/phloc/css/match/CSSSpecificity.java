@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * The specificity of a selector as defined in the Selectors Level 3
+ * specification: the number of ID selectors, the number of class selectors,
+ * attribute selectors and pseudo classes and the number of type selectors and
+ * pseudo elements. Specificities are compared component by component.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSSpecificity implements Comparable <CSSSpecificity>
+{
+  /** The specificity of the universal selector */
+  public static final CSSSpecificity ZERO = new CSSSpecificity (0, 0, 0);
+
+  private final int m_nIDs;
+  private final int m_nClasses;
+  private final int m_nElements;
+
+  public CSSSpecificity (@Nonnegative final int nIDs, @Nonnegative final int nClasses, @Nonnegative final int nElements)
+  {
+    m_nIDs = ValueEnforcer.isGE0 (nIDs, "IDs");
+    m_nClasses = ValueEnforcer.isGE0 (nClasses, "Classes");
+    m_nElements = ValueEnforcer.isGE0 (nElements, "Elements");
+  }
+
+  /**
+   * @return The number of ID selectors. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getIDs ()
+  {
+    return m_nIDs;
+  }
+
+  /**
+   * @return The number of class selectors, attribute selectors and pseudo
+   *         classes. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getClasses ()
+  {
+    return m_nClasses;
+  }
+
+  /**
+   * @return The number of type selectors and pseudo elements. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getElements ()
+  {
+    return m_nElements;
+  }
+
+  /**
+   * Get the sum of this and the passed specificity.
+   * 
+   * @param aOther
+   *        The specificity to add. May not be <code>null</code>.
+   * @return A new object. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSSSpecificity getAdded (@Nonnull final CSSSpecificity aOther)
+  {
+    return new CSSSpecificity (m_nIDs + aOther.m_nIDs,
+                               m_nClasses + aOther.m_nClasses,
+                               m_nElements + aOther.m_nElements);
+  }
+
+  public int compareTo (@Nonnull final CSSSpecificity aOther)
+  {
+    if (m_nIDs != aOther.m_nIDs)
+      return m_nIDs < aOther.m_nIDs ? -1 : 1;
+    if (m_nClasses != aOther.m_nClasses)
+      return m_nClasses < aOther.m_nClasses ? -1 : 1;
+    if (m_nElements != aOther.m_nElements)
+      return m_nElements < aOther.m_nElements ? -1 : 1;
+    return 0;
+  }
+
+  /**
+   * @return The specificity in the common notation "a,b,c" - e.g.
+   *         <code>"1,2,0"</code>
+   */
+  @Nonnull
+  public String getAsString ()
+  {
+    return m_nIDs + "," + m_nClasses + "," + m_nElements;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CSSSpecificity rhs = (CSSSpecificity) o;
+    return m_nIDs == rhs.m_nIDs && m_nClasses == rhs.m_nClasses && m_nElements == rhs.m_nElements;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_nIDs).append (m_nClasses).append (m_nElements).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("IDs", m_nIDs)
+                                       .append ("classes", m_nClasses)
+                                       .append ("elements", m_nElements)
+                                       .toString ();
+  }
+}
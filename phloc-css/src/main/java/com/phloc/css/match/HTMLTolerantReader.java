@@ -0,0 +1,547 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.io.file.SimpleFileIO;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.impl.MicroDocument;
+import com.phloc.commons.microdom.impl.MicroElement;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.commons.string.StringParser;
+import com.phloc.commons.xml.serialize.HTMLdtd;
+
+/**
+ * A very tolerant HTML reader that creates a micro DOM which is good enough
+ * for matching CSS selectors. It never fails: unknown constructs are skipped,
+ * unclosed elements are closed implicitly and end tags without a matching
+ * start tag are ignored. Element and attribute names are lower cased and every
+ * document gets an <code>html</code> root element with a <code>head</code> and
+ * a <code>body</code> child like in a browser. Only the most common character
+ * references are resolved in attribute values. Text content is kept as is,
+ * because it is irrelevant for selectors.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class HTMLTolerantReader
+{
+  private static final String ELEMENT_HTML = "html";
+  private static final String ELEMENT_HEAD = "head";
+  private static final String ELEMENT_BODY = "body";
+
+  /** HTML5 void elements that are unknown to {@link HTMLdtd} */
+  private static final Set <String> s_aAdditionalVoidElements = ContainerHelper.newSet ("embed",
+                                                                                       "keygen",
+                                                                                       "source",
+                                                                                       "track",
+                                                                                       "wbr");
+
+  /** Elements whose content is not parsed as HTML */
+  private static final Set <String> s_aRawTextElements = ContainerHelper.newSet ("script",
+                                                                                "style",
+                                                                                "textarea",
+                                                                                "title",
+                                                                                "xmp");
+
+  /** Elements that belong into the head if they appear before the body */
+  private static final Set <String> s_aHeadElements = ContainerHelper.newSet ("base",
+                                                                             "link",
+                                                                             "meta",
+                                                                             "noscript",
+                                                                             "script",
+                                                                             "style",
+                                                                             "template",
+                                                                             "title");
+
+  /** Table row groups */
+  private static final Set <String> s_aRowGroupElements = ContainerHelper.newSet ("tbody", "thead", "tfoot");
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final HTMLTolerantReader s_aInstance = new HTMLTolerantReader ();
+
+  private HTMLTolerantReader ()
+  {}
+
+  /**
+   * Check if the passed element is a void element that never has content.
+   * 
+   * @param sElementName
+   *        The lower case element name. May not be <code>null</code>.
+   * @return <code>true</code> if it is a void element.
+   */
+  public static boolean isVoidElement (@Nonnull final String sElementName)
+  {
+    return HTMLdtd.isEmptyTag (sElementName) || s_aAdditionalVoidElements.contains (sElementName);
+  }
+
+  /**
+   * Check if an open element is closed implicitly by a new start tag. In
+   * addition to {@link HTMLdtd#isClosing(String, String)} table cells and rows
+   * are closed by the next row or row group.
+   * 
+   * @param sName
+   *        The lower case name of the new element
+   * @param sOpenName
+   *        The lower case name of the open element
+   * @return <code>true</code> if the open element is closed
+   */
+  private static boolean _isImplicitlyClosed (@Nonnull final String sName, @Nonnull final String sOpenName)
+  {
+    if (HTMLdtd.isClosing (sName, sOpenName))
+      return true;
+    final boolean bNewRowOrGroup = sName.equals ("tr") || s_aRowGroupElements.contains (sName);
+    if (sOpenName.equals ("td") || sOpenName.equals ("th"))
+      return bNewRowOrGroup || sName.equals ("td") || sName.equals ("th");
+    if (sOpenName.equals ("tr"))
+      return bNewRowOrGroup;
+    if (s_aRowGroupElements.contains (sOpenName))
+      return s_aRowGroupElements.contains (sName);
+    return false;
+  }
+
+  /**
+   * Resolve the character references <code>&amp;amp;</code>,
+   * <code>&amp;lt;</code>, <code>&amp;gt;</code>, <code>&amp;quot;</code>,
+   * <code>&amp;apos;</code> as well as all numeric character references.
+   * Unknown references are left as they are.
+   * 
+   * @param sText
+   *        The text to be unescaped. May not be <code>null</code>.
+   * @return The unescaped text. Never <code>null</code>.
+   */
+  @Nonnull
+  static String unescapeCharacterReferences (@Nonnull final String sText)
+  {
+    int nAmp = sText.indexOf ('&');
+    if (nAmp < 0)
+      return sText;
+
+    final StringBuilder aSB = new StringBuilder (sText.length ());
+    int nPrev = 0;
+    while (nAmp >= 0)
+    {
+      aSB.append (sText, nPrev, nAmp);
+      final int nSemi = sText.indexOf (';', nAmp);
+      String sReplacement = null;
+      if (nSemi > nAmp + 1 && nSemi - nAmp <= 10)
+      {
+        final String sRef = sText.substring (nAmp + 1, nSemi);
+        if (sRef.charAt (0) == '#')
+        {
+          final boolean bHex = sRef.length () > 1 && (sRef.charAt (1) == 'x' || sRef.charAt (1) == 'X');
+          final int nCodePoint = StringParser.parseInt (sRef.substring (bHex ? 2 : 1), bHex ? 16 : 10, -1);
+          if (nCodePoint > 0 && Character.isValidCodePoint (nCodePoint))
+            sReplacement = new String (Character.toChars (nCodePoint));
+        }
+        else
+          if (sRef.equals ("amp"))
+            sReplacement = "&";
+          else
+            if (sRef.equals ("lt"))
+              sReplacement = "<";
+            else
+              if (sRef.equals ("gt"))
+                sReplacement = ">";
+              else
+                if (sRef.equals ("quot"))
+                  sReplacement = "\"";
+                else
+                  if (sRef.equals ("apos"))
+                    sReplacement = "'";
+      }
+      if (sReplacement != null)
+      {
+        aSB.append (sReplacement);
+        nPrev = nSemi + 1;
+      }
+      else
+      {
+        aSB.append ('&');
+        nPrev = nAmp + 1;
+      }
+      nAmp = sText.indexOf ('&', nPrev);
+    }
+    aSB.append (sText, nPrev, sText.length ());
+    return aSB.toString ();
+  }
+
+  /**
+   * The tree builder that keeps track of the open elements.
+   * 
+   * @author Philip Helger
+   */
+  @NotThreadSafe
+  private static final class TreeBuilder
+  {
+    private final IMicroDocument m_aDoc = new MicroDocument ();
+    private final IMicroElement m_aHTML;
+    private IMicroElement m_aHead;
+    private IMicroElement m_aBody;
+    private final List <IMicroElement> m_aOpenElements = new ArrayList <IMicroElement> ();
+
+    TreeBuilder ()
+    {
+      m_aHTML = m_aDoc.appendElement (ELEMENT_HTML);
+      m_aOpenElements.add (m_aHTML);
+    }
+
+    @Nonnull
+    private IMicroElement _getCurrent ()
+    {
+      return m_aOpenElements.get (m_aOpenElements.size () - 1);
+    }
+
+    private void _popUntil (@Nonnull final IMicroElement aElement)
+    {
+      while (_getCurrent () != aElement)
+        m_aOpenElements.remove (m_aOpenElements.size () - 1);
+    }
+
+    private void _ensureHead ()
+    {
+      if (m_aHead == null)
+        m_aHead = m_aHTML.insertAtIndex (0, new MicroElement (ELEMENT_HEAD));
+    }
+
+    private void _ensureBody ()
+    {
+      if (m_aBody == null)
+        m_aBody = m_aHTML.appendElement (ELEMENT_BODY);
+    }
+
+    private void _openBody ()
+    {
+      _ensureBody ();
+      if (!m_aOpenElements.contains (m_aBody))
+      {
+        _popUntil (m_aHTML);
+        m_aOpenElements.add (m_aBody);
+      }
+    }
+
+    private static void _setAttributes (@Nonnull final IMicroElement aElement, @Nonnull final List <String> aAttrs)
+    {
+      // Like in browsers the first occurrence of an attribute wins
+      for (int i = 0; i < aAttrs.size (); i += 2)
+        if (!aElement.hasAttribute (aAttrs.get (i)))
+          aElement.setAttribute (aAttrs.get (i), aAttrs.get (i + 1));
+    }
+
+    /**
+     * Start a new element.
+     * 
+     * @param sName
+     *        Lower case element name
+     * @param aAttrs
+     *        Attribute names and values in alternating order
+     * @return <code>true</code> if the element was opened and may have
+     *         content, <code>false</code> if it is a void element or one of
+     *         the implicitly created elements.
+     */
+    boolean startElement (@Nonnull final String sName, @Nonnull final List <String> aAttrs)
+    {
+      if (sName.equals (ELEMENT_HTML))
+      {
+        _setAttributes (m_aHTML, aAttrs);
+        return false;
+      }
+      if (sName.equals (ELEMENT_HEAD))
+      {
+        if (m_aBody == null)
+        {
+          _ensureHead ();
+          _popUntil (m_aHTML);
+          m_aOpenElements.add (m_aHead);
+          _setAttributes (m_aHead, aAttrs);
+        }
+        return false;
+      }
+      if (sName.equals (ELEMENT_BODY))
+      {
+        _openBody ();
+        _setAttributes (m_aBody, aAttrs);
+        return false;
+      }
+
+      IMicroElement aCurrent = _getCurrent ();
+      if (aCurrent == m_aHTML)
+      {
+        if (m_aBody == null && s_aHeadElements.contains (sName))
+        {
+          _ensureHead ();
+          m_aOpenElements.add (m_aHead);
+        }
+        else
+          _openBody ();
+      }
+      else
+        if (aCurrent == m_aHead)
+        {
+          if (!s_aHeadElements.contains (sName))
+            _openBody ();
+        }
+        else
+        {
+          // Close all elements that are implicitly closed by this element
+          while (aCurrent != m_aBody && aCurrent != m_aHead && _isImplicitlyClosed (sName, aCurrent.getTagName ()))
+          {
+            m_aOpenElements.remove (m_aOpenElements.size () - 1);
+            aCurrent = _getCurrent ();
+          }
+        }
+
+      final IMicroElement aElement = _getCurrent ().appendElement (sName);
+      _setAttributes (aElement, aAttrs);
+      if (isVoidElement (sName))
+        return false;
+      m_aOpenElements.add (aElement);
+      return true;
+    }
+
+    void endElement (@Nonnull final String sName)
+    {
+      // html, head and body stay open, so that trailing content is not lost
+      for (int i = m_aOpenElements.size () - 1; i > 0; --i)
+      {
+        final IMicroElement aElement = m_aOpenElements.get (i);
+        if (aElement == m_aBody)
+          return;
+        if (aElement.getTagName ().equals (sName))
+        {
+          if (aElement != m_aHead)
+            _popUntil (m_aOpenElements.get (i - 1));
+          else
+            _popUntil (m_aHTML);
+          return;
+        }
+      }
+    }
+
+    void text (@Nonnull final String sText)
+    {
+      final IMicroElement aCurrent = _getCurrent ();
+      if (aCurrent == m_aHTML || aCurrent == m_aHead)
+      {
+        // Whitespace outside of the body is dropped
+        if (StringHelper.hasNoText (sText.trim ()))
+          return;
+        _openBody ();
+      }
+      _getCurrent ().appendText (sText);
+    }
+
+    @Nonnull
+    IMicroDocument getDocument ()
+    {
+      _ensureHead ();
+      _ensureBody ();
+      return m_aDoc;
+    }
+  }
+
+  private static boolean _isWhitespace (final char c)
+  {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
+  private static boolean _isNameEnd (final char c)
+  {
+    return _isWhitespace (c) || c == '/' || c == '>';
+  }
+
+  /**
+   * Read the passed HTML source into a micro document.
+   * 
+   * @param sHTML
+   *        The HTML source code. May not be <code>null</code>.
+   * @return The created document. Never <code>null</code>. The document
+   *         element is always an <code>html</code> element.
+   */
+  @Nonnull
+  public static IMicroDocument readFromString (@Nonnull final String sHTML)
+  {
+    ValueEnforcer.notNull (sHTML, "HTML");
+
+    final TreeBuilder aBuilder = new TreeBuilder ();
+    final String sLowerHTML = sHTML.toLowerCase (Locale.US);
+    final int nLength = sHTML.length ();
+    int nPos = 0;
+    while (nPos < nLength)
+    {
+      final int nLT = sHTML.indexOf ('<', nPos);
+      if (nLT < 0 || nLT == nLength - 1)
+      {
+        aBuilder.text (sHTML.substring (nPos));
+        break;
+      }
+      final char cNext = sHTML.charAt (nLT + 1);
+      final boolean bEndTag = cNext == '/';
+      if (!bEndTag && !Character.isLetter (cNext) && cNext != '!' && cNext != '?')
+      {
+        // A single '<' in text
+        aBuilder.text (sHTML.substring (nPos, nLT + 1));
+        nPos = nLT + 1;
+        continue;
+      }
+      if (nLT > nPos)
+        aBuilder.text (sHTML.substring (nPos, nLT));
+
+      if (sHTML.startsWith ("<!--", nLT))
+      {
+        // Comment
+        final int nEnd = sHTML.indexOf ("-->", nLT + 4);
+        nPos = nEnd < 0 ? nLength : nEnd + 3;
+        continue;
+      }
+      if (cNext == '!' || cNext == '?')
+      {
+        // Document type, CDATA section or processing instruction
+        final int nEnd = sHTML.indexOf ('>', nLT);
+        nPos = nEnd < 0 ? nLength : nEnd + 1;
+        continue;
+      }
+
+      // Read the tag name
+      int nNameEnd = nLT + (bEndTag ? 2 : 1);
+      while (nNameEnd < nLength && !_isNameEnd (sHTML.charAt (nNameEnd)))
+        ++nNameEnd;
+      final String sName = sLowerHTML.substring (nLT + (bEndTag ? 2 : 1), nNameEnd);
+      if (bEndTag)
+      {
+        if (sName.length () > 0)
+          aBuilder.endElement (sName);
+        final int nEnd = sHTML.indexOf ('>', nNameEnd);
+        nPos = nEnd < 0 ? nLength : nEnd + 1;
+        continue;
+      }
+
+      // Read the attributes
+      final List <String> aAttrs = new ArrayList <String> ();
+      nPos = nNameEnd;
+      while (nPos < nLength)
+      {
+        final char c = sHTML.charAt (nPos);
+        if (c == '>')
+        {
+          ++nPos;
+          break;
+        }
+        if (_isWhitespace (c) || c == '/')
+        {
+          ++nPos;
+          continue;
+        }
+
+        final int nAttrNameStart = nPos;
+        while (nPos < nLength && !_isNameEnd (sHTML.charAt (nPos)) && sHTML.charAt (nPos) != '=')
+          ++nPos;
+        final String sAttrName = sLowerHTML.substring (nAttrNameStart, Math.max (nPos, nAttrNameStart + 1));
+        if (nPos == nAttrNameStart)
+          ++nPos;
+        while (nPos < nLength && _isWhitespace (sHTML.charAt (nPos)))
+          ++nPos;
+
+        String sAttrValue = "";
+        if (nPos < nLength && sHTML.charAt (nPos) == '=')
+        {
+          ++nPos;
+          while (nPos < nLength && _isWhitespace (sHTML.charAt (nPos)))
+            ++nPos;
+          if (nPos < nLength)
+          {
+            final char cQuote = sHTML.charAt (nPos);
+            if (cQuote == '"' || cQuote == '\'')
+            {
+              final int nEnd = sHTML.indexOf (cQuote, nPos + 1);
+              final int nValueEnd = nEnd < 0 ? nLength : nEnd;
+              sAttrValue = sHTML.substring (nPos + 1, nValueEnd);
+              nPos = Math.min (nValueEnd + 1, nLength);
+            }
+            else
+            {
+              final int nValueStart = nPos;
+              while (nPos < nLength && !_isWhitespace (sHTML.charAt (nPos)) && sHTML.charAt (nPos) != '>')
+                ++nPos;
+              sAttrValue = sHTML.substring (nValueStart, nPos);
+            }
+          }
+        }
+        aAttrs.add (sAttrName);
+        aAttrs.add (unescapeCharacterReferences (sAttrValue));
+      }
+
+      final boolean bSelfClosing = sHTML.charAt (nPos - 1) == '>' && sHTML.charAt (nPos - 2) == '/';
+      if (aBuilder.startElement (sName, aAttrs))
+      {
+        if (s_aRawTextElements.contains (sName))
+        {
+          // Everything up to the end tag is text
+          final int nEnd = sLowerHTML.indexOf ("</" + sName, nPos);
+          final int nTextEnd = nEnd < 0 ? nLength : nEnd;
+          if (nTextEnd > nPos)
+            aBuilder.text (sHTML.substring (nPos, nTextEnd));
+          aBuilder.endElement (sName);
+          final int nClose = nEnd < 0 ? -1 : sHTML.indexOf ('>', nEnd);
+          nPos = nClose < 0 ? nLength : nClose + 1;
+        }
+        else
+          if (bSelfClosing)
+            aBuilder.endElement (sName);
+      }
+    }
+    return aBuilder.getDocument ();
+  }
+
+  /**
+   * Read the passed HTML file into a micro document.
+   * 
+   * @param aFile
+   *        The file to be read. May not be <code>null</code>.
+   * @param aCharset
+   *        The charset to be used. May not be <code>null</code>.
+   * @return <code>null</code> if the file could not be read, the created
+   *         document otherwise.
+   */
+  @Nullable
+  public static IMicroDocument readFromFile (@Nonnull final File aFile, @Nonnull final Charset aCharset)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notNull (aCharset, "Charset");
+
+    final String sHTML = SimpleFileIO.readFileAsString (aFile, aCharset);
+    return sHTML == null ? null : readFromString (sHTML);
+  }
+}
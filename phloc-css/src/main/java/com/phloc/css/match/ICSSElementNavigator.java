@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Abstraction of the element tree a {@link CSSCompiledSelector} is matched
+ * against. This allows matching selectors against any DOM implementation
+ * without the need to convert it first.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ * @param <ELEMENTTYPE>
+ *        The element type of the DOM implementation
+ */
+public interface ICSSElementNavigator <ELEMENTTYPE>
+{
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return The local name of the element. It is compared case insensitive.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  String getElementName (@Nonnull ELEMENTTYPE aElement);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @param sAttrName
+   *        The lower case attribute name. Never <code>null</code>.
+   * @return The value of the attribute or <code>null</code> if the element
+   *         has no such attribute.
+   */
+  @Nullable
+  String getAttribute (@Nonnull ELEMENTTYPE aElement, @Nonnull String sAttrName);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return The parent element or <code>null</code> if the passed element is
+   *         the root element.
+   */
+  @Nullable
+  ELEMENTTYPE getParentElement (@Nonnull ELEMENTTYPE aElement);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return The previous sibling element (skipping all other node types) or
+   *         <code>null</code> if there is none.
+   */
+  @Nullable
+  ELEMENTTYPE getPreviousSiblingElement (@Nonnull ELEMENTTYPE aElement);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return The next sibling element (skipping all other node types) or
+   *         <code>null</code> if there is none.
+   */
+  @Nullable
+  ELEMENTTYPE getNextSiblingElement (@Nonnull ELEMENTTYPE aElement);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return The first child element (skipping all other node types) or
+   *         <code>null</code> if there is none.
+   */
+  @Nullable
+  ELEMENTTYPE getFirstChildElement (@Nonnull ELEMENTTYPE aElement);
+
+  /**
+   * @param aElement
+   *        The element to query. Never <code>null</code>.
+   * @return <code>true</code> if the element has neither child elements nor
+   *         text content, as required by <code>:empty</code>.
+   */
+  boolean isEmpty (@Nonnull ELEMENTTYPE aElement);
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroNode;
+
+/**
+ * {@link ICSSElementNavigator} for the phloc micro DOM, as created by
+ * {@link HTMLTolerantReader}.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class MicroElementNavigator implements ICSSElementNavigator <IMicroElement>
+{
+  private static final MicroElementNavigator s_aInstance = new MicroElementNavigator ();
+
+  private MicroElementNavigator ()
+  {}
+
+  @Nonnull
+  public static MicroElementNavigator getInstance ()
+  {
+    return s_aInstance;
+  }
+
+  @Nonnull
+  public String getElementName (@Nonnull final IMicroElement aElement)
+  {
+    final String sLocalName = aElement.getLocalName ();
+    return sLocalName != null ? sLocalName : aElement.getTagName ();
+  }
+
+  @Nullable
+  public String getAttribute (@Nonnull final IMicroElement aElement, @Nonnull final String sAttrName)
+  {
+    return aElement.getAttribute (sAttrName);
+  }
+
+  @Nullable
+  public IMicroElement getParentElement (@Nonnull final IMicroElement aElement)
+  {
+    final IMicroNode aParent = aElement.getParent ();
+    return aParent != null && aParent.isElement () ? (IMicroElement) aParent : null;
+  }
+
+  @Nullable
+  public IMicroElement getPreviousSiblingElement (@Nonnull final IMicroElement aElement)
+  {
+    IMicroNode aNode = aElement.getPreviousSibling ();
+    while (aNode != null && !aNode.isElement ())
+      aNode = aNode.getPreviousSibling ();
+    return (IMicroElement) aNode;
+  }
+
+  @Nullable
+  public IMicroElement getNextSiblingElement (@Nonnull final IMicroElement aElement)
+  {
+    IMicroNode aNode = aElement.getNextSibling ();
+    while (aNode != null && !aNode.isElement ())
+      aNode = aNode.getNextSibling ();
+    return (IMicroElement) aNode;
+  }
+
+  @Nullable
+  public IMicroElement getFirstChildElement (@Nonnull final IMicroElement aElement)
+  {
+    IMicroNode aNode = aElement.getFirstChild ();
+    while (aNode != null && !aNode.isElement ())
+      aNode = aNode.getNextSibling ();
+    return (IMicroElement) aNode;
+  }
+
+  public boolean isEmpty (@Nonnull final IMicroElement aElement)
+  {
+    if (aElement.hasChildren ())
+      for (final IMicroNode aChild : aElement.getChildren ())
+        if (aChild.isElement () || ((aChild.isText () || aChild.isCDATA ()) && aChild.getNodeValue ().length () > 0))
+          return false;
+    return true;
+  }
+}
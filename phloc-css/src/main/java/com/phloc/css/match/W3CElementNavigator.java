@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * {@link ICSSElementNavigator} for W3C DOM elements.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class W3CElementNavigator implements ICSSElementNavigator <Element>
+{
+  private static final W3CElementNavigator s_aInstance = new W3CElementNavigator ();
+
+  private W3CElementNavigator ()
+  {}
+
+  @Nonnull
+  public static W3CElementNavigator getInstance ()
+  {
+    return s_aInstance;
+  }
+
+  @Nonnull
+  public String getElementName (@Nonnull final Element aElement)
+  {
+    final String sLocalName = aElement.getLocalName ();
+    return sLocalName != null ? sLocalName : aElement.getTagName ();
+  }
+
+  @Nullable
+  public String getAttribute (@Nonnull final Element aElement, @Nonnull final String sAttrName)
+  {
+    // getAttribute returns an empty string for missing attributes
+    return aElement.hasAttribute (sAttrName) ? aElement.getAttribute (sAttrName) : null;
+  }
+
+  @Nullable
+  public Element getParentElement (@Nonnull final Element aElement)
+  {
+    final Node aParent = aElement.getParentNode ();
+    return aParent != null && aParent.getNodeType () == Node.ELEMENT_NODE ? (Element) aParent : null;
+  }
+
+  @Nullable
+  public Element getPreviousSiblingElement (@Nonnull final Element aElement)
+  {
+    Node aNode = aElement.getPreviousSibling ();
+    while (aNode != null && aNode.getNodeType () != Node.ELEMENT_NODE)
+      aNode = aNode.getPreviousSibling ();
+    return (Element) aNode;
+  }
+
+  @Nullable
+  public Element getNextSiblingElement (@Nonnull final Element aElement)
+  {
+    Node aNode = aElement.getNextSibling ();
+    while (aNode != null && aNode.getNodeType () != Node.ELEMENT_NODE)
+      aNode = aNode.getNextSibling ();
+    return (Element) aNode;
+  }
+
+  @Nullable
+  public Element getFirstChildElement (@Nonnull final Element aElement)
+  {
+    Node aNode = aElement.getFirstChild ();
+    while (aNode != null && aNode.getNodeType () != Node.ELEMENT_NODE)
+      aNode = aNode.getNextSibling ();
+    return (Element) aNode;
+  }
+
+  public boolean isEmpty (@Nonnull final Element aElement)
+  {
+    for (Node aChild = aElement.getFirstChild (); aChild != null; aChild = aChild.getNextSibling ())
+    {
+      final short nType = aChild.getNodeType ();
+      if (nType == Node.ELEMENT_NODE ||
+          ((nType == Node.TEXT_NODE || nType == Node.CDATA_SECTION_NODE) && aChild.getNodeValue ().length () > 0))
+        return false;
+    }
+    return true;
+  }
+}
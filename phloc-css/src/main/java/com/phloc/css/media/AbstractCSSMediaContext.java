@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.css.decl.CSSMediaQuery;
+
+/**
+ * Abstract base implementation of {@link ICSSMediaContext} that implements
+ * the media query list semantics.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public abstract class AbstractCSSMediaContext implements ICSSMediaContext
+{
+  public boolean matchesMediaQueries (@Nonnull final List <CSSMediaQuery> aMediaQueries)
+  {
+    ValueEnforcer.notNull (aMediaQueries, "MediaQueries");
+
+    if (aMediaQueries.isEmpty ())
+      return true;
+    for (final CSSMediaQuery aMediaQuery : aMediaQueries)
+      if (matchesMediaQuery (aMediaQuery))
+        return true;
+    return false;
+  }
+}
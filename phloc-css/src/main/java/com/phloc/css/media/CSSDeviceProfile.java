@@ -0,0 +1,482 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A description of the output devices a style sheet is evaluated for. It is
+ * used by {@link CSSMediaQueryEvaluator}. The sizes are ranges in CSS pixels,
+ * so that a single profile can describe all devices between two breakpoints.
+ * A fixed size is a range where the minimum and the maximum are equal. The
+ * numeric features that are <code>null</code> are unknown, and media
+ * expressions that depend on them can neither be proven true nor false.
+ * <p>
+ * By default the profile describes a screen of unknown size, resolution and
+ * color depth.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSDeviceProfile
+{
+  /** The default medium */
+  public static final ECSSMedium DEFAULT_MEDIUM = ECSSMedium.SCREEN;
+
+  private ECSSMedium m_eMedium = DEFAULT_MEDIUM;
+  private double m_dMinWidth = 0;
+  private double m_dMaxWidth = Double.POSITIVE_INFINITY;
+  private double m_dMinHeight = 0;
+  private double m_dMaxHeight = Double.POSITIVE_INFINITY;
+  // NaN means: same as the viewport
+  private double m_dMinDeviceWidth = Double.NaN;
+  private double m_dMaxDeviceWidth = Double.NaN;
+  private double m_dMinDeviceHeight = Double.NaN;
+  private double m_dMaxDeviceHeight = Double.NaN;
+  private double m_dMinResolution = 0;
+  private double m_dMaxResolution = Double.POSITIVE_INFINITY;
+  private Integer m_aColor;
+  private Integer m_aColorIndex;
+  private Integer m_aMonochrome;
+  private Boolean m_aGrid;
+  private String m_sScan;
+
+  public CSSDeviceProfile ()
+  {}
+
+  private static void _checkRange (final double dMin, final double dMax, @Nonnull final String sName)
+  {
+    if (!(dMin >= 0))
+      throw new IllegalArgumentException ("The minimum " + sName + " must be >= 0: " + dMin);
+    if (!(dMax >= dMin))
+      throw new IllegalArgumentException ("The maximum " + sName + " must be >= " + dMin + ": " + dMax);
+  }
+
+  /**
+   * @return The medium of this profile. Never <code>null</code>.
+   */
+  @Nonnull
+  public ECSSMedium getMedium ()
+  {
+    return m_eMedium;
+  }
+
+  /**
+   * Set the medium of this profile.
+   * 
+   * @param eMedium
+   *        The medium to use. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setMedium (@Nonnull final ECSSMedium eMedium)
+  {
+    m_eMedium = ValueEnforcer.notNull (eMedium, "Medium");
+    return this;
+  }
+
+  /**
+   * @return The minimum viewport width in CSS pixels. Always &ge; 0.
+   */
+  @Nonnegative
+  public double getMinWidth ()
+  {
+    return m_dMinWidth;
+  }
+
+  /**
+   * @return The maximum viewport width in CSS pixels. May be
+   *         {@link Double#POSITIVE_INFINITY} if the width is unbounded.
+   */
+  @Nonnegative
+  public double getMaxWidth ()
+  {
+    return m_dMaxWidth;
+  }
+
+  /**
+   * Set a fixed viewport width.
+   * 
+   * @param dWidth
+   *        The width in CSS pixels. Must be &ge; 0.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setWidth (@Nonnegative final double dWidth)
+  {
+    return setWidthRange (dWidth, dWidth);
+  }
+
+  /**
+   * Set the range of the viewport width.
+   * 
+   * @param dMinWidth
+   *        The minimum width in CSS pixels. Must be &ge; 0.
+   * @param dMaxWidth
+   *        The maximum width in CSS pixels. Must be &ge; the minimum width. May
+   *        be {@link Double#POSITIVE_INFINITY}.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setWidthRange (@Nonnegative final double dMinWidth, @Nonnegative final double dMaxWidth)
+  {
+    _checkRange (dMinWidth, dMaxWidth, "width");
+    m_dMinWidth = dMinWidth;
+    m_dMaxWidth = dMaxWidth;
+    return this;
+  }
+
+  /**
+   * @return The minimum viewport height in CSS pixels. Always &ge; 0.
+   */
+  @Nonnegative
+  public double getMinHeight ()
+  {
+    return m_dMinHeight;
+  }
+
+  /**
+   * @return The maximum viewport height in CSS pixels. May be
+   *         {@link Double#POSITIVE_INFINITY} if the height is unbounded.
+   */
+  @Nonnegative
+  public double getMaxHeight ()
+  {
+    return m_dMaxHeight;
+  }
+
+  /**
+   * Set a fixed viewport height.
+   * 
+   * @param dHeight
+   *        The height in CSS pixels. Must be &ge; 0.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setHeight (@Nonnegative final double dHeight)
+  {
+    return setHeightRange (dHeight, dHeight);
+  }
+
+  /**
+   * Set the range of the viewport height.
+   * 
+   * @param dMinHeight
+   *        The minimum height in CSS pixels. Must be &ge; 0.
+   * @param dMaxHeight
+   *        The maximum height in CSS pixels. Must be &ge; the minimum height.
+   *        May be {@link Double#POSITIVE_INFINITY}.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setHeightRange (@Nonnegative final double dMinHeight, @Nonnegative final double dMaxHeight)
+  {
+    _checkRange (dMinHeight, dMaxHeight, "height");
+    m_dMinHeight = dMinHeight;
+    m_dMaxHeight = dMaxHeight;
+    return this;
+  }
+
+  /**
+   * @return The minimum device width in CSS pixels. If no device width was
+   *         set, this is the minimum viewport width.
+   */
+  @Nonnegative
+  public double getMinDeviceWidth ()
+  {
+    return Double.isNaN (m_dMinDeviceWidth) ? m_dMinWidth : m_dMinDeviceWidth;
+  }
+
+  /**
+   * @return The maximum device width in CSS pixels. If no device width was
+   *         set, this is the maximum viewport width.
+   */
+  @Nonnegative
+  public double getMaxDeviceWidth ()
+  {
+    return Double.isNaN (m_dMaxDeviceWidth) ? m_dMaxWidth : m_dMaxDeviceWidth;
+  }
+
+  /**
+   * Set the range of the device width. If it is not set, the device width is
+   * the same as the viewport width.
+   * 
+   * @param dMinDeviceWidth
+   *        The minimum width in CSS pixels. Must be &ge; 0.
+   * @param dMaxDeviceWidth
+   *        The maximum width in CSS pixels. Must be &ge; the minimum width. May
+   *        be {@link Double#POSITIVE_INFINITY}.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setDeviceWidthRange (@Nonnegative final double dMinDeviceWidth,
+                                               @Nonnegative final double dMaxDeviceWidth)
+  {
+    _checkRange (dMinDeviceWidth, dMaxDeviceWidth, "device width");
+    m_dMinDeviceWidth = dMinDeviceWidth;
+    m_dMaxDeviceWidth = dMaxDeviceWidth;
+    return this;
+  }
+
+  /**
+   * @return The minimum device height in CSS pixels. If no device height was
+   *         set, this is the minimum viewport height.
+   */
+  @Nonnegative
+  public double getMinDeviceHeight ()
+  {
+    return Double.isNaN (m_dMinDeviceHeight) ? m_dMinHeight : m_dMinDeviceHeight;
+  }
+
+  /**
+   * @return The maximum device height in CSS pixels. If no device height was
+   *         set, this is the maximum viewport height.
+   */
+  @Nonnegative
+  public double getMaxDeviceHeight ()
+  {
+    return Double.isNaN (m_dMaxDeviceHeight) ? m_dMaxHeight : m_dMaxDeviceHeight;
+  }
+
+  /**
+   * Set the range of the device height. If it is not set, the device height
+   * is the same as the viewport height.
+   * 
+   * @param dMinDeviceHeight
+   *        The minimum height in CSS pixels. Must be &ge; 0.
+   * @param dMaxDeviceHeight
+   *        The maximum height in CSS pixels. Must be &ge; the minimum height.
+   *        May be {@link Double#POSITIVE_INFINITY}.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setDeviceHeightRange (@Nonnegative final double dMinDeviceHeight,
+                                                @Nonnegative final double dMaxDeviceHeight)
+  {
+    _checkRange (dMinDeviceHeight, dMaxDeviceHeight, "device height");
+    m_dMinDeviceHeight = dMinDeviceHeight;
+    m_dMaxDeviceHeight = dMaxDeviceHeight;
+    return this;
+  }
+
+  /**
+   * @return The minimum resolution in dots per CSS pixel (dppx). Always &ge;
+   *         0.
+   */
+  @Nonnegative
+  public double getMinResolution ()
+  {
+    return m_dMinResolution;
+  }
+
+  /**
+   * @return The maximum resolution in dots per CSS pixel (dppx). May be
+   *         {@link Double#POSITIVE_INFINITY} if the resolution is unbounded.
+   */
+  @Nonnegative
+  public double getMaxResolution ()
+  {
+    return m_dMaxResolution;
+  }
+
+  /**
+   * Set a fixed resolution.
+   * 
+   * @param dResolution
+   *        The resolution in dots per CSS pixel (dppx), which is the same as
+   *        the device pixel ratio. Must be &ge; 0.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setResolution (@Nonnegative final double dResolution)
+  {
+    return setResolutionRange (dResolution, dResolution);
+  }
+
+  /**
+   * Set the range of the resolution.
+   * 
+   * @param dMinResolution
+   *        The minimum resolution in dppx. Must be &ge; 0.
+   * @param dMaxResolution
+   *        The maximum resolution in dppx. Must be &ge; the minimum
+   *        resolution. May be {@link Double#POSITIVE_INFINITY}.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setResolutionRange (@Nonnegative final double dMinResolution,
+                                              @Nonnegative final double dMaxResolution)
+  {
+    _checkRange (dMinResolution, dMaxResolution, "resolution");
+    m_dMinResolution = dMinResolution;
+    m_dMaxResolution = dMaxResolution;
+    return this;
+  }
+
+  /**
+   * @return The number of bits per color component. 0 for monochrome devices
+   *         and <code>null</code> if unknown.
+   */
+  @Nullable
+  public Integer getColor ()
+  {
+    return m_aColor;
+  }
+
+  /**
+   * @param aColor
+   *        The number of bits per color component. Must be &ge; 0 if not
+   *        <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setColor (@Nullable final Integer aColor)
+  {
+    if (aColor != null)
+      ValueEnforcer.isGE0 (aColor.intValue (), "Color");
+    m_aColor = aColor;
+    return this;
+  }
+
+  /**
+   * @return The number of entries in the color lookup table. 0 if the device
+   *         does not use a color lookup table and <code>null</code> if
+   *         unknown.
+   */
+  @Nullable
+  public Integer getColorIndex ()
+  {
+    return m_aColorIndex;
+  }
+
+  /**
+   * @param aColorIndex
+   *        The number of entries in the color lookup table. Must be &ge; 0 if
+   *        not <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setColorIndex (@Nullable final Integer aColorIndex)
+  {
+    if (aColorIndex != null)
+      ValueEnforcer.isGE0 (aColorIndex.intValue (), "ColorIndex");
+    m_aColorIndex = aColorIndex;
+    return this;
+  }
+
+  /**
+   * @return The number of bits per pixel of a monochrome device. 0 for color
+   *         devices and <code>null</code> if unknown.
+   */
+  @Nullable
+  public Integer getMonochrome ()
+  {
+    return m_aMonochrome;
+  }
+
+  /**
+   * @param aMonochrome
+   *        The number of bits per pixel of a monochrome device. Must be &ge; 0
+   *        if not <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setMonochrome (@Nullable final Integer aMonochrome)
+  {
+    if (aMonochrome != null)
+      ValueEnforcer.isGE0 (aMonochrome.intValue (), "Monochrome");
+    m_aMonochrome = aMonochrome;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> for grid devices like TTY terminals,
+   *         <code>false</code> for bitmap devices and <code>null</code> if
+   *         unknown.
+   */
+  @Nullable
+  public Boolean getGrid ()
+  {
+    return m_aGrid;
+  }
+
+  /**
+   * @param aGrid
+   *        <code>true</code> for grid devices, <code>false</code> for bitmap
+   *        devices and <code>null</code> if unknown.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setGrid (@Nullable final Boolean aGrid)
+  {
+    m_aGrid = aGrid;
+    return this;
+  }
+
+  /**
+   * @return The scanning process of a TV device ("progressive" or
+   *         "interlace"). May be <code>null</code> if unknown.
+   */
+  @Nullable
+  public String getScan ()
+  {
+    return m_sScan;
+  }
+
+  /**
+   * @param sScan
+   *        The scanning process of a TV device ("progressive" or "interlace").
+   *        May be <code>null</code> if unknown.
+   * @return this
+   */
+  @Nonnull
+  public CSSDeviceProfile setScan (@Nullable final String sScan)
+  {
+    m_sScan = sScan;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("medium", m_eMedium)
+                                       .append ("minWidth", m_dMinWidth)
+                                       .append ("maxWidth", m_dMaxWidth)
+                                       .append ("minHeight", m_dMinHeight)
+                                       .append ("maxHeight", m_dMaxHeight)
+                                       .append ("minDeviceWidth", m_dMinDeviceWidth)
+                                       .append ("maxDeviceWidth", m_dMaxDeviceWidth)
+                                       .append ("minDeviceHeight", m_dMinDeviceHeight)
+                                       .append ("maxDeviceHeight", m_dMaxDeviceHeight)
+                                       .append ("minResolution", m_dMinResolution)
+                                       .append ("maxResolution", m_dMaxResolution)
+                                       .appendIfNotNull ("color", m_aColor)
+                                       .appendIfNotNull ("colorIndex", m_aColorIndex)
+                                       .appendIfNotNull ("monochrome", m_aMonochrome)
+                                       .appendIfNotNull ("grid", m_aGrid)
+                                       .appendIfNotNull ("scan", m_sScan)
+                                       .toString ();
+  }
+}
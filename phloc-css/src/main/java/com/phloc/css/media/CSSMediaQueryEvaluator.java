@@ -0,0 +1,502 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.state.ETriState;
+import com.phloc.commons.string.StringParser;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSMediaExpression;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.propertyvalue.CSSSimpleValueWithUnit;
+import com.phloc.css.utils.CSSNumberHelper;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Evaluates media queries against a {@link CSSDeviceProfile}. Because the
+ * profile may describe a range of devices, each evaluation has three possible
+ * results: {@link ETriState#TRUE} if the media query matches all devices of
+ * the profile, {@link ETriState#FALSE} if it matches none of them and
+ * {@link ETriState#UNDEFINED} if it depends on the concrete device.
+ * <p>
+ * As required by Media Queries Level 3, a media query that uses an unknown
+ * media feature or an invalid value is treated like "not all" and never
+ * matches. An unknown media type simply does not match. Lengths in
+ * <code>em</code> and <code>rem</code> are based on a font size of 16px.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSMediaQueryEvaluator extends AbstractCSSMediaContext
+{
+  /** The font size in CSS pixels used for em and rem units */
+  public static final double DEFAULT_FONT_SIZE_PX = 16;
+
+  private static final CSSWriterSettings s_aSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  private static enum ERange
+  {
+    EXACT,
+    MIN,
+    MAX;
+  }
+
+  private final CSSDeviceProfile m_aProfile;
+
+  /**
+   * Constructor
+   * 
+   * @param aProfile
+   *        The device profile to evaluate against. May not be
+   *        <code>null</code>. Later changes of the profile are considered.
+   */
+  public CSSMediaQueryEvaluator (@Nonnull final CSSDeviceProfile aProfile)
+  {
+    m_aProfile = ValueEnforcer.notNull (aProfile, "Profile");
+  }
+
+  /**
+   * @return The device profile used. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSSDeviceProfile getProfile ()
+  {
+    return m_aProfile;
+  }
+
+  @Nullable
+  private static Double _parseNumber (@Nonnull final String sValue)
+  {
+    final BigDecimal aValue = StringParser.parseBigDecimal (sValue);
+    return aValue == null || aValue.signum () < 0 ? null : Double.valueOf (aValue.doubleValue ());
+  }
+
+  @Nullable
+  private static Double _parseInteger (@Nonnull final String sValue)
+  {
+    final Double aValue = _parseNumber (sValue);
+    return aValue == null || aValue.doubleValue () != Math.floor (aValue.doubleValue ()) ? null : aValue;
+  }
+
+  /**
+   * @return The length in CSS pixels or <code>null</code> if it is not a valid
+   *         length.
+   */
+  @Nullable
+  private static Double _parseLength (@Nonnull final String sValue)
+  {
+    final CSSSimpleValueWithUnit aValue = CSSNumberHelper.getValueWithUnit (sValue, false);
+    if (aValue == null || aValue.getAsBigDecimalValue ().signum () < 0)
+      return null;
+    final double dValue = aValue.getValue ();
+    switch (aValue.getUnit ())
+    {
+      case PX:
+        return Double.valueOf (dValue);
+      case EM:
+      case REM:
+        return Double.valueOf (dValue * DEFAULT_FONT_SIZE_PX);
+      case LENGTH_IN:
+        return Double.valueOf (dValue * 96);
+      case LENGTH_CM:
+        return Double.valueOf (dValue * 96 / 2.54);
+      case LENGTH_MM:
+        return Double.valueOf (dValue * 96 / 25.4);
+      case LENGTH_PT:
+        return Double.valueOf (dValue * 96 / 72);
+      case LENGTH_PC:
+        return Double.valueOf (dValue * 16);
+      default:
+        // Relative units cannot be used in media queries
+        return null;
+    }
+  }
+
+  /**
+   * @return The resolution in dppx or <code>null</code> if it is not a valid
+   *         resolution.
+   */
+  @Nullable
+  private static Double _parseResolution (@Nonnull final String sValue)
+  {
+    final CSSSimpleValueWithUnit aValue = CSSNumberHelper.getValueWithUnit (sValue, false);
+    if (aValue == null || aValue.getAsBigDecimalValue ().signum () < 0)
+      return null;
+    final double dValue = aValue.getValue ();
+    switch (aValue.getUnit ())
+    {
+      case DPPX:
+        return Double.valueOf (dValue);
+      case DPI:
+        return Double.valueOf (dValue / 96);
+      case DPCM:
+        return Double.valueOf (dValue * 2.54 / 96);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return The ratio or <code>null</code> if it is not a valid ratio.
+   */
+  @Nullable
+  private static Double _parseRatio (@Nonnull final String sValue)
+  {
+    final int nIndex = sValue.indexOf ('/');
+    if (nIndex < 0)
+      return null;
+    final Double aNumerator = _parseInteger (sValue.substring (0, nIndex).trim ());
+    final Double aDenominator = _parseInteger (sValue.substring (nIndex + 1).trim ());
+    if (aNumerator == null || aDenominator == null)
+      return null;
+    if (aNumerator.doubleValue () == 0 || aDenominator.doubleValue () == 0)
+      return null;
+    return Double.valueOf (aNumerator.doubleValue () / aDenominator.doubleValue ());
+  }
+
+  @Nonnull
+  private static ETriState _evalRange (final double dMin,
+                                       final double dMax,
+                                       final double dValue,
+                                       @Nonnull final ERange eRange)
+  {
+    switch (eRange)
+    {
+      case MIN:
+        if (dMin >= dValue)
+          return ETriState.TRUE;
+        return dMax < dValue ? ETriState.FALSE : ETriState.UNDEFINED;
+      case MAX:
+        if (dMax <= dValue)
+          return ETriState.TRUE;
+        return dMin > dValue ? ETriState.FALSE : ETriState.UNDEFINED;
+      default:
+        if (dMin == dValue && dMax == dValue)
+          return ETriState.TRUE;
+        return dValue < dMin || dValue > dMax ? ETriState.FALSE : ETriState.UNDEFINED;
+    }
+  }
+
+  @Nonnull
+  private static ETriState _evalNonZero (final double dMin, final double dMax)
+  {
+    if (dMin > 0)
+      return ETriState.TRUE;
+    return dMax == 0 ? ETriState.FALSE : ETriState.UNDEFINED;
+  }
+
+  @Nullable
+  private static ETriState _evalLength (@Nullable final String sValue,
+                                        final double dMin,
+                                        final double dMax,
+                                        @Nonnull final ERange eRange)
+  {
+    if (sValue == null)
+      return eRange == ERange.EXACT ? _evalNonZero (dMin, dMax) : null;
+    final Double aLength = _parseLength (sValue);
+    return aLength == null ? null : _evalRange (dMin, dMax, aLength.doubleValue (), eRange);
+  }
+
+  @Nullable
+  private ETriState _evalResolution (@Nullable final String sValue,
+                                     @Nonnull final ERange eRange,
+                                     final boolean bUnitless)
+  {
+    final double dMin = m_aProfile.getMinResolution ();
+    final double dMax = m_aProfile.getMaxResolution ();
+    if (sValue == null)
+      return eRange == ERange.EXACT ? _evalNonZero (dMin, dMax) : null;
+    final Double aResolution = bUnitless ? _parseNumber (sValue) : _parseResolution (sValue);
+    return aResolution == null ? null : _evalRange (dMin, dMax, aResolution.doubleValue (), eRange);
+  }
+
+  @Nullable
+  private ETriState _evalRatio (@Nullable final String sValue, @Nonnull final ERange eRange, final boolean bDevice)
+  {
+    final CSSDeviceProfile p = m_aProfile;
+    final double dMinWidth = bDevice ? p.getMinDeviceWidth () : p.getMinWidth ();
+    final double dMaxWidth = bDevice ? p.getMaxDeviceWidth () : p.getMaxWidth ();
+    final double dMinHeight = bDevice ? p.getMinDeviceHeight () : p.getMinHeight ();
+    final double dMaxHeight = bDevice ? p.getMaxDeviceHeight () : p.getMaxHeight ();
+
+    // The range of all possible width/height ratios
+    final double dMin = dMaxHeight == Double.POSITIVE_INFINITY ? 0 : dMinWidth / dMaxHeight;
+    final double dMax = dMinHeight == 0 ? Double.POSITIVE_INFINITY : dMaxWidth / dMinHeight;
+    if (sValue == null)
+      return eRange == ERange.EXACT ? _evalNonZero (dMin, dMax) : null;
+    final Double aRatio = _parseRatio (sValue);
+    return aRatio == null ? null : _evalRange (dMin, dMax, aRatio.doubleValue (), eRange);
+  }
+
+  @Nullable
+  private static ETriState _evalInteger (@Nullable final String sValue,
+                                         @Nullable final Integer aProfileValue,
+                                         @Nonnull final ERange eRange)
+  {
+    if (sValue == null)
+    {
+      if (eRange != ERange.EXACT)
+        return null;
+      return aProfileValue == null ? ETriState.UNDEFINED : ETriState.valueOf (aProfileValue.intValue () > 0);
+    }
+    final Double aValue = _parseInteger (sValue);
+    if (aValue == null)
+      return null;
+    if (aProfileValue == null)
+      return ETriState.UNDEFINED;
+    final double dProfileValue = aProfileValue.doubleValue ();
+    return _evalRange (dProfileValue, dProfileValue, aValue.doubleValue (), eRange);
+  }
+
+  @Nullable
+  private ETriState _evalOrientation (@Nullable final String sValue)
+  {
+    final boolean bPortrait;
+    if ("portrait".equals (sValue))
+      bPortrait = true;
+    else
+      if ("landscape".equals (sValue))
+        bPortrait = false;
+      else
+        return null;
+
+    // Portrait means that the height is greater than or equal to the width
+    if (m_aProfile.getMinHeight () >= m_aProfile.getMaxWidth ())
+      return ETriState.valueOf (bPortrait);
+    if (m_aProfile.getMaxHeight () < m_aProfile.getMinWidth ())
+      return ETriState.valueOf (!bPortrait);
+    return ETriState.UNDEFINED;
+  }
+
+  @Nullable
+  private ETriState _evalScan (@Nullable final String sValue)
+  {
+    if (sValue != null && !"progressive".equals (sValue) && !"interlace".equals (sValue))
+      return null;
+    final String sScan = m_aProfile.getScan ();
+    if (sScan == null)
+      return ETriState.UNDEFINED;
+    return ETriState.valueOf (sValue == null || sValue.equalsIgnoreCase (sScan));
+  }
+
+  @Nullable
+  private ETriState _evalGrid (@Nullable final String sValue)
+  {
+    if (sValue != null && !"0".equals (sValue) && !"1".equals (sValue))
+      return null;
+    final Boolean aGrid = m_aProfile.getGrid ();
+    if (aGrid == null)
+      return ETriState.UNDEFINED;
+    return ETriState.valueOf (aGrid.booleanValue () == (sValue == null || "1".equals (sValue)));
+  }
+
+  /**
+   * Evaluate a single media expression.
+   * 
+   * @param aMediaExpression
+   *        The media expression to evaluate. May not be <code>null</code>.
+   * @return <code>null</code> if the media feature is unknown or the value is
+   *         invalid. In this case the whole media query never matches.
+   */
+  @Nullable
+  public ETriState evaluateMediaExpression (@Nonnull final CSSMediaExpression aMediaExpression)
+  {
+    ValueEnforcer.notNull (aMediaExpression, "MediaExpression");
+
+    final String sFeature = aMediaExpression.getFeature ().toLowerCase (Locale.US);
+    final ECSSMediaExpressionFeature eFeature = ECSSMediaExpressionFeature.getFromNameOrNull (sFeature);
+    if (eFeature == null)
+      return null;
+
+    String sValue = null;
+    if (aMediaExpression.getValue () != null)
+      sValue = aMediaExpression.getValue ().getAsCSSString (s_aSettings, 0).trim ().toLowerCase (Locale.US);
+
+    final CSSDeviceProfile p = m_aProfile;
+    switch (eFeature)
+    {
+      case WIDTH:
+        return _evalLength (sValue, p.getMinWidth (), p.getMaxWidth (), ERange.EXACT);
+      case MIN_WIDTH:
+        return _evalLength (sValue, p.getMinWidth (), p.getMaxWidth (), ERange.MIN);
+      case MAX_WIDTH:
+        return _evalLength (sValue, p.getMinWidth (), p.getMaxWidth (), ERange.MAX);
+      case HEIGHT:
+        return _evalLength (sValue, p.getMinHeight (), p.getMaxHeight (), ERange.EXACT);
+      case MIN_HEIGHT:
+        return _evalLength (sValue, p.getMinHeight (), p.getMaxHeight (), ERange.MIN);
+      case MAX_HEIGHT:
+        return _evalLength (sValue, p.getMinHeight (), p.getMaxHeight (), ERange.MAX);
+      case DEVICE_WIDTH:
+        return _evalLength (sValue, p.getMinDeviceWidth (), p.getMaxDeviceWidth (), ERange.EXACT);
+      case MIN_DEVICE_WIDTH:
+        return _evalLength (sValue, p.getMinDeviceWidth (), p.getMaxDeviceWidth (), ERange.MIN);
+      case MAX_DEVICE_WIDTH:
+        return _evalLength (sValue, p.getMinDeviceWidth (), p.getMaxDeviceWidth (), ERange.MAX);
+      case DEVICE_HEIGHT:
+        return _evalLength (sValue, p.getMinDeviceHeight (), p.getMaxDeviceHeight (), ERange.EXACT);
+      case MIN_DEVICE_HEIGHT:
+        return _evalLength (sValue, p.getMinDeviceHeight (), p.getMaxDeviceHeight (), ERange.MIN);
+      case MAX_DEVICE_HEIGHT:
+        return _evalLength (sValue, p.getMinDeviceHeight (), p.getMaxDeviceHeight (), ERange.MAX);
+      case ORIENTATION:
+        return _evalOrientation (sValue);
+      case ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.EXACT, false);
+      case MIN_ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.MIN, false);
+      case MAX_ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.MAX, false);
+      case DEVICE_ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.EXACT, true);
+      case MIN_DEVICE_ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.MIN, true);
+      case MAX_DEVICE_ASPECT_RATIO:
+        return _evalRatio (sValue, ERange.MAX, true);
+      case COLOR:
+        return _evalInteger (sValue, p.getColor (), ERange.EXACT);
+      case MIN_COLOR:
+        return _evalInteger (sValue, p.getColor (), ERange.MIN);
+      case MAX_COLOR:
+        return _evalInteger (sValue, p.getColor (), ERange.MAX);
+      case COLOR_INDEX:
+        return _evalInteger (sValue, p.getColorIndex (), ERange.EXACT);
+      case MIN_COLOR_INDEX:
+        return _evalInteger (sValue, p.getColorIndex (), ERange.MIN);
+      case MAX_COLOR_INDEX:
+        return _evalInteger (sValue, p.getColorIndex (), ERange.MAX);
+      case MONOCHROME:
+        return _evalInteger (sValue, p.getMonochrome (), ERange.EXACT);
+      case MIN_MONOCHROME:
+        return _evalInteger (sValue, p.getMonochrome (), ERange.MIN);
+      case MAX_MONOCHROME:
+        return _evalInteger (sValue, p.getMonochrome (), ERange.MAX);
+      case RESOLUTION:
+        return _evalResolution (sValue, ERange.EXACT, false);
+      case MIN_RESOLUTION:
+        return _evalResolution (sValue, ERange.MIN, false);
+      case MAX_RESOLUTION:
+        return _evalResolution (sValue, ERange.MAX, false);
+      case SCAN:
+        return _evalScan (sValue);
+      case GRID:
+        return _evalGrid (sValue);
+      case _WEBKIT_MIN_DEVICE_PIXEL_RATIO:
+        return sValue == null ? null : _evalResolution (sValue, ERange.MIN, true);
+      case _WEBKIT_MAX_DEVICE_PIXEL_RATIO:
+        return sValue == null ? null : _evalResolution (sValue, ERange.MAX, true);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Evaluate a single media query.
+   * 
+   * @param aMediaQuery
+   *        The media query to evaluate. May not be <code>null</code>.
+   * @return The evaluation result. Never <code>null</code>.
+   */
+  @Nonnull
+  public ETriState evaluateMediaQuery (@Nonnull final CSSMediaQuery aMediaQuery)
+  {
+    ValueEnforcer.notNull (aMediaQuery, "MediaQuery");
+
+    ETriState eResult;
+    final String sMedium = aMediaQuery.getMedium ();
+    if (sMedium == null)
+      eResult = ETriState.TRUE;
+    else
+    {
+      final ECSSMedium eMedium = ECSSMedium.getFromNameOrNull (sMedium.toLowerCase (Locale.US));
+      eResult = ETriState.valueOf (eMedium == ECSSMedium.ALL || eMedium == m_aProfile.getMedium ());
+    }
+
+    // All expressions must be evaluated, as an invalid one invalidates the
+    // whole query
+    for (final CSSMediaExpression aMediaExpression : aMediaQuery.getAllMediaExpressions ())
+    {
+      final ETriState eExpression = evaluateMediaExpression (aMediaExpression);
+      if (eExpression == null)
+      {
+        // "not all"
+        return ETriState.FALSE;
+      }
+      if (eResult.isTrue () || eExpression.isFalse ())
+        eResult = eExpression;
+    }
+
+    if (aMediaQuery.isNot () && eResult.isDefined ())
+      eResult = ETriState.valueOf (!eResult.isTrue ());
+    return eResult;
+  }
+
+  /**
+   * Evaluate a list of media queries, as used in <code>@media</code> and
+   * <code>@import</code> rules.
+   * 
+   * @param aMediaQueries
+   *        The media queries to evaluate. May not be <code>null</code>.
+   * @return {@link ETriState#TRUE} if the list is empty or if one of the media
+   *         queries is true, {@link ETriState#FALSE} if all media queries are
+   *         false and {@link ETriState#UNDEFINED} otherwise.
+   */
+  @Nonnull
+  public ETriState evaluateMediaQueries (@Nonnull final List <CSSMediaQuery> aMediaQueries)
+  {
+    ValueEnforcer.notNull (aMediaQueries, "MediaQueries");
+
+    if (aMediaQueries.isEmpty ())
+      return ETriState.TRUE;
+    ETriState eResult = ETriState.FALSE;
+    for (final CSSMediaQuery aMediaQuery : aMediaQueries)
+    {
+      final ETriState eQuery = evaluateMediaQuery (aMediaQuery);
+      if (eQuery.isTrue ())
+        return ETriState.TRUE;
+      if (eQuery.isUndefined ())
+        eResult = ETriState.UNDEFINED;
+    }
+    return eResult;
+  }
+
+  /**
+   * {@inheritDoc} A media query only matches, if it matches all devices of the
+   * profile.
+   */
+  public boolean matchesMediaQuery (@Nonnull final CSSMediaQuery aMediaQuery)
+  {
+    return evaluateMediaQuery (aMediaQuery).isTrue ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("profile", m_aProfile).toString ();
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.decl.CSSMediaQuery;
+
+/**
+ * A simple {@link ICSSMediaContext} that only considers the medium (like
+ * <code>screen</code> or <code>print</code>). As nothing is known about the
+ * device, media queries with media expressions (like
+ * <code>screen and (max-width: 600px)</code>) never apply, so that
+ * <code>not</code> media queries with media expressions always apply. Use
+ * {@link CSSMediaQueryEvaluator} to evaluate media expressions against a
+ * device profile.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public class CSSMediumContext extends AbstractCSSMediaContext
+{
+  private final ECSSMedium m_eMedium;
+
+  /**
+   * Constructor
+   * 
+   * @param eMedium
+   *        The medium of this context. May not be <code>null</code>.
+   */
+  public CSSMediumContext (@Nonnull final ECSSMedium eMedium)
+  {
+    m_eMedium = ValueEnforcer.notNull (eMedium, "Medium");
+  }
+
+  /**
+   * @return The medium of this context. Never <code>null</code>.
+   */
+  @Nonnull
+  public ECSSMedium getMedium ()
+  {
+    return m_eMedium;
+  }
+
+  public boolean matchesMediaQuery (@Nonnull final CSSMediaQuery aMediaQuery)
+  {
+    ValueEnforcer.notNull (aMediaQuery, "MediaQuery");
+
+    final String sMedium = aMediaQuery.getMedium ();
+    boolean bMatches = !aMediaQuery.hasMediaExpressions () &&
+                       (sMedium == null ||
+                        sMedium.equalsIgnoreCase (ECSSMedium.ALL.getName ()) ||
+                        sMedium.equalsIgnoreCase (m_eMedium.getName ()));
+    if (aMediaQuery.isNot ())
+      bMatches = !bMatches;
+    return bMatches;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("medium", m_eMedium).toString ();
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.phloc.css.decl.CSSMediaQuery;
+
+/**
+ * Describes the environment a style sheet is applied in, so that it can be
+ * decided which media queries apply.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public interface ICSSMediaContext
+{
+  /**
+   * Check if a single media query applies in this context.
+   * 
+   * @param aMediaQuery
+   *        The media query to check. May not be <code>null</code>.
+   * @return <code>true</code> if the media query applies.
+   */
+  boolean matchesMediaQuery (@Nonnull CSSMediaQuery aMediaQuery);
+
+  /**
+   * Check if a media query list applies in this context. That is the case, if
+   * the list is empty or if at least one of the media queries applies.
+   * 
+   * @param aMediaQueries
+   *        The media queries to check. May not be <code>null</code>.
+   * @return <code>true</code> if the media query list applies.
+   */
+  boolean matchesMediaQueries (@Nonnull List <CSSMediaQuery> aMediaQueries);
+}
@@ -40,6 +40,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 @SuppressFBWarnings ("NM_METHOD_NAMING_CONVENTION")
 public final class CSSCharStream implements CharStream
 {
+  /**
+   * The default tab size used to calculate column numbers
+   * 
+   * @since 3.8.1
+   */
+  public static final int DEFAULT_TAB_SIZE = 8;
   private static final int DEFAULT_BUF_SIZE = 4096;
 
   private final Reader m_aReader;
@@ -61,7 +67,7 @@ public final class CSSCharStream implements CharStream
   /** Position in buffer. */
   private int m_nBufpos = -1;
 
-  private int m_nTabSize = 8;
+  private int m_nTabSize = DEFAULT_TAB_SIZE;
   private boolean m_bTrackLineColumn = true;
 
   public CSSCharStream (@Nonnull final Reader aReader)
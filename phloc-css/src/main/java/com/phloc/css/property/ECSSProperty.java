@@ -763,6 +763,91 @@ public enum ECSSProperty implements IHasName, ICSSVersionAware
   _WEBKIT_WRAP_THROUGH ("-webkit-wrap-through"),
   _WEBKIT_WRITING_MODE ("-webkit-writing-mode");
 
+  /**
+   * All properties that are inherited by default, as listed in the property
+   * definition tables of the specifications. Shorthand properties are
+   * contained if all of their longhand properties are inherited.
+   */
+  private static final EnumSet <ECSSProperty> s_aInherited = EnumSet.of (AZIMUTH,
+                                                                        BORDER_COLLAPSE,
+                                                                        BORDER_SPACING,
+                                                                        CAPTION_SIDE,
+                                                                        CLIP_RULE,
+                                                                        COLOR,
+                                                                        COLOR_INTERPOLATION_FILTERS,
+                                                                        CURSOR,
+                                                                        DIRECTION,
+                                                                        ELEVATION,
+                                                                        EMPTY_CELLS,
+                                                                        FONT,
+                                                                        FONT_FAMILY,
+                                                                        FONT_FEATURE_SETTINGS,
+                                                                        FONT_KERNING,
+                                                                        FONT_LANGUAGE_OVERRIDE,
+                                                                        FONT_SIZE,
+                                                                        FONT_SIZE_ADJUST,
+                                                                        FONT_STRETCH,
+                                                                        FONT_STYLE,
+                                                                        FONT_SYNTHESIS,
+                                                                        FONT_VARIANT,
+                                                                        FONT_VARIANT_ALTERNATES,
+                                                                        FONT_VARIANT_CAPS,
+                                                                        FONT_VARIANT_EAST_ASIAN,
+                                                                        FONT_VARIANT_LIGATURES,
+                                                                        FONT_VARIANT_NUMERIC,
+                                                                        FONT_VARIANT_POSITION,
+                                                                        FONT_WEIGHT,
+                                                                        HANGING_PUNCTUATION,
+                                                                        HYPHENS,
+                                                                        LETTER_SPACING,
+                                                                        LINE_BREAK,
+                                                                        LINE_HEIGHT,
+                                                                        LIST_STYLE,
+                                                                        LIST_STYLE_IMAGE,
+                                                                        LIST_STYLE_POSITION,
+                                                                        LIST_STYLE_TYPE,
+                                                                        ORPHANS,
+                                                                        OVERFLOW_WRAP,
+                                                                        PITCH,
+                                                                        PITCH_RANGE,
+                                                                        QUOTES,
+                                                                        RICHNESS,
+                                                                        RUBY_ALIGN,
+                                                                        RUBY_POSITION,
+                                                                        SPEAK,
+                                                                        SPEAK_AS,
+                                                                        SPEAK_HEADER,
+                                                                        SPEAK_NUMERAL,
+                                                                        SPEAK_PUNCTUATION,
+                                                                        SPEECH_RATE,
+                                                                        STRESS,
+                                                                        TAB_SIZE,
+                                                                        TEXT_ALIGN,
+                                                                        TEXT_ALIGN_LAST,
+                                                                        TEXT_INDENT,
+                                                                        TEXT_JUSTIFY,
+                                                                        TEXT_ORIENTATION,
+                                                                        TEXT_TRANSFORM,
+                                                                        VISIBILITY,
+                                                                        VOICE_BALANCE,
+                                                                        VOICE_DURATION,
+                                                                        VOICE_FAMILY,
+                                                                        VOICE_PITCH,
+                                                                        VOICE_RANGE,
+                                                                        VOICE_RATE,
+                                                                        VOICE_STRESS,
+                                                                        VOLUME,
+                                                                        WHITE_SPACE,
+                                                                        WIDOWS,
+                                                                        WORD_BREAK,
+                                                                        WORD_SPACING,
+                                                                        WORD_WRAP,
+                                                                        WRITING_MODE,
+                                                                        _WEBKIT_HYPHENS,
+                                                                        _WEBKIT_TEXT_FILL_COLOR,
+                                                                        _WEBKIT_TEXT_STROKE_COLOR,
+                                                                        _WEBKIT_TEXT_STROKE_WIDTH);
+
   private final String m_sName;
   private final ECSSVersion m_eVersion;
   private final EnumSet <ECSSSpecification> m_aSpecifications;
@@ -850,6 +935,18 @@ public enum ECSSProperty implements IHasName, ICSSVersionAware
     return m_sName.startsWith ("-") || m_sName.startsWith ("scrollbar-");
   }
 
+  /**
+   * @return <code>true</code> if the value of this property is inherited from
+   *         the parent element if it is not specified for an element (like
+   *         <code>color</code> or <code>font-size</code>), <code>false</code>
+   *         if the initial value is used instead (like <code>margin</code>).
+   * @since 3.8.1
+   */
+  public boolean isInherited ()
+  {
+    return s_aInherited.contains (this);
+  }
+
   @Nullable
   public static ECSSProperty getFromNameOrNull (@Nullable final String sName)
   {
@@ -17,6 +17,8 @@
  */
 package com.phloc.css.propertyvalue;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -32,6 +34,8 @@ import com.phloc.css.CCSS;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.property.ECSSProperty;
 import com.phloc.css.property.ICSSProperty;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents the combination of a single CSS property ({@link ICSSProperty})
@@ -45,7 +49,7 @@ import com.phloc.css.property.ICSSProperty;
  * @author Philip Helger
  */
 @NotThreadSafe
-public class CSSValue implements ICSSValue
+public class CSSValue implements ICSSValue, ICSSStreamingWriteable
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (CSSValue.class);
 
@@ -172,13 +176,19 @@ public class CSSValue implements ICSSValue
 
   @Nonnull
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
+  {
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
   {
     aSettings.checkVersionRequirements (m_aProperty);
-    return m_aProperty.getProp ().getName () +
-           CCSS.SEPARATOR_PROPERTY_VALUE +
-           m_sValue +
-           (StringHelper.hasText (m_sValue) && m_bIsImportant ? CCSS.IMPORTANT_SUFFIX : "") +
-           CCSS.DEFINITION_END;
+    aTarget.append (m_aProperty.getProp ().getName ()).append (CCSS.SEPARATOR_PROPERTY_VALUE).append (m_sValue);
+    if (StringHelper.hasText (m_sValue) && m_bIsImportant)
+      aTarget.append (CCSS.IMPORTANT_SUFFIX);
+    aTarget.append (CCSS.DEFINITION_END);
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package com.phloc.css.propertyvalue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +34,8 @@ import com.phloc.commons.string.ToStringGenerator;
 import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.property.ECSSProperty;
 import com.phloc.css.property.ICSSProperty;
+import com.phloc.css.writer.CSSWriterHelper;
+import com.phloc.css.writer.ICSSStreamingWriteable;
 
 /**
  * Represents a CSS value that has several property names, but only one value.
@@ -44,7 +47,7 @@ import com.phloc.css.property.ICSSProperty;
  * @author Philip Helger
  */
 @Immutable
-public class CSSValueMultiProperty implements ICSSMultiValue
+public class CSSValueMultiProperty implements ICSSMultiValue, ICSSStreamingWriteable
 {
   private final ECSSProperty m_eProperty;
   private final List <CSSValue> m_aValues = new ArrayList <CSSValue> ();
@@ -91,10 +94,15 @@ public class CSSValueMultiProperty implements ICSSMultiValue
   @Nonnull
   public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, @Nonnegative final int nIndentLevel)
   {
-    final StringBuilder ret = new StringBuilder ();
+    return CSSWriterHelper.getAsCSSString (this, aSettings, nIndentLevel);
+  }
+
+  public void appendTo (@Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
     for (final CSSValue aValue : m_aValues)
-      ret.append (aValue.getAsCSSString (aSettings, nIndentLevel));
-    return ret.toString ();
+      aValue.appendTo (aSettings, nIndentLevel, aTarget);
   }
 
   @Override
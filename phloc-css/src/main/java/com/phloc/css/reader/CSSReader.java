@@ -93,6 +93,11 @@ public final class CSSReader
   @GuardedBy ("s_aRWLock")
   private static ICSSParseExceptionHandler s_aDefaultParseExceptionHandler = new LoggingCSSParseExceptionHandler ();
 
+  @GuardedBy ("s_aRWLock")
+  private static boolean s_bDefaultUseSharedExpressions = false;
+  @GuardedBy ("s_aRWLock")
+  private static boolean s_bDefaultKeepSourceText = false;
+
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
   private static final CSSReader s_aInstance = new CSSReader ();
@@ -181,6 +186,92 @@ public final class CSSReader
       s_aRWLock.writeLock ().unlock ();
     }
   }
+  /**
+   * @return <code>true</code> if the shared values of
+   *         {@link com.phloc.css.decl.CSSExpressionFlyweights} are used for
+   *         common simple expression values. Default is <code>false</code>.
+   * @since 3.8.1
+   */
+  public static boolean isDefaultUseSharedExpressions ()
+  {
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      return s_bDefaultUseSharedExpressions;
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  /**
+   * Define whether the shared values of
+   * {@link com.phloc.css.decl.CSSExpressionFlyweights} should be used for
+   * common simple expression values like <code>0</code> or <code>auto</code>.
+   * This reduces the memory footprint of the read objects.
+   * 
+   * @param bUseSharedExpressions
+   *        <code>true</code> to use shared values, <code>false</code> to
+   *        create new objects for all values.
+   * @since 3.8.1
+   */
+  public static void setDefaultUseSharedExpressions (final boolean bUseSharedExpressions)
+  {
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      s_bDefaultUseSharedExpressions = bUseSharedExpressions;
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the original source text is kept in the read
+   *         {@link CascadingStyleSheet} objects. Default is <code>false</code>.
+   * @since 3.8.1
+   */
+  public static boolean isDefaultKeepSourceText ()
+  {
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      return s_bDefaultKeepSourceText;
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  /**
+   * Define whether the original source text together with the offset range of
+   * each top-level rule should be kept in the read {@link CascadingStyleSheet}
+   * objects. This allows the {@link com.phloc.css.writer.CSSWriter} to copy
+   * the original text of all rules that were not modified, instead of
+   * rendering them again.
+   * 
+   * @param bKeepSourceText
+   *        <code>true</code> to keep the source text, <code>false</code> to
+   *        discard it.
+   * @see CascadingStyleSheet#getSourceText()
+   * @since 3.8.1
+   */
+  public static void setDefaultKeepSourceText (final boolean bKeepSourceText)
+  {
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      s_bDefaultKeepSourceText = bKeepSourceText;
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+  }
 
   /**
    * Main reading of the CSS
@@ -247,6 +338,39 @@ public final class CSSReader
     }
   }
 
+  @Nullable
+  private static CascadingStyleSheet _readFromReader (@Nonnull final Reader aReader,
+                                                      @Nonnull final ECSSVersion eVersion,
+                                                      @Nullable final ICSSParseErrorHandler aCustomErrorHandler,
+                                                      @Nullable final ICSSParseExceptionHandler aCustomExceptionHandler)
+  {
+    // Remember the read text if required
+    final CSSRecordingReader aRecordingReader = isDefaultKeepSourceText () ? new CSSRecordingReader (aReader) : null;
+    final CSSCharStream aCharStream = new CSSCharStream (aRecordingReader != null ? aRecordingReader : aReader);
+
+    // Use the default CSS parse error handler if none is provided
+    final ICSSParseErrorHandler aRealErrorHandler = aCustomErrorHandler == null ? getDefaultParseErrorHandler ()
+                                                                               : aCustomErrorHandler;
+    // Use the default CSS exception handler if none is provided
+    final ICSSParseExceptionHandler aRealExceptionHandler = aCustomExceptionHandler == null ? getDefaultParseExceptionHandler ()
+                                                                                           : aCustomExceptionHandler;
+    final CSSNode aNode = _readStyleSheet (aCharStream, eVersion, aRealErrorHandler, aRealExceptionHandler);
+
+    // Failed to interpret content as CSS?
+    if (aNode == null)
+      return null;
+
+    // Convert the AST to a domain object
+    final CascadingStyleSheet ret = CSSHandler.readCascadingStyleSheetFromNode (eVersion,
+                                                                               aNode,
+                                                                               isDefaultUseSharedExpressions ());
+    if (aRecordingReader != null)
+      ret.setSourceText (CSSSourceTextHelper.createSourceText (aRecordingReader.getRecordedText (),
+                                                               ret,
+                                                               aCharStream.getTabSize ()));
+    return ret;
+  }
+
   /**
    * Check if the passed CSS file can be parsed without error
    * 
@@ -1428,22 +1552,10 @@ public final class CSSReader
 
     try
     {
-      final CSSCharStream aCharStream = new CSSCharStream (StreamUtils.createReader (aIS, aCharsetToUse));
-
-      // Use the default CSS parse error handler if none is provided
-      final ICSSParseErrorHandler aRealErrorHandler = aCustomErrorHandler == null ? getDefaultParseErrorHandler ()
-                                                                                 : aCustomErrorHandler;
-      // Use the default CSS exception handler if none is provided
-      final ICSSParseExceptionHandler aRealExceptionHandler = aCustomExceptionHandler == null ? getDefaultParseExceptionHandler ()
-                                                                                             : aCustomExceptionHandler;
-      final CSSNode aNode = _readStyleSheet (aCharStream, eVersion, aRealErrorHandler, aRealExceptionHandler);
-
-      // Failed to interpret content as CSS?
-      if (aNode == null)
-        return null;
-
-      // Convert the AST to a domain object
-      return CSSHandler.readCascadingStyleSheetFromNode (eVersion, aNode);
+      return _readFromReader (StreamUtils.createReader (aIS, aCharsetToUse),
+                              eVersion,
+                              aCustomErrorHandler,
+                              aCustomExceptionHandler);
     }
     finally
     {
@@ -1492,21 +1604,7 @@ public final class CSSReader
 
     try
     {
-      final CSSCharStream aCharStream = new CSSCharStream (aReader);
-      // Use the default CSS parse error handler if none is provided
-      final ICSSParseErrorHandler aRealErrorHandler = aCustomErrorHandler == null ? getDefaultParseErrorHandler ()
-                                                                                 : aCustomErrorHandler;
-      // Use the default CSS exception handler if none is provided
-      final ICSSParseExceptionHandler aRealExceptionHandler = aCustomExceptionHandler == null ? getDefaultParseExceptionHandler ()
-                                                                                             : aCustomExceptionHandler;
-      final CSSNode aNode = _readStyleSheet (aCharStream, eVersion, aRealErrorHandler, aRealExceptionHandler);
-
-      // Failed to interpret content as CSS?
-      if (aNode == null)
-        return null;
-
-      // Convert the AST to a domain object
-      return CSSHandler.readCascadingStyleSheetFromNode (eVersion, aNode);
+      return _readFromReader (aReader, eVersion, aCustomErrorHandler, aCustomExceptionHandler);
     }
     finally
     {
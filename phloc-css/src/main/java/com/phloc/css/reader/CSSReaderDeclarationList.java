@@ -80,6 +80,9 @@ public final class CSSReaderDeclarationList
   @GuardedBy ("s_aRWLock")
   private static ICSSParseExceptionHandler s_aDefaultParseExceptionHandler = new LoggingCSSParseExceptionHandler ();
 
+  @GuardedBy ("s_aRWLock")
+  private static boolean s_bDefaultUseSharedExpressions = false;
+
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
   private static final CSSReaderDeclarationList s_aInstance = new CSSReaderDeclarationList ();
@@ -171,6 +174,49 @@ public final class CSSReaderDeclarationList
     }
   }
 
+  /**
+   * @return <code>true</code> if the shared values of
+   *         {@link com.phloc.css.decl.CSSExpressionFlyweights} are used for
+   *         common simple expression values. Default is <code>false</code>.
+   * @since 3.8.1
+   */
+  public static boolean isDefaultUseSharedExpressions ()
+  {
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      return s_bDefaultUseSharedExpressions;
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  /**
+   * Define whether the shared values of
+   * {@link com.phloc.css.decl.CSSExpressionFlyweights} should be used for
+   * common simple expression values like <code>0</code> or <code>auto</code>.
+   * This reduces the memory footprint of the read objects.
+   * 
+   * @param bUseSharedExpressions
+   *        <code>true</code> to use shared values, <code>false</code> to
+   *        create new objects for all values.
+   * @since 3.8.1
+   */
+  public static void setDefaultUseSharedExpressions (final boolean bUseSharedExpressions)
+  {
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      s_bDefaultUseSharedExpressions = bUseSharedExpressions;
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+  }
+
   /**
    * Main reading of the CSS
    * 
@@ -1082,7 +1128,7 @@ public final class CSSReaderDeclarationList
         return null;
 
       // Convert the AST to a domain object
-      return CSSHandler.readDeclarationListFromNode (eVersion, aNode);
+      return CSSHandler.readDeclarationListFromNode (eVersion, aNode, isDefaultUseSharedExpressions ());
     }
     finally
     {
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.reader;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A reader that remembers all characters that were read.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+final class CSSRecordingReader extends FilterReader
+{
+  private final StringBuilder m_aRecorded = new StringBuilder ();
+
+  CSSRecordingReader (@Nonnull @WillCloseWhenClosed final Reader aReader)
+  {
+    super (aReader);
+  }
+
+  @Override
+  public int read () throws IOException
+  {
+    final int ret = super.read ();
+    if (ret >= 0)
+      m_aRecorded.append ((char) ret);
+    return ret;
+  }
+
+  @Override
+  public int read (@Nonnull final char [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    final int ret = super.read (aBuf, nOfs, nLen);
+    if (ret > 0)
+      m_aRecorded.append (aBuf, nOfs, ret);
+    return ret;
+  }
+
+  @Override
+  public long skip (final long nCount) throws IOException
+  {
+    // Read instead of skipping, so that nothing is lost
+    long nSkipped = 0;
+    while (nSkipped < nCount && read () >= 0)
+      nSkipped++;
+    return nSkipped;
+  }
+
+  @Override
+  public boolean markSupported ()
+  {
+    return false;
+  }
+
+  @Override
+  public void mark (final int nReadAheadLimit) throws IOException
+  {
+    throw new IOException ("mark() is not supported");
+  }
+
+  @Override
+  public void reset () throws IOException
+  {
+    throw new IOException ("reset() is not supported");
+  }
+
+  /**
+   * @return All characters read so far. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getRecordedText ()
+  {
+    return m_aRecorded.toString ();
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.reader;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.css.CSSSourceLocation;
+import com.phloc.css.ICSSSourceLocationAware;
+import com.phloc.css.decl.CSSSourceText;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+
+/**
+ * Helper class to determine the source offsets of the top-level rules from
+ * their line and column based source locations.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+final class CSSSourceTextHelper
+{
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSSourceTextHelper s_aInstance = new CSSSourceTextHelper ();
+
+  private CSSSourceTextHelper ()
+  {}
+
+  @Nonnull
+  private static int [] _getLineStartOffsets (@Nonnull final String sText)
+  {
+    final int nLength = sText.length ();
+    int nLines = 1;
+    for (int i = 0; i < nLength; ++i)
+    {
+      final char c = sText.charAt (i);
+      if (c == '\n' || (c == '\r' && (i + 1 == nLength || sText.charAt (i + 1) != '\n')))
+        nLines++;
+    }
+
+    final int [] ret = new int [nLines];
+    int nLine = 1;
+    for (int i = 0; i < nLength; ++i)
+    {
+      final char c = sText.charAt (i);
+      if (c == '\n' || (c == '\r' && (i + 1 == nLength || sText.charAt (i + 1) != '\n')))
+        ret[nLine++] = i + 1;
+    }
+    return ret;
+  }
+
+  /**
+   * Get the offset of the character at the passed position. The column is
+   * calculated like in {@link com.phloc.css.parser.CSSCharStream}.
+   */
+  @CheckForSigned
+  private static int _getOffset (@Nonnull final String sText,
+                                 @Nonnull final int [] aLineStartOffsets,
+                                 final int nLine,
+                                 final int nColumn,
+                                 @Nonnegative final int nTabSize)
+  {
+    if (nLine < 1 || nLine > aLineStartOffsets.length || nColumn < 1)
+      return -1;
+
+    final int nLength = sText.length ();
+    int nCurColumn = 0;
+    for (int i = aLineStartOffsets[nLine - 1]; i < nLength; ++i)
+    {
+      final char c = sText.charAt (i);
+      nCurColumn++;
+      if (c == '\t')
+      {
+        nCurColumn--;
+        nCurColumn += nTabSize - (nCurColumn % nTabSize);
+      }
+      if (nCurColumn == nColumn)
+        return i;
+      if (nCurColumn > nColumn || c == '\n' || (c == '\r' && (i + 1 == nLength || sText.charAt (i + 1) != '\n')))
+        break;
+    }
+    return -1;
+  }
+
+  /**
+   * Create the source text object for the passed style sheet.
+   * 
+   * @param sText
+   *        The text the style sheet was read from. May not be
+   *        <code>null</code>.
+   * @param aCSS
+   *        The read style sheet. May not be <code>null</code>.
+   * @param nTabSize
+   *        The tab size that was used to calculate the columns.
+   * @return The source text containing the ranges of all top-level rules with
+   *         a valid source location. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSSourceText createSourceText (@Nonnull final String sText,
+                                                @Nonnull final CascadingStyleSheet aCSS,
+                                                @Nonnegative final int nTabSize)
+  {
+    final CSSSourceText ret = new CSSSourceText (sText);
+    final int [] aLineStartOffsets = _getLineStartOffsets (sText);
+    for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+      if (aRule instanceof ICSSSourceLocationAware)
+      {
+        final CSSSourceLocation aLocation = ((ICSSSourceLocationAware) aRule).getSourceLocation ();
+        if (aLocation != null && aLocation.hasFirstTokenArea () && aLocation.hasLastTokenArea ())
+        {
+          final int nStartOffset = _getOffset (sText,
+                                               aLineStartOffsets,
+                                               aLocation.getFirstTokenBeginLineNumber (),
+                                               aLocation.getFirstTokenBeginColumnNumber (),
+                                               nTabSize);
+          final int nLastOffset = _getOffset (sText,
+                                              aLineStartOffsets,
+                                              aLocation.getLastTokenEndLineNumber (),
+                                              aLocation.getLastTokenEndColumnNumber (),
+                                              nTabSize);
+          if (nStartOffset >= 0 && nLastOffset >= nStartOffset)
+            ret.addRule (aRule, nStartOffset, nLastOffset + 1);
+        }
+      }
+    return ret;
+  }
+}
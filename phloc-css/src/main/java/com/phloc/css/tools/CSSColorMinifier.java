@@ -0,0 +1,588 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ECSSExpressionOperator;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.propertyvalue.CCSSValue;
+import com.phloc.css.utils.CSSColorHelper;
+import com.phloc.css.utils.ECSSColor;
+import com.phloc.css.utils.ECSSColorName;
+
+/**
+ * Minifies color values. Hex values, named colors of {@link ECSSColor} and the
+ * functional notations <code>rgb()</code>, <code>rgba()</code>,
+ * <code>hsl()</code> and <code>hsla()</code> are parsed into a canonical RGBA
+ * value, from which the shortest representation is emitted in lower case:
+ * <ul>
+ * <li>Opaque colors become the shortest of the 6 digit hex value, the 3 digit
+ * hex value and the color name (e.g. <code>red</code>, <code>#f00</code> or
+ * <code>#c0c0c0</code> to <code>silver</code>). On equal length the hex value
+ * is preferred.</li>
+ * <li>Translucent colors become <code>rgba()</code> unless the original
+ * notation is shorter. <code>rgba(0,0,0,0)</code> becomes
+ * <code>transparent</code>.</li>
+ * </ul>
+ * Out of range values are clamped as defined by CSS 3 Color. All lookups are
+ * table based and no regular expressions are used. Color names are only read
+ * and written in properties that may contain colors (like <code>color</code>,
+ * <code>background</code> or <code>border-*</code>), because in other
+ * properties they may be custom identifiers (e.g. an animation named "red").
+ * Hex values and the functional notations are minified in all properties.
+ * Values that cannot be parsed (e.g. with a <code>calc()</code> argument) are
+ * left unchanged.
+ *
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSColorMinifier
+{
+  private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray ();
+  /** Maps ASCII characters to their hex value or -1 */
+  private static final int [] HEX_VALUES = new int [128];
+  /** Maps lower case color names to their 0xRRGGBB value */
+  private static final Map <String, Integer> s_aNameToRGB = new HashMap <String, Integer> ();
+  /** Maps 0xRRGGBB values to the shortest color name */
+  private static final Map <Integer, String> s_aRGBToName = new HashMap <Integer, String> ();
+
+  static
+  {
+    for (int i = 0; i < HEX_VALUES.length; ++i)
+      HEX_VALUES[i] = -1;
+    for (int i = 0; i < 10; ++i)
+      HEX_VALUES['0' + i] = i;
+    for (int i = 0; i < 6; ++i)
+    {
+      HEX_VALUES['a' + i] = 10 + i;
+      HEX_VALUES['A' + i] = 10 + i;
+    }
+
+    for (final ECSSColor eColor : ECSSColor.values ())
+    {
+      final String sName = eColor.getName ();
+      final Integer aRGB = Integer.valueOf (_getRGB (eColor.getRed (), eColor.getGreen (), eColor.getBlue ()));
+      s_aNameToRGB.put (sName, aRGB);
+      final String sOldName = s_aRGBToName.get (aRGB);
+      if (sOldName == null || sName.length () < sOldName.length ())
+        s_aRGBToName.put (aRGB, sName);
+    }
+  }
+
+  /**
+   * A parsed color value.
+   */
+  @Immutable
+  private static final class ParsedColor
+  {
+    private final int m_nRGB;
+    // null if opaque
+    private final String m_sAlpha;
+
+    ParsedColor (final int nRGB, @Nullable final String sAlpha)
+    {
+      m_nRGB = nRGB;
+      m_sAlpha = sAlpha;
+    }
+  }
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSColorMinifier s_aInstance = new CSSColorMinifier ();
+
+  private CSSColorMinifier ()
+  {}
+
+  private static int _getRGB (final int nRed, final int nGreen, final int nBlue)
+  {
+    return (nRed << 16) | (nGreen << 8) | nBlue;
+  }
+
+  private static int _getHexValue (final char c)
+  {
+    return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+  }
+
+  @Nullable
+  private static ParsedColor _parseHex (@Nonnull final String sValue)
+  {
+    final int nLength = sValue.length ();
+    if (nLength != 4 && nLength != 7)
+      return null;
+
+    int nRGB = 0;
+    for (int i = 1; i < nLength; ++i)
+    {
+      final int nDigit = _getHexValue (sValue.charAt (i));
+      if (nDigit < 0)
+        return null;
+      nRGB = (nRGB << 4) | nDigit;
+      if (nLength == 4)
+      {
+        // #abc is #aabbcc
+        nRGB = (nRGB << 4) | nDigit;
+      }
+    }
+    return new ParsedColor (nRGB, null);
+  }
+
+  /**
+   * Parse a number with an optional trailing percent sign. Exponents and
+   * units are not supported.
+   *
+   * @return <code>null</code> if the passed value is not a number
+   */
+  @Nullable
+  private static Double _parseNumber (@Nonnull final String sValue, final boolean bPercentage)
+  {
+    final int nEnd = bPercentage ? sValue.length () - 1 : sValue.length ();
+    if (bPercentage && (nEnd < 0 || sValue.charAt (nEnd) != '%'))
+      return null;
+    int nIndex = 0;
+    if (nIndex < nEnd && (sValue.charAt (nIndex) == '+' || sValue.charAt (nIndex) == '-'))
+      nIndex++;
+    boolean bHasDigits = false;
+    boolean bHasDot = false;
+    for (; nIndex < nEnd; ++nIndex)
+    {
+      final char c = sValue.charAt (nIndex);
+      if (c >= '0' && c <= '9')
+        bHasDigits = true;
+      else
+        if (c == '.' && !bHasDot)
+          bHasDot = true;
+        else
+          return null;
+    }
+    if (!bHasDigits)
+      return null;
+    return Double.valueOf (sValue.substring (0, nEnd));
+  }
+
+  private static int _clampRGB (final double dValue)
+  {
+    return (int) Math.round (Math.max (CSSColorHelper.RGB_MIN, Math.min (CSSColorHelper.RGB_MAX, dValue)));
+  }
+
+  private static double _clampPercentage (final double dValue)
+  {
+    return Math.max (CSSColorHelper.PERCENTAGE_MIN, Math.min (CSSColorHelper.PERCENTAGE_MAX, dValue)) /
+           CSSColorHelper.PERCENTAGE_MAX;
+  }
+
+  /**
+   * @return The red, green or blue part of an <code>rgb()</code> color or -1
+   */
+  private static int _parseRGBPart (@Nonnull final String sValue)
+  {
+    final boolean bPercentage = sValue.endsWith ("%");
+    final Double aValue = _parseNumber (sValue, bPercentage);
+    if (aValue == null)
+      return -1;
+    if (bPercentage)
+      return _clampRGB (_clampPercentage (aValue.doubleValue ()) * CSSColorHelper.RGB_MAX);
+    return _clampRGB (aValue.doubleValue ());
+  }
+
+  /**
+   * @return The percentage part of an <code>hsl()</code> color between 0 and 1
+   *         or -1
+   */
+  private static double _parseHSLPercentage (@Nonnull final String sValue)
+  {
+    // "0" is the only value that may be used without unit
+    final Double aValue = _parseNumber (sValue, !sValue.equals ("0"));
+    return aValue == null ? -1 : _clampPercentage (aValue.doubleValue ());
+  }
+
+  private static double _getHueValue (final double dM1, final double dM2, final double dHue)
+  {
+    double dH = dHue;
+    if (dH < 0)
+      dH += 1;
+    else
+      if (dH > 1)
+        dH -= 1;
+    if (dH * 6 < 1)
+      return dM1 + (dM2 - dM1) * dH * 6;
+    if (dH * 2 < 1)
+      return dM2;
+    if (dH * 3 < 2)
+      return dM1 + (dM2 - dM1) * (2.0 / 3 - dH) * 6;
+    return dM1;
+  }
+
+  /**
+   * Convert HSL to RGB as defined in chapter 4.2.4 of CSS 3 Color.
+   */
+  private static int _getRGBFromHSL (final double dHue, final double dSaturation, final double dLightness)
+  {
+    final double dH = (((dHue % CSSColorHelper.HSL_RANGE) + CSSColorHelper.HSL_RANGE) % CSSColorHelper.HSL_RANGE) /
+                      CSSColorHelper.HSL_RANGE;
+    final double dM2 = dLightness <= 0.5 ? dLightness * (dSaturation + 1) : dLightness +
+                                                                           dSaturation -
+                                                                           dLightness *
+                                                                           dSaturation;
+    final double dM1 = dLightness * 2 - dM2;
+    return _getRGB (_clampRGB (_getHueValue (dM1, dM2, dH + 1.0 / 3) * CSSColorHelper.RGB_MAX),
+                    _clampRGB (_getHueValue (dM1, dM2, dH) * CSSColorHelper.RGB_MAX),
+                    _clampRGB (_getHueValue (dM1, dM2, dH - 1.0 / 3) * CSSColorHelper.RGB_MAX));
+  }
+
+  @Nullable
+  private static ParsedColor _parseFunction (@Nonnull final String sValue)
+  {
+    final int nOpen = sValue.indexOf ('(');
+    if (nOpen < 0 || !sValue.endsWith (")"))
+      return null;
+
+    final String sName = sValue.substring (0, nOpen).trim ().toLowerCase (Locale.US);
+    final boolean bHasAlpha = sName.equals (CCSSValue.PREFIX_RGBA) || sName.equals (CCSSValue.PREFIX_HSLA);
+    final boolean bIsHSL = sName.equals (CCSSValue.PREFIX_HSL) || sName.equals (CCSSValue.PREFIX_HSLA);
+    if (!bHasAlpha && !bIsHSL && !sName.equals (CCSSValue.PREFIX_RGB))
+      return null;
+
+    // Split the arguments
+    final List <String> aArgs = new ArrayList <String> (4);
+    int nStart = nOpen + 1;
+    final int nClose = sValue.length () - 1;
+    while (true)
+    {
+      final int nComma = sValue.indexOf (',', nStart);
+      if (nComma < 0)
+      {
+        aArgs.add (sValue.substring (nStart, nClose).trim ());
+        break;
+      }
+      aArgs.add (sValue.substring (nStart, nComma).trim ());
+      nStart = nComma + 1;
+    }
+    if (aArgs.size () != (bHasAlpha ? 4 : 3))
+      return null;
+
+    int nRGB;
+    if (bIsHSL)
+    {
+      final Double aHue = _parseNumber (aArgs.get (0), false);
+      final double dSaturation = _parseHSLPercentage (aArgs.get (1));
+      final double dLightness = _parseHSLPercentage (aArgs.get (2));
+      if (aHue == null || dSaturation < 0 || dLightness < 0)
+        return null;
+      nRGB = _getRGBFromHSL (aHue.doubleValue (), dSaturation, dLightness);
+    }
+    else
+    {
+      final int nRed = _parseRGBPart (aArgs.get (0));
+      final int nGreen = _parseRGBPart (aArgs.get (1));
+      final int nBlue = _parseRGBPart (aArgs.get (2));
+      if (nRed < 0 || nGreen < 0 || nBlue < 0)
+        return null;
+      nRGB = _getRGB (nRed, nGreen, nBlue);
+    }
+
+    String sAlpha = null;
+    if (bHasAlpha)
+    {
+      sAlpha = aArgs.get (3);
+      final Double aAlpha = _parseNumber (sAlpha, false);
+      if (aAlpha == null)
+        return null;
+      if (aAlpha.doubleValue () >= CSSColorHelper.OPACITY_MAX)
+        sAlpha = null;
+      else
+        if (aAlpha.doubleValue () <= CSSColorHelper.OPACITY_MIN)
+          sAlpha = "0";
+        else
+          if (sAlpha.charAt (0) == '+')
+            sAlpha = sAlpha.substring (1);
+    }
+    return new ParsedColor (nRGB, sAlpha);
+  }
+
+  @Nullable
+  private static ParsedColor _parse (@Nonnull final String sValue, final boolean bAllowNames)
+  {
+    if (sValue.length () == 0)
+      return null;
+    if (sValue.charAt (0) == CCSSValue.PREFIX_HEX)
+      return _parseHex (sValue);
+    if (sValue.indexOf ('(') >= 0)
+      return _parseFunction (sValue);
+    if (bAllowNames)
+    {
+      final Integer aRGB = s_aNameToRGB.get (sValue.toLowerCase (Locale.US));
+      if (aRGB != null)
+        return new ParsedColor (aRGB.intValue (), null);
+    }
+    return null;
+  }
+
+  @Nonnull
+  private static String _getHex (final int nRGB)
+  {
+    final char [] aChars = new char [7];
+    aChars[0] = CCSSValue.PREFIX_HEX;
+    for (int i = 0; i < 6; ++i)
+      aChars[i + 1] = HEX_DIGITS[(nRGB >> (20 - i * 4)) & 0xf];
+    if (aChars[1] == aChars[2] && aChars[3] == aChars[4] && aChars[5] == aChars[6])
+      return new String (new char [] { CCSSValue.PREFIX_HEX, aChars[1], aChars[3], aChars[5] });
+    return new String (aChars);
+  }
+
+  @Nonnull
+  private static String _getShortest (@Nonnull final ParsedColor aColor, final boolean bAllowNames)
+  {
+    final int nRGB = aColor.m_nRGB;
+    if (aColor.m_sAlpha != null)
+    {
+      if (bAllowNames && nRGB == 0 && aColor.m_sAlpha.equals ("0"))
+        return CCSSValue.TRANSPARENT;
+      return CCSSValue.PREFIX_RGBA_OPEN +
+             (nRGB >> 16) +
+             ',' +
+             ((nRGB >> 8) & 0xff) +
+             ',' +
+             (nRGB & 0xff) +
+             ',' +
+             aColor.m_sAlpha +
+             ')';
+    }
+
+    final String sHex = _getHex (nRGB);
+    if (bAllowNames)
+    {
+      final String sName = s_aRGBToName.get (Integer.valueOf (nRGB));
+      if (sName != null && sName.length () < sHex.length ())
+        return sName;
+    }
+    return sHex;
+  }
+
+  /**
+   * Get the shortest representation of the passed color value.
+   *
+   * @param sValue
+   *        The color value to minify. May not be <code>null</code>.
+   * @param bAllowNames
+   *        <code>true</code> if the value is known to be a color, so that color
+   *        names may be read and emitted.
+   * @return <code>null</code> if the passed value is not a color that can be
+   *         minified. The passed value in lower case if it is already the
+   *         shortest representation.
+   */
+  @Nullable
+  public static String getMinifiedColor (@Nonnull final String sValue, final boolean bAllowNames)
+  {
+    ValueEnforcer.notNull (sValue, "Value");
+
+    final String sTrimmed = sValue.trim ();
+    final ParsedColor aColor = _parse (sTrimmed, bAllowNames);
+    if (aColor == null)
+    {
+      // System colors and "currentColor" are case insensitive
+      if (bAllowNames &&
+          (ECSSColorName.isDefaultColorName (sTrimmed) || sTrimmed.equalsIgnoreCase (CCSSValue.CURRENTCOLOR)))
+        return sTrimmed.toLowerCase (Locale.US);
+      return null;
+    }
+
+    final String sShortest = _getShortest (aColor, bAllowNames);
+    if (sTrimmed.length () < sShortest.length ())
+    {
+      // E.g. "hsla(0,0%,0%,.5)" is shorter than "rgba(0,0,0,.5)"
+      return sTrimmed.toLowerCase (Locale.US);
+    }
+    return sShortest;
+  }
+
+  /**
+   * Build the text of a color function from the raw values of its arguments.
+   *
+   * @return <code>null</code> if the function contains anything but simple
+   *         terms and commas
+   */
+  @Nullable
+  private static String _getFunctionText (@Nonnull final CSSExpressionMemberFunction aFunction)
+  {
+    final CSSExpression aExpression = aFunction.getExpression ();
+    if (aExpression == null)
+      return null;
+    final StringBuilder aSB = new StringBuilder (aFunction.getFunctionName ()).append ('(');
+    for (final ICSSExpressionMember aMember : aExpression.getAllMembers ())
+    {
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+        aSB.append (((CSSExpressionMemberTermSimple) aMember).getValue ());
+      else
+        if (aMember == ECSSExpressionOperator.COMMA)
+          aSB.append (',');
+        else
+          return null;
+    }
+    return aSB.append (')').toString ();
+  }
+
+  @Nonnull
+  private static ICSSExpressionMember _createMember (@Nonnull final String sMinified)
+  {
+    final int nOpen = sMinified.indexOf ('(');
+    if (nOpen < 0)
+      return new CSSExpressionMemberTermSimple (sMinified);
+
+    // A function like "rgba(0,0,0,.5)"
+    final CSSExpression aExpression = new CSSExpression ();
+    int nStart = nOpen + 1;
+    while (true)
+    {
+      final int nComma = sMinified.indexOf (',', nStart);
+      if (nComma < 0)
+      {
+        aExpression.addTermSimple (sMinified.substring (nStart, sMinified.length () - 1));
+        break;
+      }
+      aExpression.addTermSimple (sMinified.substring (nStart, nComma));
+      aExpression.addMember (ECSSExpressionOperator.COMMA);
+      nStart = nComma + 1;
+    }
+    return new CSSExpressionMemberFunction (sMinified.substring (0, nOpen), aExpression);
+  }
+
+  @Nonnull
+  private static EChange _minifyExpression (@Nonnull final CSSExpression aExpression, final boolean bIsColorProperty)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSExpressionMember> aMembers = aExpression.getAllMembers ();
+    for (int i = 0; i < aMembers.size (); ++i)
+    {
+      final ICSSExpressionMember aMember = aMembers.get (i);
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+      {
+        final CSSExpressionMemberTermSimple aTerm = (CSSExpressionMemberTermSimple) aMember;
+        final String sValue = aTerm.getValue ();
+        final String sMinified = getMinifiedColor (sValue, bIsColorProperty);
+        if (sMinified != null && !sMinified.equals (sValue))
+        {
+          aTerm.setValue (sMinified);
+          eChange = EChange.CHANGED;
+        }
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberFunction)
+        {
+          final CSSExpressionMemberFunction aFunction = (CSSExpressionMemberFunction) aMember;
+          final String sFunctionText = _getFunctionText (aFunction);
+          final String sMinified = sFunctionText == null ? null : getMinifiedColor (sFunctionText,
+                                                                                   bIsColorProperty);
+          if (sMinified != null)
+          {
+            if (!sMinified.equals (sFunctionText))
+            {
+              final ICSSExpressionMember aNewMember = _createMember (sMinified);
+              aExpression.removeMember (i);
+              aExpression.addMember (i, aNewMember);
+              eChange = EChange.CHANGED;
+            }
+          }
+          else
+          {
+            // E.g. a gradient - but skip old IE filters like
+            // "progid:DXImageTransform.Microsoft.gradient" that require the
+            // long hex form
+            final String sName = aFunction.getFunctionName ();
+            final CSSExpression aFunctionExpression = aFunction.getExpression ();
+            if (sName.indexOf (':') < 0 &&
+                sName.indexOf ('.') < 0 &&
+                aFunctionExpression != null &&
+                _minifyExpression (aFunctionExpression, bIsColorProperty).isChanged ())
+              eChange = EChange.CHANGED;
+          }
+        }
+    }
+    return eChange;
+  }
+
+  /**
+   * Minify all colors in the value of the passed declaration. Custom properties
+   * are not modified.
+   *
+   * @param aDeclaration
+   *        The declaration to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the declaration was changed.
+   */
+  @Nonnull
+  public static EChange minifyColors (@Nonnull final CSSDeclaration aDeclaration)
+  {
+    ValueEnforcer.notNull (aDeclaration, "Declaration");
+
+    final String sProperty = aDeclaration.getProperty ().toLowerCase (Locale.US);
+    if (sProperty.startsWith ("--"))
+      return EChange.UNCHANGED;
+
+    final boolean bIsColorProperty = CSSCompressionNormalizer.isColorProperty (sProperty);
+    return _minifyExpression (aDeclaration.getExpression (), bIsColorProperty);
+  }
+
+  @NotThreadSafe
+  private static final class MinifyingVisitor extends DefaultCSSVisitor
+  {
+    private EChange m_eChange = EChange.UNCHANGED;
+
+    @Override
+    public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+    {
+      m_eChange = m_eChange.or (minifyColors (aDeclaration));
+    }
+  }
+
+  /**
+   * Minify all colors in the passed style sheet.
+   *
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was changed.
+   */
+  @Nonnull
+  public static EChange minifyColors (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final MinifyingVisitor aVisitor = new MinifyingVisitor ();
+    CSSVisitor.visitCSS (aCSS, aVisitor);
+    return aVisitor.m_eChange;
+  }
+}
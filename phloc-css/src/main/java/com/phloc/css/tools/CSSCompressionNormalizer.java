@@ -0,0 +1,457 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesBlock;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.IHasCSSDeclarations;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.utils.ECSSColor;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Normalize a {@link CascadingStyleSheet} so that the written output contains
+ * more and longer repeated substrings. This does not reduce the raw size of
+ * the output but improves the ratio of LZ77 based compression like GZIP and
+ * DEFLATE. All changes are cascade-safe:
+ * <ul>
+ * <li>The selectors of each style rule are sorted by their text.</li>
+ * <li>The declarations of each rule are sorted by the property family (see
+ * {@link #getPropertyFamily(String)}). Declarations of the same family keep
+ * their relative order, so that overrides and vendor fallbacks still work.</li>
+ * <li>Hex colors, units, function names and color keywords in known color
+ * properties are lower cased.</li>
+ * </ul>
+ * Whitespace is already normalized by the writer in optimized mode.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSCompressionNormalizer
+{
+  /** Properties that are set by a shorthand of another family */
+  private static final Map <String, String> s_aFamilyAliases = new HashMap <String, String> ();
+  /** Properties that may contain named colors */
+  private static final String [] COLOR_PROPERTIES = new String [] { "background",
+                                                                    "border",
+                                                                    "box-shadow",
+                                                                    "color",
+                                                                    "column-rule",
+                                                                    "fill",
+                                                                    "outline",
+                                                                    "stroke",
+                                                                    "text-decoration",
+                                                                    "text-shadow" };
+  private static final CSSWriterSettings s_aSortSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  static
+  {
+    // "font" resets "line-height"
+    s_aFamilyAliases.put ("line", "font");
+    // "inset" sets the box offsets
+    s_aFamilyAliases.put ("top", "inset");
+    s_aFamilyAliases.put ("right", "inset");
+    s_aFamilyAliases.put ("bottom", "inset");
+    s_aFamilyAliases.put ("left", "inset");
+    // "place-*" sets "align-*" and "justify-*"
+    s_aFamilyAliases.put ("align", "place");
+    s_aFamilyAliases.put ("justify", "place");
+    // "gap" sets "row-gap" and "column-gap" and is an alias of "grid-gap";
+    // "columns" sets "column-count" and "column-width"
+    s_aFamilyAliases.put ("row", "gap");
+    s_aFamilyAliases.put ("column", "gap");
+    s_aFamilyAliases.put ("columns", "gap");
+    s_aFamilyAliases.put ("grid", "gap");
+    // The logical properties map to the physical ones depending on the
+    // writing mode: "inline-size" may set "width" or "height" etc. The logical
+    // variants of "margin", "padding", "border" and "inset" already share the
+    // family of their physical counterparts.
+    s_aFamilyAliases.put ("width", "size");
+    s_aFamilyAliases.put ("height", "size");
+    s_aFamilyAliases.put ("min", "size");
+    s_aFamilyAliases.put ("max", "size");
+    s_aFamilyAliases.put ("inline", "size");
+    s_aFamilyAliases.put ("block", "size");
+    // "vertical-align" sets "alignment-baseline" and "baseline-shift"
+    s_aFamilyAliases.put ("alignment", "vertical");
+    s_aFamilyAliases.put ("baseline", "vertical");
+    // Legacy aliases
+    s_aFamilyAliases.put ("word", "overflow");
+    s_aFamilyAliases.put ("page", "break");
+    s_aFamilyAliases.put ("white", "text");
+  }
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSCompressionNormalizer s_aInstance = new CSSCompressionNormalizer ();
+
+  private CSSCompressionNormalizer ()
+  {}
+
+  /**
+   * Get the family of the passed property. Declarations of different families
+   * never influence each other, so their order may be changed. The family is
+   * the first part of the property name without vendor prefix and hacks (e.g.
+   * "border" for "-webkit-border-top-left-radius"), with some special cases
+   * for shorthand properties that influence properties of other names (e.g.
+   * "font" for "line-height") and for logical properties (e.g. "size" for
+   * "width", "height" and "inline-size").
+   * 
+   * @param sProperty
+   *        The property name to use. May not be <code>null</code>.
+   * @return <code>null</code> if the property may influence all other
+   *         properties (like "all" or custom properties), so that the order of
+   *         the declarations may not be changed at all.
+   */
+  @Nullable
+  public static String getPropertyFamily (@Nonnull @Nonempty final String sProperty)
+  {
+    ValueEnforcer.notEmpty (sProperty, "Property");
+
+    String sName = sProperty.toLowerCase (Locale.US);
+    if (sName.startsWith ("--"))
+    {
+      // Custom properties may be referenced via var() in any other property
+      return null;
+    }
+
+    // Skip leading hacks like "*zoom" or "_height"
+    int nStart = 0;
+    while (nStart < sName.length () && !Character.isLetter (sName.charAt (nStart)) && sName.charAt (nStart) != '-')
+      nStart++;
+    sName = sName.substring (nStart);
+
+    // Skip vendor prefix like "-webkit-"
+    if (sName.startsWith ("-"))
+    {
+      final int nIndex = sName.indexOf ('-', 1);
+      sName = nIndex < 0 ? "" : sName.substring (nIndex + 1);
+    }
+    if (sName.length () == 0 || sName.equals ("all"))
+      return null;
+
+    final int nIndex = sName.indexOf ('-');
+    final String sFamily = nIndex < 0 ? sName : sName.substring (0, nIndex);
+    final String sAlias = s_aFamilyAliases.get (sFamily);
+    return sAlias != null ? sAlias : sFamily;
+  }
+
+  /**
+   * Sort the selectors of the passed style rule by their optimized text.
+   * 
+   * @param aStyleRule
+   *        The style rule to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the order was changed.
+   */
+  @Nonnull
+  public static EChange normalizeSelectorOrder (@Nonnull final CSSStyleRule aStyleRule)
+  {
+    ValueEnforcer.notNull (aStyleRule, "StyleRule");
+
+    final List <CSSSelector> aSelectors = aStyleRule.getAllSelectors ();
+    if (aSelectors.size () < 2)
+      return EChange.UNCHANGED;
+
+    final Map <CSSSelector, String> aTexts = new HashMap <CSSSelector, String> ();
+    for (final CSSSelector aSelector : aSelectors)
+      aTexts.put (aSelector, aSelector.getAsCSSString (s_aSortSettings, 0));
+
+    final List <CSSSelector> aSorted = new ArrayList <CSSSelector> (aSelectors);
+    Collections.sort (aSorted, new Comparator <CSSSelector> ()
+    {
+      public int compare (final CSSSelector aSelector1, final CSSSelector aSelector2)
+      {
+        return aTexts.get (aSelector1).compareTo (aTexts.get (aSelector2));
+      }
+    });
+    if (aSorted.equals (aSelectors))
+      return EChange.UNCHANGED;
+
+    aStyleRule.removeAllSelectors ();
+    for (final CSSSelector aSelector : aSorted)
+      aStyleRule.addSelector (aSelector);
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Sort the declarations of the passed object by their property family.
+   * Declarations of the same family keep their relative order. If any
+   * declaration may influence all other declarations, nothing is changed.
+   * 
+   * @param aHasDeclarations
+   *        The object to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the order was changed.
+   * @see #getPropertyFamily(String)
+   */
+  @Nonnull
+  public static EChange normalizeDeclarationOrder (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+  {
+    ValueEnforcer.notNull (aHasDeclarations, "HasDeclarations");
+
+    final List <CSSDeclaration> aDeclarations = aHasDeclarations.getAllDeclarations ();
+    if (aDeclarations.size () < 2)
+      return EChange.UNCHANGED;
+
+    final Map <CSSDeclaration, String> aFamilies = new HashMap <CSSDeclaration, String> ();
+    for (final CSSDeclaration aDeclaration : aDeclarations)
+    {
+      final String sFamily = getPropertyFamily (aDeclaration.getProperty ());
+      if (sFamily == null)
+        return EChange.UNCHANGED;
+      aFamilies.put (aDeclaration, sFamily);
+    }
+
+    // Collections.sort is stable
+    final List <CSSDeclaration> aSorted = new ArrayList <CSSDeclaration> (aDeclarations);
+    Collections.sort (aSorted, new Comparator <CSSDeclaration> ()
+    {
+      public int compare (final CSSDeclaration aDeclaration1, final CSSDeclaration aDeclaration2)
+      {
+        return aFamilies.get (aDeclaration1).compareTo (aFamilies.get (aDeclaration2));
+      }
+    });
+    if (aSorted.equals (aDeclarations))
+      return EChange.UNCHANGED;
+
+    aHasDeclarations.removeAllDeclarations ();
+    for (final CSSDeclaration aDeclaration : aSorted)
+      aHasDeclarations.addDeclaration (aDeclaration);
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Check if the passed property may contain named colors.
+   * 
+   * @param sProperty
+   *        The property name to check. May not be <code>null</code>.
+   * @return <code>true</code> if it is a color property.
+   */
+  static boolean isColorProperty (@Nonnull final String sProperty)
+  {
+    if (sProperty.endsWith ("-color"))
+      return true;
+    for (final String sColorProperty : COLOR_PROPERTIES)
+      if (sProperty.equals (sColorProperty) || sProperty.startsWith (sColorProperty + '-'))
+        return true;
+    return false;
+  }
+
+  /**
+   * Get the normalized casing of a single term value.
+   * 
+   * @param sValue
+   *        The value to normalize
+   * @param bIsColorProperty
+   *        <code>true</code> if color names may be lower cased
+   * @return The normalized value
+   */
+  @Nonnull
+  static String getNormalizedTermValue (@Nonnull final String sValue, final boolean bIsColorProperty)
+  {
+    final int nLength = sValue.length ();
+    final char cFirst = sValue.charAt (0);
+
+    // Hex color
+    if (cFirst == '#')
+      return sValue.toLowerCase (Locale.US);
+
+    // Number with unit
+    int nIndex = 0;
+    if (cFirst == '+' || cFirst == '-')
+      nIndex++;
+    final int nNumberStart = nIndex;
+    while (nIndex < nLength && ((sValue.charAt (nIndex) >= '0' && sValue.charAt (nIndex) <= '9') || sValue.charAt (nIndex) == '.'))
+      nIndex++;
+    if (nIndex > nNumberStart)
+    {
+      if (nIndex < nLength)
+      {
+        final String sUnit = sValue.substring (nIndex).toLowerCase (Locale.US);
+        if (ECSSUnit.getFromNameOrNull (sUnit) != null)
+          return sValue.substring (0, nIndex) + sUnit;
+      }
+      return sValue;
+    }
+
+    // Color keyword - other identifiers may be case sensitive custom names
+    if (bIsColorProperty && ECSSColor.isDefaultColorName (sValue))
+      return sValue.toLowerCase (Locale.US);
+    return sValue;
+  }
+
+  @Nonnull
+  private static EChange _normalizeExpression (@Nonnull final CSSExpression aExpression, final boolean bIsColorProperty)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSExpressionMember> aMembers = aExpression.getAllMembers ();
+    for (int i = 0; i < aMembers.size (); ++i)
+    {
+      final ICSSExpressionMember aMember = aMembers.get (i);
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+      {
+        final CSSExpressionMemberTermSimple aTerm = (CSSExpressionMemberTermSimple) aMember;
+        final String sValue = aTerm.getValue ();
+        final String sNormalized = getNormalizedTermValue (sValue, bIsColorProperty);
+        if (!sNormalized.equals (sValue))
+        {
+          aTerm.setValue (sNormalized);
+          eChange = EChange.CHANGED;
+        }
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberFunction)
+        {
+          final CSSExpressionMemberFunction aFunction = (CSSExpressionMemberFunction) aMember;
+          final String sName = aFunction.getFunctionName ();
+          // Skip old IE filters like "progid:DXImageTransform.Microsoft.Alpha"
+          final boolean bNormalizeName = sName.indexOf (':') < 0 && sName.indexOf ('.') < 0;
+          final String sNormalizedName = bNormalizeName ? sName.toLowerCase (Locale.US) : sName;
+          final CSSExpression aFunctionExpression = aFunction.getExpression ();
+          if (aFunctionExpression != null &&
+              _normalizeExpression (aFunctionExpression, bIsColorProperty).isChanged ())
+            eChange = EChange.CHANGED;
+          if (!sNormalizedName.equals (sName))
+          {
+            final CSSExpressionMemberFunction aNewFunction = new CSSExpressionMemberFunction (sNormalizedName,
+                                                                                              aFunctionExpression);
+            aNewFunction.setSourceLocation (aFunction.getSourceLocation ());
+            aExpression.removeMember (i);
+            aExpression.addMember (i, aNewFunction);
+            eChange = EChange.CHANGED;
+          }
+        }
+    }
+    return eChange;
+  }
+
+  /**
+   * Normalize the casing of the values of the passed declaration. Custom
+   * properties are not modified.
+   * 
+   * @param aDeclaration
+   *        The declaration to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the declaration was changed.
+   */
+  @Nonnull
+  public static EChange normalizeValueCasing (@Nonnull final CSSDeclaration aDeclaration)
+  {
+    ValueEnforcer.notNull (aDeclaration, "Declaration");
+
+    final String sProperty = aDeclaration.getProperty ();
+    if (sProperty.startsWith ("--"))
+      return EChange.UNCHANGED;
+
+    return _normalizeExpression (aDeclaration.getExpression (), isColorProperty (sProperty));
+  }
+
+  @NotThreadSafe
+  private static final class NormalizingVisitor extends DefaultCSSVisitor
+  {
+    private EChange m_eChange = EChange.UNCHANGED;
+
+    private void _onDeclarations (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+    {
+      m_eChange = m_eChange.or (normalizeDeclarationOrder (aHasDeclarations));
+    }
+
+    @Override
+    public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+    {
+      m_eChange = m_eChange.or (normalizeValueCasing (aDeclaration));
+    }
+
+    @Override
+    public void onBeginStyleRule (@Nonnull final CSSStyleRule aStyleRule)
+    {
+      m_eChange = m_eChange.or (normalizeSelectorOrder (aStyleRule));
+      _onDeclarations (aStyleRule);
+    }
+
+    @Override
+    public void onBeginPageRule (@Nonnull final CSSPageRule aPageRule)
+    {
+      _onDeclarations (aPageRule);
+    }
+
+    @Override
+    public void onBeginFontFaceRule (@Nonnull final CSSFontFaceRule aFontFaceRule)
+    {
+      _onDeclarations (aFontFaceRule);
+    }
+
+    @Override
+    public void onBeginKeyframesBlock (@Nonnull final CSSKeyframesBlock aKeyframesBlock)
+    {
+      _onDeclarations (aKeyframesBlock);
+    }
+
+    @Override
+    public void onBeginViewportRule (@Nonnull final CSSViewportRule aViewportRule)
+    {
+      _onDeclarations (aViewportRule);
+    }
+  }
+
+  /**
+   * Apply all normalizations to the passed style sheet.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was changed.
+   */
+  @Nonnull
+  public static EChange normalize (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final NormalizingVisitor aVisitor = new NormalizingVisitor ();
+    CSSVisitor.visitCSS (aCSS, aVisitor);
+    return aVisitor.m_eChange;
+  }
+}
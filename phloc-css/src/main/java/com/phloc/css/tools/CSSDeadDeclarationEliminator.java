@@ -0,0 +1,470 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberMath;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesBlock;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.IHasCSSDeclarations;
+import com.phloc.css.decl.shorthand.CSSPropertyWithDefaultValue;
+import com.phloc.css.decl.shorthand.CSSShortHandDescriptor;
+import com.phloc.css.decl.shorthand.CSSShortHandRegistry;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.property.ECSSProperty;
+import com.phloc.css.propertyvalue.CSSSimpleValueWithUnit;
+import com.phloc.css.utils.CSSColorHelper;
+import com.phloc.css.utils.CSSNumberHelper;
+
+/**
+ * Removes declarations that are overridden by other declarations of the same
+ * declaration block. A declaration is dead if all properties it sets are set
+ * by later declarations with the same or a higher priority or by earlier
+ * <code>!important</code> declarations - so a later normal declaration never
+ * overrides an earlier <code>!important</code> one.
+ * Shorthands are resolved to their longhands with the
+ * {@link CSSShortHandRegistry}, so that e.g. <code>margin-top</code> is dead
+ * if it is followed by <code>margin</code>. Because the registry does not
+ * list all properties that are reset by e.g. <code>border</code> (which also
+ * resets <code>border-image</code>), <code>font</code> and
+ * <code>background</code>, such a shorthand is only dead if it is overridden
+ * by a declaration of the same shorthand. Properties with hack prefixes
+ * (like <code>*zoom</code>) are only overridden by declarations of the same
+ * name.<br>
+ * By default intentional fallbacks are kept. An overridden declaration is
+ * considered a fallback for an overriding one with a different value, if either
+ * value contains vendor prefixes (like <code>display:-webkit-box</code>
+ * followed by <code>display:flex</code>) or value hacks (like
+ * <code>\9</code>), or if the overriding value uses a function (like
+ * <code>calc()</code> or <code>linear-gradient()</code>), a CSS 3 unit (like
+ * <code>rem</code>) that the overridden value does not use, or if the
+ * overriding declaration of the same property uses a keyword other than a
+ * color (like <code>display:grid</code> or <code>position:sticky</code>) that
+ * the overridden value does not use.
+ *
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSDeadDeclarationEliminator
+{
+  /** By default fallback declarations are kept */
+  public static final boolean DEFAULT_KEEP_FALLBACKS = true;
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSDeadDeclarationEliminator s_aInstance = new CSSDeadDeclarationEliminator ();
+
+  private CSSDeadDeclarationEliminator ()
+  {}
+
+  /**
+   * The shorthands for which the {@link CSSShortHandRegistry} contains all
+   * properties that are reset by the shorthand.
+   */
+  private static final Set <String> s_aCompleteShortHands = ContainerHelper.newSet ("margin",
+                                                                                    "padding",
+                                                                                    "border-width",
+                                                                                    "border-style",
+                                                                                    "border-color",
+                                                                                    "border-top",
+                                                                                    "border-right",
+                                                                                    "border-bottom",
+                                                                                    "border-left",
+                                                                                    "outline",
+                                                                                    "list-style");
+
+  private static void _addLonghands (@Nonnull final ECSSProperty eProperty, @Nonnull final Set <String> aTarget)
+  {
+    final CSSShortHandDescriptor aDescriptor = CSSShortHandRegistry.getShortHandDescriptor (eProperty);
+    if (aDescriptor == null)
+      aTarget.add (eProperty.getName ());
+    else
+      for (final CSSPropertyWithDefaultValue aSubProperty : aDescriptor.getAllSubProperties ())
+        _addLonghands (aSubProperty.getProperty ().getProp (), aTarget);
+  }
+
+  /**
+   * Get all longhand properties that are set by the passed property.
+   *
+   * @param sProperty
+   *        The property name. May not be <code>null</code>.
+   * @return A set with the lower case longhand names. For properties that are
+   *         no shorthands or that are unknown, the set only contains the
+   *         property itself.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  static Set <String> getAllLonghands (@Nonnull final String sProperty)
+  {
+    final Set <String> ret = new HashSet <String> ();
+    if (sProperty.startsWith ("--"))
+    {
+      // Custom properties are case sensitive
+      ret.add (sProperty);
+    }
+    else
+    {
+      final String sName = sProperty.toLowerCase (Locale.US);
+      final ECSSProperty eProperty = ECSSProperty.getFromNameOrNull (sName);
+      if (eProperty == null)
+        ret.add (sName);
+      else
+        _addLonghands (eProperty, ret);
+    }
+    return ret;
+  }
+
+  private static boolean _isVendorSpecific (@Nonnull final String sValue)
+  {
+    return sValue.length () > 2 &&
+           sValue.charAt (0) == '-' &&
+           Character.isLetter (sValue.charAt (1)) &&
+           sValue.indexOf ('-', 2) > 0;
+  }
+
+  /**
+   * The features used by a single declaration value.
+   */
+  @NotThreadSafe
+  private static final class ValueFeatures
+  {
+    private boolean m_bVendorSpecific = false;
+    private boolean m_bHack = false;
+    private final Set <String> m_aFeatures = new HashSet <String> ();
+    private final Set <String> m_aKeywords = new HashSet <String> ();
+
+    ValueFeatures (@Nonnull final CSSExpression aExpression)
+    {
+      _collect (aExpression);
+    }
+
+    private void _collect (@Nonnull final CSSExpression aExpression)
+    {
+      for (final ICSSExpressionMember aMember : aExpression.getAllMembers ())
+        if (aMember instanceof CSSExpressionMemberTermSimple)
+        {
+          final String sValue = ((CSSExpressionMemberTermSimple) aMember).getValue ();
+          if (_isVendorSpecific (sValue))
+            m_bVendorSpecific = true;
+          else
+            if (sValue.indexOf ('\\') >= 0)
+            {
+              // E.g. "100px\9" for IE
+              m_bHack = true;
+            }
+            else
+            {
+              final CSSSimpleValueWithUnit aValue = CSSNumberHelper.getValueWithUnit (sValue);
+              if (aValue != null)
+              {
+                if (aValue.getUnit ().getMinimumCSSVersion ().compareTo (ECSSVersion.CSS21) > 0)
+                  m_aFeatures.add (aValue.getUnit ().getName ());
+              }
+              else
+                if (Character.isLetter (sValue.charAt (0)) && !CSSColorHelper.isColorValue (sValue))
+                {
+                  // Keywords like "grid" or "sticky" may be unknown to some
+                  // browsers
+                  m_aKeywords.add (sValue.toLowerCase (Locale.US));
+                }
+            }
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberFunction)
+          {
+            final CSSExpressionMemberFunction aFunction = (CSSExpressionMemberFunction) aMember;
+            final String sName = aFunction.getFunctionName ().toLowerCase (Locale.US);
+            if (_isVendorSpecific (sName))
+              m_bVendorSpecific = true;
+            m_aFeatures.add (sName + "()");
+            if (aFunction.getExpression () != null)
+              _collect (aFunction.getExpression ());
+          }
+          else
+            if (aMember instanceof CSSExpressionMemberMath)
+              m_aFeatures.add ("calc()");
+    }
+  }
+
+  /**
+   * Check if the passed overridden declaration may be an intentional fallback
+   * for browsers that do not understand the overriding declaration.
+   *
+   * @param aFallback
+   *        The overridden declaration. May not be <code>null</code>.
+   * @param aOverriding
+   *        The overriding declaration. May not be <code>null</code>.
+   * @return <code>true</code> if the overridden declaration should be kept.
+   */
+  static boolean isPossibleFallback (@Nonnull final CSSDeclaration aFallback,
+                                     @Nonnull final CSSDeclaration aOverriding)
+  {
+    if (aFallback.getExpression ().equals (aOverriding.getExpression ()))
+      return false;
+
+    final ValueFeatures aFallbackFeatures = new ValueFeatures (aFallback.getExpression ());
+    final ValueFeatures aOverridingFeatures = new ValueFeatures (aOverriding.getExpression ());
+    if (aFallbackFeatures.m_bVendorSpecific ||
+        aOverridingFeatures.m_bVendorSpecific ||
+        aFallbackFeatures.m_bHack ||
+        aOverridingFeatures.m_bHack)
+      return true;
+    // Keywords can only be compared for the same property
+    if (aFallback.getProperty ().equalsIgnoreCase (aOverriding.getProperty ()) &&
+        !aFallbackFeatures.m_aKeywords.containsAll (aOverridingFeatures.m_aKeywords))
+      return true;
+    return !aFallbackFeatures.m_aFeatures.containsAll (aOverridingFeatures.m_aFeatures);
+  }
+
+  /**
+   * Check if the passed declaration may reset properties that are not known to
+   * the {@link CSSShortHandRegistry}, so that it is only overridden by a
+   * declaration of the same property.
+   */
+  private static boolean _isIncompleteShortHand (@Nonnull final CSSDeclaration aDeclaration)
+  {
+    final String sName = aDeclaration.getProperty ().toLowerCase (Locale.US);
+    final ECSSProperty eProperty = ECSSProperty.getFromNameOrNull (sName);
+    return eProperty != null &&
+           CSSShortHandRegistry.isShortHandProperty (eProperty) &&
+           !s_aCompleteShortHands.contains (sName);
+  }
+
+  private static boolean _containsSameProperty (@Nonnull final CSSDeclaration aDeclaration,
+                                                @Nonnull final List <CSSDeclaration> aOthers)
+  {
+    for (final CSSDeclaration aOther : aOthers)
+      if (aOther.getProperty ().equalsIgnoreCase (aDeclaration.getProperty ()))
+        return true;
+    return false;
+  }
+
+  private static void _addOverriding (@Nonnull final Set <String> aLonghands,
+                                      @Nonnull final CSSDeclaration aOther,
+                                      @Nonnull final Set <String> aOtherLonghands,
+                                      @Nonnull final Set <String> aOverridden,
+                                      @Nonnull final List <CSSDeclaration> aOverriding)
+  {
+    boolean bOverrides = false;
+    for (final String sLonghand : aLonghands)
+      if (aOtherLonghands.contains (sLonghand))
+      {
+        aOverridden.add (sLonghand);
+        bOverrides = true;
+      }
+    if (bOverrides)
+      aOverriding.add (aOther);
+  }
+
+  /**
+   * Remove all dead declarations from the passed declaration block, keeping
+   * fallback declarations.
+   *
+   * @param aHasDeclarations
+   *        The declaration block to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one declaration was removed.
+   */
+  @Nonnull
+  public static EChange removeDeadDeclarations (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+  {
+    return removeDeadDeclarations (aHasDeclarations, DEFAULT_KEEP_FALLBACKS);
+  }
+
+  /**
+   * Remove all dead declarations from the passed declaration block.
+   *
+   * @param aHasDeclarations
+   *        The declaration block to be modified. May not be <code>null</code>.
+   * @param bKeepFallbacks
+   *        <code>true</code> to keep declarations that may be intentional
+   *        fallbacks for later declarations, <code>false</code> to remove them
+   *        as well.
+   * @return {@link EChange#CHANGED} if at least one declaration was removed.
+   */
+  @Nonnull
+  public static EChange removeDeadDeclarations (@Nonnull final IHasCSSDeclarations aHasDeclarations,
+                                                final boolean bKeepFallbacks)
+  {
+    ValueEnforcer.notNull (aHasDeclarations, "HasDeclarations");
+
+    EChange eChange = EChange.UNCHANGED;
+    final List <CSSDeclaration> aDeclarations = aHasDeclarations.getAllDeclarations ();
+    // All later declarations that are kept, and the longhands they set
+    final List <CSSDeclaration> aAlive = new ArrayList <CSSDeclaration> ();
+    final List <Set <String>> aAliveLonghands = new ArrayList <Set <String>> ();
+    for (int nIndex = aDeclarations.size () - 1; nIndex >= 0; --nIndex)
+    {
+      final CSSDeclaration aDeclaration = aDeclarations.get (nIndex);
+      final Set <String> aLonghands = getAllLonghands (aDeclaration.getProperty ());
+
+      // Find all later declarations with at least the same priority and all
+      // earlier !important declarations that override at least one longhand
+      final Set <String> aOverridden = new HashSet <String> ();
+      final List <CSSDeclaration> aOverriding = new ArrayList <CSSDeclaration> ();
+      for (int i = 0; i < aAlive.size (); ++i)
+      {
+        final CSSDeclaration aLater = aAlive.get (i);
+        if (aLater.isImportant () || !aDeclaration.isImportant ())
+          _addOverriding (aLonghands, aLater, aAliveLonghands.get (i), aOverridden, aOverriding);
+      }
+      if (!aDeclaration.isImportant ())
+        for (int i = 0; i < nIndex; ++i)
+        {
+          final CSSDeclaration aEarlier = aDeclarations.get (i);
+          if (aEarlier.isImportant ())
+            _addOverriding (aLonghands,
+                            aEarlier,
+                            getAllLonghands (aEarlier.getProperty ()),
+                            aOverridden,
+                            aOverriding);
+        }
+
+      boolean bDead = aOverridden.size () == aLonghands.size ();
+      if (bDead && _isIncompleteShortHand (aDeclaration))
+        bDead = _containsSameProperty (aDeclaration, aOverriding);
+      if (bDead && bKeepFallbacks)
+        for (final CSSDeclaration aOther : aOverriding)
+          if (isPossibleFallback (aDeclaration, aOther))
+          {
+            bDead = false;
+            break;
+          }
+
+      if (bDead)
+      {
+        aHasDeclarations.removeDeclaration (nIndex);
+        eChange = EChange.CHANGED;
+      }
+      else
+      {
+        aAlive.add (aDeclaration);
+        aAliveLonghands.add (aLonghands);
+      }
+    }
+    return eChange;
+  }
+
+  @NotThreadSafe
+  private static final class EliminatingVisitor extends DefaultCSSVisitor
+  {
+    private final boolean m_bKeepFallbacks;
+    private EChange m_eChange = EChange.UNCHANGED;
+
+    EliminatingVisitor (final boolean bKeepFallbacks)
+    {
+      m_bKeepFallbacks = bKeepFallbacks;
+    }
+
+    private void _onDeclarations (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+    {
+      m_eChange = m_eChange.or (removeDeadDeclarations (aHasDeclarations, m_bKeepFallbacks));
+    }
+
+    @Override
+    public void onBeginStyleRule (@Nonnull final CSSStyleRule aStyleRule)
+    {
+      _onDeclarations (aStyleRule);
+    }
+
+    @Override
+    public void onBeginPageRule (@Nonnull final CSSPageRule aPageRule)
+    {
+      _onDeclarations (aPageRule);
+    }
+
+    @Override
+    public void onBeginFontFaceRule (@Nonnull final CSSFontFaceRule aFontFaceRule)
+    {
+      _onDeclarations (aFontFaceRule);
+    }
+
+    @Override
+    public void onBeginKeyframesBlock (@Nonnull final CSSKeyframesBlock aKeyframesBlock)
+    {
+      _onDeclarations (aKeyframesBlock);
+    }
+
+    @Override
+    public void onBeginViewportRule (@Nonnull final CSSViewportRule aViewportRule)
+    {
+      _onDeclarations (aViewportRule);
+    }
+  }
+
+  /**
+   * Remove all dead declarations from all declaration blocks of the passed
+   * style sheet, keeping fallback declarations.
+   *
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one declaration was removed.
+   */
+  @Nonnull
+  public static EChange removeDeadDeclarations (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    return removeDeadDeclarations (aCSS, DEFAULT_KEEP_FALLBACKS);
+  }
+
+  /**
+   * Remove all dead declarations from all declaration blocks of the passed
+   * style sheet.
+   *
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param bKeepFallbacks
+   *        <code>true</code> to keep declarations that may be intentional
+   *        fallbacks for later declarations, <code>false</code> to remove them
+   *        as well.
+   * @return {@link EChange#CHANGED} if at least one declaration was removed.
+   */
+  @Nonnull
+  public static EChange removeDeadDeclarations (@Nonnull final CascadingStyleSheet aCSS, final boolean bKeepFallbacks)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final EliminatingVisitor aVisitor = new EliminatingVisitor (bKeepFallbacks);
+    CSSVisitor.visitCSS (aCSS, aVisitor);
+    return aVisitor.m_eChange;
+  }
+}
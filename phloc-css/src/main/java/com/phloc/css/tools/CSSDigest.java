@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * An immutable 128 bit digest of a CSS object. Use {@link CSSDigestHelper} to
+ * create instances.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSDigest implements Serializable
+{
+  /** The number of bytes of a digest */
+  public static final int DIGEST_BYTES = 16;
+
+  private final long m_nHigh;
+  private final long m_nLow;
+
+  public CSSDigest (final long nHigh, final long nLow)
+  {
+    m_nHigh = nHigh;
+    m_nLow = nLow;
+  }
+
+  /**
+   * @return The upper 64 bit of the digest.
+   */
+  public long getHigh ()
+  {
+    return m_nHigh;
+  }
+
+  /**
+   * @return The lower 64 bit of the digest.
+   */
+  public long getLow ()
+  {
+    return m_nLow;
+  }
+
+  /**
+   * @return The digest as a 32 character lower case hex string. Neither
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getAsHexString ()
+  {
+    final String sHigh = Long.toHexString (m_nHigh);
+    final String sLow = Long.toHexString (m_nLow);
+    final StringBuilder aSB = new StringBuilder (DIGEST_BYTES * 2);
+    for (int i = sHigh.length (); i < DIGEST_BYTES; ++i)
+      aSB.append ('0');
+    aSB.append (sHigh);
+    for (int i = sLow.length (); i < DIGEST_BYTES; ++i)
+      aSB.append ('0');
+    return aSB.append (sLow).toString ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CSSDigest rhs = (CSSDigest) o;
+    return m_nHigh == rhs.m_nHigh && m_nLow == rhs.m_nLow;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_nHigh).append (m_nLow).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("digest", getAsHexString ()).toString ();
+  }
+
+  /**
+   * Create a new digest from the passed bytes.
+   * 
+   * @param aBytes
+   *        The digest bytes. Must have exactly {@value #DIGEST_BYTES} bytes.
+   * @return The new digest. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSDigest createFromBytes (@Nonnull final byte [] aBytes)
+  {
+    ValueEnforcer.notNull (aBytes, "Bytes");
+    if (aBytes.length != DIGEST_BYTES)
+      throw new IllegalArgumentException ("Expected " + DIGEST_BYTES + " bytes but got " + aBytes.length);
+
+    long nHigh = 0;
+    long nLow = 0;
+    for (int i = 0; i < 8; ++i)
+    {
+      nHigh = (nHigh << 8) | (aBytes[i] & 0xff);
+      nLow = (nLow << 8) | (aBytes[i + 8] & 0xff);
+    }
+    return new CSSDigest (nHigh, nLow);
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.messagedigest.EMessageDigestAlgorithm;
+import com.phloc.commons.messagedigest.MessageDigestGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.decl.CSSImportRule;
+import com.phloc.css.decl.CSSModificationCounter;
+import com.phloc.css.decl.CSSNamespaceRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSModificationCount;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Create stable digests of CSS objects. In contrast to
+ * {@link Object#hashCode()} the digests are based on the canonical (optimized
+ * CSS 3.0) textual representation of an object and are therefore identical
+ * across different JVM runs and independent of the formatting of the original
+ * source. This makes them usable to detect duplicate or changed rules across
+ * style sheets.<br>
+ * The digests of all objects implementing {@link IHasCSSModificationCount}
+ * (e.g. all rules and style sheets) are cached, until the object or anything
+ * contained in it is modified (see
+ * {@link IHasCSSModificationCount#getDeepModificationCount()}). So asking for
+ * the digest of an unmodified object does not render it again.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@ThreadSafe
+public final class CSSDigestHelper
+{
+  /** The maximum number of objects for which the digests are cached */
+  public static final int MAX_CACHE_SIZE = 10000;
+
+  private static final ICSSWriterSettings CANONICAL_SETTINGS = new CSSWriterSettings (ECSSVersion.LATEST, true);
+
+  // FNV-1a 64 bit constants
+  private static final long FNV64_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV64_PRIME = 0x100000001b3L;
+
+  // Separator between the different rules of a style sheet
+  private static final char RULE_SEPARATOR = '\n';
+
+  /**
+   * Identity key: a weak reference to the live object, so that cached digests
+   * never keep an object alive. Keys of collected objects are enqueued in
+   * {@link CSSDigestHelper#s_aQueue}.
+   */
+  private static final class IdentityKey extends WeakReference <Object>
+  {
+    private final int m_nHashCode;
+
+    IdentityKey (@Nonnull final Object aObject, @Nullable final ReferenceQueue <Object> aQueue)
+    {
+      super (aObject, aQueue);
+      m_nHashCode = System.identityHashCode (aObject);
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof IdentityKey))
+        return false;
+      final Object aObject = get ();
+      return aObject != null && aObject == ((IdentityKey) o).get ();
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The digests of an object, valid as long as the deep modification count of
+   * the object did not change.
+   */
+  @Immutable
+  private static final class Digests
+  {
+    private final long m_nModificationCount;
+    private final long m_nDigest64;
+    private final CSSDigest m_aDigest128;
+
+    Digests (final long nModificationCount, final long nDigest64, @Nonnull final CSSDigest aDigest128)
+    {
+      m_nModificationCount = nModificationCount;
+      m_nDigest64 = nDigest64;
+      m_aDigest128 = aDigest128;
+    }
+  }
+
+  /**
+   * A map that evicts the eldest entries if the maximum size is exceeded.
+   */
+  private static final class BoundedMap <K, V> extends LinkedHashMap <K, V>
+  {
+    private final int m_nMaxSize;
+
+    BoundedMap (@Nonnegative final int nMaxSize)
+    {
+      m_nMaxSize = nMaxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry (final Map.Entry <K, V> aEldest)
+    {
+      return size () > m_nMaxSize;
+    }
+  }
+
+  private static final ReadWriteLock s_aRWLock = new ReentrantReadWriteLock ();
+  @GuardedBy ("s_aRWLock")
+  private static final Map <IdentityKey, Digests> s_aCache = new BoundedMap <IdentityKey, Digests> (MAX_CACHE_SIZE);
+  @GuardedBy ("s_aRWLock")
+  private static final ReferenceQueue <Object> s_aQueue = new ReferenceQueue <Object> ();
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSDigestHelper s_aInstance = new CSSDigestHelper ();
+
+  private CSSDigestHelper ()
+  {}
+
+  /**
+   * Get the canonical textual representation of the passed object, on which
+   * all digests are based.
+   * 
+   * @param aObject
+   *        The object to use. May not be <code>null</code>.
+   * @return The canonical representation. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getCanonicalCSS (@Nonnull final ICSSWriteable aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    return aObject.getAsCSSString (CANONICAL_SETTINGS, 0);
+  }
+
+  @Nonnull
+  private static String _getCanonicalCSS (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (final CSSImportRule aImportRule : aCSS.getAllImportRules ())
+      aSB.append (getCanonicalCSS (aImportRule)).append (RULE_SEPARATOR);
+    for (final CSSNamespaceRule aNamespaceRule : aCSS.getAllNamespaceRules ())
+      aSB.append (getCanonicalCSS (aNamespaceRule)).append (RULE_SEPARATOR);
+    for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+      aSB.append (getCanonicalCSS (aRule)).append (RULE_SEPARATOR);
+    return aSB.toString ();
+  }
+
+  private static long _fnv64 (@Nonnull final String s)
+  {
+    long ret = FNV64_OFFSET_BASIS;
+    final int nLength = s.length ();
+    for (int i = 0; i < nLength; ++i)
+    {
+      final char c = s.charAt (i);
+      ret = (ret ^ (c & 0xff)) * FNV64_PRIME;
+      ret = (ret ^ (c >>> 8)) * FNV64_PRIME;
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static CSSDigest _md5 (@Nonnull final String s)
+  {
+    final MessageDigestGenerator aGenerator = new MessageDigestGenerator (EMessageDigestAlgorithm.MD5);
+    aGenerator.update (s, CCharset.CHARSET_UTF_8_OBJ);
+    return CSSDigest.createFromBytes (aGenerator.getDigest ());
+  }
+
+  @Nonnull
+  private static Digests _getDigests (@Nonnull final Object aObject)
+  {
+    final boolean bCacheable = aObject instanceof IHasCSSModificationCount;
+    final long nModificationCount = bCacheable ? ((IHasCSSModificationCount) aObject).getDeepModificationCount ()
+                                               : CSSModificationCounter.ILLEGAL_MODIFICATION_COUNT;
+    final IdentityKey aKey = bCacheable ? new IdentityKey (aObject, null) : null;
+    if (bCacheable)
+    {
+      s_aRWLock.readLock ().lock ();
+      try
+      {
+        final Digests aDigests = s_aCache.get (aKey);
+        if (aDigests != null && aDigests.m_nModificationCount == nModificationCount)
+          return aDigests;
+      }
+      finally
+      {
+        s_aRWLock.readLock ().unlock ();
+      }
+    }
+
+    final String sCanonical = aObject instanceof CascadingStyleSheet ? _getCanonicalCSS ((CascadingStyleSheet) aObject)
+                                                                     : getCanonicalCSS ((ICSSWriteable) aObject);
+    final Digests aDigests = new Digests (nModificationCount, _fnv64 (sCanonical), _md5 (sCanonical));
+    if (bCacheable)
+    {
+      s_aRWLock.writeLock ().lock ();
+      try
+      {
+        // Remove the entries of all collected objects
+        Reference <? extends Object> aCollected;
+        while ((aCollected = s_aQueue.poll ()) != null)
+          s_aCache.remove (aCollected);
+        s_aCache.put (new IdentityKey (aObject, s_aQueue), aDigests);
+      }
+      finally
+      {
+        s_aRWLock.writeLock ().unlock ();
+      }
+    }
+    return aDigests;
+  }
+
+  /**
+   * Get the 64 bit FNV-1a digest of the passed object (e.g. a
+   * {@link ICSSTopLevelRule}). It is shorter than
+   * {@link #getDigest128(ICSSWriteable)} but has a higher probability of
+   * collisions.
+   * 
+   * @param aObject
+   *        The object to create the digest from. May not be <code>null</code>.
+   * @return The 64 bit digest.
+   */
+  public static long getDigest64 (@Nonnull final ICSSWriteable aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    return _getDigests (aObject).m_nDigest64;
+  }
+
+  /**
+   * Get the 64 bit FNV-1a digest of the passed style sheet.
+   * 
+   * @param aCSS
+   *        The style sheet to create the digest from. May not be
+   *        <code>null</code>.
+   * @return The 64 bit digest.
+   */
+  public static long getDigest64 (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    return _getDigests (aCSS).m_nDigest64;
+  }
+
+  /**
+   * Get the 128 bit (MD5) digest of the passed object (e.g. a
+   * {@link ICSSTopLevelRule}).
+   * 
+   * @param aObject
+   *        The object to create the digest from. May not be <code>null</code>.
+   * @return The 128 bit digest. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSDigest getDigest128 (@Nonnull final ICSSWriteable aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    return _getDigests (aObject).m_aDigest128;
+  }
+
+  /**
+   * Get the 128 bit (MD5) digest of the passed style sheet.
+   * 
+   * @param aCSS
+   *        The style sheet to create the digest from. May not be
+   *        <code>null</code>.
+   * @return The 128 bit digest. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSDigest getDigest128 (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    return _getDigests (aCSS).m_aDigest128;
+  }
+}
@@ -0,0 +1,468 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesRule;
+import com.phloc.css.decl.CSSMediaExpression;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSSupportsRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSSupportsConditionMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSTopLevelRules;
+import com.phloc.css.media.ECSSMedium;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Groups <code>@media</code> rules with identical media query lists (and
+ * <code>@supports</code> rules with identical conditions) into one rule. This
+ * mainly helps with the output of component based builds, that contain the
+ * same <code>@media</code> block many times.
+ * <p>
+ * Moving rules is only cascade-safe, if the moved rules don't declare a
+ * property of the same family (see
+ * {@link CSSCompressionNormalizer#getPropertyFamily(String)}) as the rules
+ * they are moved across. Two rules with the same condition are merged into
+ * the later rule if the content of the earlier rule may be moved down, or into
+ * the earlier rule if the content of the later rule may be moved up. If
+ * neither is possible, both rules are kept. <code>@font-face</code>,
+ * <code>@keyframes</code>, <code>@page</code> and <code>@viewport</code> rules
+ * are only considered to conflict with rules of the same type. Unknown rules
+ * are never moved across.
+ * <p>
+ * Nested rules are processed recursively, and nested rules that have the same
+ * condition as an enclosing rule are unwrapped.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSMediaRuleMerger
+{
+  private static final CSSWriterSettings s_aSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSMediaRuleMerger s_aInstance = new CSSMediaRuleMerger ();
+
+  private CSSMediaRuleMerger ()
+  {}
+
+  @Nonnull
+  private static String _getNormalizedMediaQuery (@Nonnull final CSSMediaQuery aMediaQuery)
+  {
+    // The order of the expressions is irrelevant
+    final List <String> aExpressions = new ArrayList <String> ();
+    for (final CSSMediaExpression aMediaExpression : aMediaQuery.getAllMediaExpressions ())
+    {
+      String sExpression = "(" + aMediaExpression.getFeature ();
+      if (aMediaExpression.getValue () != null)
+        sExpression += ":" + aMediaExpression.getValue ().getAsCSSString (s_aSettings, 0);
+      aExpressions.add (sExpression.toLowerCase (Locale.US) + ")");
+    }
+    Collections.sort (aExpressions);
+
+    String sMedium = aMediaQuery.getMedium ();
+    if (sMedium != null)
+    {
+      sMedium = sMedium.toLowerCase (Locale.US);
+      // "all and (x)" is the same as "(x)"
+      if (sMedium.equals (ECSSMedium.ALL.getName ()) && !aMediaQuery.isNot () && !aExpressions.isEmpty ())
+        sMedium = null;
+    }
+    if (sMedium != null)
+      aExpressions.add (0, sMedium);
+    return aMediaQuery.getModifier ().getCSSText () + StringHelper.getImploded (" and ", aExpressions);
+  }
+
+  /**
+   * Get the normalized form of the passed media query list. Two media query
+   * lists with the same normalized form match exactly the same devices. The
+   * normalization ignores case, whitespace, the order of the media queries
+   * and the order of the media expressions.
+   * 
+   * @param aMediaQueries
+   *        The media query list to normalize. May not be <code>null</code>.
+   * @return The normalized media query list. Never <code>null</code> but
+   *         maybe empty.
+   */
+  @Nonnull
+  public static String getNormalizedMediaQueryList (@Nonnull final List <CSSMediaQuery> aMediaQueries)
+  {
+    ValueEnforcer.notNull (aMediaQueries, "MediaQueries");
+
+    final Set <String> aNormalized = new TreeSet <String> ();
+    for (final CSSMediaQuery aMediaQuery : aMediaQueries)
+      aNormalized.add (_getNormalizedMediaQuery (aMediaQuery));
+    return StringHelper.getImploded (',', aNormalized);
+  }
+
+  /**
+   * @return The grouping key of the passed rule or <code>null</code> if the
+   *         rule cannot be grouped.
+   */
+  @Nullable
+  private static String _getGroupingKey (@Nonnull final ICSSTopLevelRule aRule)
+  {
+    if (aRule instanceof CSSMediaRule)
+      return "@media " + getNormalizedMediaQueryList (((CSSMediaRule) aRule).getAllMediaQueries ());
+    if (aRule instanceof CSSSupportsRule)
+    {
+      final StringBuilder aSB = new StringBuilder ("@supports");
+      for (final ICSSSupportsConditionMember aMember : ((CSSSupportsRule) aRule).getAllSupportConditionMembers ())
+        aSB.append (' ').append (aMember.getAsCSSString (s_aSettings, 0));
+      return aSB.toString ();
+    }
+    return null;
+  }
+
+  /**
+   * @return The name of the passed at-rule, if it never applies declarations
+   *         to elements, <code>null</code> otherwise.
+   */
+  @Nullable
+  private static String _getIndependentAtRuleName (@Nonnull final ICSSTopLevelRule aRule)
+  {
+    if (aRule instanceof CSSFontFaceRule)
+      return "@font-face";
+    if (aRule instanceof CSSKeyframesRule)
+      return "@keyframes";
+    if (aRule instanceof CSSPageRule)
+      return "@page";
+    if (aRule instanceof CSSViewportRule)
+      return "@viewport";
+    return null;
+  }
+
+  /**
+   * Add everything the passed rule may influence to the passed set: the
+   * property families of all declarations and the names of other at-rules.
+   * 
+   * @return <code>false</code> if the rule may influence everything.
+   */
+  private static boolean _addFootprint (@Nonnull final ICSSTopLevelRule aRule, @Nonnull final Set <String> aFootprint)
+  {
+    if (aRule instanceof CSSStyleRule)
+    {
+      for (final CSSDeclaration aDeclaration : ((CSSStyleRule) aRule).getAllDeclarations ())
+      {
+        final String sFamily = CSSCompressionNormalizer.getPropertyFamily (aDeclaration.getProperty ());
+        if (sFamily == null)
+          return false;
+        aFootprint.add (sFamily);
+      }
+      return true;
+    }
+    if (aRule instanceof IHasCSSTopLevelRules)
+    {
+      for (final ICSSTopLevelRule aNestedRule : ((IHasCSSTopLevelRules) aRule).getAllRules ())
+        if (!_addFootprint (aNestedRule, aFootprint))
+          return false;
+      return true;
+    }
+    final String sAtRule = _getIndependentAtRuleName (aRule);
+    if (sAtRule == null)
+      return false;
+    aFootprint.add (sAtRule);
+    return true;
+  }
+
+  @Nullable
+  private static Set <String> _getFootprint (@Nonnull final ICSSTopLevelRule aRule,
+                                             @Nonnull final Map <ICSSTopLevelRule, Set <String>> aCache)
+  {
+    if (aCache.containsKey (aRule))
+      return aCache.get (aRule);
+    Set <String> ret = new HashSet <String> ();
+    if (!_addFootprint (aRule, ret))
+      ret = null;
+    aCache.put (aRule, ret);
+    return ret;
+  }
+
+  private static boolean _isDisjoint (@Nonnull final Set <String> aSet1, @Nonnull final Set <String> aSet2)
+  {
+    for (final String s : aSet1)
+      if (aSet2.contains (s))
+        return false;
+    return true;
+  }
+
+  /**
+   * Check if the content of the rule at one index may be moved across all
+   * rules up to the other index (both exclusive).
+   */
+  private static boolean _canMove (@Nonnull final List <ICSSTopLevelRule> aRules,
+                                   final int nStartIndex,
+                                   final int nEndIndex,
+                                   @Nullable final Set <String> aFootprint,
+                                   @Nonnull final Map <ICSSTopLevelRule, Set <String>> aCache)
+  {
+    if (aFootprint == null)
+      return false;
+    for (int i = nStartIndex + 1; i < nEndIndex; ++i)
+    {
+      final ICSSTopLevelRule aRule = aRules.get (i);
+      if (aRule == null)
+        continue;
+      final Set <String> aOtherFootprint = _getFootprint (aRule, aCache);
+      if (aOtherFootprint == null || !_isDisjoint (aFootprint, aOtherFootprint))
+        return false;
+    }
+    return true;
+  }
+
+  @Nonnull
+  private static EChange _setRules (@Nonnull final IHasCSSTopLevelRules aRules,
+                                    @Nonnull final List <ICSSTopLevelRule> aNewRules)
+  {
+    aRules.removeAllRules ();
+    for (final ICSSTopLevelRule aRule : aNewRules)
+      if (aRule != null)
+        aRules.addRule (aRule);
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Add the passed rule to the passed list, and replace all rules that have
+   * the same condition as an enclosing rule with their content.
+   */
+  private static boolean _addUnwrapped (@Nonnull final ICSSTopLevelRule aRule,
+                                        @Nonnull final Set <String> aEnclosingKeys,
+                                        @Nonnull final List <ICSSTopLevelRule> aTarget)
+  {
+    final String sKey = _getGroupingKey (aRule);
+    if (sKey == null || !aEnclosingKeys.contains (sKey))
+    {
+      aTarget.add (aRule);
+      return false;
+    }
+    for (final ICSSTopLevelRule aNestedRule : ((IHasCSSTopLevelRules) aRule).getAllRules ())
+      _addUnwrapped (aNestedRule, aEnclosingKeys, aTarget);
+    return true;
+  }
+
+  @Nonnull
+  private static EChange _mergeMediaRules (@Nonnull final IHasCSSTopLevelRules aRules,
+                                           @Nonnull final Set <String> aEnclosingKeys)
+  {
+    // Removed rules are replaced with null
+    final List <ICSSTopLevelRule> aWorkRules = new ArrayList <ICSSTopLevelRule> ();
+    boolean bChanged = false;
+    for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+      if (_addUnwrapped (aRule, aEnclosingKeys, aWorkRules))
+        bChanged = true;
+
+    final Map <String, Integer> aGroupIndex = new HashMap <String, Integer> ();
+    final Map <ICSSTopLevelRule, Set <String>> aFootprints = new IdentityHashMap <ICSSTopLevelRule, Set <String>> ();
+    for (int i = 0; i < aWorkRules.size (); ++i)
+    {
+      final ICSSTopLevelRule aRule = aWorkRules.get (i);
+      final String sKey = _getGroupingKey (aRule);
+      if (sKey == null)
+        continue;
+
+      final Integer aPrevIndex = aGroupIndex.get (sKey);
+      if (aPrevIndex != null)
+      {
+        final int nPrevIndex = aPrevIndex.intValue ();
+        final ICSSTopLevelRule aPrevRule = aWorkRules.get (nPrevIndex);
+        if (_canMove (aWorkRules, nPrevIndex, i, _getFootprint (aPrevRule, aFootprints), aFootprints))
+        {
+          // Move the content of the previous rule down into this rule
+          int nInsertIndex = 0;
+          for (final ICSSTopLevelRule aNestedRule : ((IHasCSSTopLevelRules) aPrevRule).getAllRules ())
+            ((IHasCSSTopLevelRules) aRule).addRule (nInsertIndex++, aNestedRule);
+          aWorkRules.set (nPrevIndex, null);
+          aFootprints.remove (aRule);
+          bChanged = true;
+        }
+        else
+          if (_canMove (aWorkRules, nPrevIndex, i, _getFootprint (aRule, aFootprints), aFootprints))
+          {
+            // Move the content of this rule up into the previous rule
+            for (final ICSSTopLevelRule aNestedRule : ((IHasCSSTopLevelRules) aRule).getAllRules ())
+              ((IHasCSSTopLevelRules) aPrevRule).addRule (aNestedRule);
+            aWorkRules.set (i, null);
+            aFootprints.remove (aPrevRule);
+            bChanged = true;
+            continue;
+          }
+      }
+      aGroupIndex.put (sKey, Integer.valueOf (i));
+    }
+
+    EChange eChange = bChanged ? _setRules (aRules, aWorkRules) : EChange.UNCHANGED;
+
+    // Process the content of the remaining rules
+    for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+    {
+      final String sKey = _getGroupingKey (aRule);
+      if (sKey != null)
+      {
+        final Set <String> aNestedEnclosingKeys = new HashSet <String> (aEnclosingKeys);
+        aNestedEnclosingKeys.add (sKey);
+        eChange = eChange.or (_mergeMediaRules ((IHasCSSTopLevelRules) aRule, aNestedEnclosingKeys));
+      }
+    }
+    return eChange;
+  }
+
+  /**
+   * Merge all <code>@media</code> rules with the same media query list and all
+   * <code>@supports</code> rules with the same condition where this is
+   * cascade-safe. Nested rules are processed recursively.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one rule was merged or
+   *         unwrapped.
+   */
+  @Nonnull
+  public static EChange mergeMediaRules (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    return _mergeMediaRules (aRules, new HashSet <String> ());
+  }
+
+  /**
+   * Move all <code>@media</code> rules to the end of the passed rule container
+   * where this is cascade-safe. The relative order of the moved rules is
+   * retained. This brings together media rules with the same media query list,
+   * so that they can be merged afterwards.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one rule was moved.
+   */
+  @Nonnull
+  public static EChange hoistMediaRules (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    final List <ICSSTopLevelRule> aOldRules = aRules.getAllRules ();
+    final List <ICSSTopLevelRule> aKept = new ArrayList <ICSSTopLevelRule> ();
+    final List <ICSSTopLevelRule> aHoisted = new ArrayList <ICSSTopLevelRule> ();
+    // Everything the kept rules after the current rule may influence
+    final Set <String> aFollowingFootprint = new HashSet <String> ();
+    boolean bFollowingUnknown = false;
+    for (int i = aOldRules.size () - 1; i >= 0; --i)
+    {
+      final ICSSTopLevelRule aRule = aOldRules.get (i);
+      final Set <String> aFootprint = new HashSet <String> ();
+      final boolean bKnown = _addFootprint (aRule, aFootprint);
+      if (aRule instanceof CSSMediaRule &&
+          bKnown &&
+          !bFollowingUnknown &&
+          _isDisjoint (aFootprint, aFollowingFootprint))
+        aHoisted.add (0, aRule);
+      else
+      {
+        aKept.add (0, aRule);
+        if (bKnown)
+          aFollowingFootprint.addAll (aFootprint);
+        else
+          bFollowingUnknown = true;
+      }
+    }
+
+    final List <ICSSTopLevelRule> aNewRules = new ArrayList <ICSSTopLevelRule> (aKept);
+    aNewRules.addAll (aHoisted);
+    if (aNewRules.equals (aOldRules))
+      return EChange.UNCHANGED;
+    return _setRules (aRules, aNewRules);
+  }
+
+  /**
+   * Optionally hoist all <code>@media</code> rules to the end and then merge
+   * all <code>@media</code> and <code>@supports</code> rules with the same
+   * condition.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @param bHoistToEnd
+   *        <code>true</code> to move the <code>@media</code> rules to the end
+   *        of the rule container first where this is cascade-safe.
+   * @return {@link EChange#CHANGED} if anything was changed.
+   * @see #hoistMediaRules(IHasCSSTopLevelRules)
+   * @see #mergeMediaRules(IHasCSSTopLevelRules)
+   */
+  @Nonnull
+  public static EChange optimize (@Nonnull final IHasCSSTopLevelRules aRules, final boolean bHoistToEnd)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    final EChange eChange = bHoistToEnd ? hoistMediaRules (aRules) : EChange.UNCHANGED;
+    return eChange.or (mergeMediaRules (aRules));
+  }
+
+  /**
+   * Optimize the passed style sheet and determine the number of bytes saved.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param aSettings
+   *        The writer settings that are used to determine the serialized size
+   *        of the style sheet. May not be <code>null</code>.
+   * @param bHoistToEnd
+   *        <code>true</code> to move the <code>@media</code> rules to the end
+   *        of the style sheet first where this is cascade-safe.
+   * @return The minification result. Never <code>null</code>.
+   * @see #optimize(IHasCSSTopLevelRules, boolean)
+   */
+  @Nonnull
+  public static CSSMinificationResult optimize (@Nonnull final CascadingStyleSheet aCSS,
+                                                @Nonnull final CSSWriterSettings aSettings,
+                                                final boolean bHoistToEnd)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final long nOriginalBytes = CSSStructuralMinifier.getSerializedSize (aCSS, aSettings);
+    if (optimize ((IHasCSSTopLevelRules) aCSS, bHoistToEnd).isUnchanged ())
+      return new CSSMinificationResult (nOriginalBytes, nOriginalBytes);
+    return new CSSMinificationResult (nOriginalBytes, CSSStructuralMinifier.getSerializedSize (aCSS, aSettings));
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.state.ETriState;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.decl.CSSImportRule;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSTopLevelRules;
+import com.phloc.css.media.CSSDeviceProfile;
+import com.phloc.css.media.CSSMediaQueryEvaluator;
+import com.phloc.css.media.ECSSMedium;
+
+/**
+ * Split a style sheet into separate style sheets per device profile, e.g. per
+ * responsive breakpoint. Each style sheet is pruned with a
+ * {@link CSSMediaQueryEvaluator}: <code>@media</code> rules and
+ * <code>@import</code> rules that can never match the profile are removed and
+ * the ones that always match are unwrapped. Media rules that depend on the
+ * concrete device are kept. Because rules are only removed or unwrapped in
+ * place, the cascade order of the remaining rules is unchanged.
+ * <p>
+ * The resulting style sheets can be served with
+ * <code>&lt;link rel="stylesheet" media="..."&gt;</code>, using
+ * {@link #getMediaQueryString(CSSDeviceProfile)} for the media attribute.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSMediaSplitter
+{
+  /**
+   * The offset between the maximum width of a breakpoint profile and the next
+   * breakpoint. This is the same approach that common CSS frameworks use to
+   * avoid gaps on devices with fractional viewport widths.
+   */
+  public static final double BREAKPOINT_MAX_OFFSET = 0.02;
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSMediaSplitter s_aInstance = new CSSMediaSplitter ();
+
+  private CSSMediaSplitter ()
+  {}
+
+  /**
+   * Create one device profile per viewport width range. For the breakpoints
+   * 768 and 1024 the ranges are 0-767.98, 768-1023.98 and 1024 and up.
+   * 
+   * @param eMedium
+   *        The medium of all profiles. May not be <code>null</code>.
+   * @param aBreakpoints
+   *        The minimum widths in CSS pixels, in ascending order. May not be
+   *        <code>null</code>.
+   * @return A list with one more profile than breakpoints. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static List <CSSDeviceProfile> createBreakpointProfiles (@Nonnull final ECSSMedium eMedium,
+                                                                  @Nonnull final double... aBreakpoints)
+  {
+    ValueEnforcer.notNull (eMedium, "Medium");
+    ValueEnforcer.notNull (aBreakpoints, "Breakpoints");
+
+    final List <CSSDeviceProfile> ret = new ArrayList <CSSDeviceProfile> ();
+    double dMin = 0;
+    for (final double dBreakpoint : aBreakpoints)
+    {
+      if (!(dBreakpoint > dMin))
+        throw new IllegalArgumentException ("The breakpoints must be positive and ascending: " + dBreakpoint);
+      ret.add (new CSSDeviceProfile ().setMedium (eMedium).setWidthRange (dMin, dBreakpoint - BREAKPOINT_MAX_OFFSET));
+      dMin = dBreakpoint;
+    }
+    ret.add (new CSSDeviceProfile ().setMedium (eMedium).setWidthRange (dMin, Double.POSITIVE_INFINITY));
+    return ret;
+  }
+
+  /**
+   * Get the media query that selects the devices of the passed profile. Only
+   * the medium and the viewport width range are considered.
+   * 
+   * @param aProfile
+   *        The profile to use. May not be <code>null</code>.
+   * @return The media query, e.g.
+   *         <code>screen and (min-width:768px) and (max-width:1023.98px)</code>
+   *         . Never <code>null</code>.
+   */
+  @Nonnull
+  @Nonempty
+  public static String getMediaQueryString (@Nonnull final CSSDeviceProfile aProfile)
+  {
+    ValueEnforcer.notNull (aProfile, "Profile");
+
+    final StringBuilder aSB = new StringBuilder (aProfile.getMedium ().getName ());
+    if (aProfile.getMinWidth () > 0)
+      aSB.append (" and (min-width:").append (ECSSUnit.PX.format (aProfile.getMinWidth ())).append (')');
+    if (aProfile.getMaxWidth () != Double.POSITIVE_INFINITY)
+      aSB.append (" and (max-width:").append (ECSSUnit.PX.format (aProfile.getMaxWidth ())).append (')');
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  private static EChange _prune (@Nonnull final IHasCSSTopLevelRules aRules,
+                                 @Nonnull final CSSMediaQueryEvaluator aEvaluator)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSTopLevelRule> aAllRules = aRules.getAllRules ();
+    for (int i = aAllRules.size () - 1; i >= 0; --i)
+    {
+      final ICSSTopLevelRule aRule = aAllRules.get (i);
+      if (aRule instanceof CSSMediaRule)
+      {
+        final CSSMediaRule aMediaRule = (CSSMediaRule) aRule;
+        final ETriState eMatch = aEvaluator.evaluateMediaQueries (aMediaRule.getAllMediaQueries ());
+        if (eMatch.isFalse ())
+        {
+          aRules.removeRule (i);
+          eChange = EChange.CHANGED;
+        }
+        else
+        {
+          final EChange eNestedChange = _prune (aMediaRule, aEvaluator);
+          eChange = eChange.or (eNestedChange);
+          if (eMatch.isTrue ())
+          {
+            // Replace the media rule with its content
+            aRules.removeRule (i);
+            int nIndex = i;
+            for (final ICSSTopLevelRule aNestedRule : aMediaRule.getAllRules ())
+              aRules.addRule (nIndex++, aNestedRule);
+            eChange = EChange.CHANGED;
+          }
+          else
+            if (eNestedChange.isChanged () && !aMediaRule.hasRules ())
+              aRules.removeRule (i);
+        }
+      }
+      else
+        if (aRule instanceof IHasCSSTopLevelRules)
+        {
+          final IHasCSSTopLevelRules aNestedRules = (IHasCSSTopLevelRules) aRule;
+          if (_prune (aNestedRules, aEvaluator).isChanged ())
+          {
+            eChange = EChange.CHANGED;
+            if (!aNestedRules.hasRules ())
+              aRules.removeRule (i);
+          }
+        }
+    }
+    return eChange;
+  }
+
+  /**
+   * Prune the passed style sheet for the passed device profile.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param aProfile
+   *        The device profile to use. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was modified.
+   */
+  @Nonnull
+  public static EChange prune (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final CSSDeviceProfile aProfile)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aProfile, "Profile");
+
+    final CSSMediaQueryEvaluator aEvaluator = new CSSMediaQueryEvaluator (aProfile);
+    EChange eChange = EChange.UNCHANGED;
+    final List <CSSImportRule> aImportRules = aCSS.getAllImportRules ();
+    for (int i = aImportRules.size () - 1; i >= 0; --i)
+    {
+      final CSSImportRule aImportRule = aImportRules.get (i);
+      final ETriState eMatch = aEvaluator.evaluateMediaQueries (aImportRule.getAllMediaQueries ());
+      if (eMatch.isFalse ())
+        eChange = eChange.or (aCSS.removeImportRule (i));
+      else
+        if (eMatch.isTrue ())
+          eChange = eChange.or (aImportRule.removeAllMediaQueries ());
+    }
+    return eChange.or (_prune (aCSS, aEvaluator));
+  }
+
+  /**
+   * Create a pruned copy of the passed style sheet for each passed device
+   * profile. The source style sheet is not modified.
+   * 
+   * @param aCSS
+   *        The source style sheet. May not be <code>null</code>.
+   * @param aProfiles
+   *        The device profiles to use. May not be <code>null</code>.
+   * @return A map from profile to pruned style sheet in the order of the
+   *         profiles. Never <code>null</code>.
+   * @see #createBreakpointProfiles(ECSSMedium, double...)
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static Map <CSSDeviceProfile, CascadingStyleSheet> split (@Nonnull final CascadingStyleSheet aCSS,
+                                                                   @Nonnull final Iterable <CSSDeviceProfile> aProfiles)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aProfiles, "Profiles");
+
+    final Map <CSSDeviceProfile, CascadingStyleSheet> ret = ContainerHelper.newOrderedMap ();
+    for (final CSSDeviceProfile aProfile : aProfiles)
+    {
+      final CascadingStyleSheet aClone = aCSS.getClone ();
+      prune (aClone, aProfile);
+      ret.put (aProfile, aClone);
+    }
+    return ret;
+  }
+}
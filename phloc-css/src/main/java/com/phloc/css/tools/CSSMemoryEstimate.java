@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.decl.ICSSTopLevelRule;
+
+/**
+ * The result of {@link CSSMemoryEstimator#estimate(com.phloc.css.decl.CascadingStyleSheet)}
+ * . It contains the estimated retained heap size of a style sheet, of each of
+ * its top-level rules and a breakdown by rule type.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSMemoryEstimate
+{
+  private final long m_nTotalBytes;
+  private final long m_nStyleSheetBytes;
+  private final List <Long> m_aRuleBytes;
+  private final Map <Class <? extends ICSSTopLevelRule>, Long> m_aBytesPerRuleType;
+  private final Map <Class <? extends ICSSTopLevelRule>, Integer> m_aCountPerRuleType;
+
+  CSSMemoryEstimate (final long nStyleSheetBytes,
+                     @Nonnull final List <Long> aRuleBytes,
+                     @Nonnull final Map <Class <? extends ICSSTopLevelRule>, Long> aBytesPerRuleType,
+                     @Nonnull final Map <Class <? extends ICSSTopLevelRule>, Integer> aCountPerRuleType)
+  {
+    long nTotal = nStyleSheetBytes;
+    for (final Long aBytes : aRuleBytes)
+      nTotal += aBytes.longValue ();
+    m_nTotalBytes = nTotal;
+    m_nStyleSheetBytes = nStyleSheetBytes;
+    m_aRuleBytes = aRuleBytes;
+    m_aBytesPerRuleType = aBytesPerRuleType;
+    m_aCountPerRuleType = aCountPerRuleType;
+  }
+
+  /**
+   * @return The estimated number of bytes retained by the whole style sheet.
+   *         This is the sum of {@link #getStyleSheetBytes()} and all rule
+   *         bytes.
+   */
+  @Nonnegative
+  public long getTotalBytes ()
+  {
+    return m_nTotalBytes;
+  }
+
+  /**
+   * @return The estimated number of bytes retained by the style sheet object
+   *         itself, its lists and all import and namespace rules - everything
+   *         except the top-level rules.
+   */
+  @Nonnegative
+  public long getStyleSheetBytes ()
+  {
+    return m_nStyleSheetBytes;
+  }
+
+  /**
+   * @return The number of top-level rules that were estimated.
+   */
+  @Nonnegative
+  public int getRuleCount ()
+  {
+    return m_aRuleBytes.size ();
+  }
+
+  /**
+   * Get the estimated number of bytes retained by the top-level rule with the
+   * passed index.
+   * 
+   * @param nRuleIndex
+   *        The index of the top-level rule in the style sheet. Must be &ge; 0
+   *        and &lt; {@link #getRuleCount()}.
+   * @return The estimated number of bytes.
+   */
+  @Nonnegative
+  public long getRuleBytes (@Nonnegative final int nRuleIndex)
+  {
+    ValueEnforcer.isBetweenInclusive (nRuleIndex, "RuleIndex", 0, m_aRuleBytes.size () - 1);
+    return m_aRuleBytes.get (nRuleIndex).longValue ();
+  }
+
+  /**
+   * @return The estimated number of bytes of all top-level rules, in the
+   *         order of the rules. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <Long> getAllRuleBytes ()
+  {
+    return ContainerHelper.newList (m_aRuleBytes);
+  }
+
+  /**
+   * @return The estimated number of bytes of all top-level rules grouped by
+   *         the rule implementation class. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Map <Class <? extends ICSSTopLevelRule>, Long> getBytesPerRuleType ()
+  {
+    return ContainerHelper.newOrderedMap (m_aBytesPerRuleType);
+  }
+
+  /**
+   * @return The number of top-level rules grouped by the rule implementation
+   *         class. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Map <Class <? extends ICSSTopLevelRule>, Integer> getCountPerRuleType ()
+  {
+    return ContainerHelper.newOrderedMap (m_aCountPerRuleType);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("totalBytes", m_nTotalBytes)
+                                       .append ("styleSheetBytes", m_nStyleSheetBytes)
+                                       .append ("ruleCount", m_aRuleBytes.size ())
+                                       .append ("bytesPerRuleType", m_aBytesPerRuleType)
+                                       .toString ();
+  }
+}
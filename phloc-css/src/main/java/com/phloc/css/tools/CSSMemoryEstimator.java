@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+
+/**
+ * Estimate the retained heap memory of the CSS domain objects. The estimation
+ * is based on the memory layout of a 64 bit HotSpot JVM with compressed object
+ * pointers (the default for heaps smaller than 32GB): 12 byte object headers, 4
+ * byte references and 8 byte object alignment. Strings, lists, source
+ * locations and expressions are all taken into account. Objects that are
+ * reachable from more than one place (e.g. shared strings) are only counted
+ * once, where they are reached first. Enumeration constants are never counted
+ * as they are shared by all style sheets.
+ * <p>
+ * The estimates are accurate enough to be used as weights in a size based
+ * cache eviction policy, but they do not claim to be exact.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public final class CSSMemoryEstimator
+{
+  /** The assumed size of an object header */
+  public static final int OBJECT_HEADER_BYTES = 12;
+  /** The assumed size of an array header (object header plus length) */
+  public static final int ARRAY_HEADER_BYTES = 16;
+  /** The assumed size of an object reference */
+  public static final int REFERENCE_BYTES = 4;
+  /** The assumed object alignment */
+  public static final int OBJECT_ALIGNMENT = 8;
+
+  // The package whose objects are inspected field by field
+  private static final String CSS_PACKAGE_PREFIX = "com.phloc.css.";
+
+  // Initial capacity of an ArrayList after the first element was added
+  private static final int LIST_DEFAULT_CAPACITY = 10;
+
+  private static final boolean COMPACT_STRINGS = _isCompactStrings ();
+
+  /**
+   * The memory layout of a single class.
+   * 
+   * @author Philip Helger
+   */
+  private static final class ClassLayout
+  {
+    private final long m_nShallowBytes;
+    private final Field [] m_aReferenceFields;
+
+    ClassLayout (final long nShallowBytes, @Nonnull final Field [] aReferenceFields)
+    {
+      m_nShallowBytes = nShallowBytes;
+      m_aReferenceFields = aReferenceFields;
+    }
+  }
+
+  private static final ReadWriteLock s_aRWLock = new ReentrantReadWriteLock ();
+  @GuardedBy ("s_aRWLock")
+  private static final Map <Class <?>, ClassLayout> s_aLayouts = new HashMap <Class <?>, ClassLayout> ();
+
+  private final Map <Object, Boolean> m_aVisited = new IdentityHashMap <Object, Boolean> ();
+
+  private CSSMemoryEstimator ()
+  {}
+
+  private static boolean _isCompactStrings ()
+  {
+    try
+    {
+      // Java 9+ stores Latin1 strings in a byte array
+      return String.class.getDeclaredField ("value").getType () == byte [].class;
+    }
+    catch (final NoSuchFieldException ex)
+    {
+      return false;
+    }
+  }
+
+  private static long _align (final long nBytes)
+  {
+    return (nBytes + OBJECT_ALIGNMENT - 1) & ~(OBJECT_ALIGNMENT - 1);
+  }
+
+  private static int _getPrimitiveBytes (@Nonnull final Class <?> aType)
+  {
+    if (aType == long.class || aType == double.class)
+      return 8;
+    if (aType == int.class || aType == float.class)
+      return 4;
+    if (aType == short.class || aType == char.class)
+      return 2;
+    // byte and boolean
+    return 1;
+  }
+
+  @Nonnull
+  private static ClassLayout _createLayout (@Nonnull final Class <?> aClass)
+  {
+    final boolean bInspectFields = aClass.getName ().startsWith (CSS_PACKAGE_PREFIX);
+    long nBytes = OBJECT_HEADER_BYTES;
+    final List <Field> aReferenceFields = new ArrayList <Field> ();
+    Class <?> aCurClass = aClass;
+    while (aCurClass != null)
+    {
+      for (final Field aField : aCurClass.getDeclaredFields ())
+        if (!Modifier.isStatic (aField.getModifiers ()))
+        {
+          final Class <?> aType = aField.getType ();
+          if (aType.isPrimitive ())
+            nBytes += _getPrimitiveBytes (aType);
+          else
+          {
+            nBytes += REFERENCE_BYTES;
+            if (bInspectFields)
+            {
+              aField.setAccessible (true);
+              aReferenceFields.add (aField);
+            }
+          }
+        }
+      aCurClass = aCurClass.getSuperclass ();
+    }
+    return new ClassLayout (_align (nBytes), aReferenceFields.toArray (new Field [aReferenceFields.size ()]));
+  }
+
+  @Nonnull
+  private static ClassLayout _getLayout (@Nonnull final Class <?> aClass)
+  {
+    s_aRWLock.readLock ().lock ();
+    try
+    {
+      final ClassLayout ret = s_aLayouts.get (aClass);
+      if (ret != null)
+        return ret;
+    }
+    finally
+    {
+      s_aRWLock.readLock ().unlock ();
+    }
+
+    final ClassLayout ret = _createLayout (aClass);
+    s_aRWLock.writeLock ().lock ();
+    try
+    {
+      s_aLayouts.put (aClass, ret);
+    }
+    finally
+    {
+      s_aRWLock.writeLock ().unlock ();
+    }
+    return ret;
+  }
+
+  private static long _getArrayBytes (@Nonnegative final int nLength, @Nonnegative final int nElementBytes)
+  {
+    return _align (ARRAY_HEADER_BYTES + (long) nLength * nElementBytes);
+  }
+
+  private static long _getStringBytes (@Nonnull final String s)
+  {
+    final int nLength = s.length ();
+    int nCharBytes = 2;
+    if (COMPACT_STRINGS)
+    {
+      nCharBytes = 1;
+      for (int i = 0; i < nLength; ++i)
+        if (s.charAt (i) > 0xff)
+        {
+          nCharBytes = 2;
+          break;
+        }
+    }
+    return _getLayout (String.class).m_nShallowBytes + _getArrayBytes (nLength, nCharBytes);
+  }
+
+  @Nonnegative
+  private static int _getListCapacity (@Nonnegative final int nSize)
+  {
+    // An empty ArrayList shares a static empty array
+    if (nSize == 0)
+      return 0;
+    int ret = LIST_DEFAULT_CAPACITY;
+    while (ret < nSize)
+      ret += ret >> 1;
+    return ret;
+  }
+
+  private long _getBytes (@Nullable final Object aObject)
+  {
+    if (aObject == null || aObject instanceof Enum <?> || aObject instanceof Class <?>)
+      return 0;
+    if (m_aVisited.put (aObject, Boolean.TRUE) != null)
+    {
+      // Already counted
+      return 0;
+    }
+
+    if (aObject instanceof String)
+      return _getStringBytes ((String) aObject);
+
+    final ClassLayout aLayout = _getLayout (aObject.getClass ());
+    long ret = aLayout.m_nShallowBytes;
+    if (aObject instanceof List <?>)
+    {
+      // All lists in the domain model are ArrayLists
+      final List <?> aList = (List <?>) aObject;
+      ret += _getArrayBytes (_getListCapacity (aList.size ()), REFERENCE_BYTES);
+      for (final Object aElement : aList)
+        ret += _getBytes (aElement);
+    }
+    else
+      for (final Field aField : aLayout.m_aReferenceFields)
+      {
+        try
+        {
+          ret += _getBytes (aField.get (aObject));
+        }
+        catch (final IllegalAccessException ex)
+        {
+          throw new IllegalStateException ("Failed to access field " + aField, ex);
+        }
+      }
+    return ret;
+  }
+
+  /**
+   * Get the estimated retained heap size of an arbitrary CSS domain object
+   * (e.g. a top-level rule, a declaration or an expression) including all
+   * contained objects.
+   * 
+   * @param aObject
+   *        The object to estimate. May not be <code>null</code>.
+   * @return The estimated number of bytes.
+   */
+  @Nonnegative
+  public static long getEstimatedBytes (@Nonnull final Object aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    return new CSSMemoryEstimator ()._getBytes (aObject);
+  }
+
+  /**
+   * Estimate the retained heap size of the passed style sheet, of each of its
+   * top-level rules and per rule type.
+   * 
+   * @param aCSS
+   *        The style sheet to estimate. May not be <code>null</code>.
+   * @return The estimation result. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSMemoryEstimate estimate (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final CSSMemoryEstimator aEstimator = new CSSMemoryEstimator ();
+    final List <ICSSTopLevelRule> aRules = aCSS.getAllRules ();
+    final List <Long> aRuleBytes = new ArrayList <Long> (aRules.size ());
+    final Map <Class <? extends ICSSTopLevelRule>, Long> aBytesPerRuleType = new LinkedHashMap <Class <? extends ICSSTopLevelRule>, Long> ();
+    final Map <Class <? extends ICSSTopLevelRule>, Integer> aCountPerRuleType = new LinkedHashMap <Class <? extends ICSSTopLevelRule>, Integer> ();
+
+    // Rules first, so that the rules are not counted as part of the sheet
+    for (final ICSSTopLevelRule aRule : aRules)
+    {
+      final long nBytes = aEstimator._getBytes (aRule);
+      aRuleBytes.add (Long.valueOf (nBytes));
+
+      final Class <? extends ICSSTopLevelRule> aRuleClass = aRule.getClass ();
+      final Long aOldBytes = aBytesPerRuleType.get (aRuleClass);
+      aBytesPerRuleType.put (aRuleClass, Long.valueOf (aOldBytes == null ? nBytes : aOldBytes.longValue () + nBytes));
+      final Integer aOldCount = aCountPerRuleType.get (aRuleClass);
+      aCountPerRuleType.put (aRuleClass, Integer.valueOf (aOldCount == null ? 1 : aOldCount.intValue () + 1));
+    }
+
+    // The style sheet itself including import and namespace rules
+    final long nStyleSheetBytes = aEstimator._getBytes (aCSS);
+    return new CSSMemoryEstimate (nStyleSheetBytes, aRuleBytes, aBytesPerRuleType, aCountPerRuleType);
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * The result of a model level minification like
+ * {@link CSSStructuralMinifier#minify(com.phloc.css.decl.CascadingStyleSheet, com.phloc.css.writer.CSSWriterSettings)}
+ * . It contains the size of the serialized style sheet before and after the
+ * minification.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSMinificationResult
+{
+  private final long m_nOriginalBytes;
+  private final long m_nMinifiedBytes;
+
+  CSSMinificationResult (@Nonnegative final long nOriginalBytes, @Nonnegative final long nMinifiedBytes)
+  {
+    m_nOriginalBytes = ValueEnforcer.isGE0 (nOriginalBytes, "OriginalBytes");
+    m_nMinifiedBytes = ValueEnforcer.isGE0 (nMinifiedBytes, "MinifiedBytes");
+  }
+
+  /**
+   * @return The number of UTF-8 bytes of the serialized style sheet before the
+   *         minification.
+   */
+  @Nonnegative
+  public long getOriginalBytes ()
+  {
+    return m_nOriginalBytes;
+  }
+
+  /**
+   * @return The number of UTF-8 bytes of the serialized style sheet after the
+   *         minification.
+   */
+  @Nonnegative
+  public long getMinifiedBytes ()
+  {
+    return m_nMinifiedBytes;
+  }
+
+  /**
+   * @return The number of bytes saved by the minification. May be negative in
+   *         the unlikely case that the minification increased the size.
+   */
+  public long getBytesSaved ()
+  {
+    return m_nOriginalBytes - m_nMinifiedBytes;
+  }
+
+  /**
+   * @return <code>true</code> if the minification changed the size of the
+   *         serialized style sheet.
+   */
+  public boolean isSizeChanged ()
+  {
+    return m_nOriginalBytes != m_nMinifiedBytes;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("originalBytes", m_nOriginalBytes)
+                                       .append ("minifiedBytes", m_nMinifiedBytes)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,447 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSMetaUnit;
+import com.phloc.css.ECSSUnit;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberMath;
+import com.phloc.css.decl.CSSExpressionMemberMathProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitProduct;
+import com.phloc.css.decl.CSSExpressionMemberMathUnitSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSExpressionTermOptimizer;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMathMember;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.propertyvalue.CSSSimpleValueWithUnit;
+import com.phloc.css.utils.CSSNumberHelper;
+
+/**
+ * Rewrites numbers to their shortest lossless form:
+ * <ul>
+ * <li>Signs, leading and trailing zeros are removed (e.g. <code>+0.50</code>
+ * to <code>.5</code>, <code>10.0</code> to <code>10</code> and
+ * <code>-0.0</code> to <code>0</code>).</li>
+ * <li>Times and frequencies are converted to the unit with the shorter text
+ * (e.g. <code>500ms</code> to <code>.5s</code>).</li>
+ * <li>The unit of a zero length is dropped. A zero percentage is only
+ * replaced in properties where it is always equal to a zero length (like
+ * <code>margin</code> or <code>width</code>) and a zero angle is only
+ * replaced in the transform functions <code>rotate</code> and
+ * <code>skew</code>, where a unitless zero is explicitly allowed.</li>
+ * </ul>
+ * Within <code>calc()</code>, <code>min()</code>, <code>max()</code> and
+ * <code>clamp()</code> only the number format is changed and the unit
+ * conversion is applied, because a unitless zero would change the type of the
+ * expression. The same applies to the <code>flex</code> shorthand. Custom
+ * properties and old IE filters are not modified.
+ *
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSNumberMinifier
+{
+  /** Properties in which 0% is always equal to 0 */
+  private static final Set <String> s_aPercentageAsLengthProperties = ContainerHelper.newSet ("bottom",
+                                                                                            "height",
+                                                                                            "left",
+                                                                                            "margin",
+                                                                                            "margin-bottom",
+                                                                                            "margin-left",
+                                                                                            "margin-right",
+                                                                                            "margin-top",
+                                                                                            "max-height",
+                                                                                            "max-width",
+                                                                                            "min-height",
+                                                                                            "min-width",
+                                                                                            "padding",
+                                                                                            "padding-bottom",
+                                                                                            "padding-left",
+                                                                                            "padding-right",
+                                                                                            "padding-top",
+                                                                                            "right",
+                                                                                            "text-indent",
+                                                                                            "top",
+                                                                                            "width");
+  /** Transform functions in which 0deg may be written as 0 */
+  private static final Set <String> s_aAngleFunctions = ContainerHelper.newSet ("rotate",
+                                                                               "rotatex",
+                                                                               "rotatey",
+                                                                               "rotatez",
+                                                                               "rotate3d",
+                                                                               "skew",
+                                                                               "skewx",
+                                                                               "skewy");
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSNumberMinifier s_aInstance = new CSSNumberMinifier ();
+
+  private CSSNumberMinifier ()
+  {}
+
+  /**
+   * Get the shortest text of the passed number without unit.
+   *
+   * @param bNegative
+   *        <code>true</code> if a minus sign is present
+   * @param sInteger
+   *        The digits before the decimal point. May be empty.
+   * @param sFraction
+   *        The digits after the decimal point. May be empty.
+   */
+  @Nonnull
+  private static String _getMinifiedNumber (final boolean bNegative,
+                                            @Nonnull final String sInteger,
+                                            @Nonnull final String sFraction)
+  {
+    int nIntStart = 0;
+    while (nIntStart < sInteger.length () && sInteger.charAt (nIntStart) == '0')
+      nIntStart++;
+    int nFractionEnd = sFraction.length ();
+    while (nFractionEnd > 0 && sFraction.charAt (nFractionEnd - 1) == '0')
+      nFractionEnd--;
+
+    final String sInt = sInteger.substring (nIntStart);
+    final String sFrac = sFraction.substring (0, nFractionEnd);
+    if (sInt.length () == 0 && sFrac.length () == 0)
+    {
+      // "-0.0" is just "0"
+      return "0";
+    }
+
+    final StringBuilder aSB = new StringBuilder (sInt.length () + sFrac.length () + 2);
+    if (bNegative)
+      aSB.append ('-');
+    aSB.append (sInt);
+    if (sFrac.length () > 0)
+      aSB.append ('.').append (sFrac);
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  private static String _getMinifiedNumber (@Nonnull final BigDecimal aValue)
+  {
+    final String sPlain = aValue.abs ().toPlainString ();
+    final int nDot = sPlain.indexOf ('.');
+    return _getMinifiedNumber (aValue.signum () < 0,
+                               nDot < 0 ? sPlain : sPlain.substring (0, nDot),
+                               nDot < 0 ? "" : sPlain.substring (nDot + 1));
+  }
+
+  /**
+   * @return The other unit of the same meta unit that may be used instead, or
+   *         <code>null</code>.
+   */
+  @Nullable
+  private static ECSSUnit _getAlternativeUnit (@Nonnull final ECSSUnit eUnit)
+  {
+    switch (eUnit)
+    {
+      case TIME_MS:
+        return ECSSUnit.TIME_S;
+      case TIME_S:
+        return ECSSUnit.TIME_MS;
+      case FREQ_HZ:
+        return ECSSUnit.FREQ_KHZ;
+      case FREQ_KHZ:
+        return ECSSUnit.FREQ_HZ;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the shortest lossless text of the passed number with an optional unit.
+   *
+   * @param sValue
+   *        The value to minify (e.g. <code>0.50em</code>). May not be
+   *        <code>null</code>.
+   * @param bAllowUnitlessZero
+   *        <code>true</code> if a zero length may be written without unit. Must
+   *        be <code>false</code> within <code>calc()</code> and the other math
+   *        functions.
+   * @return The passed value if it is not a number.
+   */
+  @Nonnull
+  public static String getMinifiedNumber (@Nonnull final String sValue, final boolean bAllowUnitlessZero)
+  {
+    ValueEnforcer.notNull (sValue, "Value");
+
+    // Split into sign, integer part, fraction and unit
+    final int nLength = sValue.length ();
+    int nIndex = 0;
+    boolean bNegative = false;
+    if (nIndex < nLength && (sValue.charAt (nIndex) == '+' || sValue.charAt (nIndex) == '-'))
+    {
+      bNegative = sValue.charAt (nIndex) == '-';
+      nIndex++;
+    }
+    final int nIntStart = nIndex;
+    while (nIndex < nLength && sValue.charAt (nIndex) >= '0' && sValue.charAt (nIndex) <= '9')
+      nIndex++;
+    final String sInteger = sValue.substring (nIntStart, nIndex);
+    String sFraction = "";
+    if (nIndex < nLength && sValue.charAt (nIndex) == '.')
+    {
+      final int nFracStart = ++nIndex;
+      while (nIndex < nLength && sValue.charAt (nIndex) >= '0' && sValue.charAt (nIndex) <= '9')
+        nIndex++;
+      sFraction = sValue.substring (nFracStart, nIndex);
+    }
+    if (sInteger.length () == 0 && sFraction.length () == 0)
+      return sValue;
+
+    final String sUnit = sValue.substring (nIndex);
+    if (sUnit.length () > 1 &&
+        (sUnit.charAt (0) == 'e' || sUnit.charAt (0) == 'E') &&
+        "+-0123456789".indexOf (sUnit.charAt (1)) >= 0)
+    {
+      // Scientific notation is not handled
+      return sValue;
+    }
+
+    final String sNumber = _getMinifiedNumber (bNegative, sInteger, sFraction);
+    final ECSSUnit eUnit = sUnit.length () == 0 ? null : ECSSUnit.getFromNameOrNull (sUnit.toLowerCase (Locale.US));
+    if (eUnit == null)
+    {
+      // Unknown units are kept as they are
+      return sNumber + sUnit;
+    }
+    if (bAllowUnitlessZero && sNumber.equals ("0") && eUnit.getMetaUnit ().isLength ())
+      return sNumber;
+
+    String ret = sNumber + eUnit.getName ();
+    final ECSSUnit eAlternativeUnit = _getAlternativeUnit (eUnit);
+    if (eAlternativeUnit != null)
+    {
+      // Both alternative units differ by factor 1000
+      final CSSSimpleValueWithUnit aValue = CSSNumberHelper.getValueWithUnit (sNumber + eUnit.getName ());
+      if (aValue != null)
+      {
+        final BigDecimal aBase = aValue.getAsBigDecimalValue ();
+        final BigDecimal aConverted = eUnit == ECSSUnit.TIME_MS || eUnit == ECSSUnit.FREQ_HZ ? aBase.movePointLeft (3)
+                                                                                            : aBase.movePointRight (3);
+        final String sAlternative = _getMinifiedNumber (aConverted) + eAlternativeUnit.getName ();
+        if (sAlternative.length () < ret.length ())
+          ret = sAlternative;
+      }
+    }
+    return ret;
+  }
+
+  private static boolean _isZero (@Nonnull final String sValue, @Nonnull final ECSSMetaUnit eMetaUnit)
+  {
+    final CSSSimpleValueWithUnit aValue = CSSNumberHelper.getValueWithUnit (sValue);
+    return aValue != null && aValue.getUnit ().getMetaUnit () == eMetaUnit && aValue.getAsBigDecimalValue ().signum () == 0;
+  }
+
+  /**
+   * Replaces the member at a certain index of either a
+   * {@link CSSExpressionMemberMath} or a {@link CSSExpressionMemberMathProduct}
+   * which share no common interface.
+   */
+  @Immutable
+  private static final class MathMemberReplacer
+  {
+    private final CSSExpressionMemberMath m_aMath;
+    private final CSSExpressionMemberMathProduct m_aProduct;
+
+    MathMemberReplacer (@Nonnull final CSSExpressionMemberMath aMath)
+    {
+      m_aMath = aMath;
+      m_aProduct = null;
+    }
+
+    MathMemberReplacer (@Nonnull final CSSExpressionMemberMathProduct aProduct)
+    {
+      m_aMath = null;
+      m_aProduct = aProduct;
+    }
+
+    void replace (final int nIndex, @Nonnull final ICSSExpressionMathMember aNewMember)
+    {
+      if (m_aMath != null)
+      {
+        m_aMath.removeMember (nIndex);
+        m_aMath.addMember (nIndex, aNewMember);
+      }
+      else
+      {
+        m_aProduct.removeMember (nIndex);
+        m_aProduct.addMember (nIndex, aNewMember);
+      }
+    }
+  }
+
+  @Nonnull
+  private static EChange _minifyMath (@Nonnull final List <ICSSExpressionMathMember> aMembers,
+                                      @Nonnull final MathMemberReplacer aReplacer)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    for (int i = 0; i < aMembers.size (); ++i)
+    {
+      final ICSSExpressionMathMember aMember = aMembers.get (i);
+      if (aMember instanceof CSSExpressionMemberMathUnitSimple)
+      {
+        final String sText = ((CSSExpressionMemberMathUnitSimple) aMember).getText ();
+        final String sMinified = getMinifiedNumber (sText, false);
+        if (!sMinified.equals (sText))
+        {
+          aReplacer.replace (i, new CSSExpressionMemberMathUnitSimple (sMinified));
+          eChange = EChange.CHANGED;
+        }
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberMathProduct)
+        {
+          final CSSExpressionMemberMathProduct aProduct = (CSSExpressionMemberMathProduct) aMember;
+          eChange = eChange.or (_minifyMath (aProduct.getAllMembers (), new MathMemberReplacer (aProduct)));
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberMathUnitProduct)
+          {
+            final CSSExpressionMemberMathProduct aProduct = ((CSSExpressionMemberMathUnitProduct) aMember).getProduct ();
+            eChange = eChange.or (_minifyMath (aProduct.getAllMembers (), new MathMemberReplacer (aProduct)));
+          }
+    }
+    return eChange;
+  }
+
+  @Nonnull
+  private static EChange _minifyExpression (@Nonnull final CSSExpression aExpression,
+                                            final boolean bAllowUnitlessZero,
+                                            final boolean bPercentageIsLength,
+                                            final boolean bAllowUnitlessAngle)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSExpressionMember> aMembers = aExpression.getAllMembers ();
+    for (final ICSSExpressionMember aMember : aMembers)
+    {
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+      {
+        final CSSExpressionMemberTermSimple aTerm = (CSSExpressionMemberTermSimple) aMember;
+        final String sValue = aTerm.getValue ();
+        String sMinified = getMinifiedNumber (sValue, bAllowUnitlessZero);
+        if ((bPercentageIsLength && _isZero (sMinified, ECSSMetaUnit.PERCENTAGE)) ||
+            (bAllowUnitlessAngle && _isZero (sMinified, ECSSMetaUnit.ANGLE)))
+          sMinified = "0";
+        if (!sMinified.equals (sValue))
+        {
+          aTerm.setValue (sMinified);
+          eChange = EChange.CHANGED;
+        }
+      }
+      else
+        if (aMember instanceof CSSExpressionMemberFunction)
+        {
+          final CSSExpressionMemberFunction aFunction = (CSSExpressionMemberFunction) aMember;
+          final String sName = aFunction.getFunctionName ().toLowerCase (Locale.US);
+          final CSSExpression aFunctionExpression = aFunction.getExpression ();
+          // Skip old IE filters like "progid:DXImageTransform.Microsoft.Alpha"
+          if (sName.indexOf (':') < 0 && sName.indexOf ('.') < 0 && aFunctionExpression != null)
+          {
+            final boolean bAllowInFunction = CSSExpressionTermOptimizer.isUnitlessZeroAllowedInFunction (sName);
+            eChange = eChange.or (_minifyExpression (aFunctionExpression,
+                                                     bAllowUnitlessZero && bAllowInFunction,
+                                                     false,
+                                                     s_aAngleFunctions.contains (sName)));
+          }
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberMath)
+          {
+            final CSSExpressionMemberMath aMath = (CSSExpressionMemberMath) aMember;
+            eChange = eChange.or (_minifyMath (aMath.getAllMembers (), new MathMemberReplacer (aMath)));
+          }
+    }
+    return eChange;
+  }
+
+  /**
+   * Minify all numbers in the value of the passed declaration. Custom
+   * properties are not modified.
+   *
+   * @param aDeclaration
+   *        The declaration to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the declaration was changed.
+   */
+  @Nonnull
+  public static EChange minifyNumbers (@Nonnull final CSSDeclaration aDeclaration)
+  {
+    ValueEnforcer.notNull (aDeclaration, "Declaration");
+
+    final String sProperty = aDeclaration.getProperty ().toLowerCase (Locale.US);
+    if (sProperty.startsWith ("--"))
+      return EChange.UNCHANGED;
+
+    return _minifyExpression (aDeclaration.getExpression (),
+                              CSSExpressionTermOptimizer.isUnitlessZeroAllowedInProperty (sProperty),
+                              s_aPercentageAsLengthProperties.contains (sProperty),
+                              false);
+  }
+
+  @NotThreadSafe
+  private static final class MinifyingVisitor extends DefaultCSSVisitor
+  {
+    private EChange m_eChange = EChange.UNCHANGED;
+
+    @Override
+    public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+    {
+      m_eChange = m_eChange.or (minifyNumbers (aDeclaration));
+    }
+  }
+
+  /**
+   * Minify all numbers in the passed style sheet.
+   *
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was changed.
+   */
+  @Nonnull
+  public static EChange minifyNumbers (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final MinifyingVisitor aVisitor = new MinifyingVisitor ();
+    CSSVisitor.visitCSS (aCSS, aVisitor);
+    return aVisitor.m_eChange;
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.RegEx;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.ICSSSelectorMember;
+import com.phloc.css.match.CSSSelectorMatcher;
+
+/**
+ * The settings for {@link CSSPurger}. The safelist contains class names, IDs,
+ * element names and regular expressions. A selector that references a
+ * safelisted name (outside of a negation) is always kept, even if it does not
+ * match any document. This is required for all markup that is created
+ * dynamically by scripts.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSPurgeSettings
+{
+  /** By default unused <code>@keyframes</code> rules are removed */
+  public static final boolean DEFAULT_REMOVE_UNUSED_KEYFRAMES = true;
+  /** By default unused <code>@font-face</code> rules are removed */
+  public static final boolean DEFAULT_REMOVE_UNUSED_FONT_FACES = true;
+
+  private final Set <String> m_aSafelistedClasses = new HashSet <String> ();
+  private final Set <String> m_aSafelistedIDs = new HashSet <String> ();
+  private final Set <String> m_aSafelistedElementNames = new HashSet <String> ();
+  private final List <Pattern> m_aSafelistedPatterns = new ArrayList <Pattern> ();
+  private boolean m_bRemoveUnusedKeyframes = DEFAULT_REMOVE_UNUSED_KEYFRAMES;
+  private boolean m_bRemoveUnusedFontFaces = DEFAULT_REMOVE_UNUSED_FONT_FACES;
+  private int m_nThreadCount = Runtime.getRuntime ().availableProcessors ();
+
+  public CSSPurgeSettings ()
+  {}
+
+  /**
+   * Add a class name to the safelist.
+   * 
+   * @param sClass
+   *        The class name with or without the leading dot. May neither be
+   *        <code>null</code> nor empty.
+   * @return this
+   */
+  @Nonnull
+  public CSSPurgeSettings addSafelistedClass (@Nonnull @Nonempty final String sClass)
+  {
+    ValueEnforcer.notEmpty (sClass, "Class");
+
+    m_aSafelistedClasses.add (sClass.startsWith (".") ? sClass.substring (1) : sClass);
+    return this;
+  }
+
+  /**
+   * Add an ID to the safelist.
+   * 
+   * @param sID
+   *        The ID with or without the leading hash. May neither be
+   *        <code>null</code> nor empty.
+   * @return this
+   */
+  @Nonnull
+  public CSSPurgeSettings addSafelistedID (@Nonnull @Nonempty final String sID)
+  {
+    ValueEnforcer.notEmpty (sID, "ID");
+
+    m_aSafelistedIDs.add (sID.startsWith ("#") ? sID.substring (1) : sID);
+    return this;
+  }
+
+  /**
+   * Add an element name to the safelist.
+   * 
+   * @param sElementName
+   *        The element name. It is compared case insensitive. May neither be
+   *        <code>null</code> nor empty.
+   * @return this
+   */
+  @Nonnull
+  public CSSPurgeSettings addSafelistedElementName (@Nonnull @Nonempty final String sElementName)
+  {
+    ValueEnforcer.notEmpty (sElementName, "ElementName");
+
+    m_aSafelistedElementNames.add (sElementName.toLowerCase (Locale.US));
+    return this;
+  }
+
+  /**
+   * Add a regular expression to the safelist. It is searched in all class
+   * names, IDs and element names of a selector, without the leading dot or
+   * hash.
+   * 
+   * @param sRegEx
+   *        The regular expression. May neither be <code>null</code> nor empty.
+   * @return this
+   */
+  @Nonnull
+  public CSSPurgeSettings addSafelistedPattern (@Nonnull @Nonempty @RegEx final String sRegEx)
+  {
+    ValueEnforcer.notEmpty (sRegEx, "RegEx");
+
+    m_aSafelistedPatterns.add (Pattern.compile (sRegEx));
+    return this;
+  }
+
+  private boolean _matchesPattern (@Nonnull final String sName)
+  {
+    for (final Pattern aPattern : m_aSafelistedPatterns)
+      if (aPattern.matcher (sName).find ())
+        return true;
+    return false;
+  }
+
+  /**
+   * Check if the passed selector references a safelisted class, ID or element
+   * name.
+   * 
+   * @param aSelector
+   *        The selector to check. May not be <code>null</code>.
+   * @return <code>true</code> if the selector is safelisted.
+   */
+  public boolean isSafelisted (@Nonnull final CSSSelector aSelector)
+  {
+    ValueEnforcer.notNull (aSelector, "Selector");
+
+    for (final ICSSSelectorMember aMember : aSelector.getAllMembers ())
+      if (aMember instanceof CSSSelectorSimpleMember)
+      {
+        final CSSSelectorSimpleMember aSimple = (CSSSelectorSimpleMember) aMember;
+        if (aSimple.isPseudo () || aSimple.getValue ().endsWith ("|"))
+          continue;
+
+        final String sValue = CSSSelectorMatcher.unescapeIdentifier (aSimple.getValue ());
+        if (aSimple.isClass ())
+        {
+          final String sClass = sValue.substring (1);
+          if (m_aSafelistedClasses.contains (sClass) || _matchesPattern (sClass))
+            return true;
+        }
+        else
+          if (aSimple.isHash ())
+          {
+            final String sID = sValue.substring (1);
+            if (m_aSafelistedIDs.contains (sID) || _matchesPattern (sID))
+              return true;
+          }
+          else
+            if (!sValue.equals ("*") &&
+                (m_aSafelistedElementNames.contains (sValue.toLowerCase (Locale.US)) || _matchesPattern (sValue)))
+              return true;
+      }
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if <code>@keyframes</code> rules whose animation
+   *         name is no longer used are removed. Default is
+   *         {@link #DEFAULT_REMOVE_UNUSED_KEYFRAMES}.
+   */
+  public boolean isRemoveUnusedKeyframes ()
+  {
+    return m_bRemoveUnusedKeyframes;
+  }
+
+  @Nonnull
+  public CSSPurgeSettings setRemoveUnusedKeyframes (final boolean bRemoveUnusedKeyframes)
+  {
+    m_bRemoveUnusedKeyframes = bRemoveUnusedKeyframes;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if <code>@font-face</code> rules whose font
+   *         family is no longer used are removed. Default is
+   *         {@link #DEFAULT_REMOVE_UNUSED_FONT_FACES}.
+   */
+  public boolean isRemoveUnusedFontFaces ()
+  {
+    return m_bRemoveUnusedFontFaces;
+  }
+
+  @Nonnull
+  public CSSPurgeSettings setRemoveUnusedFontFaces (final boolean bRemoveUnusedFontFaces)
+  {
+    m_bRemoveUnusedFontFaces = bRemoveUnusedFontFaces;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of threads used to evaluate the documents in
+   *         parallel. Default is the number of available processors.
+   */
+  @Nonnegative
+  public int getThreadCount ()
+  {
+    return m_nThreadCount;
+  }
+
+  /**
+   * @param nThreadCount
+   *        The maximum number of threads used to evaluate the documents in
+   *        parallel. Must be &gt; 0. A value of 1 evaluates all documents in
+   *        the calling thread.
+   * @return this
+   */
+  @Nonnull
+  public CSSPurgeSettings setThreadCount (@Nonnegative final int nThreadCount)
+  {
+    m_nThreadCount = ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("safelistedClasses", m_aSafelistedClasses)
+                                       .append ("safelistedIDs", m_aSafelistedIDs)
+                                       .append ("safelistedElementNames", m_aSafelistedElementNames)
+                                       .append ("safelistedPatterns", m_aSafelistedPatterns)
+                                       .append ("removeUnusedKeyframes", m_bRemoveUnusedKeyframes)
+                                       .append ("removeUnusedFontFaces", m_bRemoveUnusedFontFaces)
+                                       .append ("threadCount", m_nThreadCount)
+                                       .toString ();
+  }
+}
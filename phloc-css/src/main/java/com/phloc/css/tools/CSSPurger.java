@@ -0,0 +1,522 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ECSSExpressionOperator;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSTopLevelRules;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.match.CSSCompiledSelector;
+import com.phloc.css.match.HTMLTolerantReader;
+import com.phloc.css.match.MicroElementNavigator;
+import com.phloc.css.parser.ParseUtils;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Removes all CSS that is not used by a set of HTML documents:
+ * <ul>
+ * <li>Every selector of every style rule is evaluated against all elements of
+ * all documents. Selectors that match no element are removed, and style rules
+ * without selectors are removed completely. Pseudo classes and pseudo
+ * elements that depend on the dynamic document state (like
+ * <code>:hover</code>, <code>:checked</code> or <code>::before</code>) are
+ * assumed to match. Selectors referencing a safelisted name are always kept
+ * (see {@link CSSPurgeSettings}).</li>
+ * <li><code>@media</code> and <code>@supports</code> rules are processed
+ * recursively and removed if they become empty.</li>
+ * <li>Afterwards <code>@keyframes</code> rules whose animation name and
+ * <code>@font-face</code> rules whose font family are not referenced by any
+ * remaining declaration are removed.</li>
+ * </ul>
+ * The documents are evaluated in parallel. A selector that matched in one
+ * document is not evaluated again in the other documents.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSPurger
+{
+  private static final CSSWriterSettings s_aSelectorSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSPurger s_aInstance = new CSSPurger ();
+
+  private CSSPurger ()
+  {}
+
+  /**
+   * All distinct selectors of a style sheet together with the information
+   * whether they are used.
+   * 
+   * @author Philip Helger
+   */
+  @ThreadSafe
+  private static final class SelectorIndex
+  {
+    private final Map <String, Integer> m_aIndex = new HashMap <String, Integer> ();
+    private final List <CSSSelector> m_aSelectors = new ArrayList <CSSSelector> ();
+    private final List <CSSCompiledSelector> m_aCompiledSelectors = new ArrayList <CSSCompiledSelector> ();
+    private final AtomicIntegerArray m_aUsed;
+
+    SelectorIndex (@Nonnull final IHasCSSTopLevelRules aRules, @Nonnull final CSSPurgeSettings aSettings)
+    {
+      _addAll (aRules);
+      m_aUsed = new AtomicIntegerArray (m_aSelectors.size ());
+      for (int i = 0; i < m_aSelectors.size (); ++i)
+        if (aSettings.isSafelisted (m_aSelectors.get (i)))
+          m_aUsed.set (i, 1);
+    }
+
+    private void _addAll (@Nonnull final IHasCSSTopLevelRules aRules)
+    {
+      for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+        if (aRule instanceof CSSStyleRule)
+        {
+          for (final CSSSelector aSelector : ((CSSStyleRule) aRule).getAllSelectors ())
+          {
+            final String sKey = aSelector.getAsCSSString (s_aSelectorSettings, 0);
+            if (!m_aIndex.containsKey (sKey))
+            {
+              m_aIndex.put (sKey, Integer.valueOf (m_aSelectors.size ()));
+              m_aSelectors.add (aSelector);
+              m_aCompiledSelectors.add (CSSCompiledSelector.compile (aSelector));
+            }
+          }
+        }
+        else
+          if (aRule instanceof IHasCSSTopLevelRules)
+            _addAll ((IHasCSSTopLevelRules) aRule);
+    }
+
+    void evaluate (@Nonnull final IMicroDocument aDoc)
+    {
+      final IMicroElement aRoot = aDoc.getDocumentElement ();
+      if (aRoot == null)
+        return;
+      final List <IMicroElement> aElements = aRoot.getAllChildElementsRecursive ();
+      aElements.add (0, aRoot);
+
+      final MicroElementNavigator aNav = MicroElementNavigator.getInstance ();
+      for (int i = 0; i < m_aCompiledSelectors.size (); ++i)
+        if (m_aUsed.get (i) == 0)
+        {
+          final CSSCompiledSelector aSelector = m_aCompiledSelectors.get (i);
+          for (final IMicroElement aElement : aElements)
+            if (aSelector.matches (aElement, aNav, true))
+            {
+              m_aUsed.set (i, 1);
+              break;
+            }
+        }
+    }
+
+    boolean isUsed (@Nonnull final CSSSelector aSelector)
+    {
+      final Integer aIndex = m_aIndex.get (aSelector.getAsCSSString (s_aSelectorSettings, 0));
+      return m_aUsed.get (aIndex.intValue ()) != 0;
+    }
+  }
+
+  /**
+   * Evaluates all selectors against a single document. The document is read
+   * lazily, so that reading is parallelized as well.
+   * 
+   * @author Philip Helger
+   */
+  @NotThreadSafe
+  private static final class DocumentEvaluator implements Callable <Void>
+  {
+    private final SelectorIndex m_aIndex;
+    private final IMicroDocument m_aDoc;
+    private final File m_aFile;
+    private final Charset m_aCharset;
+
+    DocumentEvaluator (@Nonnull final SelectorIndex aIndex,
+                       @Nullable final IMicroDocument aDoc,
+                       @Nullable final File aFile,
+                       @Nullable final Charset aCharset)
+    {
+      m_aIndex = aIndex;
+      m_aDoc = aDoc;
+      m_aFile = aFile;
+      m_aCharset = aCharset;
+    }
+
+    public Void call ()
+    {
+      IMicroDocument aDoc = m_aDoc;
+      if (aDoc == null)
+      {
+        aDoc = HTMLTolerantReader.readFromFile (m_aFile, m_aCharset);
+        if (aDoc == null)
+          throw new IllegalArgumentException ("Failed to read HTML file " + m_aFile);
+      }
+      m_aIndex.evaluate (aDoc);
+      return null;
+    }
+  }
+
+  /**
+   * Collects all animation names and font families referenced in declarations
+   * outside of <code>@font-face</code> rules.
+   * 
+   * @author Philip Helger
+   */
+  @NotThreadSafe
+  private static final class ReferenceCollector extends DefaultCSSVisitor
+  {
+    private final Set <String> m_aAnimationNames = new HashSet <String> ();
+    private final Set <String> m_aFontFamilies = new HashSet <String> ();
+    private boolean m_bUnknownAnimationNames = false;
+    private boolean m_bUnknownFontFamilies = false;
+    private boolean m_bInFontFace = false;
+
+    @Override
+    public void onBeginFontFaceRule (@Nonnull final CSSFontFaceRule aFontFaceRule)
+    {
+      m_bInFontFace = true;
+    }
+
+    @Override
+    public void onEndFontFaceRule (@Nonnull final CSSFontFaceRule aFontFaceRule)
+    {
+      m_bInFontFace = false;
+    }
+
+    @Override
+    public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+    {
+      if (m_bInFontFace)
+        return;
+
+      String sProperty = aDeclaration.getProperty ().toLowerCase (Locale.US);
+      if (sProperty.startsWith ("-") && !sProperty.startsWith ("--"))
+      {
+        // Remove the vendor prefix
+        final int nDash = sProperty.indexOf ('-', 1);
+        if (nDash > 0)
+          sProperty = sProperty.substring (nDash + 1);
+      }
+
+      final CSSExpression aExpression = aDeclaration.getExpression ();
+      if (sProperty.equals ("animation") || sProperty.equals ("animation-name"))
+      {
+        for (final ICSSExpressionMember aMember : aExpression.getAllMembers ())
+          if (aMember instanceof CSSExpressionMemberTermSimple)
+          {
+            final String sName = ((CSSExpressionMemberTermSimple) aMember).getValue ();
+            m_aAnimationNames.add (ParseUtils.extractStringValue (sName));
+          }
+          else
+            if (!(aMember instanceof ECSSExpressionOperator))
+              m_bUnknownAnimationNames = true;
+      }
+      else
+        if (sProperty.equals ("font") || sProperty.equals ("font-family"))
+        {
+          // Every comma separated part may contain the family names at the
+          // end, so add all possible suffixes
+          final List <String> aParts = new ArrayList <String> ();
+          final List <ICSSExpressionMember> aMembers = aExpression.getAllMembers ();
+          for (int i = 0; i <= aMembers.size (); ++i)
+          {
+            final ICSSExpressionMember aMember = i < aMembers.size () ? aMembers.get (i) : null;
+            if (aMember == null || aMember == ECSSExpressionOperator.COMMA)
+            {
+              for (int j = 0; j < aParts.size (); ++j)
+                m_aFontFamilies.add (getFontFamilyName (aParts.subList (j, aParts.size ())));
+              aParts.clear ();
+            }
+            else
+              if (aMember instanceof CSSExpressionMemberTermSimple)
+                aParts.add (((CSSExpressionMemberTermSimple) aMember).getValue ());
+              else
+                if (!(aMember instanceof ECSSExpressionOperator))
+                  m_bUnknownFontFamilies = true;
+          }
+        }
+    }
+
+    boolean isReferencedAnimationName (@Nonnull final String sName)
+    {
+      return m_bUnknownAnimationNames || m_aAnimationNames.contains (ParseUtils.extractStringValue (sName));
+    }
+
+    boolean isReferencedFontFamily (@Nonnull final String sFontFamily)
+    {
+      return m_bUnknownFontFamilies || m_aFontFamilies.contains (sFontFamily);
+    }
+  }
+
+  /**
+   * Get the normalized name of a font family, consisting of one or more
+   * identifiers or a single string.
+   * 
+   * @param aParts
+   *        The parts of the name. May not be <code>null</code>.
+   * @return The lower case name without quotes and with single spaces.
+   */
+  @Nonnull
+  static String getFontFamilyName (@Nonnull final List <String> aParts)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (final String sPart : aParts)
+    {
+      if (aSB.length () > 0)
+        aSB.append (' ');
+      aSB.append (ParseUtils.extractStringValue (sPart).trim ());
+    }
+    return aSB.toString ().toLowerCase (Locale.US);
+  }
+
+  @Nonnull
+  private static EChange _removeUnusedSelectors (@Nonnull final IHasCSSTopLevelRules aRules,
+                                                 @Nonnull final SelectorIndex aIndex)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSTopLevelRule> aAllRules = aRules.getAllRules ();
+    for (int i = aAllRules.size () - 1; i >= 0; --i)
+    {
+      final ICSSTopLevelRule aRule = aAllRules.get (i);
+      if (aRule instanceof CSSStyleRule)
+      {
+        final CSSStyleRule aStyleRule = (CSSStyleRule) aRule;
+        for (int j = aStyleRule.getSelectorCount () - 1; j >= 0; --j)
+          if (!aIndex.isUsed (aStyleRule.getSelectorAtIndex (j)))
+            eChange = eChange.or (aStyleRule.removeSelector (j));
+        if (!aStyleRule.hasSelectors ())
+          aRules.removeRule (i);
+      }
+      else
+        if (aRule instanceof IHasCSSTopLevelRules)
+        {
+          final IHasCSSTopLevelRules aNestedRules = (IHasCSSTopLevelRules) aRule;
+          if (_removeUnusedSelectors (aNestedRules, aIndex).isChanged ())
+          {
+            eChange = EChange.CHANGED;
+            if (!aNestedRules.hasRules ())
+              aRules.removeRule (i);
+          }
+        }
+    }
+    return eChange;
+  }
+
+  @Nonnull
+  private static EChange _removeUnreferencedRules (@Nonnull final IHasCSSTopLevelRules aRules,
+                                                   @Nonnull final ReferenceCollector aReferences,
+                                                   @Nonnull final CSSPurgeSettings aSettings)
+  {
+    EChange eChange = EChange.UNCHANGED;
+    final List <ICSSTopLevelRule> aAllRules = aRules.getAllRules ();
+    for (int i = aAllRules.size () - 1; i >= 0; --i)
+    {
+      final ICSSTopLevelRule aRule = aAllRules.get (i);
+      if (aRule instanceof CSSKeyframesRule)
+      {
+        if (aSettings.isRemoveUnusedKeyframes () &&
+            !aReferences.isReferencedAnimationName (((CSSKeyframesRule) aRule).getAnimationName ()))
+          eChange = eChange.or (aRules.removeRule (i));
+      }
+      else
+        if (aRule instanceof CSSFontFaceRule)
+        {
+          final CSSFontFaceRule aFontFaceRule = (CSSFontFaceRule) aRule;
+          final CSSDeclaration aFamily = aFontFaceRule.getDeclarationOfPropertyNameCaseInsensitive ("font-family");
+          if (aSettings.isRemoveUnusedFontFaces () && aFamily != null)
+          {
+            final List <String> aParts = new ArrayList <String> ();
+            for (final ICSSExpressionMember aMember : aFamily.getExpression ().getAllMembers ())
+              aParts.add (aMember.getAsCSSString (s_aSelectorSettings, 0));
+            if (!aReferences.isReferencedFontFamily (getFontFamilyName (aParts)))
+              eChange = eChange.or (aRules.removeRule (i));
+          }
+        }
+        else
+          if (aRule instanceof IHasCSSTopLevelRules)
+          {
+            final IHasCSSTopLevelRules aNestedRules = (IHasCSSTopLevelRules) aRule;
+            if (_removeUnreferencedRules (aNestedRules, aReferences, aSettings).isChanged ())
+            {
+              eChange = EChange.CHANGED;
+              if (!aNestedRules.hasRules ())
+                aRules.removeRule (i);
+            }
+          }
+    }
+    return eChange;
+  }
+
+  private static void _evaluateAll (@Nonnull final List <DocumentEvaluator> aEvaluators, final int nThreadCount)
+  {
+    if (nThreadCount == 1 || aEvaluators.size () <= 1)
+    {
+      for (final DocumentEvaluator aEvaluator : aEvaluators)
+        aEvaluator.call ();
+      return;
+    }
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (Math.min (nThreadCount, aEvaluators.size ()),
+                                                                    new ExtendedDefaultThreadFactory ("CSSPurger"));
+    try
+    {
+      for (final Future <Void> aFuture : aExecutor.invokeAll (aEvaluators))
+        aFuture.get ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException ("Interrupted while evaluating the documents", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      if (ex.getCause () instanceof RuntimeException)
+        throw (RuntimeException) ex.getCause ();
+      throw new IllegalStateException ("Failed to evaluate a document", ex.getCause ());
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+
+  @Nonnull
+  private static EChange _purge (@Nonnull final CascadingStyleSheet aCSS,
+                                 @Nonnull final SelectorIndex aIndex,
+                                 @Nonnull final List <DocumentEvaluator> aEvaluators,
+                                 @Nonnull final CSSPurgeSettings aSettings)
+  {
+    _evaluateAll (aEvaluators, aSettings.getThreadCount ());
+    EChange eChange = _removeUnusedSelectors (aCSS, aIndex);
+
+    if (aSettings.isRemoveUnusedKeyframes () || aSettings.isRemoveUnusedFontFaces ())
+    {
+      final ReferenceCollector aReferences = new ReferenceCollector ();
+      CSSVisitor.visitCSS (aCSS, aReferences);
+      eChange = eChange.or (_removeUnreferencedRules (aCSS, aReferences, aSettings));
+    }
+    return eChange;
+  }
+
+  /**
+   * Remove all CSS from the passed style sheet that is not used by any of the
+   * passed documents.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param aDocuments
+   *        The documents to evaluate the selectors against, as created by
+   *        {@link HTMLTolerantReader}. May not be <code>null</code>.
+   * @param aSettings
+   *        The purge settings to use. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was removed.
+   */
+  @Nonnull
+  public static EChange purge (@Nonnull final CascadingStyleSheet aCSS,
+                               @Nonnull final Collection <? extends IMicroDocument> aDocuments,
+                               @Nonnull final CSSPurgeSettings aSettings)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aDocuments, "Documents");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final SelectorIndex aIndex = new SelectorIndex (aCSS, aSettings);
+    final List <DocumentEvaluator> aEvaluators = new ArrayList <DocumentEvaluator> ();
+    for (final IMicroDocument aDoc : aDocuments)
+      aEvaluators.add (new DocumentEvaluator (aIndex, aDoc, null, null));
+    return _purge (aCSS, aIndex, aEvaluators, aSettings);
+  }
+
+  /**
+   * Remove all CSS from the passed style sheet that is not used by any of the
+   * passed HTML files. The files are read with {@link HTMLTolerantReader}.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param aHTMLFiles
+   *        The HTML files to evaluate the selectors against. May not be
+   *        <code>null</code>.
+   * @param aCharset
+   *        The charset of the HTML files. May not be <code>null</code>.
+   * @param aSettings
+   *        The purge settings to use. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was removed.
+   * @throws IllegalArgumentException
+   *         If one of the files cannot be read. The style sheet is not
+   *         modified in this case.
+   */
+  @Nonnull
+  public static EChange purgeWithHTMLFiles (@Nonnull final CascadingStyleSheet aCSS,
+                                            @Nonnull final Collection <File> aHTMLFiles,
+                                            @Nonnull final Charset aCharset,
+                                            @Nonnull final CSSPurgeSettings aSettings)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aHTMLFiles, "HTMLFiles");
+    ValueEnforcer.notNull (aCharset, "Charset");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final SelectorIndex aIndex = new SelectorIndex (aCSS, aSettings);
+    final List <DocumentEvaluator> aEvaluators = new ArrayList <DocumentEvaluator> ();
+    for (final File aFile : aHTMLFiles)
+      aEvaluators.add (new DocumentEvaluator (aIndex, null, aFile, aCharset));
+    return _purge (aCSS, aIndex, aEvaluators, aSettings);
+  }
+}
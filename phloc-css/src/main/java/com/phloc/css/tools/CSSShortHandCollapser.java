@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesBlock;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSViewportRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.IHasCSSDeclarations;
+import com.phloc.css.decl.shorthand.CSSPropertyWithDefaultValue;
+import com.phloc.css.decl.shorthand.CSSShortHandDescriptor;
+import com.phloc.css.decl.shorthand.CSSShortHandRegistry;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+import com.phloc.css.property.ECSSProperty;
+import com.phloc.css.propertyvalue.CCSSValue;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * The inverse of {@link CSSShortHandDescriptor#getSplitIntoPieces(CSSDeclaration)}:
+ * complete sets of longhand declarations within a declaration block are
+ * collapsed into the equivalent shorthand declaration. A set is only collapsed
+ * if
+ * <ul>
+ * <li>each longhand is declared exactly once in the block (so that vendor
+ * fallbacks like <code>margin-top:1px;margin-top:calc(...)</code> are kept),</li>
+ * <li>all longhands have the same <code>!important</code> state,</li>
+ * <li>each longhand value consists of a single expression member and</li>
+ * <li>no other declaration of the same property family (see
+ * {@link CSSCompressionNormalizer#getPropertyFamily(String)}) is located
+ * between the first and the last longhand.</li>
+ * </ul>
+ * The shorthand is placed at the position of the last longhand. Only
+ * shorthands that set exactly their registered longhands are handled -
+ * <code>border</code>, <code>font</code> and <code>background</code> also reset
+ * properties that are not part of their descriptor and are therefore never
+ * created. For the box shorthands <code>margin</code>, <code>padding</code>,
+ * <code>border-width</code>, <code>border-style</code> and
+ * <code>border-color</code> the shortest of the 1, 2, 3 or 4 value forms is
+ * used.
+ *
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSShortHandCollapser
+{
+  /** Shorthands with top, right, bottom and left longhands */
+  private static final ECSSProperty [] BOX_SHORTHANDS = new ECSSProperty [] { ECSSProperty.MARGIN,
+                                                                              ECSSProperty.PADDING,
+                                                                              ECSSProperty.BORDER_WIDTH,
+                                                                              ECSSProperty.BORDER_STYLE,
+                                                                              ECSSProperty.BORDER_COLOR };
+  /** Shorthands whose longhand values are simply concatenated */
+  private static final ECSSProperty [] LIST_SHORTHANDS = new ECSSProperty [] { ECSSProperty.BORDER_TOP,
+                                                                               ECSSProperty.BORDER_RIGHT,
+                                                                               ECSSProperty.BORDER_BOTTOM,
+                                                                               ECSSProperty.BORDER_LEFT,
+                                                                               ECSSProperty.OUTLINE,
+                                                                               ECSSProperty.LIST_STYLE };
+  private static final CSSWriterSettings s_aCompareSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSShortHandCollapser s_aInstance = new CSSShortHandCollapser ();
+
+  private CSSShortHandCollapser ()
+  {}
+
+  private static boolean _isCSSWideKeyword (@Nonnull final String sValue)
+  {
+    final String sLCValue = sValue.toLowerCase (Locale.US);
+    return sLCValue.equals (CCSSValue.INHERIT) || sLCValue.equals (CCSSValue.INITIAL) || sLCValue.equals (CCSSValue.UNSET);
+  }
+
+  /**
+   * Get the number of values required to express the passed top, right,
+   * bottom and left values in a box shorthand.
+   *
+   * @param aValues
+   *        The 4 values in the order top, right, bottom, left. May not be
+   *        <code>null</code>.
+   * @return A value between 1 and 4.
+   */
+  static int getBoxValueCount (@Nonnull final String [] aValues)
+  {
+    if (!aValues[3].equals (aValues[1]))
+      return 4;
+    if (!aValues[2].equals (aValues[0]))
+      return 3;
+    if (!aValues[1].equals (aValues[0]))
+      return 2;
+    return 1;
+  }
+
+  @Nonnull
+  private static EChange _collapse (@Nonnull final IHasCSSDeclarations aHasDeclarations,
+                                    @Nonnull final ECSSProperty eShortHand,
+                                    final boolean bIsBox)
+  {
+    final CSSShortHandDescriptor aDescriptor = CSSShortHandRegistry.getShortHandDescriptor (eShortHand);
+    if (aDescriptor == null)
+      return EChange.UNCHANGED;
+
+    final List <CSSPropertyWithDefaultValue> aSubProperties = aDescriptor.getAllSubProperties ();
+    final int nSubProperties = aSubProperties.size ();
+    if (bIsBox && nSubProperties != 4)
+      return EChange.UNCHANGED;
+
+    // Find the single declaration of each longhand
+    final List <CSSDeclaration> aDeclarations = aHasDeclarations.getAllDeclarations ();
+    final int [] aIndices = new int [nSubProperties];
+    Arrays.fill (aIndices, -1);
+    int nFound = 0;
+    for (int nDecl = 0; nDecl < aDeclarations.size (); ++nDecl)
+    {
+      final String sProperty = aDeclarations.get (nDecl).getProperty ();
+      for (int nSub = 0; nSub < nSubProperties; ++nSub)
+        if (sProperty.equalsIgnoreCase (aSubProperties.get (nSub).getProperty ().getProp ().getName ()))
+        {
+          if (aIndices[nSub] >= 0)
+          {
+            // Declared more than once
+            return EChange.UNCHANGED;
+          }
+          aIndices[nSub] = nDecl;
+          ++nFound;
+        }
+    }
+    if (nFound != nSubProperties)
+      return EChange.UNCHANGED;
+
+    // Check importance and values
+    final int nFirst = _getMin (aIndices);
+    final int nLast = _getMax (aIndices);
+    final boolean bImportant = aDeclarations.get (nLast).isImportant ();
+    final ICSSExpressionMember [] aMembers = new ICSSExpressionMember [nSubProperties];
+    final String [] aValues = new String [nSubProperties];
+    boolean bHasCSSWideKeyword = false;
+    for (int nSub = 0; nSub < nSubProperties; ++nSub)
+    {
+      final CSSDeclaration aDeclaration = aDeclarations.get (aIndices[nSub]);
+      if (aDeclaration.isImportant () != bImportant)
+        return EChange.UNCHANGED;
+      final CSSExpression aExpression = aDeclaration.getExpression ();
+      if (aExpression.getMemberCount () != 1)
+        return EChange.UNCHANGED;
+      aMembers[nSub] = aExpression.getMemberAtIndex (0);
+      aValues[nSub] = aMembers[nSub].getAsCSSString (s_aCompareSettings, 0);
+      if (_isCSSWideKeyword (aValues[nSub]))
+        bHasCSSWideKeyword = true;
+    }
+
+    // Check that the longhands can be moved to the last position
+    final String sFamily = CSSCompressionNormalizer.getPropertyFamily (eShortHand.getName ());
+    for (int nDecl = nFirst + 1; nDecl < nLast; ++nDecl)
+      if (!_contains (aIndices, nDecl))
+      {
+        final String sOtherFamily = CSSCompressionNormalizer.getPropertyFamily (aDeclarations.get (nDecl)
+                                                                                             .getProperty ());
+        if (sOtherFamily == null || sOtherFamily.equals (sFamily))
+          return EChange.UNCHANGED;
+      }
+
+    // Determine the number of members to use
+    int nMembers;
+    if (bHasCSSWideKeyword)
+    {
+      // "inherit" etc. may only be used as the sole value of a shorthand
+      for (int nSub = 1; nSub < nSubProperties; ++nSub)
+        if (!aValues[nSub].equals (aValues[0]))
+          return EChange.UNCHANGED;
+      nMembers = 1;
+    }
+    else
+      if (bIsBox)
+        nMembers = getBoxValueCount (aValues);
+      else
+        nMembers = nSubProperties;
+
+    final CSSExpression aShortHandExpression = new CSSExpression ();
+    for (int nSub = 0; nSub < nMembers; ++nSub)
+      aShortHandExpression.addMember (aMembers[nSub].getClone ());
+
+    // Replace the last longhand and remove all others from back to front
+    aHasDeclarations.setDeclarationAtIndex (nLast, new CSSDeclaration (eShortHand.getName (),
+                                                                       aShortHandExpression,
+                                                                       bImportant));
+    for (int nDecl = nLast - 1; nDecl >= nFirst; --nDecl)
+      if (_contains (aIndices, nDecl))
+        aHasDeclarations.removeDeclaration (nDecl);
+    return EChange.CHANGED;
+  }
+
+  private static int _getMin (@Nonnull final int [] aValues)
+  {
+    int ret = Integer.MAX_VALUE;
+    for (final int n : aValues)
+      ret = Math.min (ret, n);
+    return ret;
+  }
+
+  private static int _getMax (@Nonnull final int [] aValues)
+  {
+    int ret = Integer.MIN_VALUE;
+    for (final int n : aValues)
+      ret = Math.max (ret, n);
+    return ret;
+  }
+
+  private static boolean _contains (@Nonnull final int [] aValues, final int nValue)
+  {
+    for (final int n : aValues)
+      if (n == nValue)
+        return true;
+    return false;
+  }
+
+  /**
+   * Collapse all complete longhand sets of the passed declaration block into
+   * their shorthands. The box shorthands are tried first, so that e.g. the 12
+   * border longhands result in <code>border-width</code>,
+   * <code>border-style</code> and <code>border-color</code>.
+   *
+   * @param aHasDeclarations
+   *        The declaration block to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one shorthand was created.
+   */
+  @Nonnull
+  public static EChange collapseShortHands (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+  {
+    ValueEnforcer.notNull (aHasDeclarations, "HasDeclarations");
+
+    EChange eChange = EChange.UNCHANGED;
+    for (final ECSSProperty eShortHand : BOX_SHORTHANDS)
+      eChange = eChange.or (_collapse (aHasDeclarations, eShortHand, true));
+    for (final ECSSProperty eShortHand : LIST_SHORTHANDS)
+      eChange = eChange.or (_collapse (aHasDeclarations, eShortHand, false));
+    return eChange;
+  }
+
+  @NotThreadSafe
+  private static final class CollapsingVisitor extends DefaultCSSVisitor
+  {
+    private EChange m_eChange = EChange.UNCHANGED;
+
+    private void _onDeclarations (@Nonnull final IHasCSSDeclarations aHasDeclarations)
+    {
+      m_eChange = m_eChange.or (collapseShortHands (aHasDeclarations));
+    }
+
+    @Override
+    public void onBeginStyleRule (@Nonnull final CSSStyleRule aStyleRule)
+    {
+      _onDeclarations (aStyleRule);
+    }
+
+    @Override
+    public void onBeginPageRule (@Nonnull final CSSPageRule aPageRule)
+    {
+      _onDeclarations (aPageRule);
+    }
+
+    @Override
+    public void onBeginFontFaceRule (@Nonnull final CSSFontFaceRule aFontFaceRule)
+    {
+      _onDeclarations (aFontFaceRule);
+    }
+
+    @Override
+    public void onBeginKeyframesBlock (@Nonnull final CSSKeyframesBlock aKeyframesBlock)
+    {
+      _onDeclarations (aKeyframesBlock);
+    }
+
+    @Override
+    public void onBeginViewportRule (@Nonnull final CSSViewportRule aViewportRule)
+    {
+      _onDeclarations (aViewportRule);
+    }
+  }
+
+  /**
+   * Collapse all complete longhand sets in all declaration blocks of the passed
+   * style sheet, including nested rules.
+   *
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one shorthand was created.
+   */
+  @Nonnull
+  public static EChange collapseShortHands (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final CollapsingVisitor aVisitor = new CollapsingVisitor ();
+    CSSVisitor.visitCSS (aCSS, aVisitor);
+    return aVisitor.m_eChange;
+  }
+}
@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSFontFaceRule;
+import com.phloc.css.decl.CSSKeyframesRule;
+import com.phloc.css.decl.CSSPageRule;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorAttribute;
+import com.phloc.css.decl.CSSSelectorMemberFunctionLike;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CSSUnknownRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ECSSSelectorCombinator;
+import com.phloc.css.decl.ICSSSelectorMember;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.decl.IHasCSSTopLevelRules;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Model level minification of style sheets that preserves the cascade:
+ * <ul>
+ * <li>Exact duplicate rules are removed - only the last occurrence is kept,
+ * because it overrides all previous ones anyway.</li>
+ * <li>Adjacent style rules with identical selector lists are merged into one
+ * rule.</li>
+ * <li>Style rules with identical declaration blocks are merged into one rule
+ * with a combined selector list at the position of the last rule, if no rule
+ * in between declares a property of the same family (see
+ * {@link CSSCompressionNormalizer#getPropertyFamily(String)}).</li>
+ * </ul>
+ * Only rules whose selectors consist of type, class, id and attribute
+ * selectors, combinators and the CSS 2.1 pseudo classes and pseudo elements
+ * are merged with other selectors, because browsers drop the whole rule if
+ * they don't know one selector (e.g. <code>::selection</code>,
+ * <code>:focus-visible</code> or <code>::-moz-selection</code>).
+ * <code>@media</code> and <code>@supports</code> rules are processed
+ * recursively, but rules are never moved in or out of them.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSStructuralMinifier
+{
+  /**
+   * The CSS 2.1 pseudo classes and pseudo elements (lower case and without the
+   * leading colon) that are supported by all browsers. Function like pseudo
+   * classes contain the opening parenthesis.
+   */
+  private static final Set <String> s_aSafePseudos = ContainerHelper.newSet ("link",
+                                                                             "visited",
+                                                                             "hover",
+                                                                             "active",
+                                                                             "focus",
+                                                                             "first-child",
+                                                                             "first-line",
+                                                                             "first-letter",
+                                                                             "before",
+                                                                             "after",
+                                                                             "lang(");
+
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSStructuralMinifier s_aInstance = new CSSStructuralMinifier ();
+
+  private CSSStructuralMinifier ()
+  {}
+
+  @Nonnull
+  private static EChange _setRules (@Nonnull final IHasCSSTopLevelRules aRules,
+                                    @Nonnull final List <ICSSTopLevelRule> aNewRules)
+  {
+    aRules.removeAllRules ();
+    for (final ICSSTopLevelRule aRule : aNewRules)
+      aRules.addRule (aRule);
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Remove all rules that have an exact duplicate later on in the same
+   * container. Unknown rules are never removed.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one rule was removed.
+   */
+  @Nonnull
+  public static EChange removeDuplicateRules (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    final List <ICSSTopLevelRule> aOldRules = aRules.getAllRules ();
+    final Map <ICSSTopLevelRule, Integer> aLastIndex = new HashMap <ICSSTopLevelRule, Integer> ();
+    for (int i = 0; i < aOldRules.size (); ++i)
+      aLastIndex.put (aOldRules.get (i), Integer.valueOf (i));
+
+    final List <ICSSTopLevelRule> aNewRules = new ArrayList <ICSSTopLevelRule> (aOldRules.size ());
+    for (int i = 0; i < aOldRules.size (); ++i)
+    {
+      final ICSSTopLevelRule aRule = aOldRules.get (i);
+      if (aRule instanceof CSSUnknownRule || aLastIndex.get (aRule).intValue () == i)
+        aNewRules.add (aRule);
+    }
+    if (aNewRules.size () == aOldRules.size ())
+      return EChange.UNCHANGED;
+    return _setRules (aRules, aNewRules);
+  }
+
+  /**
+   * Merge directly adjacent style rules with identical selector lists into one
+   * style rule.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one rule was merged.
+   */
+  @Nonnull
+  public static EChange mergeAdjacentStyleRules (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    final List <ICSSTopLevelRule> aNewRules = new ArrayList <ICSSTopLevelRule> ();
+    CSSStyleRule aPrevStyleRule = null;
+    boolean bChanged = false;
+    for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+    {
+      if (aRule instanceof CSSStyleRule)
+      {
+        final CSSStyleRule aStyleRule = (CSSStyleRule) aRule;
+        if (aPrevStyleRule != null && aPrevStyleRule.getAllSelectors ().equals (aStyleRule.getAllSelectors ()))
+        {
+          for (final CSSDeclaration aDeclaration : aStyleRule.getAllDeclarations ())
+            aPrevStyleRule.addDeclaration (aDeclaration);
+          bChanged = true;
+          continue;
+        }
+        aPrevStyleRule = aStyleRule;
+      }
+      else
+        aPrevStyleRule = null;
+      aNewRules.add (aRule);
+    }
+    return bChanged ? _setRules (aRules, aNewRules) : EChange.UNCHANGED;
+  }
+
+  private static boolean _isSafePseudo (@Nonnull final String sPseudo)
+  {
+    // The CSS 2.1 pseudo elements must use the single colon syntax
+    if (sPseudo.startsWith ("::"))
+      return false;
+    return s_aSafePseudos.contains (sPseudo.substring (1).toLowerCase (Locale.US));
+  }
+
+  private static boolean _isSafeSelectorMember (@Nonnull final ICSSSelectorMember aMember)
+  {
+    if (aMember instanceof ECSSSelectorCombinator || aMember instanceof CSSSelectorAttribute)
+      return true;
+    if (aMember instanceof CSSSelectorSimpleMember)
+    {
+      final CSSSelectorSimpleMember aSimple = (CSSSelectorSimpleMember) aMember;
+      return !aSimple.isPseudo () || _isSafePseudo (aSimple.getValue ());
+    }
+    if (aMember instanceof CSSSelectorMemberFunctionLike)
+      return _isSafePseudo (((CSSSelectorMemberFunctionLike) aMember).getFunctionName ());
+    // E.g. :not(...)
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if all selectors of the passed rule are known to
+   *         be supported by all browsers, so that they can be merged with other
+   *         selectors.
+   */
+  private static boolean _hasOnlySafeSelectors (@Nonnull final CSSStyleRule aStyleRule)
+  {
+    for (final CSSSelector aSelector : aStyleRule.getAllSelectors ())
+      for (final ICSSSelectorMember aMember : aSelector.getAllMembers ())
+        if (!_isSafeSelectorMember (aMember))
+          return false;
+    return true;
+  }
+
+  /**
+   * @return The property families of all declarations of the passed rule or
+   *         <code>null</code> if the rule may influence all properties.
+   */
+  @Nullable
+  private static Set <String> _getPropertyFamilies (@Nonnull final CSSStyleRule aStyleRule)
+  {
+    final Set <String> ret = new HashSet <String> ();
+    for (final CSSDeclaration aDeclaration : aStyleRule.getAllDeclarations ())
+    {
+      final String sFamily = CSSCompressionNormalizer.getPropertyFamily (aDeclaration.getProperty ());
+      if (sFamily == null)
+        return null;
+      ret.add (sFamily);
+    }
+    return ret;
+  }
+
+  private static boolean _isIndependentOfStyleRules (@Nonnull final ICSSTopLevelRule aRule)
+  {
+    // These rules never apply declarations to elements
+    return aRule instanceof CSSFontFaceRule || aRule instanceof CSSKeyframesRule || aRule instanceof CSSPageRule;
+  }
+
+  /**
+   * Check if a style rule with the passed property families may be moved from
+   * the start index to the end index.
+   */
+  private static boolean _canMove (@Nonnull final List <ICSSTopLevelRule> aRules,
+                                   final int nStartIndex,
+                                   final int nEndIndex,
+                                   @Nullable final Set <String> aFamilies)
+  {
+    if (aFamilies == null)
+      return false;
+    for (int i = nStartIndex + 1; i < nEndIndex; ++i)
+    {
+      final ICSSTopLevelRule aRule = aRules.get (i);
+      if (aRule == null || _isIndependentOfStyleRules (aRule))
+        continue;
+      if (!(aRule instanceof CSSStyleRule))
+        return false;
+      final Set <String> aOtherFamilies = _getPropertyFamilies ((CSSStyleRule) aRule);
+      if (aOtherFamilies == null)
+        return false;
+      for (final String sFamily : aOtherFamilies)
+        if (aFamilies.contains (sFamily))
+          return false;
+    }
+    return true;
+  }
+
+  /**
+   * Merge style rules with identical declaration blocks into one style rule
+   * with the combined selector list. The merged rule is placed at the position
+   * of the last rule, and only if no rule in between declares a property of
+   * the same family.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one rule was merged.
+   */
+  @Nonnull
+  public static EChange mergeStyleRulesWithSameDeclarations (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    // Removed rules are replaced with null
+    final List <ICSSTopLevelRule> aWorkRules = aRules.getAllRules ();
+    final Map <List <CSSDeclaration>, Integer> aLastIndex = new HashMap <List <CSSDeclaration>, Integer> ();
+    boolean bChanged = false;
+    for (int i = 0; i < aWorkRules.size (); ++i)
+    {
+      final ICSSTopLevelRule aRule = aWorkRules.get (i);
+      if (!(aRule instanceof CSSStyleRule))
+        continue;
+      final CSSStyleRule aStyleRule = (CSSStyleRule) aRule;
+      if (!aStyleRule.hasDeclarations () || !_hasOnlySafeSelectors (aStyleRule))
+        continue;
+
+      final List <CSSDeclaration> aDeclarations = aStyleRule.getAllDeclarations ();
+      final Integer aPrevIndex = aLastIndex.get (aDeclarations);
+      if (aPrevIndex != null)
+      {
+        final int nPrevIndex = aPrevIndex.intValue ();
+        if (_canMove (aWorkRules, nPrevIndex, i, _getPropertyFamilies (aStyleRule)))
+        {
+          // Merge the selectors of the previous rule into this rule
+          final CSSStyleRule aPrevStyleRule = (CSSStyleRule) aWorkRules.get (nPrevIndex);
+          final List <CSSSelector> aSelectors = aStyleRule.getAllSelectors ();
+          int nInsertIndex = 0;
+          for (final CSSSelector aSelector : aPrevStyleRule.getAllSelectors ())
+            if (!aSelectors.contains (aSelector))
+              aStyleRule.addSelector (nInsertIndex++, aSelector);
+          aWorkRules.set (nPrevIndex, null);
+          bChanged = true;
+        }
+      }
+      aLastIndex.put (aDeclarations, Integer.valueOf (i));
+    }
+    if (!bChanged)
+      return EChange.UNCHANGED;
+
+    final List <ICSSTopLevelRule> aNewRules = new ArrayList <ICSSTopLevelRule> (aWorkRules.size ());
+    for (final ICSSTopLevelRule aRule : aWorkRules)
+      if (aRule != null)
+        aNewRules.add (aRule);
+    return _setRules (aRules, aNewRules);
+  }
+
+  /**
+   * Apply all minifications of this class recursively to the passed rule
+   * container until nothing changes anymore.
+   * 
+   * @param aRules
+   *        The rule container to be modified. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if anything was changed.
+   */
+  @Nonnull
+  public static EChange minify (@Nonnull final IHasCSSTopLevelRules aRules)
+  {
+    ValueEnforcer.notNull (aRules, "Rules");
+
+    EChange eChange = EChange.UNCHANGED;
+    for (final ICSSTopLevelRule aRule : aRules.getAllRules ())
+      if (aRule instanceof IHasCSSTopLevelRules)
+        eChange = eChange.or (minify ((IHasCSSTopLevelRules) aRule));
+
+    // Each changing pass reduces the number of rules, so this terminates
+    EChange eLastChange;
+    do
+    {
+      eLastChange = removeDuplicateRules (aRules).or (mergeAdjacentStyleRules (aRules))
+                                                 .or (mergeStyleRulesWithSameDeclarations (aRules));
+      eChange = eChange.or (eLastChange);
+    } while (eLastChange.isChanged ());
+    return eChange;
+  }
+
+  /**
+   * Get the number of UTF-8 bytes of the passed style sheet, as it is written
+   * with the passed settings without header and footer.
+   * 
+   * @param aCSS
+   *        The style sheet to measure. May not be <code>null</code>.
+   * @param aSettings
+   *        The writer settings to be used. May not be <code>null</code>.
+   * @return The number of bytes.
+   */
+  static long getSerializedSize (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final CSSWriterSettings aSettings)
+  {
+    return new CSSWriter (aSettings).setWriteHeaderText (false)
+                                    .setWriteFooterText (false)
+                                    .getCSSAsUTF8Bytes (aCSS).length;
+  }
+
+  /**
+   * Apply all minifications of this class to the passed style sheet and
+   * determine the number of bytes saved.
+   * 
+   * @param aCSS
+   *        The style sheet to be modified. May not be <code>null</code>.
+   * @param aSettings
+   *        The writer settings that are used to determine the serialized size
+   *        of the style sheet. May not be <code>null</code>.
+   * @return The minification result. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CSSMinificationResult minify (@Nonnull final CascadingStyleSheet aCSS,
+                                              @Nonnull final CSSWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final long nOriginalBytes = getSerializedSize (aCSS, aSettings);
+    if (minify (aCSS).isUnchanged ())
+      return new CSSMinificationResult (nOriginalBytes, nOriginalBytes);
+    return new CSSMinificationResult (nOriginalBytes, getSerializedSize (aCSS, aSettings));
+  }
+}
@@ -17,9 +17,13 @@
  */
 package com.phloc.css.writer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
 
 import javax.annotation.Nonnull;
+import javax.annotation.WillClose;
 import javax.annotation.concurrent.Immutable;
 
 import org.slf4j.Logger;
@@ -30,6 +34,8 @@ import com.phloc.commons.annotations.PresentForCodeCoverage;
 import com.phloc.css.ECSSVersion;
 import com.phloc.css.decl.CascadingStyleSheet;
 import com.phloc.css.reader.CSSReader;
+import com.phloc.css.tools.CSSMediaRuleMerger;
+import com.phloc.css.tools.CSSStructuralMinifier;
 
 /**
  * Utility class to compress CSS content
@@ -150,4 +156,75 @@ public final class CSSCompressor
     }
     return sOriginalCSS;
   }
+
+  /**
+   * Get the minified version of the passed CSS code. Compared to
+   * {@link #getRewrittenCSS(String, CSSWriterSettings)} the style sheet is
+   * additionally minified on the model level with the
+   * {@link CSSMediaRuleMerger} and the {@link CSSStructuralMinifier} before it
+   * is written (<code>@media</code> rules with the same media queries are
+   * grouped, duplicate rules are removed and rules are merged where this is
+   * cascade-safe).
+   * 
+   * @param sOriginalCSS
+   *        The original CSS code to be compressed.
+   * @param aSettings
+   *        The CSS writer settings to use. The version is used to read the
+   *        original CSS.
+   * @return If compression failed because the CSS is invalid or whatsoever, the
+   *         original CSS is returned, else the minified version is returned.
+   * @since 3.8.1
+   */
+  @Nonnull
+  public static String getMinifiedCSS (@Nonnull final String sOriginalCSS, @Nonnull final CSSWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (sOriginalCSS, "OriginalCSS");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sOriginalCSS, aSettings.getVersion ());
+    if (aCSS != null)
+    {
+      try
+      {
+        CSSMediaRuleMerger.mergeMediaRules (aCSS);
+        CSSStructuralMinifier.minify (aCSS);
+        return new CSSWriter (aSettings).getCSSAsString (aCSS);
+      }
+      catch (final Exception ex)
+      {
+        s_aLogger.warn ("Failed to write minified CSS!", ex);
+      }
+    }
+    return sOriginalCSS;
+  }
+
+  /**
+   * Compress the CSS read from the passed reader and write it to the passed
+   * writer, using bounded memory. Other than the methods handling strings, the
+   * input is processed top-level rule by top-level rule, so that even very
+   * large CSS files can be compressed. Top-level rules that cannot be parsed
+   * are copied unchanged.
+   * 
+   * @param aReader
+   *        The reader to read the original CSS from. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @param aWriter
+   *        The writer to write the compressed CSS to. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @param aSettings
+   *        The CSS writer settings to use. The version is used to read the
+   *        original CSS.
+   * @throws IOException
+   *         In case reading or writing fails
+   * @see CSSStreamingCompressor
+   * @since 3.8.1
+   */
+  public static void writeCompressedCSS (@Nonnull @WillClose final Reader aReader,
+                                         @Nonnull @WillClose final Writer aWriter,
+                                         @Nonnull final CSSWriterSettings aSettings) throws IOException
+  {
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    new CSSStreamingCompressor (aSettings).writeCompressedCSS (aReader, aWriter);
+  }
 }
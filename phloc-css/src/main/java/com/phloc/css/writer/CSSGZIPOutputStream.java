@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A {@link GZIPOutputStream} with a configurable compression level.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+final class CSSGZIPOutputStream extends GZIPOutputStream
+{
+  /**
+   * Constructor
+   * 
+   * @param aOS
+   *        The output stream to write the compressed data to. May not be
+   *        <code>null</code>.
+   * @param nCompressionLevel
+   *        The deflater compression level. Must be between
+   *        {@link java.util.zip.Deflater#DEFAULT_COMPRESSION} and
+   *        {@link java.util.zip.Deflater#BEST_COMPRESSION}.
+   * @throws IOException
+   *         In case the GZIP header could not be written
+   */
+  CSSGZIPOutputStream (@Nonnull @WillCloseWhenClosed final OutputStream aOS, final int nCompressionLevel) throws IOException
+  {
+    super (aOS, CSSUTF8Appendable.DEFAULT_BUFFER_SIZE);
+    def.setLevel (nCompressionLevel);
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.filter.IFilter;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.decl.CSSSourceText;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+
+/**
+ * Write several variants of the same style sheet (e.g. a pretty printed, a
+ * minified and a filtered variant) in a single traversal of the model. Each
+ * variant is defined by a {@link CSSWriter} and the target to write to and
+ * creates exactly the same output as the respective {@link CSSWriter} would
+ * create on its own. Top-level rules are rendered only once for all variants
+ * with equal settings and the text of selectors and expressions is shared
+ * between all variants where it does not differ.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSMultiWriter
+{
+  private static final class Variant
+  {
+    private final CSSWriter m_aWriter;
+    private final IFilter <ICSSTopLevelRule> m_aRuleFilter;
+    private final Appendable m_aTarget;
+
+    Variant (@Nonnull final CSSWriter aWriter,
+             @Nullable final IFilter <ICSSTopLevelRule> aRuleFilter,
+             @Nonnull final Appendable aTarget)
+    {
+      m_aWriter = aWriter;
+      m_aRuleFilter = aRuleFilter;
+      m_aTarget = aTarget;
+    }
+  }
+
+  private final List <Variant> m_aVariants = new ArrayList <Variant> ();
+
+  /**
+   * Add a new variant that contains all top-level rules.
+   * 
+   * @param aWriter
+   *        The writer defining the settings, header, footer etc. to be used.
+   *        May not be <code>null</code>.
+   * @param aTarget
+   *        The target to write the variant to. May not be <code>null</code>.
+   *        It is not closed by this class.
+   * @return this
+   */
+  @Nonnull
+  public CSSMultiWriter addVariant (@Nonnull final CSSWriter aWriter, @Nonnull final Appendable aTarget)
+  {
+    return addVariant (aWriter, null, aTarget);
+  }
+
+  /**
+   * Add a new variant.
+   * 
+   * @param aWriter
+   *        The writer defining the settings, header, footer etc. to be used.
+   *        May not be <code>null</code>.
+   * @param aRuleFilter
+   *        An optional filter for the main top-level rules to be written. Only
+   *        top-level rules matching the filter are written. Import and
+   *        namespace rules are not affected by the filter. May be
+   *        <code>null</code> to write all rules.
+   * @param aTarget
+   *        The target to write the variant to. May not be <code>null</code>.
+   *        It is not closed by this class.
+   * @return this
+   */
+  @Nonnull
+  public CSSMultiWriter addVariant (@Nonnull final CSSWriter aWriter,
+                                    @Nullable final IFilter <ICSSTopLevelRule> aRuleFilter,
+                                    @Nonnull final Appendable aTarget)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    ValueEnforcer.notNull (aTarget, "Target");
+    m_aVariants.add (new Variant (aWriter, aRuleFilter, aTarget));
+    return this;
+  }
+
+  /**
+   * @return The number of contained variants. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getVariantCount ()
+  {
+    return m_aVariants.size ();
+  }
+
+  /**
+   * Write the passed style sheet to all variants.
+   * 
+   * @param aCSS
+   *        The CSS to be written. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing to any target fails
+   * @throws IllegalStateException
+   *         In case the settings of a variant do not match the CSS
+   */
+  public void appendCSS (@Nonnull final CascadingStyleSheet aCSS) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    final int nVariants = m_aVariants.size ();
+    final CSSSharingWriterSettings [] aSettings = new CSSSharingWriterSettings [nVariants];
+    final String [] aFingerprints = new String [nVariants];
+    final CSSPrefixingAppendable [] aRuleTargets = new CSSPrefixingAppendable [nVariants];
+    final int [] aRulesEmitted = new int [nVariants];
+
+    // The selector and expression text shared between the variants
+    final Map <String, Map <ICSSWriteable, String>> aSharedResults = new HashMap <String, Map <ICSSWriteable, String>> ();
+    for (int i = 0; i < nVariants; ++i)
+    {
+      final Variant aVariant = m_aVariants.get (i);
+      final CSSWriterSettings aWriterSettings = aVariant.m_aWriter.getSettings ();
+      final String sSharingKey = CSSSharingWriterSettings.getSharingKey (aWriterSettings);
+      Map <ICSSWriteable, String> aMap = aSharedResults.get (sSharingKey);
+      if (aMap == null)
+      {
+        aMap = new IdentityHashMap <ICSSWriteable, String> ();
+        aSharedResults.put (sSharingKey, aMap);
+      }
+      aSettings[i] = new CSSSharingWriterSettings (aWriterSettings, aMap);
+      aFingerprints[i] = CSSRuleOutputCache.getSettingsFingerprint (aWriterSettings);
+      aRuleTargets[i] = new CSSPrefixingAppendable (aVariant.m_aTarget);
+      aRulesEmitted[i] = aVariant.m_aWriter.appendPrologue (aCSS, aVariant.m_aTarget);
+    }
+
+    // The text of the current rule per settings fingerprint
+    final CSSSourceText aSourceText = aCSS.getSourceText ();
+    final Map <String, String> aRuleTexts = new HashMap <String, String> ();
+    for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+    {
+      for (int i = 0; i < nVariants; ++i)
+      {
+        final Variant aVariant = m_aVariants.get (i);
+        if (aVariant.m_aRuleFilter != null && !aVariant.m_aRuleFilter.matchesFilter (aRule))
+          continue;
+
+        String sRuleText = null;
+        if (aSourceText != null && aVariant.m_aWriter.isUseSourceText ())
+          sRuleText = aSourceText.getUnmodifiedRuleText (aRule);
+        if (sRuleText == null)
+          sRuleText = aRuleTexts.get (aFingerprints[i]);
+        if (sRuleText == null)
+        {
+          final CSSRuleOutputCache aCache = aVariant.m_aWriter.getRuleOutputCache ();
+          sRuleText = aCache != null ? aCache.getAsCSSString (aRule, aSettings[i], 0, aFingerprints[i])
+                                     : CSSWriterHelper.getAsCSSString (aRule, aSettings[i], 0);
+          aRuleTexts.put (aFingerprints[i], sRuleText);
+        }
+
+        final CSSPrefixingAppendable aRuleTarget = aRuleTargets[i];
+        aRuleTarget.startItem (!aSettings[i].isOptimizedOutput () && aRulesEmitted[i] > 0 ? "\n" : null);
+        aRuleTarget.append (sRuleText);
+        if (aRuleTarget.hasItemContent ())
+          aRulesEmitted[i]++;
+      }
+
+      // Release the memory of this rule
+      aRuleTexts.clear ();
+      for (final Map <ICSSWriteable, String> aMap : aSharedResults.values ())
+        aMap.clear ();
+    }
+
+    for (final Variant aVariant : m_aVariants)
+      aVariant.m_aWriter.appendEpilogue (aVariant.m_aTarget);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("variants", m_aVariants.size ()).toString ();
+  }
+}
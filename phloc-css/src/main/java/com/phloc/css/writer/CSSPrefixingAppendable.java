@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * An {@link Appendable} that writes a pending prefix to the underlying
+ * {@link Appendable} right before the first non-empty content of an item is
+ * appended. This is used to stream lists of rules where separators and
+ * indentation may only be emitted for rules that create output at all.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public final class CSSPrefixingAppendable implements Appendable
+{
+  private final Appendable m_aTarget;
+  private String m_sPendingPrefix;
+  private boolean m_bItemHasContent;
+
+  /**
+   * Constructor
+   * 
+   * @param aTarget
+   *        The appendable to write to. May not be <code>null</code>.
+   */
+  public CSSPrefixingAppendable (@Nonnull final Appendable aTarget)
+  {
+    m_aTarget = ValueEnforcer.notNull (aTarget, "Target");
+  }
+
+  /**
+   * Start a new item. Any previously pending prefix that was not yet written
+   * is discarded.
+   * 
+   * @param sPrefix
+   *        The prefix to be written right before the first content of the
+   *        item. May be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSPrefixingAppendable startItem (@Nullable final String sPrefix)
+  {
+    m_sPendingPrefix = sPrefix;
+    m_bItemHasContent = false;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if content was appended since the last call to
+   *         {@link #startItem(String)}.
+   */
+  public boolean hasItemContent ()
+  {
+    return m_bItemHasContent;
+  }
+
+  private void _onContent () throws IOException
+  {
+    if (!m_bItemHasContent)
+    {
+      m_bItemHasContent = true;
+      if (m_sPendingPrefix != null)
+        m_aTarget.append (m_sPendingPrefix);
+    }
+  }
+
+  @Nonnull
+  public CSSPrefixingAppendable append (@Nullable final CharSequence aCS) throws IOException
+  {
+    // Appendable contract: null is appended as "null"
+    if (aCS == null || aCS.length () > 0)
+    {
+      _onContent ();
+      m_aTarget.append (aCS);
+    }
+    return this;
+  }
+
+  @Nonnull
+  public CSSPrefixingAppendable append (@Nullable final CharSequence aCS, final int nStart, final int nEnd) throws IOException
+  {
+    if (nEnd > nStart)
+    {
+      _onContent ();
+      m_aTarget.append (aCS, nStart, nEnd);
+    }
+    return this;
+  }
+
+  @Nonnull
+  public CSSPrefixingAppendable append (final char c) throws IOException
+  {
+    _onContent ();
+    m_aTarget.append (c);
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("target", m_aTarget)
+                                       .append ("pendingPrefix", m_sPendingPrefix)
+                                       .append ("itemHasContent", m_bItemHasContent)
+                                       .toString ();
+  }
+}
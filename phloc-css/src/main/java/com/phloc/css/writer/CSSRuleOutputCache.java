@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ICSSWriterSettings;
+import com.phloc.css.decl.CSSModificationCounter;
+import com.phloc.css.decl.ICSSTopLevelRule;
+
+/**
+ * A cache for the serialized form of top-level rules. It is meant for style
+ * sheets that are written many times with only small modifications in
+ * between. Only rules that were modified since they were last written are
+ * rendered again - for all other rules the cached text is used.<br>
+ * Each rule instance that was written is remembered (weakly) together with
+ * the modification count at that time. As long as neither the rule nor
+ * anything nested in it was modified since (see
+ * {@link ICSSTopLevelRule#getDeepModificationCount()}), the cached text is used
+ * directly. Otherwise the rule is rendered again. Rules are intentionally not
+ * looked up by their digest (see {@link com.phloc.css.tools.CSSDigestHelper}),
+ * because the digest is based on the optimized output, so rules that only
+ * differ in the original values (like <code>0px</code> and <code>0</code>)
+ * would share the same text in non-optimized output.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@ThreadSafe
+public class CSSRuleOutputCache
+{
+  /** The default maximum number of cached rules */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  /**
+   * Identity key: a weak reference to the live rule plus the output
+   * parameters.
+   */
+  private static final class IdentityKey
+  {
+    private final String m_sSettingsFingerprint;
+    private final int m_nIndentLevel;
+    private final WeakReference <ICSSTopLevelRule> m_aRule;
+    private final int m_nHashCode;
+
+    IdentityKey (@Nonnull final String sSettingsFingerprint,
+                 @Nonnegative final int nIndentLevel,
+                 @Nonnull final ICSSTopLevelRule aRule)
+    {
+      m_sSettingsFingerprint = sSettingsFingerprint;
+      m_nIndentLevel = nIndentLevel;
+      m_aRule = new WeakReference <ICSSTopLevelRule> (aRule);
+      // Calculated manually, as this is called for each written rule
+      m_nHashCode = (sSettingsFingerprint.hashCode () * 31 + nIndentLevel) * 31 + System.identityHashCode (aRule);
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof IdentityKey))
+        return false;
+      final IdentityKey rhs = (IdentityKey) o;
+      final ICSSTopLevelRule aRule = m_aRule.get ();
+      return aRule != null &&
+             aRule == rhs.m_aRule.get () &&
+             m_nIndentLevel == rhs.m_nIndentLevel &&
+             m_sSettingsFingerprint.equals (rhs.m_sSettingsFingerprint);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The text of a live rule instance, valid as long as the rule was not
+   * modified after the contained modification count.
+   */
+  @Immutable
+  private static final class Verified
+  {
+    private final String m_sCSS;
+    private final long m_nModificationCount;
+
+    Verified (@Nonnull final String sCSS, final long nModificationCount)
+    {
+      m_sCSS = sCSS;
+      m_nModificationCount = nModificationCount;
+    }
+  }
+
+  /**
+   * A map that evicts the eldest entries if the maximum size is exceeded.
+   */
+  private static final class BoundedMap <K, V> extends LinkedHashMap <K, V>
+  {
+    private final int m_nMaxSize;
+
+    BoundedMap (@Nonnegative final int nMaxSize)
+    {
+      m_nMaxSize = nMaxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry (final Map.Entry <K, V> aEldest)
+    {
+      return size () > m_nMaxSize;
+    }
+  }
+
+  private final ReadWriteLock m_aRWLock = new ReentrantReadWriteLock ();
+  private final int m_nMaxSize;
+  @GuardedBy ("m_aRWLock")
+  private final Map <IdentityKey, Verified> m_aVerified;
+  private final AtomicLong m_aHits = new AtomicLong ();
+  private final AtomicLong m_aMisses = new AtomicLong ();
+
+  /**
+   * Constructor using {@link #DEFAULT_MAX_SIZE}.
+   */
+  public CSSRuleOutputCache ()
+  {
+    this (DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param nMaxSize
+   *        The maximum number of rules to be cached. If more rules are added,
+   *        the rules that were added first are evicted. Must be &gt; 0.
+   */
+  public CSSRuleOutputCache (@Nonnegative final int nMaxSize)
+  {
+    m_nMaxSize = ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_aVerified = new BoundedMap <IdentityKey, Verified> (nMaxSize);
+  }
+
+  /**
+   * @return The maximum number of cached rules. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * Get a fingerprint of all writer settings that influence the output of a
+   * rule. Settings with the same fingerprint create the same output.
+   * 
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   * @return The fingerprint. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getSettingsFingerprint (@Nonnull final ICSSWriterSettings aSettings)
+  {
+    final boolean [] aFlags = new boolean [] { aSettings.isOptimizedOutput (),
+                                               aSettings.isRemoveUnnecessaryCode (),
+                                               aSettings.isQuoteURLs (),
+                                               aSettings.isWriteNamespaceRules (),
+                                               aSettings.isWriteFontFaceRules (),
+                                               aSettings.isWriteKeyframesRules (),
+                                               aSettings.isWriteMediaRules (),
+                                               aSettings.isWritePageRules (),
+                                               aSettings.isWriteViewportRules (),
+                                               aSettings.isWriteSupportsRules (),
+                                               aSettings.isWriteUnknownRules () };
+    final StringBuilder aSB = new StringBuilder (aSettings.getVersion ().name ()).append (':');
+    for (final boolean bFlag : aFlags)
+      aSB.append (bFlag ? '1' : '0');
+    return aSB.append (':').append (aSettings.getIndent (1)).toString ();
+  }
+
+  /**
+   * Get the CSS representation of the passed rule. If the rule was not
+   * modified since it was last written with the same settings, the cached text
+   * is returned.
+   * 
+   * @param aRule
+   *        The rule to be written. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @return The content of the rule as CSS string. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getAsCSSString (@Nonnull final ICSSTopLevelRule aRule,
+                                @Nonnull final ICSSWriterSettings aSettings,
+                                @Nonnegative final int nIndentLevel)
+  {
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    return getAsCSSString (aRule, aSettings, nIndentLevel, getSettingsFingerprint (aSettings));
+  }
+
+  @Nonnull
+  String getAsCSSString (@Nonnull final ICSSTopLevelRule aRule,
+                         @Nonnull final ICSSWriterSettings aSettings,
+                         @Nonnegative final int nIndentLevel,
+                         @Nonnull final String sSettingsFingerprint)
+  {
+    ValueEnforcer.notNull (aRule, "Rule");
+
+    final long nModificationCount = CSSModificationCounter.getModificationCount ();
+    final IdentityKey aIdentityKey = new IdentityKey (sSettingsFingerprint, nIndentLevel, aRule);
+
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      // Fast path: the same rule instance and nothing in it was modified
+      // since it was last written
+      final Verified aVerified = m_aVerified.get (aIdentityKey);
+      if (aVerified != null && aRule.getDeepModificationCount () <= aVerified.m_nModificationCount)
+      {
+        m_aHits.incrementAndGet ();
+        return aVerified.m_sCSS;
+      }
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+
+    m_aMisses.incrementAndGet ();
+    final String sCSS = CSSWriterHelper.getAsCSSString (aRule, aSettings, nIndentLevel);
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      m_aVerified.put (aIdentityKey, new Verified (sCSS, nModificationCount));
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+    return sCSS;
+  }
+
+  /**
+   * Append the CSS representation of the passed rule to the passed target.
+   * 
+   * @param aRule
+   *        The rule to be written. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   * @see #getAsCSSString(ICSSTopLevelRule, ICSSWriterSettings, int)
+   */
+  public void appendTo (@Nonnull final ICSSTopLevelRule aRule,
+                        @Nonnull final ICSSWriterSettings aSettings,
+                        @Nonnegative final int nIndentLevel,
+                        @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append (getAsCSSString (aRule, aSettings, nIndentLevel));
+  }
+
+  /**
+   * @return The number of rules currently cached.
+   */
+  @Nonnegative
+  public int getSize ()
+  {
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      return m_aVerified.size ();
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  /**
+   * @return The number of lookups that could use the cached text.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHits.get ();
+  }
+
+  /**
+   * @return The number of lookups that required the rule to be rendered.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMisses.get ();
+  }
+
+  /**
+   * Remove all cached rules and reset the statistics.
+   */
+  public void clear ()
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      m_aVerified.clear ();
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+    m_aHits.set (0);
+    m_aMisses.set (0);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("maxSize", m_nMaxSize)
+                                       .append ("size", getSize ())
+                                       .append ("hits", m_aHits.get ())
+                                       .append ("misses", m_aMisses.get ())
+                                       .toString ();
+  }
+}
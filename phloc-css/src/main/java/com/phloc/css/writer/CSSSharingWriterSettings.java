@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.ICSSVersionAware;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.ICSSWriterSettings;
+
+/**
+ * A wrapper around existing {@link ICSSWriterSettings} that allows to share
+ * the rendered text of selectors and expressions between several writer
+ * settings. The text of these objects does not depend on the indentation, so
+ * it is rendered once for all settings with the same
+ * {@link #getSharingKey(ICSSWriterSettings)} and reused afterwards. This is
+ * used by {@link CSSMultiWriter}.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public final class CSSSharingWriterSettings implements ICSSWriterSettings
+{
+  private final ICSSWriterSettings m_aDelegate;
+  private final Map <ICSSWriteable, String> m_aSharedResults;
+
+  /**
+   * Constructor
+   * 
+   * @param aDelegate
+   *        The settings to use. May not be <code>null</code>.
+   * @param aSharedResults
+   *        The identity map with the shared results of all settings with the
+   *        same sharing key. May not be <code>null</code>.
+   */
+  CSSSharingWriterSettings (@Nonnull final ICSSWriterSettings aDelegate,
+                            @Nonnull final Map <ICSSWriteable, String> aSharedResults)
+  {
+    m_aDelegate = ValueEnforcer.notNull (aDelegate, "Delegate");
+    m_aSharedResults = ValueEnforcer.notNull (aSharedResults, "SharedResults");
+  }
+
+  /**
+   * Get the key of all settings that create the same output for selectors and
+   * expressions.
+   * 
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   * @return The sharing key. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getSharingKey (@Nonnull final ICSSWriterSettings aSettings)
+  {
+    return aSettings.getVersion ().name () +
+           ':' +
+           (aSettings.isOptimizedOutput () ? '1' : '0') +
+           (aSettings.isQuoteURLs () ? '1' : '0');
+  }
+
+  /**
+   * @return The wrapped settings. Never <code>null</code>.
+   */
+  @Nonnull
+  public ICSSWriterSettings getDelegate ()
+  {
+    return m_aDelegate;
+  }
+
+  @Nonnull
+  public ECSSVersion getVersion ()
+  {
+    return m_aDelegate.getVersion ();
+  }
+
+  public boolean isOptimizedOutput ()
+  {
+    return m_aDelegate.isOptimizedOutput ();
+  }
+
+  public boolean isRemoveUnnecessaryCode ()
+  {
+    return m_aDelegate.isRemoveUnnecessaryCode ();
+  }
+
+  @Nonnull
+  public String getIndent (@Nonnegative final int nCount)
+  {
+    return m_aDelegate.getIndent (nCount);
+  }
+
+  public boolean isQuoteURLs ()
+  {
+    return m_aDelegate.isQuoteURLs ();
+  }
+
+  public boolean isWriteNamespaceRules ()
+  {
+    return m_aDelegate.isWriteNamespaceRules ();
+  }
+
+  public boolean isWriteFontFaceRules ()
+  {
+    return m_aDelegate.isWriteFontFaceRules ();
+  }
+
+  public boolean isWriteKeyframesRules ()
+  {
+    return m_aDelegate.isWriteKeyframesRules ();
+  }
+
+  public boolean isWriteMediaRules ()
+  {
+    return m_aDelegate.isWriteMediaRules ();
+  }
+
+  public boolean isWritePageRules ()
+  {
+    return m_aDelegate.isWritePageRules ();
+  }
+
+  public boolean isWriteViewportRules ()
+  {
+    return m_aDelegate.isWriteViewportRules ();
+  }
+
+  public boolean isWriteSupportsRules ()
+  {
+    return m_aDelegate.isWriteSupportsRules ();
+  }
+
+  public boolean isWriteUnknownRules ()
+  {
+    return m_aDelegate.isWriteUnknownRules ();
+  }
+
+  public void checkVersionRequirements (@Nonnull final ICSSVersionAware aCSSObject) throws IllegalStateException
+  {
+    m_aDelegate.checkVersionRequirements (aCSSObject);
+  }
+
+  /**
+   * Append the text of the passed object. If the text was already rendered by
+   * settings with the same sharing key, the previous result is reused.
+   * Otherwise the object is rendered with the wrapped settings.
+   * 
+   * @param aObject
+   *        The object to be written. May not be <code>null</code>.
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   */
+  public void appendSharedText (@Nonnull final ICSSWriteable aObject,
+                                @Nonnull final Appendable aTarget) throws IOException
+  {
+    String sText = m_aSharedResults.get (aObject);
+    if (sText == null)
+    {
+      sText = aObject.getAsCSSString (m_aDelegate, 0);
+      m_aSharedResults.put (aObject, sText);
+    }
+    aTarget.append (sText);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("delegate", m_aDelegate)
+                                       .append ("sharedResults", m_aSharedResults.size ())
+                                       .toString ();
+  }
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillClose;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.io.streams.NonBlockingBufferedWriter;
+import com.phloc.commons.io.streams.StreamUtils;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Compress CSS of arbitrary size with bounded memory consumption. In contrast
+ * to {@link CSSCompressor} the input is never read completely. Instead it is
+ * split into the single top-level rules, and each top-level rule is parsed,
+ * processed and written to the output before the next one is read. The
+ * memory consumption is therefore bounded by the size of the largest
+ * top-level rule.<br>
+ * All optimizations that only require a single top-level rule are still
+ * applied - this includes everything done by the {@link CSSWriterSettings}
+ * as well as all registered fragment processors (e.g. visitors or the
+ * {@link com.phloc.css.tools.CSSCompressionNormalizer}). Top-level rules that
+ * cannot be parsed are copied unchanged to the output.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSStreamingCompressor
+{
+  private final CSSWriter m_aWriter;
+  private final List <INonThrowingRunnableWithParameter <CascadingStyleSheet>> m_aFragmentProcessors = new ArrayList <INonThrowingRunnableWithParameter <CascadingStyleSheet>> ();
+  private int m_nRuleCount;
+  private int m_nUnparsableRuleCount;
+  private int m_nMaxRuleLength;
+
+  /**
+   * Constructor
+   * 
+   * @param aSettings
+   *        The settings to be used for reading and writing. May not be
+   *        <code>null</code>.
+   */
+  public CSSStreamingCompressor (@Nonnull final CSSWriterSettings aSettings)
+  {
+    this (new CSSWriter (aSettings));
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param aWriter
+   *        The CSS writer defining the settings, the header, the footer and the
+   *        content charset to be used. The CSS version of the writer settings
+   *        is also used for reading. May not be <code>null</code>.
+   */
+  public CSSStreamingCompressor (@Nonnull final CSSWriter aWriter)
+  {
+    m_aWriter = ValueEnforcer.notNull (aWriter, "Writer");
+  }
+
+  /**
+   * @return The CSS writer used. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSSWriter getWriter ()
+  {
+    return m_aWriter;
+  }
+
+  /**
+   * Add a processor that is invoked for each parsed fragment before it is
+   * written. Each fragment is a {@link CascadingStyleSheet} containing a
+   * single top-level rule, so processors may not rely on the other rules of
+   * the style sheet.
+   * 
+   * @param aFragmentProcessor
+   *        The processor to be added. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSStreamingCompressor addFragmentProcessor (@Nonnull final INonThrowingRunnableWithParameter <CascadingStyleSheet> aFragmentProcessor)
+  {
+    ValueEnforcer.notNull (aFragmentProcessor, "FragmentProcessor");
+    m_aFragmentProcessors.add (aFragmentProcessor);
+    return this;
+  }
+
+  /**
+   * @return A copy of all contained fragment processors. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <INonThrowingRunnableWithParameter <CascadingStyleSheet>> getAllFragmentProcessors ()
+  {
+    return ContainerHelper.newList (m_aFragmentProcessors);
+  }
+
+  /**
+   * @return The number of top-level rules read in the last compression.
+   */
+  @Nonnegative
+  public int getRuleCount ()
+  {
+    return m_nRuleCount;
+  }
+
+  /**
+   * @return The number of top-level rules that could not be parsed in the last
+   *         compression and were therefore copied unchanged.
+   */
+  @Nonnegative
+  public int getUnparsableRuleCount ()
+  {
+    return m_nUnparsableRuleCount;
+  }
+
+  /**
+   * @return The number of characters of the largest top-level rule (including
+   *         the preceding whitespaces and comments) read in the last
+   *         compression.
+   */
+  @Nonnegative
+  public int getMaxRuleLength ()
+  {
+    return m_nMaxRuleLength;
+  }
+
+  /**
+   * Read the CSS from the passed reader and append the compressed CSS to the
+   * passed target. Neither the reader nor the target are closed.
+   * 
+   * @param aReader
+   *        The reader to read the original CSS from. May not be
+   *        <code>null</code>.
+   * @param aTarget
+   *        The target to append the compressed CSS to. May not be
+   *        <code>null</code>. For best performance this should be buffered.
+   * @throws IOException
+   *         In case reading or writing fails
+   */
+  public void appendCompressedCSS (@Nonnull @WillNotClose final Reader aReader, @Nonnull final Appendable aTarget) throws IOException
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.notNull (aTarget, "Target");
+
+    m_nRuleCount = 0;
+    m_nUnparsableRuleCount = 0;
+    m_nMaxRuleLength = 0;
+
+    final ECSSVersion eVersion = m_aWriter.getSettings ().getVersion ();
+    final boolean bOptimizedOutput = m_aWriter.getSettings ().isOptimizedOutput ();
+    final CSSTopLevelRuleSplitter aSplitter = new CSSTopLevelRuleSplitter (aReader);
+
+    m_aWriter.appendHeader (aTarget);
+    boolean bPreviousRulesEmitted = false;
+    String sRuleText;
+    while ((sRuleText = aSplitter.getNextRule ()) != null)
+    {
+      m_nMaxRuleLength = Math.max (m_nMaxRuleLength, sRuleText.length ());
+      final CascadingStyleSheet aFragment = CSSReader.readFromString (sRuleText, eVersion);
+      if (aFragment == null)
+      {
+        // Keep what cannot be parsed
+        ++m_nRuleCount;
+        ++m_nUnparsableRuleCount;
+        if (!bOptimizedOutput && bPreviousRulesEmitted)
+          aTarget.append ('\n');
+        aTarget.append (sRuleText.trim ());
+        bPreviousRulesEmitted = true;
+      }
+      else
+      {
+        m_nRuleCount += aFragment.getImportRuleCount () + aFragment.getNamespaceRuleCount () + aFragment.getRuleCount ();
+        for (final INonThrowingRunnableWithParameter <CascadingStyleSheet> aFragmentProcessor : m_aFragmentProcessors)
+          aFragmentProcessor.run (aFragment);
+
+        // Import and namespace rules are self-terminated
+        if (m_aWriter.appendImportAndNamespaceRules (aFragment, aTarget) > 0)
+          bPreviousRulesEmitted = true;
+        if (m_aWriter.appendTopLevelRules (aFragment, bPreviousRulesEmitted, aTarget) > 0)
+          bPreviousRulesEmitted = true;
+      }
+    }
+    m_aWriter.appendEpilogue (aTarget);
+  }
+
+  /**
+   * Read the CSS from the passed reader and write the compressed CSS to the
+   * passed writer.
+   * 
+   * @param aReader
+   *        The reader to read the original CSS from. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @param aWriter
+   *        The writer to write the compressed CSS to. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @throws IOException
+   *         In case reading or writing fails
+   */
+  public void writeCompressedCSS (@Nonnull @WillClose final Reader aReader, @Nonnull @WillClose final Writer aWriter) throws IOException
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    try
+    {
+      appendCompressedCSS (aReader, aWriter);
+    }
+    finally
+    {
+      StreamUtils.close (aReader);
+      StreamUtils.close (aWriter);
+    }
+  }
+
+  /**
+   * Read the CSS from the passed input stream and write the compressed CSS to
+   * the passed output stream.
+   * 
+   * @param aIS
+   *        The input stream to read the original CSS from. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @param aSourceCharset
+   *        The charset of the original CSS. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write the compressed CSS to. May not be
+   *        <code>null</code>. Is automatically closed.
+   * @param aTargetCharset
+   *        The charset to write the compressed CSS in. May not be
+   *        <code>null</code>.
+   * @throws IOException
+   *         In case reading or writing fails
+   */
+  public void writeCompressedCSS (@Nonnull @WillClose final InputStream aIS,
+                                  @Nonnull final Charset aSourceCharset,
+                                  @Nonnull @WillClose final OutputStream aOS,
+                                  @Nonnull final Charset aTargetCharset) throws IOException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    ValueEnforcer.notNull (aSourceCharset, "SourceCharset");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    ValueEnforcer.notNull (aTargetCharset, "TargetCharset");
+
+    writeCompressedCSS (StreamUtils.createReader (aIS, aSourceCharset),
+                        new NonBlockingBufferedWriter (StreamUtils.createWriter (aOS, aTargetCharset)));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("writer", m_aWriter)
+                                       .append ("fragmentProcessors", m_aFragmentProcessors)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+
+/**
+ * An {@link OutputStream} that writes all data to two other output streams.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+final class CSSTeeOutputStream extends OutputStream
+{
+  private final OutputStream m_aOS1;
+  private final OutputStream m_aOS2;
+
+  CSSTeeOutputStream (@Nonnull @WillCloseWhenClosed final OutputStream aOS1,
+                      @Nonnull @WillCloseWhenClosed final OutputStream aOS2)
+  {
+    m_aOS1 = ValueEnforcer.notNull (aOS1, "OutputStream1");
+    m_aOS2 = ValueEnforcer.notNull (aOS2, "OutputStream2");
+  }
+
+  @Override
+  public void write (final int nByte) throws IOException
+  {
+    m_aOS1.write (nByte);
+    m_aOS2.write (nByte);
+  }
+
+  @Override
+  public void write (@Nonnull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    m_aOS1.write (aBuf, nOfs, nLen);
+    m_aOS2.write (aBuf, nOfs, nLen);
+  }
+
+  @Override
+  public void flush () throws IOException
+  {
+    m_aOS1.flush ();
+    m_aOS2.flush ();
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    try
+    {
+      m_aOS1.close ();
+    }
+    finally
+    {
+      m_aOS2.close ();
+    }
+  }
+}
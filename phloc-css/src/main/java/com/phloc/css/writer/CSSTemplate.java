@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.utils.CSSColorHelper;
+import com.phloc.css.utils.CSSURLHelper;
+
+/**
+ * A pre-compiled style sheet consisting of pre-serialized UTF-8 encoded
+ * literal segments and typed holes in between. Rendering a template only
+ * concatenates the literal segments with the formatted values of the holes,
+ * without touching the underlying CSS model. Use {@link CSSTemplateCompiler}
+ * to create instances of this class.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSTemplate
+{
+  private final byte [][] m_aLiterals;
+  private final int [] m_aHolePlaceholderIndices;
+  private final String [] m_aPlaceholders;
+  private final ECSSTemplateHoleType [] m_aHoleTypes;
+  private final boolean m_bQuoteURLs;
+
+  CSSTemplate (@Nonnull final byte [][] aLiterals,
+               @Nonnull final int [] aHolePlaceholderIndices,
+               @Nonnull final String [] aPlaceholders,
+               @Nonnull final ECSSTemplateHoleType [] aHoleTypes,
+               final boolean bQuoteURLs)
+  {
+    if (aLiterals.length != aHolePlaceholderIndices.length + 1)
+      throw new IllegalArgumentException ("Literal count and hole count do not match");
+    if (aPlaceholders.length != aHoleTypes.length)
+      throw new IllegalArgumentException ("Placeholder count and hole type count do not match");
+    m_aLiterals = aLiterals;
+    m_aHolePlaceholderIndices = aHolePlaceholderIndices;
+    m_aPlaceholders = aPlaceholders;
+    m_aHoleTypes = aHoleTypes;
+    m_bQuoteURLs = bQuoteURLs;
+  }
+
+  /**
+   * @return The number of holes in the template. A placeholder that is used
+   *         several times in the style sheet creates several holes.
+   */
+  @Nonnegative
+  public int getHoleCount ()
+  {
+    return m_aHolePlaceholderIndices.length;
+  }
+
+  /**
+   * @return All placeholders used in this template. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <String> getAllPlaceholders ()
+  {
+    return ContainerHelper.newList (m_aPlaceholders);
+  }
+
+  /**
+   * Get the type of the hole(s) for the passed placeholder.
+   * 
+   * @param sPlaceholder
+   *        The placeholder to query. May be <code>null</code>.
+   * @return <code>null</code> if the placeholder is not used in this template.
+   */
+  @Nullable
+  public ECSSTemplateHoleType getHoleType (@Nullable final String sPlaceholder)
+  {
+    for (int i = 0; i < m_aPlaceholders.length; ++i)
+      if (m_aPlaceholders[i].equals (sPlaceholder))
+        return m_aHoleTypes[i];
+    return null;
+  }
+
+  private static boolean _isValidRawValue (@Nonnull final String sValue)
+  {
+    for (final char c : sValue.toCharArray ())
+      if (c == ';' || c == '{' || c == '}' || c == '\n' || c == '\r' || c == '\f')
+        return false;
+    return true;
+  }
+
+  @Nonnull
+  private static String _getQuotedString (@Nonnull final String sValue)
+  {
+    final StringBuilder aSB = new StringBuilder (sValue.length () + 2).append ('"');
+    for (final char c : sValue.toCharArray ())
+      switch (c)
+      {
+        case '"':
+        case '\\':
+          aSB.append ('\\').append (c);
+          break;
+        case '\n':
+          aSB.append ("\\a ");
+          break;
+        case '\r':
+          aSB.append ("\\d ");
+          break;
+        case '\f':
+          aSB.append ("\\c ");
+          break;
+        default:
+          aSB.append (c);
+      }
+    return aSB.append ('"').toString ();
+  }
+
+  /**
+   * Get the CSS representation of a single hole value.
+   * 
+   * @param eType
+   *        The hole type. May not be <code>null</code>.
+   * @param sValue
+   *        The value to be formatted. May not be <code>null</code>.
+   * @param bQuoteURLs
+   *        <code>true</code> to always quote URLs
+   * @return The CSS representation of the value
+   * @throws IllegalArgumentException
+   *         If the value is invalid for the passed type
+   */
+  @Nonnull
+  static String getFormattedValue (@Nonnull final ECSSTemplateHoleType eType,
+                                   @Nonnull final String sValue,
+                                   final boolean bQuoteURLs)
+  {
+    switch (eType)
+    {
+      case COLOR:
+        final String sColor = sValue.trim ();
+        if (!CSSColorHelper.isColorValue (sColor))
+          throw new IllegalArgumentException ("Invalid color value '" + sValue + "'");
+        return sColor;
+      case URL:
+        if (StringHelper.hasNoText (sValue))
+          throw new IllegalArgumentException ("URL value may not be empty");
+        return CSSURLHelper.getAsCSSURL (sValue, bQuoteURLs);
+      case STRING:
+        return _getQuotedString (sValue);
+      case RAW:
+        if (StringHelper.hasNoTextAfterTrim (sValue) || !_isValidRawValue (sValue))
+          throw new IllegalArgumentException ("Invalid raw value '" + sValue + "'");
+        return sValue.trim ();
+      default:
+        throw new IllegalStateException ("Unsupported hole type " + eType);
+    }
+  }
+
+  @Nonnull
+  private byte [][] _getFormattedValues (@Nonnull final Map <String, String> aValues)
+  {
+    ValueEnforcer.notNull (aValues, "Values");
+
+    final byte [][] ret = new byte [m_aPlaceholders.length] [];
+    for (int i = 0; i < m_aPlaceholders.length; ++i)
+    {
+      final String sValue = aValues.get (m_aPlaceholders[i]);
+      if (sValue == null)
+        throw new IllegalArgumentException ("No value provided for placeholder '" + m_aPlaceholders[i] + "'");
+      ret[i] = getFormattedValue (m_aHoleTypes[i], sValue, m_bQuoteURLs).getBytes (CCharset.CHARSET_UTF_8_OBJ);
+    }
+    return ret;
+  }
+
+  /**
+   * Render this template with the passed values.
+   * 
+   * @param aValues
+   *        The values for all placeholders. May not be <code>null</code> and
+   *        must contain a value for each placeholder.
+   * @return The UTF-8 encoded CSS. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If a value is missing or invalid for the type of the hole
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] getAsBytes (@Nonnull final Map <String, String> aValues)
+  {
+    final byte [][] aFormattedValues = _getFormattedValues (aValues);
+
+    // Determine the exact size
+    int nSize = 0;
+    for (final byte [] aLiteral : m_aLiterals)
+      nSize += aLiteral.length;
+    for (final int nPlaceholderIndex : m_aHolePlaceholderIndices)
+      nSize += aFormattedValues[nPlaceholderIndex].length;
+
+    final byte [] ret = new byte [nSize];
+    int nPos = 0;
+    for (int i = 0; i < m_aHolePlaceholderIndices.length; ++i)
+    {
+      final byte [] aLiteral = m_aLiterals[i];
+      System.arraycopy (aLiteral, 0, ret, nPos, aLiteral.length);
+      nPos += aLiteral.length;
+      final byte [] aValue = aFormattedValues[m_aHolePlaceholderIndices[i]];
+      System.arraycopy (aValue, 0, ret, nPos, aValue.length);
+      nPos += aValue.length;
+    }
+    final byte [] aLastLiteral = m_aLiterals[m_aLiterals.length - 1];
+    System.arraycopy (aLastLiteral, 0, ret, nPos, aLastLiteral.length);
+    return ret;
+  }
+
+  /**
+   * Render this template with the passed values.
+   * 
+   * @param aValues
+   *        The values for all placeholders. May not be <code>null</code> and
+   *        must contain a value for each placeholder.
+   * @return The CSS. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If a value is missing or invalid for the type of the hole
+   */
+  @Nonnull
+  public String getAsString (@Nonnull final Map <String, String> aValues)
+  {
+    return new String (getAsBytes (aValues), CCharset.CHARSET_UTF_8_OBJ);
+  }
+
+  /**
+   * Render this template with the passed values to the passed output stream.
+   * 
+   * @param aValues
+   *        The values for all placeholders. May not be <code>null</code> and
+   *        must contain a value for each placeholder.
+   * @param aOS
+   *        The output stream to write the UTF-8 encoded CSS to. May not be
+   *        <code>null</code>. It is not closed.
+   * @throws IOException
+   *         In case writing fails
+   * @throws IllegalArgumentException
+   *         If a value is missing or invalid for the type of the hole
+   */
+  public void writeTo (@Nonnull final Map <String, String> aValues, @Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    final byte [][] aFormattedValues = _getFormattedValues (aValues);
+    for (int i = 0; i < m_aHolePlaceholderIndices.length; ++i)
+    {
+      aOS.write (m_aLiterals[i]);
+      aOS.write (aFormattedValues[m_aHolePlaceholderIndices[i]]);
+    }
+    aOS.write (m_aLiterals[m_aLiterals.length - 1]);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("literalCount", m_aLiterals.length)
+                                       .append ("holeCount", m_aHolePlaceholderIndices.length)
+                                       .append ("placeholders", m_aPlaceholders)
+                                       .append ("holeTypes", m_aHoleTypes)
+                                       .append ("quoteURLs", m_bQuoteURLs)
+                                       .toString ();
+  }
+}
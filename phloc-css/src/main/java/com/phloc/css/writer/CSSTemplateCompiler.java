@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ArrayHelper;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberFunction;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSExpressionMemberTermURI;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSExpressionMember;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
+
+/**
+ * Compiles a style sheet into a {@link CSSTemplate}. Each registered
+ * placeholder (e.g. <code>$brand-color</code>) is searched in the values of
+ * all declarations, either as a simple term (<code>color:$brand-color</code>)
+ * , as the URL of a URI term (<code>background:url($logo)</code>) or inside a
+ * function (<code>rgba($brand-color,.5)</code>). Each occurrence becomes a
+ * typed hole in the template, and everything in between is serialized once
+ * with the settings of the passed {@link CSSWriter}. So a template for the
+ * optimized output and a template for the pretty printed output must be
+ * compiled separately.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSTemplateCompiler
+{
+  // Private use characters (U+E000 and U+E001) that are encoded as 0xEE 0x80
+  // 0x80 and 0xEE 0x80 0x81 in UTF-8
+  private static final char SENTINEL_START = '\uE000';
+  private static final char SENTINEL_END = '\uE001';
+  private static final int SENTINEL_BYTE_0 = 0xee;
+  private static final int SENTINEL_BYTE_1 = 0x80;
+  private static final int SENTINEL_BYTE_2_START = 0x80;
+  private static final int SENTINEL_BYTE_2_END = 0x81;
+
+  private final CSSWriter m_aWriter;
+  private final Map <String, ECSSTemplateHoleType> m_aHoles = new LinkedHashMap <String, ECSSTemplateHoleType> ();
+
+  /**
+   * Constructor
+   * 
+   * @param aWriter
+   *        The CSS writer defining the settings, the header and the footer to
+   *        be used. If a content charset is defined, it must be UTF-8. May not
+   *        be <code>null</code>.
+   */
+  public CSSTemplateCompiler (@Nonnull final CSSWriter aWriter)
+  {
+    m_aWriter = ValueEnforcer.notNull (aWriter, "Writer");
+  }
+
+  /**
+   * @return The CSS writer used. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSSWriter getWriter ()
+  {
+    return m_aWriter;
+  }
+
+  /**
+   * Register a placeholder.
+   * 
+   * @param sPlaceholder
+   *        The placeholder text as used in the style sheet (e.g.
+   *        <code>$brand-color</code>). May neither be <code>null</code> nor
+   *        empty.
+   * @param eType
+   *        The type of the hole. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public CSSTemplateCompiler addHole (@Nonnull @Nonempty final String sPlaceholder,
+                                      @Nonnull final ECSSTemplateHoleType eType)
+  {
+    ValueEnforcer.notEmpty (sPlaceholder, "Placeholder");
+    ValueEnforcer.notNull (eType, "Type");
+    m_aHoles.put (sPlaceholder, eType);
+    return this;
+  }
+
+  /**
+   * @return A copy of all registered placeholders with their types. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Map <String, ECSSTemplateHoleType> getAllHoles ()
+  {
+    return ContainerHelper.newOrderedMap (m_aHoles);
+  }
+
+  /**
+   * Replaces all placeholders in an expression with sentinel terms
+   */
+  private final class PlaceholderReplacer extends DefaultCSSVisitor
+  {
+    private final List <String> m_aUsedPlaceholders = new ArrayList <String> ();
+    private int m_nReplacementCount = 0;
+
+    @Nullable
+    private String _getPlaceholder (@Nonnull final ICSSExpressionMember aMember)
+    {
+      String sText = null;
+      if (aMember instanceof CSSExpressionMemberTermSimple)
+        sText = ((CSSExpressionMemberTermSimple) aMember).getValue ();
+      else
+        if (aMember instanceof CSSExpressionMemberTermURI)
+          sText = ((CSSExpressionMemberTermURI) aMember).getURIString ();
+      return sText != null && m_aHoles.containsKey (sText) ? sText : null;
+    }
+
+    private void _replacePlaceholders (@Nonnull final CSSExpression aExpression)
+    {
+      final List <ICSSExpressionMember> aMembers = aExpression.getAllMembers ();
+      for (int i = 0; i < aMembers.size (); ++i)
+      {
+        final ICSSExpressionMember aMember = aMembers.get (i);
+        final String sPlaceholder = _getPlaceholder (aMember);
+        if (sPlaceholder != null)
+        {
+          int nPlaceholderIndex = m_aUsedPlaceholders.indexOf (sPlaceholder);
+          if (nPlaceholderIndex < 0)
+          {
+            nPlaceholderIndex = m_aUsedPlaceholders.size ();
+            m_aUsedPlaceholders.add (sPlaceholder);
+          }
+          aExpression.removeMember (i);
+          aExpression.addMember (i, new CSSExpressionMemberTermSimple (Character.toString (SENTINEL_START) +
+                                                                       nPlaceholderIndex +
+                                                                       SENTINEL_END));
+          ++m_nReplacementCount;
+        }
+        else
+          if (aMember instanceof CSSExpressionMemberFunction)
+          {
+            final CSSExpression aFuncExpr = ((CSSExpressionMemberFunction) aMember).getExpression ();
+            if (aFuncExpr != null)
+              _replacePlaceholders (aFuncExpr);
+          }
+      }
+    }
+
+    @Override
+    public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+    {
+      _replacePlaceholders (aDeclaration.getExpression ());
+    }
+  }
+
+  /**
+   * Compile the passed style sheet into a template. The passed style sheet is
+   * not modified.
+   * 
+   * @param aCSS
+   *        The style sheet to be compiled. May not be <code>null</code>.
+   * @return The compiled template. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If the content charset of the writer is not UTF-8 or if the
+   *         style sheet cannot be written with the settings of the writer.
+   */
+  @Nonnull
+  public CSSTemplate compile (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+
+    // Replace all placeholders in a copy with unique sentinels
+    final CascadingStyleSheet aCopy = aCSS.getClone ();
+    final PlaceholderReplacer aReplacer = new PlaceholderReplacer ();
+    CSSVisitor.visitCSS (aCopy, aReplacer);
+
+    final byte [] aBytes = m_aWriter.getCSSAsUTF8Bytes (aCopy);
+
+    // Split the serialized bytes at the sentinels
+    final List <byte []> aLiterals = new ArrayList <byte []> ();
+    final List <Integer> aHolePlaceholderIndices = new ArrayList <Integer> ();
+    int nLiteralStart = 0;
+    int i = 0;
+    while (i <= aBytes.length - 3)
+    {
+      if ((aBytes[i] & 0xff) == SENTINEL_BYTE_0 &&
+          (aBytes[i + 1] & 0xff) == SENTINEL_BYTE_1 &&
+          (aBytes[i + 2] & 0xff) == SENTINEL_BYTE_2_START)
+      {
+        // Read the placeholder index
+        int nEnd = i + 3;
+        int nPlaceholderIndex = 0;
+        while (nEnd < aBytes.length && aBytes[nEnd] >= '0' && aBytes[nEnd] <= '9')
+        {
+          nPlaceholderIndex = nPlaceholderIndex * 10 + aBytes[nEnd] - '0';
+          ++nEnd;
+        }
+        if (nEnd == i + 3 ||
+            nEnd > aBytes.length - 3 ||
+            (aBytes[nEnd] & 0xff) != SENTINEL_BYTE_0 ||
+            (aBytes[nEnd + 1] & 0xff) != SENTINEL_BYTE_1 ||
+            (aBytes[nEnd + 2] & 0xff) != SENTINEL_BYTE_2_END ||
+            nPlaceholderIndex >= aReplacer.m_aUsedPlaceholders.size ())
+          throw new IllegalStateException ("The style sheet contains the reserved character U+E000");
+
+        aLiterals.add (ArrayHelper.getCopy (aBytes, nLiteralStart, i - nLiteralStart));
+        aHolePlaceholderIndices.add (Integer.valueOf (nPlaceholderIndex));
+        i = nEnd + 3;
+        nLiteralStart = i;
+      }
+      else
+        ++i;
+    }
+    aLiterals.add (ArrayHelper.getCopy (aBytes, nLiteralStart, aBytes.length - nLiteralStart));
+
+    if (aHolePlaceholderIndices.size () != aReplacer.m_nReplacementCount)
+      throw new IllegalStateException ("Found " +
+                                       aHolePlaceholderIndices.size () +
+                                       " holes in the output but replaced " +
+                                       aReplacer.m_nReplacementCount +
+                                       " placeholders");
+
+    final int nPlaceholders = aReplacer.m_aUsedPlaceholders.size ();
+    final String [] aPlaceholders = aReplacer.m_aUsedPlaceholders.toArray (new String [nPlaceholders]);
+    final ECSSTemplateHoleType [] aHoleTypes = new ECSSTemplateHoleType [nPlaceholders];
+    for (int j = 0; j < nPlaceholders; ++j)
+      aHoleTypes[j] = m_aHoles.get (aPlaceholders[j]);
+    final int [] aIndices = new int [aHolePlaceholderIndices.size ()];
+    for (int j = 0; j < aIndices.length; ++j)
+      aIndices[j] = aHolePlaceholderIndices.get (j).intValue ();
+    return new CSSTemplate (aLiterals.toArray (new byte [aLiterals.size ()] []),
+                            aIndices,
+                            aPlaceholders,
+                            aHoleTypes,
+                            m_aWriter.getSettings ().isQuoteURLs ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("writer", m_aWriter).append ("holes", m_aHoles).toString ();
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+
+/**
+ * Splits CSS text read from a {@link Reader} into the source text of the
+ * single top-level rules without parsing them. Only comments, strings,
+ * escapes, parenthesis and curly braces are considered, so that the memory
+ * consumption is bounded by the size of the largest top-level rule. Leading
+ * whitespaces and comments are part of the following rule.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+final class CSSTopLevelRuleSplitter
+{
+  private static final int BUFFER_SIZE = 8192;
+  private static final int EOF = -1;
+
+  private final Reader m_aReader;
+  private final char [] m_aBuffer = new char [BUFFER_SIZE];
+  private int m_nBufferPos = 0;
+  private int m_nBufferLen = 0;
+  private final StringBuilder m_aRule = new StringBuilder ();
+
+  CSSTopLevelRuleSplitter (@Nonnull @WillNotClose final Reader aReader)
+  {
+    m_aReader = ValueEnforcer.notNull (aReader, "Reader");
+  }
+
+  private int _read () throws IOException
+  {
+    if (m_nBufferPos == m_nBufferLen)
+    {
+      final int nRead = m_aReader.read (m_aBuffer, 0, m_aBuffer.length);
+      if (nRead <= 0)
+      {
+        m_nBufferPos = 0;
+        m_nBufferLen = 0;
+        return EOF;
+      }
+      m_nBufferPos = 0;
+      m_nBufferLen = nRead;
+    }
+    return m_aBuffer[m_nBufferPos++];
+  }
+
+  /**
+   * Push back the last character returned by {@link #_read()}. May only be
+   * called once after a successful read.
+   */
+  private void _unread ()
+  {
+    m_nBufferPos--;
+  }
+
+  private void _readComment () throws IOException
+  {
+    boolean bLastWasStar = false;
+    int c;
+    while ((c = _read ()) != EOF)
+    {
+      m_aRule.append ((char) c);
+      if (bLastWasStar && c == '/')
+        break;
+      bLastWasStar = c == '*';
+    }
+  }
+
+  private void _readString (final int cQuote) throws IOException
+  {
+    int c;
+    while ((c = _read ()) != EOF)
+    {
+      m_aRule.append ((char) c);
+      if (c == cQuote || c == '\n' || c == '\r' || c == '\f')
+      {
+        // End of string - unterminated strings end at the end of the line
+        break;
+      }
+      if (c == '\\')
+      {
+        c = _read ();
+        if (c == EOF)
+          break;
+        m_aRule.append ((char) c);
+      }
+    }
+  }
+
+  /**
+   * @return The source text of the next top-level rule, including all
+   *         preceding whitespaces and comments. <code>null</code> if the end
+   *         of the input was reached. The last returned text may contain only
+   *         whitespaces and comments, or an incomplete rule.
+   * @throws IOException
+   *         In case reading fails
+   */
+  @Nullable
+  String getNextRule () throws IOException
+  {
+    m_aRule.setLength (0);
+    int nBraceDepth = 0;
+    int nParenthesisDepth = 0;
+    int c;
+    while ((c = _read ()) != EOF)
+    {
+      m_aRule.append ((char) c);
+      switch (c)
+      {
+        case '\\':
+          c = _read ();
+          if (c != EOF)
+            m_aRule.append ((char) c);
+          break;
+        case '"':
+        case '\'':
+          _readString (c);
+          break;
+        case '/':
+          c = _read ();
+          if (c == '*')
+          {
+            m_aRule.append ('*');
+            _readComment ();
+          }
+          else
+            if (c != EOF)
+              _unread ();
+          break;
+        case '(':
+          ++nParenthesisDepth;
+          break;
+        case ')':
+          if (nParenthesisDepth > 0)
+            --nParenthesisDepth;
+          break;
+        case '{':
+          ++nBraceDepth;
+          break;
+        case '}':
+          // A superfluous closing brace on top-level ends the rule as well
+          if (nBraceDepth <= 1)
+            return m_aRule.toString ();
+          --nBraceDepth;
+          break;
+        case ';':
+          // End of an at-rule without a block (e.g. @import)
+          if (nBraceDepth == 0 && nParenthesisDepth == 0)
+            return m_aRule.toString ();
+          break;
+      }
+    }
+    return m_aRule.length () > 0 ? m_aRule.toString () : null;
+  }
+
+}
@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * An {@link Appendable} that encodes all appended characters directly as
+ * UTF-8 bytes without creating intermediate strings. The bytes are either
+ * collected in a reusable in-memory buffer or are passed in chunks to an
+ * {@link OutputStream} or a {@link WritableByteChannel}. Since CSS is almost
+ * always pure ASCII, ASCII characters are handled by a fast path.<br>
+ * Unpaired surrogate characters are encoded as '?' - the same as
+ * {@link String#getBytes(java.nio.charset.Charset)} does.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@NotThreadSafe
+public class CSSUTF8Appendable implements Appendable, Flushable, Closeable
+{
+  /** The default buffer size in bytes */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private static final byte REPLACEMENT = '?';
+
+  private final OutputStream m_aOS;
+  private final WritableByteChannel m_aChannel;
+  private byte [] m_aBuffer;
+  private int m_nPos;
+  private long m_nFlushedBytes;
+  private char m_cPendingHighSurrogate;
+
+  /**
+   * Create a new in-memory instance with the default initial buffer size.
+   */
+  public CSSUTF8Appendable ()
+  {
+    this (DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new in-memory instance. The buffer grows as needed.
+   * 
+   * @param nInitialCapacity
+   *        The initial capacity in bytes. Must be &gt; 0.
+   */
+  public CSSUTF8Appendable (@Nonnegative final int nInitialCapacity)
+  {
+    ValueEnforcer.isGT0 (nInitialCapacity, "InitialCapacity");
+    m_aOS = null;
+    m_aChannel = null;
+    m_aBuffer = new byte [nInitialCapacity];
+  }
+
+  /**
+   * Create a new instance writing to an {@link OutputStream}.
+   * 
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        closed when this object is closed.
+   */
+  public CSSUTF8Appendable (@Nonnull @WillCloseWhenClosed final OutputStream aOS)
+  {
+    m_aOS = ValueEnforcer.notNull (aOS, "OutputStream");
+    m_aChannel = null;
+    m_aBuffer = new byte [DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Create a new instance writing to a {@link WritableByteChannel}.
+   * 
+   * @param aChannel
+   *        The channel to write to. May not be <code>null</code>. Is closed
+   *        when this object is closed.
+   */
+  public CSSUTF8Appendable (@Nonnull @WillCloseWhenClosed final WritableByteChannel aChannel)
+  {
+    m_aOS = null;
+    m_aChannel = ValueEnforcer.notNull (aChannel, "Channel");
+    m_aBuffer = new byte [DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * @return <code>true</code> if this instance collects all bytes in memory,
+   *         <code>false</code> if the bytes are passed to an
+   *         {@link OutputStream} or a {@link WritableByteChannel}.
+   */
+  public final boolean isInMemory ()
+  {
+    return m_aOS == null && m_aChannel == null;
+  }
+
+  private void _writeBuffer () throws IOException
+  {
+    if (m_nPos > 0)
+    {
+      if (m_aOS != null)
+        m_aOS.write (m_aBuffer, 0, m_nPos);
+      else
+      {
+        final ByteBuffer aBB = ByteBuffer.wrap (m_aBuffer, 0, m_nPos);
+        while (aBB.hasRemaining ())
+          m_aChannel.write (aBB);
+      }
+      m_nFlushedBytes += m_nPos;
+      m_nPos = 0;
+    }
+  }
+
+  /**
+   * Ensure that at least the passed number of bytes can be written to the
+   * buffer.
+   */
+  private void _ensureCapacity (final int nBytes) throws IOException
+  {
+    if (m_nPos + nBytes > m_aBuffer.length)
+    {
+      if (isInMemory ())
+      {
+        final byte [] aNewBuffer = new byte [Math.max (m_aBuffer.length * 2, m_nPos + nBytes)];
+        System.arraycopy (m_aBuffer, 0, aNewBuffer, 0, m_nPos);
+        m_aBuffer = aNewBuffer;
+      }
+      else
+        _writeBuffer ();
+    }
+  }
+
+  private void _encodeCodePoint (final int nCodePoint) throws IOException
+  {
+    _ensureCapacity (4);
+    final byte [] aBuffer = m_aBuffer;
+    int nPos = m_nPos;
+    if (nCodePoint < 0x800)
+    {
+      aBuffer[nPos++] = (byte) (0xc0 | (nCodePoint >> 6));
+      aBuffer[nPos++] = (byte) (0x80 | (nCodePoint & 0x3f));
+    }
+    else
+      if (nCodePoint < 0x10000)
+      {
+        aBuffer[nPos++] = (byte) (0xe0 | (nCodePoint >> 12));
+        aBuffer[nPos++] = (byte) (0x80 | ((nCodePoint >> 6) & 0x3f));
+        aBuffer[nPos++] = (byte) (0x80 | (nCodePoint & 0x3f));
+      }
+      else
+      {
+        aBuffer[nPos++] = (byte) (0xf0 | (nCodePoint >> 18));
+        aBuffer[nPos++] = (byte) (0x80 | ((nCodePoint >> 12) & 0x3f));
+        aBuffer[nPos++] = (byte) (0x80 | ((nCodePoint >> 6) & 0x3f));
+        aBuffer[nPos++] = (byte) (0x80 | (nCodePoint & 0x3f));
+      }
+    m_nPos = nPos;
+  }
+
+  private void _writeReplacement () throws IOException
+  {
+    _ensureCapacity (1);
+    m_aBuffer[m_nPos++] = REPLACEMENT;
+  }
+
+  private void _encodeNonASCII (final char c) throws IOException
+  {
+    if (m_cPendingHighSurrogate != 0)
+    {
+      final char cHigh = m_cPendingHighSurrogate;
+      m_cPendingHighSurrogate = 0;
+      if (Character.isLowSurrogate (c))
+      {
+        _encodeCodePoint (Character.toCodePoint (cHigh, c));
+        return;
+      }
+      // Unpaired high surrogate
+      _writeReplacement ();
+    }
+
+    if (c < 0x80)
+    {
+      _ensureCapacity (1);
+      m_aBuffer[m_nPos++] = (byte) c;
+    }
+    else
+      if (Character.isHighSurrogate (c))
+        m_cPendingHighSurrogate = c;
+      else
+        if (Character.isLowSurrogate (c))
+          _writeReplacement ();
+        else
+          _encodeCodePoint (c);
+  }
+
+  @Nonnull
+  public CSSUTF8Appendable append (@Nullable final CharSequence aCS) throws IOException
+  {
+    // Appendable contract: null is appended as "null"
+    final CharSequence aRealCS = aCS == null ? "null" : aCS;
+    return append (aRealCS, 0, aRealCS.length ());
+  }
+
+  @Nonnull
+  public CSSUTF8Appendable append (@Nullable final CharSequence aCS, final int nStart, final int nEnd) throws IOException
+  {
+    final CharSequence aRealCS = aCS == null ? "null" : aCS;
+    if (nStart < 0 || nEnd > aRealCS.length () || nStart > nEnd)
+      throw new IndexOutOfBoundsException ("start=" + nStart + "; end=" + nEnd + "; length=" + aRealCS.length ());
+
+    int nIndex = nStart;
+    while (nIndex < nEnd)
+    {
+      // ASCII fast path: copy as many characters as fit into the buffer
+      if (m_cPendingHighSurrogate == 0)
+      {
+        if (m_nPos == m_aBuffer.length)
+          _ensureCapacity (1);
+        final byte [] aBuffer = m_aBuffer;
+        int nPos = m_nPos;
+        final int nMax = Math.min (nEnd, nIndex + aBuffer.length - nPos);
+        char c;
+        while (nIndex < nMax && (c = aRealCS.charAt (nIndex)) < 0x80)
+        {
+          aBuffer[nPos++] = (byte) c;
+          ++nIndex;
+        }
+        m_nPos = nPos;
+        if (nIndex == nEnd)
+          break;
+        if (nIndex == nMax)
+          continue;
+      }
+      _encodeNonASCII (aRealCS.charAt (nIndex));
+      ++nIndex;
+    }
+    return this;
+  }
+
+  @Nonnull
+  public CSSUTF8Appendable append (final char c) throws IOException
+  {
+    if (c < 0x80 && m_cPendingHighSurrogate == 0)
+    {
+      _ensureCapacity (1);
+      m_aBuffer[m_nPos++] = (byte) c;
+    }
+    else
+      _encodeNonASCII (c);
+    return this;
+  }
+
+  /**
+   * @return The total number of bytes created so far. This includes the bytes
+   *         that were already passed to an {@link OutputStream} or a
+   *         {@link WritableByteChannel}.
+   */
+  @Nonnegative
+  public long getByteCount ()
+  {
+    return m_nFlushedBytes + m_nPos;
+  }
+
+  /**
+   * Get the bytes collected in memory as a {@link ByteBuffer} without copying
+   * them. The returned buffer is only valid until the next modification of
+   * this object.
+   * 
+   * @return A read-only view on the collected bytes. Position is 0 and limit is
+   *         the number of bytes.
+   * @throws IllegalStateException
+   *         If this object is not {@link #isInMemory()}.
+   */
+  @Nonnull
+  public ByteBuffer getAsByteBuffer ()
+  {
+    if (!isInMemory ())
+      throw new IllegalStateException ("Bytes are only available for in-memory instances");
+    return ByteBuffer.wrap (m_aBuffer, 0, m_nPos).asReadOnlyBuffer ();
+  }
+
+  /**
+   * @return A copy of the bytes collected in memory.
+   * @throws IllegalStateException
+   *         If this object is not {@link #isInMemory()}.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] getAsBytes ()
+  {
+    if (!isInMemory ())
+      throw new IllegalStateException ("Bytes are only available for in-memory instances");
+    final byte [] ret = new byte [m_nPos];
+    System.arraycopy (m_aBuffer, 0, ret, 0, m_nPos);
+    return ret;
+  }
+
+  /**
+   * Reset an in-memory instance so that it can be reused. The internal buffer
+   * is kept.
+   * 
+   * @throws IllegalStateException
+   *         If this object is not {@link #isInMemory()}.
+   */
+  public void reset ()
+  {
+    if (!isInMemory ())
+      throw new IllegalStateException ("Only in-memory instances can be reset");
+    m_nPos = 0;
+    m_nFlushedBytes = 0;
+    m_cPendingHighSurrogate = 0;
+  }
+
+  /**
+   * Pass all buffered bytes to the underlying {@link OutputStream} or
+   * {@link WritableByteChannel}. A trailing high surrogate is kept because the
+   * matching low surrogate may still follow. For in-memory instances this
+   * method does nothing.
+   */
+  public void flush () throws IOException
+  {
+    if (!isInMemory ())
+    {
+      _writeBuffer ();
+      if (m_aOS != null)
+        m_aOS.flush ();
+    }
+  }
+
+  /**
+   * Write an unpaired trailing high surrogate, flush all bytes and close the
+   * underlying {@link OutputStream} or {@link WritableByteChannel}.
+   */
+  public void close () throws IOException
+  {
+    if (m_cPendingHighSurrogate != 0)
+    {
+      m_cPendingHighSurrogate = 0;
+      _writeReplacement ();
+    }
+    if (!isInMemory ())
+    {
+      try
+      {
+        _writeBuffer ();
+      }
+      finally
+      {
+        if (m_aOS != null)
+          m_aOS.close ();
+        else
+          m_aChannel.close ();
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("OS", m_aOS)
+                                       .append ("channel", m_aChannel)
+                                       .append ("bufferSize", m_aBuffer.length)
+                                       .append ("pos", m_nPos)
+                                       .append ("flushedBytes", m_nFlushedBytes)
+                                       .toString ();
+  }
+}
@@ -18,16 +18,31 @@
 package com.phloc.css.writer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.annotations.ReturnsMutableObject;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.charset.CharsetManager;
 import com.phloc.commons.io.streams.NonBlockingStringWriter;
 import com.phloc.commons.io.streams.StreamUtils;
 import com.phloc.commons.string.StringHelper;
@@ -35,6 +50,7 @@ import com.phloc.css.ECSSVersion;
 import com.phloc.css.ICSSWriteable;
 import com.phloc.css.decl.CSSImportRule;
 import com.phloc.css.decl.CSSNamespaceRule;
+import com.phloc.css.decl.CSSSourceText;
 import com.phloc.css.decl.CascadingStyleSheet;
 import com.phloc.css.decl.ICSSTopLevelRule;
 
@@ -48,6 +64,19 @@ public class CSSWriter
 {
   /** By default optimized output is disabled */
   public static final boolean DEFAULT_OPTIMIZED_OUTPUT = CSSWriterSettings.DEFAULT_OPTIMIZED_OUTPUT;
+  /**
+   * The default number of top-level rules rendered as one unit of work in
+   * parallel mode
+   * 
+   * @since 3.8.1
+   */
+  public static final int DEFAULT_PARALLEL_CHUNK_SIZE = 256;
+  /**
+   * The default compression level for GZIP output
+   * 
+   * @since 3.8.1
+   */
+  public static final int DEFAULT_GZIP_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
 
   private final CSSWriterSettings m_aSettings;
   private boolean m_bWriteHeaderText;
@@ -55,6 +84,11 @@ public class CSSWriter
   private boolean m_bWriteFooterText;
   private String m_sFooterText;
   private String m_sContentCharset;
+  private CSSRuleOutputCache m_aRuleOutputCache;
+  private ExecutorService m_aParallelExecutor;
+  private int m_nParallelChunkSize = DEFAULT_PARALLEL_CHUNK_SIZE;
+  private int m_nGZIPCompressionLevel = DEFAULT_GZIP_COMPRESSION_LEVEL;
+  private boolean m_bUseSourceText = false;
 
   /**
    * Constructor for creating non-optimized output.
@@ -217,7 +251,8 @@ public class CSSWriter
    * default no charset is defined.<br>
    * <b>Important:</b> this does not define the encoding of the output - it is
    * just a declarative marker inside the code. Best practice is to use the same
-   * encoding for the CSS and the respective writer!
+   * encoding for the CSS and the respective writer! The UTF-8 output methods
+   * therefore only accept UTF-8 as content charset.
    * 
    * @param sContentCharset
    *        The content charset to be used. May be <code>null</code> to indicate
@@ -243,6 +278,434 @@ public class CSSWriter
     return m_aSettings;
   }
 
+  /**
+   * @return The cache for the output of top-level rules. By default it is
+   *         <code>null</code>.
+   * @since 3.8.1
+   */
+  @Nullable
+  public CSSRuleOutputCache getRuleOutputCache ()
+  {
+    return m_aRuleOutputCache;
+  }
+
+  /**
+   * Define a cache for the output of top-level rules. If a cache is present,
+   * only the top-level rules that were modified since they were last written
+   * are rendered again. This is useful when the same style sheet is written
+   * many times with only small modifications in between. By default no cache
+   * is used.
+   * 
+   * @param aRuleOutputCache
+   *        The cache to be used. May be <code>null</code> to disable caching.
+   *        The same cache may be shared between several writers.
+   * @return this
+   * @since 3.8.1
+   */
+  @Nonnull
+  public CSSWriter setRuleOutputCache (@Nullable final CSSRuleOutputCache aRuleOutputCache)
+  {
+    m_aRuleOutputCache = aRuleOutputCache;
+    return this;
+  }
+
+  /**
+   * @return The executor service used to render the top-level rules in
+   *         parallel. By default it is <code>null</code> meaning that all rules
+   *         are rendered sequentially in the calling thread.
+   * @since 3.8.1
+   */
+  @Nullable
+  public ExecutorService getParallelExecutor ()
+  {
+    return m_aParallelExecutor;
+  }
+
+  /**
+   * Define the executor service used to render the top-level rules in parallel.
+   * If an executor is present, the top-level rules are split into chunks of
+   * {@link #getParallelChunkSize()} rules, each chunk is rendered into a
+   * separate buffer and the buffers are written to the target in the original
+   * order. The created output is byte-identical to the sequential output. The
+   * style sheet may not be modified while it is written. The executor is not
+   * shut down by this class.
+   * 
+   * @param aParallelExecutor
+   *        The executor to be used. May be <code>null</code> to render all rules
+   *        sequentially.
+   * @return this
+   * @since 3.8.1
+   */
+  @Nonnull
+  public CSSWriter setParallelExecutor (@Nullable final ExecutorService aParallelExecutor)
+  {
+    m_aParallelExecutor = aParallelExecutor;
+    return this;
+  }
+
+  /**
+   * @return The number of top-level rules that are rendered as one unit of work
+   *         in parallel mode. Always &gt; 0. The default is
+   *         {@link #DEFAULT_PARALLEL_CHUNK_SIZE}.
+   * @since 3.8.1
+   */
+  @Nonnegative
+  public int getParallelChunkSize ()
+  {
+    return m_nParallelChunkSize;
+  }
+
+  /**
+   * Set the number of top-level rules that are rendered as one unit of work in
+   * parallel mode. Style sheets with not more top-level rules than this are
+   * always rendered sequentially.
+   * 
+   * @param nParallelChunkSize
+   *        The chunk size to use. Must be &gt; 0.
+   * @return this
+   * @since 3.8.1
+   */
+  @Nonnull
+  public CSSWriter setParallelChunkSize (@Nonnegative final int nParallelChunkSize)
+  {
+    ValueEnforcer.isGT0 (nParallelChunkSize, "ParallelChunkSize");
+    m_nParallelChunkSize = nParallelChunkSize;
+    return this;
+  }
+
+  /**
+   * @return The deflater compression level used for GZIP output. The default
+   *         is {@link #DEFAULT_GZIP_COMPRESSION_LEVEL}.
+   * @since 3.8.1
+   */
+  public int getGZIPCompressionLevel ()
+  {
+    return m_nGZIPCompressionLevel;
+  }
+
+  /**
+   * Set the deflater compression level used for GZIP output.
+   * 
+   * @param nGZIPCompressionLevel
+   *        The compression level to use. Must be between
+   *        {@link Deflater#DEFAULT_COMPRESSION} and
+   *        {@link Deflater#BEST_COMPRESSION}.
+   * @return this
+   * @since 3.8.1
+   */
+  @Nonnull
+  public CSSWriter setGZIPCompressionLevel (final int nGZIPCompressionLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nGZIPCompressionLevel,
+                                      "GZIPCompressionLevel",
+                                      Deflater.DEFAULT_COMPRESSION,
+                                      Deflater.BEST_COMPRESSION);
+    m_nGZIPCompressionLevel = nGZIPCompressionLevel;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the original source text is copied for
+   *         unmodified top-level rules. Default is <code>false</code>.
+   * @since 3.8.1
+   */
+  public boolean isUseSourceText ()
+  {
+    return m_bUseSourceText;
+  }
+
+  /**
+   * Define whether the original source text should be copied verbatim for all
+   * top-level rules that were not modified since reading. This only has an
+   * effect on style sheets that contain their source text. The settings of
+   * this writer are only applied to the modified rules, so that the original
+   * formatting of all other rules is retained. The source text is only used
+   * if the settings don't filter anything: all rule types are written,
+   * unnecessary code is not removed and the version is
+   * {@link ECSSVersion#LATEST}, so that no version requirement may fail.
+   * 
+   * @param bUseSourceText
+   *        <code>true</code> to copy the original text of unmodified rules,
+   *        <code>false</code> to render all rules.
+   * @return this
+   * @see CascadingStyleSheet#getSourceText()
+   * @see com.phloc.css.reader.CSSReader#setDefaultKeepSourceText(boolean)
+   * @since 3.8.1
+   */
+  @Nonnull
+  public CSSWriter setUseSourceText (final boolean bUseSourceText)
+  {
+    m_bUseSourceText = bUseSourceText;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the current settings write all rules of a
+   *         style sheet without modifying or rejecting their content, so that
+   *         the original source text of unmodified rules can be copied.
+   */
+  private boolean _isSourceTextApplicable ()
+  {
+    return m_aSettings.getVersion () == ECSSVersion.LATEST &&
+           !m_aSettings.isRemoveUnnecessaryCode () &&
+           m_aSettings.isWriteNamespaceRules () &&
+           m_aSettings.isWriteFontFaceRules () &&
+           m_aSettings.isWriteKeyframesRules () &&
+           m_aSettings.isWriteMediaRules () &&
+           m_aSettings.isWritePageRules () &&
+           m_aSettings.isWriteViewportRules () &&
+           m_aSettings.isWriteSupportsRules () &&
+           m_aSettings.isWriteUnknownRules ();
+  }
+
+  @Nullable
+  private CSSSourceText _getSourceText (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    return m_bUseSourceText && _isSourceTextApplicable () ? aCSS.getSourceText () : null;
+  }
+
+  private static void _appendComment (@Nonnull final String sText, @Nonnull final Appendable aTarget) throws IOException
+  {
+    aTarget.append ("/*\n");
+    for (final String sLine : StringHelper.getExploded ("\n", sText))
+      aTarget.append (" * ").append (sLine).append ('\n');
+    aTarget.append (" */\n");
+  }
+
+  private void _checkContentCharsetIsUTF8 ()
+  {
+    final Charset aContentCharset = CharsetManager.getCharsetFromNameOrNull (m_sContentCharset);
+    if (!CCharset.CHARSET_UTF_8_OBJ.equals (aContentCharset))
+      throw new IllegalStateException ("The content charset '" +
+                                       m_sContentCharset +
+                                       "' does not match the UTF-8 encoding of the output");
+  }
+
+  /**
+   * Append the CSS content to the passed {@link Appendable}. All rules are
+   * streamed directly into the target, so no intermediate string
+   * representation of the rules is created. The target is not closed.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aTarget
+   *        The target to append the text to. May not be <code>null</code>. For
+   *        best performance this should be buffered.
+   * @throws IOException
+   *         In case writing fails.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor.
+   * @since 3.8.1
+   */
+  public void appendCSS (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final Appendable aTarget) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aTarget, "Target");
+
+    final int nRulesEmitted = appendPrologue (aCSS, aTarget);
+
+    // Main CSS rules
+    final List <ICSSTopLevelRule> aRules = aCSS.getAllRules ();
+    final String sSettingsFingerprint = m_aRuleOutputCache == null ? null
+                                                                   : CSSRuleOutputCache.getSettingsFingerprint (m_aSettings);
+    final CSSSourceText aSourceText = _getSourceText (aCSS);
+    if (m_aParallelExecutor != null && aRules.size () > m_nParallelChunkSize)
+      _appendRulesParallel (aRules, sSettingsFingerprint, aSourceText, nRulesEmitted, aTarget);
+    else
+      _appendRules (aRules, 0, aRules.size (), sSettingsFingerprint, aSourceText, nRulesEmitted > 0, aTarget);
+
+    appendEpilogue (aTarget);
+  }
+
+  /**
+   * Append everything in front of the main rules: the charset, the file
+   * header, the import rules and the namespace rules.
+   * 
+   * @param aCSS
+   *        The CSS to be written. May not be <code>null</code>.
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @return The number of rules emitted.
+   * @throws IOException
+   *         In case appending fails
+   */
+  @Nonnegative
+  int appendPrologue (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final Appendable aTarget) throws IOException
+  {
+    appendHeader (aTarget);
+    return appendImportAndNamespaceRules (aCSS, aTarget);
+  }
+
+  /**
+   * Append the charset rule and the file header.
+   * 
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendHeader (@Nonnull final Appendable aTarget) throws IOException
+  {
+    // Charset? Must be the very first element - even before comments
+    if (StringHelper.hasText (m_sContentCharset))
+    {
+      if (aTarget instanceof CSSUTF8Appendable)
+        _checkContentCharsetIsUTF8 ();
+      aTarget.append ("@charset \"").append (m_sContentCharset).append ("\";");
+      if (!m_aSettings.isOptimizedOutput ())
+        aTarget.append ('\n');
+    }
+
+    // Write file header
+    if (m_bWriteHeaderText && StringHelper.hasText (m_sHeaderText))
+      _appendComment (m_sHeaderText, aTarget);
+  }
+
+  /**
+   * Append the import rules and the namespace rules of the passed CSS.
+   * 
+   * @param aCSS
+   *        The CSS to be written. May not be <code>null</code>.
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @return The number of rules emitted.
+   * @throws IOException
+   *         In case appending fails
+   */
+  @Nonnegative
+  int appendImportAndNamespaceRules (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final Appendable aTarget) throws IOException
+  {
+    int nRulesEmitted = 0;
+    for (final CSSImportRule aImportRule : aCSS.getAllImportRules ())
+    {
+      aImportRule.appendTo (m_aSettings, 0, aTarget);
+      ++nRulesEmitted;
+    }
+    for (final CSSNamespaceRule aNamespaceRule : aCSS.getAllNamespaceRules ())
+    {
+      aNamespaceRule.appendTo (m_aSettings, 0, aTarget);
+      ++nRulesEmitted;
+    }
+    return nRulesEmitted;
+  }
+
+  /**
+   * Append all top-level rules of the passed CSS sequentially, without
+   * charset, header, import rules, namespace rules and footer.
+   * 
+   * @param aCSS
+   *        The CSS to be written. May not be <code>null</code>.
+   * @param bPreviousRulesEmitted
+   *        <code>true</code> if other rules were already written to the target,
+   *        so that a separator is required for the non-optimized output.
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @return The number of rules that created output.
+   * @throws IOException
+   *         In case appending fails
+   */
+  @Nonnegative
+  int appendTopLevelRules (@Nonnull final CascadingStyleSheet aCSS,
+                           final boolean bPreviousRulesEmitted,
+                           @Nonnull final Appendable aTarget) throws IOException
+  {
+    final List <ICSSTopLevelRule> aRules = aCSS.getAllRules ();
+    final String sSettingsFingerprint = m_aRuleOutputCache == null ? null
+                                                                   : CSSRuleOutputCache.getSettingsFingerprint (m_aSettings);
+    final CSSSourceText aSourceText = _getSourceText (aCSS);
+    return _appendRules (aRules, 0, aRules.size (), sSettingsFingerprint, aSourceText, bPreviousRulesEmitted, aTarget);
+  }
+
+  /**
+   * Append everything after the main rules: the file footer.
+   * 
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendEpilogue (@Nonnull final Appendable aTarget) throws IOException
+  {
+    if (m_bWriteFooterText && StringHelper.hasText (m_sFooterText))
+      _appendComment (m_sFooterText, aTarget);
+  }
+
+  /**
+   * Write the CSS content as GZIP compressed UTF-8 bytes to the passed output
+   * stream. If a content charset is defined, it must be UTF-8.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aGZIPOS
+   *        The output stream to write the compressed data to. May not be
+   *        <code>null</code>. Is automatically closed after the writing!
+   * @throws IOException
+   *         In case writing fails.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor or if the content charset is not UTF-8.
+   * @see #setGZIPCompressionLevel(int)
+   * @since 3.8.1
+   */
+  public void writeCSSAsGZIP (@Nonnull final CascadingStyleSheet aCSS, @Nonnull @WillClose final OutputStream aGZIPOS) throws IOException
+  {
+    writeCSSAsGZIP (aCSS, CCharset.CHARSET_UTF_8_OBJ, null, aGZIPOS);
+  }
+
+  /**
+   * Write the CSS content GZIP compressed to the passed output stream and
+   * optionally in the same pass uncompressed to another output stream. This
+   * avoids the need to compress the written file in a separate step.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aCharset
+   *        The charset to be used to convert the text to bytes. May not be
+   *        <code>null</code>.
+   * @param aPlainOS
+   *        The optional output stream to write the uncompressed data to. May be
+   *        <code>null</code>. Is automatically closed after the writing!
+   * @param aGZIPOS
+   *        The output stream to write the compressed data to. May not be
+   *        <code>null</code>. Is automatically closed after the writing!
+   * @throws IOException
+   *         In case writing fails.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor.
+   * @see #setGZIPCompressionLevel(int)
+   * @since 3.8.1
+   */
+  public void writeCSSAsGZIP (@Nonnull final CascadingStyleSheet aCSS,
+                              @Nonnull final Charset aCharset,
+                              @Nullable @WillClose final OutputStream aPlainOS,
+                              @Nonnull @WillClose final OutputStream aGZIPOS) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aCharset, "Charset");
+    ValueEnforcer.notNull (aGZIPOS, "GZIPOutputStream");
+
+    OutputStream aOS;
+    try
+    {
+      aOS = new CSSGZIPOutputStream (aGZIPOS, m_nGZIPCompressionLevel);
+    }
+    catch (final IOException ex)
+    {
+      StreamUtils.close (aGZIPOS);
+      StreamUtils.close (aPlainOS);
+      throw ex;
+    }
+    if (aPlainOS != null)
+      aOS = new CSSTeeOutputStream (aPlainOS, aOS);
+
+    if (aCharset.equals (CCharset.CHARSET_UTF_8_OBJ))
+      writeCSSAsUTF8 (aCSS, aOS);
+    else
+      writeCSS (aCSS, StreamUtils.createWriter (aOS, aCharset));
+  }
+
   /**
    * Write the CSS content to the passed writer. No specific charset is used.
    * 
@@ -257,6 +720,7 @@ public class CSSWriter
    *         In case some elements cannot be written in the version supplied in
    *         the constructor.
    * @see #getCSSAsString(CascadingStyleSheet)
+   * @see #appendCSS(CascadingStyleSheet, Appendable)
    */
   public void writeCSS (@Nonnull final CascadingStyleSheet aCSS, @Nonnull @WillClose final Writer aWriter) throws IOException
   {
@@ -265,74 +729,152 @@ public class CSSWriter
 
     try
     {
-      final boolean bOptimizedOutput = m_aSettings.isOptimizedOutput ();
+      appendCSS (aCSS, aWriter);
+    }
+    finally
+    {
+      StreamUtils.close (aWriter);
+    }
+  }
 
-      // Write file header
-      if (m_bWriteHeaderText && StringHelper.hasText (m_sHeaderText))
-      {
-        aWriter.write ("/*\n");
-        for (final String sLine : StringHelper.getExploded ("\n", m_sHeaderText))
-          aWriter.write (" * " + sLine + "\n");
-        aWriter.write (" */\n");
-      }
+  /**
+   * Append a range of top-level rules to the passed target. The separating
+   * newline is only emitted for rules that create output at all.
+   * 
+   * @return The number of rules that created output.
+   */
+  @Nonnegative
+  private int _appendRules (@Nonnull final List <ICSSTopLevelRule> aRules,
+                            @Nonnegative final int nStartIndex,
+                            @Nonnegative final int nEndIndex,
+                            @Nullable final String sSettingsFingerprint,
+                            @Nullable final CSSSourceText aSourceText,
+                            final boolean bPreviousRulesEmitted,
+                            @Nonnull final Appendable aTarget) throws IOException
+  {
+    final boolean bOptimizedOutput = m_aSettings.isOptimizedOutput ();
+    final CSSPrefixingAppendable aRuleTarget = new CSSPrefixingAppendable (aTarget);
+    int nRulesEmitted = 0;
+    for (int i = nStartIndex; i < nEndIndex; ++i)
+    {
+      final ICSSTopLevelRule aRule = aRules.get (i);
+      aRuleTarget.startItem (!bOptimizedOutput && (bPreviousRulesEmitted || nRulesEmitted > 0) ? "\n" : null);
+      final String sSourceText = aSourceText == null ? null : aSourceText.getUnmodifiedRuleText (aRule);
+      if (sSourceText != null)
+        aRuleTarget.append (sSourceText);
+      else
+        if (m_aRuleOutputCache != null)
+          aRuleTarget.append (m_aRuleOutputCache.getAsCSSString (aRule, m_aSettings, 0, sSettingsFingerprint));
+        else
+          CSSWriterHelper.appendTo (aRule, m_aSettings, 0, aRuleTarget);
+      if (aRuleTarget.hasItemContent ())
+        ++nRulesEmitted;
+    }
+    return nRulesEmitted;
+  }
 
-      // Charset? Must be the first element before the import
-      if (StringHelper.hasText (m_sContentCharset))
-      {
-        aWriter.write ("@charset \"" + m_sContentCharset + "\";");
-        if (!bOptimizedOutput)
-          aWriter.write ('\n');
-      }
+  /**
+   * The result of rendering a single chunk of top-level rules.
+   */
+  private static final class RenderedChunk
+  {
+    private final StringBuilder m_aContent;
+    private final int m_nRulesEmitted;
 
-      // Import rules
-      int nRulesEmitted = 0;
-      final List <CSSImportRule> aImportRules = aCSS.getAllImportRules ();
-      if (!aImportRules.isEmpty ())
-      {
-        for (final CSSImportRule aImportRule : aImportRules)
-        {
-          aWriter.write (aImportRule.getAsCSSString (m_aSettings, 0));
-          ++nRulesEmitted;
-        }
-      }
+    RenderedChunk (@Nonnull final StringBuilder aContent, @Nonnegative final int nRulesEmitted)
+    {
+      m_aContent = aContent;
+      m_nRulesEmitted = nRulesEmitted;
+    }
+  }
 
-      // Namespace rules
-      final List <CSSNamespaceRule> aNamespaceRules = aCSS.getAllNamespaceRules ();
-      if (!aNamespaceRules.isEmpty ())
+  @Nonnull
+  private Future <RenderedChunk> _submitChunk (@Nonnull final List <ICSSTopLevelRule> aRules,
+                                               @Nonnegative final int nChunkIndex,
+                                               @Nullable final String sSettingsFingerprint,
+                                               @Nullable final CSSSourceText aSourceText)
+  {
+    final int nStartIndex = nChunkIndex * m_nParallelChunkSize;
+    final int nEndIndex = Math.min (nStartIndex + m_nParallelChunkSize, aRules.size ());
+    return m_aParallelExecutor.submit (new Callable <RenderedChunk> ()
+    {
+      public RenderedChunk call () throws IOException
       {
-        for (final CSSNamespaceRule aNamespaceRule : aNamespaceRules)
-        {
-          aWriter.write (aNamespaceRule.getAsCSSString (m_aSettings, 0));
-          ++nRulesEmitted;
-        }
+        // Each chunk is rendered as if it would be the first output, the
+        // separator between chunks is added when concatenating
+        final StringBuilder aSB = new StringBuilder ();
+        final int nRulesEmitted = _appendRules (aRules,
+                                                  nStartIndex,
+                                                  nEndIndex,
+                                                  sSettingsFingerprint,
+                                                  aSourceText,
+                                                  false,
+                                                  aSB);
+        return new RenderedChunk (aSB, nRulesEmitted);
       }
+    });
+  }
 
-      // Main CSS rules
-      for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+  /**
+   * Render the top-level rules in chunks using the parallel executor and
+   * append the results in the original order. Only a limited number of chunks
+   * is pending at any time, so that the memory consumption is bound.
+   */
+  private void _appendRulesParallel (@Nonnull final List <ICSSTopLevelRule> aRules,
+                                     @Nullable final String sSettingsFingerprint,
+                                     @Nullable final CSSSourceText aSourceText,
+                                     @Nonnegative final int nPreviousRulesEmitted,
+                                     @Nonnull final Appendable aTarget) throws IOException
+  {
+    final boolean bOptimizedOutput = m_aSettings.isOptimizedOutput ();
+    final int nChunks = (aRules.size () + m_nParallelChunkSize - 1) / m_nParallelChunkSize;
+    final int nMaxPendingChunks = Math.max (2, 2 * Runtime.getRuntime ().availableProcessors ());
+    final List <Future <RenderedChunk>> aPending = new ArrayList <Future <RenderedChunk>> (nChunks);
+    int nRulesEmitted = nPreviousRulesEmitted;
+    try
+    {
+      for (int i = 0; i < nChunks; ++i)
       {
-        final String sRuleCSS = aRule.getAsCSSString (m_aSettings, 0);
-        if (StringHelper.hasText (sRuleCSS))
+        // Keep the pipeline filled
+        while (aPending.size () < nChunks && aPending.size () < i + nMaxPendingChunks)
+          aPending.add (_submitChunk (aRules, aPending.size (), sSettingsFingerprint, aSourceText));
+
+        final RenderedChunk aChunk = aPending.get (i).get ();
+        // Release memory as early as possible
+        aPending.set (i, null);
+        if (aChunk.m_nRulesEmitted > 0)
         {
           if (!bOptimizedOutput && nRulesEmitted > 0)
-            aWriter.write ('\n');
-
-          aWriter.write (sRuleCSS);
-          ++nRulesEmitted;
+            aTarget.append ('\n');
+          aTarget.append (aChunk.m_aContent);
+          nRulesEmitted += aChunk.m_nRulesEmitted;
         }
       }
-
-      // Write file footer
-      if (m_bWriteFooterText && StringHelper.hasText (m_sFooterText))
-      {
-        aWriter.write ("/*\n");
-        for (final String sLine : StringHelper.getExploded ("\n", m_sFooterText))
-          aWriter.write (" * " + sLine + "\n");
-        aWriter.write (" */\n");
-      }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      final InterruptedIOException ex2 = new InterruptedIOException ("Interrupted while writing CSS");
+      ex2.initCause (ex);
+      throw ex2;
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof IOException)
+        throw (IOException) aCause;
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      if (aCause instanceof Error)
+        throw (Error) aCause;
+      throw new IllegalStateException ("Failed to render CSS rules", aCause);
     }
     finally
     {
-      StreamUtils.close (aWriter);
+      // Cancel all chunks that are not needed anymore
+      for (final Future <RenderedChunk> aFuture : aPending)
+        if (aFuture != null)
+          aFuture.cancel (true);
     }
   }
 
@@ -362,6 +904,126 @@ public class CSSWriter
     return aSW.getAsString ();
   }
 
+  /**
+   * Write the CSS content as UTF-8 bytes directly to the passed output stream
+   * without creating an intermediate string. If a content charset is defined,
+   * it must be UTF-8.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        automatically closed after the writing!
+   * @throws IOException
+   *         In case writing fails.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor or if the content charset is not UTF-8.
+   * @since 3.8.1
+   */
+  public void writeCSSAsUTF8 (@Nonnull final CascadingStyleSheet aCSS, @Nonnull @WillClose final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    final CSSUTF8Appendable aTarget = new CSSUTF8Appendable (aOS);
+    try
+    {
+      appendCSS (aCSS, aTarget);
+    }
+    finally
+    {
+      StreamUtils.close (aTarget);
+    }
+  }
+
+  /**
+   * Write the CSS content as UTF-8 bytes directly to the passed channel without
+   * creating an intermediate string. If a content charset is defined, it must
+   * be UTF-8.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aChannel
+   *        The channel to write to. May not be <code>null</code>. Is
+   *        automatically closed after the writing!
+   * @throws IOException
+   *         In case writing fails.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor or if the content charset is not UTF-8.
+   * @since 3.8.1
+   */
+  public void writeCSSAsUTF8 (@Nonnull final CascadingStyleSheet aCSS,
+                              @Nonnull @WillClose final WritableByteChannel aChannel) throws IOException
+  {
+    ValueEnforcer.notNull (aCSS, "CSS");
+    ValueEnforcer.notNull (aChannel, "Channel");
+
+    final CSSUTF8Appendable aTarget = new CSSUTF8Appendable (aChannel);
+    try
+    {
+      appendCSS (aCSS, aTarget);
+    }
+    finally
+    {
+      StreamUtils.close (aTarget);
+    }
+  }
+
+  /**
+   * Encode the CSS content as UTF-8 into the passed reusable in-memory buffer.
+   * The buffer is reset before writing, so that the same buffer can be used
+   * for many style sheets.
+   * 
+   * @param aCSS
+   *        The CSS to write. May not be <code>null</code>.
+   * @param aBuffer
+   *        The in-memory buffer to write to. May not be <code>null</code>.
+   * @return A read-only {@link ByteBuffer} view on the created bytes that is
+   *         valid until the next modification of the passed buffer.
+   * @throws IllegalStateException
+   *         In case some elements cannot be written in the version supplied in
+   *         the constructor or if the content charset is not UTF-8.
+   * @since 3.8.1
+   */
+  @Nonnull
+  public ByteBuffer getCSSAsUTF8 (@Nonnull final CascadingStyleSheet aCSS, @Nonnull final CSSUTF8Appendable aBuffer)
+  {
+    ValueEnforcer.notNull (aBuffer, "Buffer");
+
+    aBuffer.reset ();
+    try
+    {
+      appendCSS (aCSS, aBuffer);
+    }
+    catch (final IOException ex)
+    {
+      // Should never occur since in-memory buffers do not throw such an
+      // exception
+      throw new IllegalStateException ("Totally unexpected", ex);
+    }
+    return aBuffer.getAsByteBuffer ();
+  }
+
+  /**
+   * Create the CSS as UTF-8 encoded byte array without creating an
+   * intermediate string. If a content charset is defined, it must be UTF-8.
+   * 
+   * @param aCSS
+   *        The CSS object to be converted. May not be <code>null</code>.
+   * @return The UTF-8 encoded CSS. Never <code>null</code>.
+   * @since 3.8.1
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] getCSSAsUTF8Bytes (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    final CSSUTF8Appendable aBuffer = new CSSUTF8Appendable ();
+    getCSSAsUTF8 (aCSS, aBuffer);
+    return aBuffer.getAsBytes ();
+  }
+
   /**
    * Write the CSS content to the passed writer. No specific charset is used.
    * 
@@ -384,7 +1046,7 @@ public class CSSWriter
 
     try
     {
-      aWriter.write (aCSS.getAsCSSString (m_aSettings, 0));
+      CSSWriterHelper.appendTo (aCSS, m_aSettings, 0, aWriter);
     }
     finally
     {
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.ICSSWriterSettings;
+
+/**
+ * Helper methods for implementing {@link ICSSWriteable}.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+@Immutable
+public final class CSSWriterHelper
+{
+  @SuppressWarnings ("unused")
+  @PresentForCodeCoverage
+  private static final CSSWriterHelper s_aInstance = new CSSWriterHelper ();
+
+  private CSSWriterHelper ()
+  {}
+
+  /**
+   * Get the CSS string of the passed object by letting it append itself to a
+   * new {@link StringBuilder}. Objects not implementing
+   * {@link ICSSStreamingWriteable} are asked for their CSS string directly. This is the default implementation of
+   * {@link ICSSWriteable#getAsCSSString(ICSSWriterSettings, int)} for all
+   * objects that are composed of other objects.
+   * 
+   * @param aObject
+   *        The object to be converted. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @return The content of the passed object as CSS string.
+   */
+  @Nonnull
+  public static String getAsCSSString (@Nonnull final ICSSWriteable aObject,
+                                       @Nonnull final ICSSWriterSettings aSettings,
+                                       @Nonnegative final int nIndentLevel)
+  {
+    if (!(aObject instanceof ICSSStreamingWriteable))
+      return aObject.getAsCSSString (aSettings, nIndentLevel);
+
+    final StringBuilder aSB = new StringBuilder ();
+    try
+    {
+      ((ICSSStreamingWriteable) aObject).appendTo (aSettings, nIndentLevel, aSB);
+    }
+    catch (final IOException ex)
+    {
+      // Should never occur since StringBuilder does not throw such an exception
+      throw new IllegalStateException ("Totally unexpected", ex);
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Append the CSS of the passed object to the passed {@link Appendable}.
+   * Objects of the CSS domain model are written directly to the target, all
+   * other objects are appended via
+   * {@link ICSSWriteable#getAsCSSString(ICSSWriterSettings, int)}.
+   * 
+   * @param aObject
+   *        The object to be written. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   */
+  public static void appendTo (@Nonnull final ICSSWriteable aObject,
+                               @Nonnull final ICSSWriterSettings aSettings,
+                               @Nonnegative final int nIndentLevel,
+                               @Nonnull final Appendable aTarget) throws IOException
+  {
+    if (aObject instanceof ICSSStreamingWriteable)
+      ((ICSSStreamingWriteable) aObject).appendTo (aSettings, nIndentLevel, aTarget);
+    else
+      aTarget.append (aObject.getAsCSSString (aSettings, nIndentLevel));
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+/**
+ * The type of a hole in a {@link CSSTemplate}. The type determines how the
+ * value of a hole is validated and written.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public enum ECSSTemplateHoleType
+{
+  /**
+   * A color value like <code>#fff</code>, <code>red</code> or
+   * <code>rgb(1,2,3)</code>. The value is written as is.
+   */
+  COLOR,
+  /**
+   * A URL. The value is the plain URL and is written as
+   * <code>url(<i>value</i>)</code> with the necessary quoting.
+   */
+  URL,
+  /**
+   * A string. The value is written as a quoted string.
+   */
+  STRING,
+  /**
+   * Any other value (e.g. a font family list or a length). The value is
+   * written as is, but it may not contain characters that would end the
+   * declaration or the rule.
+   */
+  RAW;
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.ICSSWriterSettings;
+
+/**
+ * Internal extension of {@link ICSSWriteable} for objects that can append
+ * their CSS directly to an {@link Appendable}. All objects of the CSS domain
+ * model implement this interface. Use
+ * {@link CSSWriterHelper#appendTo(ICSSWriteable, ICSSWriterSettings, int, Appendable)}
+ * to write an arbitrary {@link ICSSWriteable}.
+ * 
+ * @author Philip Helger
+ * @since 3.8.1
+ */
+public interface ICSSStreamingWriteable extends ICSSWriteable
+{
+  /**
+   * Append the contents of this object as serialized CSS directly to the
+   * passed {@link Appendable}. This creates exactly the same text as
+   * {@link #getAsCSSString(ICSSWriterSettings, int)} but without building
+   * intermediate strings.
+   * 
+   * @param aSettings
+   *        The settings to be used to format the output. May not be
+   *        <code>null</code>.
+   * @param nIndentLevel
+   *        The current indentation level
+   * @param aTarget
+   *        The target to append to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case appending fails
+   */
+  void appendTo (@Nonnull ICSSWriterSettings aSettings,
+                 @Nonnegative int nIndentLevel,
+                 @Nonnull Appendable aTarget) throws IOException;
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.io.streams.NonBlockingByteArrayInputStream;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+
+/**
+ * Test class for classes {@link CSSBinaryWriter} and {@link CSSBinaryReader}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSBinaryReaderTest
+{
+  private static void _testRoundTrip (@Nonnull final String sBaseDir, @Nonnull final ECSSVersion eVersion)
+  {
+    final CSSWriter aCSSWriter = new CSSWriter (eVersion, false).setWriteHeaderText (false);
+    for (final File aFile : FileSystemRecursiveIterator.create (new File (sBaseDir),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, eVersion);
+      if (aCSS == null)
+        continue;
+
+      for (final boolean bSourceLocations : new boolean [] { false, true })
+      {
+        final byte [] aBytes = CSSBinaryWriter.getAsBytes (aCSS, bSourceLocations);
+        final CascadingStyleSheet aRead = CSSBinaryReader.readFromBytes (aBytes);
+        assertNotNull (sKey, aRead);
+        assertEquals (sKey, aCSS, aRead);
+        assertEquals (sKey, aCSSWriter.getCSSAsString (aCSS), aCSSWriter.getCSSAsString (aRead));
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTripCSS21 ()
+  {
+    _testRoundTrip ("src/test/resources/testfiles/css21/good", ECSSVersion.CSS21);
+  }
+
+  @Test
+  public void testRoundTripCSS30 ()
+  {
+    _testRoundTrip ("src/test/resources/testfiles/css30/good", ECSSVersion.CSS30);
+  }
+
+  @Test
+  public void testSourceLocations ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("@import 'x.css';\ndiv, span > a { color: red !important;\n  margin: 0 1px 2em 3% }",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    // Without source locations
+    CascadingStyleSheet aRead = CSSBinaryReader.readFromBytes (CSSBinaryWriter.getAsBytes (aCSS));
+    assertNotNull (aRead);
+    assertEquals (aCSS, aRead);
+    assertNull (aRead.getAllStyleRules ().get (0).getSourceLocation ());
+
+    // With source locations
+    aRead = CSSBinaryReader.readFromBytes (CSSBinaryWriter.getAsBytes (aCSS, true));
+    assertNotNull (aRead);
+    assertEquals (aCSS, aRead);
+    assertEquals (aCSS.getImportRuleAtIndex (0).getSourceLocation (),
+                  aRead.getImportRuleAtIndex (0).getSourceLocation ());
+    final CSSStyleRule aOrigRule = aCSS.getAllStyleRules ().get (0);
+    final CSSStyleRule aReadRule = aRead.getAllStyleRules ().get (0);
+    assertNotNull (aReadRule.getSourceLocation ());
+    assertEquals (aOrigRule.getSourceLocation (), aReadRule.getSourceLocation ());
+    assertEquals (aOrigRule.getSelectorAtIndex (1).getSourceLocation (),
+                  aReadRule.getSelectorAtIndex (1).getSourceLocation ());
+    for (int i = 0; i < aOrigRule.getDeclarationCount (); ++i)
+    {
+      final CSSDeclaration aOrigDecl = aOrigRule.getDeclarationAtIndex (i);
+      final CSSDeclaration aReadDecl = aReadRule.getDeclarationAtIndex (i);
+      assertEquals (aOrigDecl.getSourceLocation (), aReadDecl.getSourceLocation ());
+      assertEquals (aOrigDecl.getExpression ().getSourceLocation (), aReadDecl.getExpression ().getSourceLocation ());
+    }
+  }
+
+  @Test
+  public void testStreaming () throws IOException
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("@namespace foo url(http://www.example.org);\n"
+                                                                   + "foo|a { color: red }\n"
+                                                                   + "@media print { b { unknown-property: 1px } }\n"
+                                                                   + "@font-face { font-family: x }",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final CSSBinaryWriter aWriter = new CSSBinaryWriter (aBAOS);
+    assertFalse (aWriter.isWriteSourceLocations ());
+    aWriter.writeNamespaceRule (aCSS.getNamespaceRuleAtIndex (0));
+    for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+      aWriter.writeRule (aRule);
+    aWriter.close ();
+    // Closing twice is no problem
+    aWriter.close ();
+
+    final CSSBinaryReader aReader = new CSSBinaryReader (new NonBlockingByteArrayInputStream (aBAOS.toByteArray ()));
+    try
+    {
+      assertFalse (aReader.isSourceLocationsContained ());
+      assertEquals (aCSS.getNamespaceRuleAtIndex (0), aReader.readNextItem ());
+      for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+      {
+        final ICSSWriteable aItem = aReader.readNextItem ();
+        assertEquals (aRule, aItem);
+      }
+      assertNull (aReader.readNextItem ());
+      assertNull (aReader.readNextItem ());
+    }
+    finally
+    {
+      aReader.close ();
+    }
+  }
+
+  @Test
+  public void testCompactness ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromFile (new File ("src/test/resources/testfiles/css30/good/pure-min.css"),
+                                                             CCharset.CHARSET_UTF_8_OBJ,
+                                                             ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final byte [] aBytes = CSSBinaryWriter.getAsBytes (aCSS);
+    final String sMinified = new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false)
+                                                                   .getCSSAsString (aCSS);
+    // The binary format is smaller than the minified CSS
+    assertTrue (aBytes.length + " vs. " + sMinified.length (), aBytes.length < sMinified.length ());
+  }
+
+  @Test
+  public void testMalformed ()
+  {
+    final byte [] aBytes = CSSBinaryWriter.getAsBytes (CSSReader.readFromString ("a{color:red}", ECSSVersion.CSS30));
+    assertNotNull (CSSBinaryReader.readFromBytes (aBytes));
+
+    // Not the binary format at all
+    assertNull (CSSBinaryReader.readFromBytes (new byte [0]));
+    assertNull (CSSBinaryReader.readFromBytes ("a{color:red}".getBytes ()));
+
+    // Truncated
+    for (int i = 0; i < aBytes.length; ++i)
+    {
+      final byte [] aTruncated = new byte [i];
+      System.arraycopy (aBytes, 0, aTruncated, 0, i);
+      assertNull (CSSBinaryReader.readFromBytes (aTruncated));
+    }
+
+    // Other format version
+    final byte [] aOtherVersion = aBytes.clone ();
+    aOtherVersion[CCSSBinary.MAGIC.length]++;
+    assertNull (CSSBinaryReader.readFromBytes (aOtherVersion));
+  }
+}
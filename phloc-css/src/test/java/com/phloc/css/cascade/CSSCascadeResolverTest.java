@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.cascade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.match.HTMLTolerantReader;
+import com.phloc.css.match.MicroElementNavigator;
+import com.phloc.css.media.CSSMediumContext;
+import com.phloc.css.media.ECSSMedium;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSCascadeResolver}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSCascadeResolverTest
+{
+  @Nonnull
+  private static CascadingStyleSheet _parse (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    return aCSS;
+  }
+
+  @Nonnull
+  private static CSSCascadeResolver _createAuthor (@Nonnull final String sCSS)
+  {
+    return new CSSCascadeResolver (new CSSMediumContext (ECSSMedium.SCREEN)).addStyleSheet (_parse (sCSS),
+                                                                                           ECSSOrigin.AUTHOR);
+  }
+
+  @Nonnull
+  private static IMicroElement _getByID (@Nonnull final IMicroDocument aDoc, @Nonnull final String sID)
+  {
+    for (final IMicroElement aElement : aDoc.getDocumentElement ().getAllChildElementsRecursive ())
+      if (sID.equals (aElement.getAttribute ("id")))
+        return aElement;
+    throw new IllegalArgumentException (sID);
+  }
+
+  @Nonnull
+  private static CSSComputedStyle _getStyle (@Nonnull final CSSCascadeResolver aResolver,
+                                             @Nonnull final String sHTML,
+                                             @Nonnull final String sID)
+  {
+    final IMicroDocument aDoc = HTMLTolerantReader.readFromString (sHTML);
+    return aResolver.getComputedStyle (_getByID (aDoc, sID), MicroElementNavigator.getInstance ());
+  }
+
+  @Test
+  public void testSpecificityAndSourceOrder ()
+  {
+    final CSSCascadeResolver aResolver = _createAuthor ("p{color:red}.x{color:blue}p{color:green;margin:0}"
+                                                        + "#a{margin:1px}div p{margin:2px}");
+    final String sHTML = "<div><p id='a' class='x'></p><p id='b'></p><p id='c' class='x'></p></div>";
+    CSSComputedStyle aStyle = _getStyle (aResolver, sHTML, "a");
+    assertEquals ("blue", aStyle.getValue ("color"));
+    assertEquals ("1px", aStyle.getValue ("MARGIN"));
+    aStyle = _getStyle (aResolver, sHTML, "b");
+    assertEquals ("green", aStyle.getValue ("color"));
+    assertEquals ("2px", aStyle.getValue ("margin"));
+    assertNull (aStyle.getValue ("padding"));
+    assertEquals (5, aResolver.getRuleEntryCount ());
+  }
+
+  @Test
+  public void testImportantAndInline ()
+  {
+    final CSSCascadeResolver aResolver = _createAuthor ("p{color:red !important;margin:0}#b{color:green!important}");
+    final String sHTML = "<p id='a' style='color:blue;margin:1px'></p>"
+                         + "<p id='b' style='color:blue!important'></p>"
+                         + "<p id='c' style='color:; margin :3px;'></p>";
+    assertEquals ("red", _getStyle (aResolver, sHTML, "a").getValue ("color"));
+    assertEquals ("1px", _getStyle (aResolver, sHTML, "a").getValue ("margin"));
+    // Important inline declarations win over important rules
+    assertEquals ("blue", _getStyle (aResolver, sHTML, "b").getValue ("color"));
+    assertTrue (_getStyle (aResolver, sHTML, "b").getDeclaration ("color").isImportant ());
+    // Invalid inline declarations are ignored
+    assertEquals ("red", _getStyle (aResolver, sHTML, "c").getValue ("color"));
+    assertEquals ("3px", _getStyle (aResolver, sHTML, "c").getValue ("margin"));
+  }
+
+  @Test
+  public void testOrigins ()
+  {
+    final CSSCascadeResolver aResolver = new CSSCascadeResolver (new CSSMediumContext (ECSSMedium.SCREEN));
+    aResolver.addStyleSheet (_parse ("#a{color:red;margin:1px !important}p{padding:1px}"), ECSSOrigin.AUTHOR);
+    aResolver.addStyleSheet (_parse ("p{color:blue;padding:2px!important}"), ECSSOrigin.USER);
+    aResolver.addStyleSheet (_parse ("p{color:green;margin:3px!important}"), ECSSOrigin.USER_AGENT);
+    final CSSComputedStyle aStyle = _getStyle (aResolver, "<p id='a'></p>", "a");
+    assertEquals ("red", aStyle.getValue ("color"));
+    assertEquals ("3px", aStyle.getValue ("margin"));
+    assertEquals ("2px", aStyle.getValue ("padding"));
+  }
+
+  @Test
+  public void testInheritance ()
+  {
+    assertTrue (CSSCascadeResolver.isInheritedProperty ("color"));
+    assertTrue (CSSCascadeResolver.isInheritedProperty ("font"));
+    assertTrue (CSSCascadeResolver.isInheritedProperty ("--main-color"));
+    assertFalse (CSSCascadeResolver.isInheritedProperty ("margin"));
+    assertFalse (CSSCascadeResolver.isInheritedProperty ("x-unknown"));
+
+    final CSSCascadeResolver aResolver = _createAuthor ("body{color:red;margin:0;font-size:10px;border:0}"
+                                                        + "#b{color:blue;border:inherit;margin:unset}"
+                                                        + "#c{font-size:initial;color:unset}");
+    final String sHTML = "<div id='a'><p id='b'><span id='c'></span></p></div>";
+    CSSComputedStyle aStyle = _getStyle (aResolver, sHTML, "a");
+    assertEquals ("red", aStyle.getValue ("color"));
+    assertTrue (aStyle.isInherited ("color"));
+    assertNull (aStyle.getValue ("margin"));
+    assertFalse (aStyle.isInherited ("margin"));
+    assertNull (aStyle.getValue ("border"));
+
+    aStyle = _getStyle (aResolver, sHTML, "b");
+    assertEquals ("blue", aStyle.getValue ("color"));
+    assertFalse (aStyle.isInherited ("color"));
+    assertEquals ("10px", aStyle.getValue ("font-size"));
+    // The parent has no border value
+    assertNull (aStyle.getValue ("border"));
+    assertNull (aStyle.getValue ("margin"));
+
+    aStyle = _getStyle (aResolver, sHTML, "c");
+    assertEquals ("blue", aStyle.getValue ("color"));
+    assertTrue (aStyle.isInherited ("color"));
+    assertNull (aStyle.getValue ("font-size"));
+  }
+
+  @Test
+  public void testCascadeOrder ()
+  {
+    final CSSCascadeResolver aResolver = _createAuthor (".a{margin-top:5px}p{margin:0;color:red}body{font:12px Arial}"
+                                                        + "p{font-size:14px}");
+    final CSSComputedStyle aStyle = _getStyle (aResolver, "<p id='a' class='a'></p>", "a");
+    final List <String> aExpected = java.util.Arrays.asList ("font", "margin", "color", "font-size", "margin-top");
+    assertEquals (aExpected.size (), aStyle.getDeclarationCount ());
+    for (int i = 0; i < aExpected.size (); ++i)
+      assertEquals (aExpected.get (i), aStyle.getAllDeclarations ().get (i).getProperty ());
+    assertEquals ("font:12px Arial;margin:0;color:red;font-size:14px;margin-top:5px",
+                  aStyle.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30, true)));
+    assertEquals ("font:12px Arial; margin:0; color:red; font-size:14px; margin-top:5px",
+                  aStyle.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30, false)));
+  }
+
+  @Test
+  public void testMediaAndSupports ()
+  {
+    final CSSCascadeResolver aResolver = _createAuthor ("p{color:red}"
+                                                        + "@media print{p{color:blue}}"
+                                                        + "@media screen{p{margin:0}}"
+                                                        + "@media screen and (max-width:600px){p{padding:0}}"
+                                                        + "@media not print{p{border:0}}"
+                                                        + "@supports (display:flex){p{display:flex}}");
+    final CSSComputedStyle aStyle = _getStyle (aResolver, "<p id='a'></p>", "a");
+    assertEquals ("red", aStyle.getValue ("color"));
+    assertEquals ("0", aStyle.getValue ("margin"));
+    assertNull (aStyle.getValue ("padding"));
+    assertEquals ("0", aStyle.getValue ("border"));
+    assertEquals ("flex", aStyle.getValue ("display"));
+  }
+
+  @Test
+  public void testSharedStyles ()
+  {
+    final CSSCascadeResolver aResolver = _createAuthor ("li{color:red}li:first-child{color:blue}.x{margin:0}");
+    final IMicroDocument aDoc = HTMLTolerantReader.readFromString ("<ul><li id='a'><li id='b'><li id='c'>"
+                                                                   + "<li id='d' class='x'><li id='e'></ul>"
+                                                                   + "<ol><li id='f'><li id='g'></ol>");
+    final Map <IMicroElement, CSSComputedStyle> aStyles = aResolver.getAllComputedStyles (aDoc);
+    assertEquals (aDoc.getDocumentElement ().getAllChildElementsRecursive ().size () + 1, aStyles.size ());
+    final CSSComputedStyle aFirst = aStyles.get (_getByID (aDoc, "a"));
+    final CSSComputedStyle aSecond = aStyles.get (_getByID (aDoc, "b"));
+    assertEquals ("blue", aFirst.getValue ("color"));
+    assertEquals ("red", aSecond.getValue ("color"));
+    assertNotSame (aFirst, aSecond);
+    assertSame (aSecond, aStyles.get (_getByID (aDoc, "c")));
+    assertSame (aSecond, aStyles.get (_getByID (aDoc, "e")));
+    assertNotSame (aSecond, aStyles.get (_getByID (aDoc, "d")));
+    // Same parent style, so also shared with the other list
+    assertSame (aFirst, aStyles.get (_getByID (aDoc, "f")));
+    assertSame (aSecond, aStyles.get (_getByID (aDoc, "g")));
+  }
+
+  @Test
+  public void testW3CDocument () throws Exception
+  {
+    final CSSCascadeResolver aResolver = _createAuthor ("body{color:red}p.x{color:blue}");
+    final Document aDoc = DocumentBuilderFactory.newInstance ()
+                                                .newDocumentBuilder ()
+                                                .parse (new InputSource (new StringReader ("<html><body><p class='x'/>"
+                                                                                           + "<p style='color:green'/>"
+                                                                                           + "</body></html>")));
+    final Map <Element, CSSComputedStyle> aStyles = aResolver.getAllComputedStyles (aDoc);
+    assertEquals (4, aStyles.size ());
+    final Element eBody = (Element) aDoc.getDocumentElement ().getFirstChild ();
+    assertEquals ("red", aStyles.get (eBody).getValue ("color"));
+    assertEquals ("blue", aStyles.get (eBody.getFirstChild ()).getValue ("color"));
+    assertEquals ("green", aStyles.get (eBody.getLastChild ()).getValue ("color"));
+    assertTrue (aStyles.get (aDoc.getDocumentElement ()).isEmpty ());
+  }
+}
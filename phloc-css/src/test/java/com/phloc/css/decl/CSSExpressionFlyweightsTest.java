@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.tools.CSSMemoryEstimator;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSExpressionFlyweights}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSExpressionFlyweightsTest
+{
+  @Test
+  public void testSharedValues ()
+  {
+    assertTrue (CSSExpressionFlyweights.isSharedValue ("auto"));
+    assertFalse (CSSExpressionFlyweights.isSharedValue ("foo"));
+    assertFalse (CSSExpressionFlyweights.isSharedValue (null));
+    assertTrue (CSSExpressionFlyweights.getAllSharedValues ().contains ("none"));
+
+    // New objects but shared strings
+    final CSSExpressionMemberTermSimple aTerm1 = CSSExpressionFlyweights.createTerm ("auto");
+    final CSSExpressionMemberTermSimple aTerm2 = CSSExpressionFlyweights.createTerm ("auto");
+    assertNotSame (aTerm1, aTerm2);
+    assertEquals (aTerm1, aTerm2);
+    assertSame (aTerm1.getValue (), aTerm2.getValue ());
+    assertSame (aTerm1.getOptimizedValue (), aTerm2.getOptimizedValue ());
+    assertEquals ("foo", CSSExpressionFlyweights.createTerm ("foo").getValue ());
+
+    // Modifying one term does not modify the other one
+    aTerm1.setValue ("none");
+    assertEquals ("none", aTerm1.getValue ());
+    assertEquals ("auto", aTerm2.getValue ());
+    assertSame (aTerm2.getValue (), aTerm2.getClone ().getValue ());
+  }
+
+  @Test
+  public void testModifyExpression ()
+  {
+    final CSSExpression aExpr1 = new CSSExpression ().addTermSimple ("auto").addNumber (0);
+    final CSSExpression aExpr2 = new CSSExpression ().addTermSimple ("auto");
+    final CSSExpressionMemberTermSimple aTerm = (CSSExpressionMemberTermSimple) aExpr1.getMemberAtIndex (0);
+    assertSame (aTerm, aExpr1.getMemberAtIndex (0));
+    aTerm.setValue ("none");
+    assertEquals ("none 0", aExpr1.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30), 0));
+    assertEquals ("auto", aExpr2.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30), 0));
+  }
+
+  @Test
+  public void testModifyDeclaration ()
+  {
+    final CSSDeclaration aDecl1 = new CSSDeclaration ("display", CSSExpression.createSimple ("none"));
+    final CSSDeclaration aClone = aDecl1.getClone ();
+
+    final CSSExpression aExpr1 = aDecl1.getExpression ();
+    assertSame (aExpr1, aDecl1.getExpression ());
+    aExpr1.addTermSimple ("!ie");
+
+    assertEquals ("display:none !ie", aDecl1.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30), 0));
+    assertEquals ("display:none", aClone.getAsCSSString (new CSSWriterSettings (ECSSVersion.CSS30), 0));
+  }
+
+  @Test
+  public void testReadingDoesNotModify ()
+  {
+    final boolean bOld = CSSReader.isDefaultUseSharedExpressions ();
+    CSSReader.setDefaultUseSharedExpressions (true);
+    CSSReader.setDefaultKeepSourceText (true);
+    try
+    {
+      final CascadingStyleSheet aCSS = CSSReader.readFromString ("a {  color :  red ; margin : 0 auto }",
+                                                                 ECSSVersion.CSS30);
+      assertNotNull (aCSS);
+      final CSSStyleRule aRule = aCSS.getAllStyleRules ().get (0);
+      final long nModificationCount = aRule.getDeepModificationCount ();
+      for (final CSSDeclaration aDecl : aRule.getAllDeclarations ())
+      {
+        aDecl.getExpression ().getAllMembers ();
+        aDecl.getExpression ().getMemberAtIndex (0);
+        aDecl.getExpression ().getAllSimpleMembers ();
+      }
+      assertEquals (nModificationCount, aRule.getDeepModificationCount ());
+      assertEquals ("a {  color :  red ; margin : 0 auto }",
+                    new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false)
+                                                           .setUseSourceText (true)
+                                                           .getCSSAsString (aCSS));
+    }
+    finally
+    {
+      CSSReader.setDefaultKeepSourceText (false);
+      CSSReader.setDefaultUseSharedExpressions (bOld);
+    }
+  }
+
+  @Test
+  public void testReadShared ()
+  {
+    final boolean bOld = CSSReader.isDefaultUseSharedExpressions ();
+    try
+    {
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, false).setWriteHeaderText (false);
+      for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                  new FilenameFilterEndsWith (".css")))
+      {
+        final String sKey = aFile.getAbsolutePath ();
+        CSSReader.setDefaultUseSharedExpressions (false);
+        final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+        assertNotNull (sKey, aCSS);
+        CSSReader.setDefaultUseSharedExpressions (true);
+        final CascadingStyleSheet aSharedCSS = CSSReader.readFromFile (aFile,
+                                                                       CCharset.CHARSET_UTF_8_OBJ,
+                                                                       ECSSVersion.CSS30);
+        assertNotNull (sKey, aSharedCSS);
+
+        // Same content and output, but less memory
+        assertEquals (sKey, aCSS, aSharedCSS);
+        assertEquals (sKey, aWriter.getCSSAsString (aCSS), aWriter.getCSSAsString (aSharedCSS));
+        assertTrue (sKey,
+                    CSSMemoryEstimator.getEstimatedBytes (aSharedCSS) <= CSSMemoryEstimator.getEstimatedBytes (aCSS));
+      }
+
+      // Modifying one declaration does not modify another one
+      final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{display:none}b{display:none}", ECSSVersion.CSS30);
+      assertNotNull (aCSS);
+      aCSS.getAllStyleRules ().get (0).getDeclarationAtIndex (0).getExpression ().addTermSimple ("!ie");
+      assertEquals ("a{display:none !ie}b{display:none}", new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false)
+                                                                               .getCSSAsString (aCSS));
+    }
+    finally
+    {
+      CSSReader.setDefaultUseSharedExpressions (bOld);
+    }
+  }
+}
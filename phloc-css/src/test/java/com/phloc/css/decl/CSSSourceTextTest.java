@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.decl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.visit.AbstractModifyingCSSUrlVisitor;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+
+/**
+ * Test class for class {@link CSSSourceText}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSSourceTextTest
+{
+  private static final String CSS = "@import 'x.css';\n"
+                                    + "/* c */ a , b\t{ color : red ; }\r\n"
+                                    + "@media print {\n  p { background : url( 'a.gif' ) }\n}\n"
+                                    + "@font-face { src: url(a) }\n"
+                                    + "\t@page :first { margin: 0 }\n"
+                                    + "@keyframes k { from { a:b } }\r"
+                                    + "@supports (display:flex) { q{a:b} }\n"
+                                    + "@foo bar { baz }\n"
+                                    + "@viewport { width: device-width }\n"
+                                    + "i{}";
+
+  @Test
+  public void testReadAndWrite ()
+  {
+    CSSReader.setDefaultKeepSourceText (true);
+    try
+    {
+      final CascadingStyleSheet aCSS = CSSReader.readFromString (CSS, ECSSVersion.CSS30);
+      assertNotNull (aCSS);
+      final CSSSourceText aSourceText = aCSS.getSourceText ();
+      assertNotNull (aSourceText);
+      assertEquals (CSS, aSourceText.getText ());
+      assertEquals (aCSS.getRuleCount (), aSourceText.getRuleCount ());
+      assertEquals ("a , b\t{ color : red ; }", aSourceText.getUnmodifiedRuleText (aCSS.getRuleAtIndex (0)));
+      assertEquals ("@page :first { margin: 0 }", aSourceText.getUnmodifiedRuleText (aCSS.getRuleAtIndex (3)));
+      assertEquals ("i{}", aSourceText.getUnmodifiedRuleText (aCSS.getRuleAtIndex (8)));
+
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setUseSourceText (true);
+      assertEquals ("@import url(x.css);\n"
+                        + "a , b\t{ color : red ; }"
+                        + "@media print {\n  p { background : url( 'a.gif' ) }\n}"
+                        + "@font-face { src: url(a) }"
+                        + "@page :first { margin: 0 }"
+                        + "@keyframes k { from { a:b } }"
+                        + "@supports (display:flex) { q{a:b} }"
+                        + "@foo bar { baz }"
+                        + "@viewport { width: device-width }"
+                        + "i{}",
+                    aWriter.getCSSAsString (aCSS));
+
+      // Modify only the URLs
+      CSSVisitor.visitCSSUrl (aCSS, new AbstractModifyingCSSUrlVisitor ()
+      {
+        @Override
+        protected String getModifiedURI (final String sURI)
+        {
+          return "/static/" + sURI;
+        }
+      });
+      assertNull (aSourceText.getUnmodifiedRuleText (aCSS.getRuleAtIndex (1)));
+      assertEquals ("@import url(/static/x.css);\n"
+                        + "a , b\t{ color : red ; }"
+                        + "@media print{p{background:url(/static/a.gif)}}"
+                        + "@font-face{src:url(/static/a)}"
+                        + "@page :first { margin: 0 }"
+                        + "@keyframes k { from { a:b } }"
+                        + "@supports (display:flex) { q{a:b} }"
+                        + "@foo bar { baz }"
+                        + "@viewport { width: device-width }"
+                        + "i{}",
+                    aWriter.getCSSAsString (aCSS));
+
+      // Filtering settings are applied to unmodified rules as well
+      final CascadingStyleSheet aCSS2 = CSSReader.readFromString ("a { color : red }\n"
+                                                                  + "@media print { b { color : blue } }\n"
+                                                                  + ".e { }",
+                                                                  ECSSVersion.CSS30);
+      assertNotNull (aCSS2);
+      final CSSWriter aFilteringWriter = new CSSWriter (ECSSVersion.CSS30, true).setUseSourceText (true)
+                                                                                .setWriteHeaderText (false);
+      aFilteringWriter.getSettings ().setWriteMediaRules (false).setRemoveUnnecessaryCode (true);
+      assertEquals ("a{color:red}", aFilteringWriter.getCSSAsString (aCSS2));
+      // Version requirements are checked by rendering with an older version
+      assertEquals ("a{color:red}@media print{b{color:blue}}.e{}",
+                    new CSSWriter (ECSSVersion.CSS21, true).setUseSourceText (true)
+                                                          .setWriteHeaderText (false)
+                                                          .getCSSAsString (aCSS2));
+
+      // Clones have no source text
+      assertNull (aCSS.getClone ().getSourceText ());
+    }
+    finally
+    {
+      CSSReader.setDefaultKeepSourceText (false);
+    }
+
+    // Disabled by default
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (CSS, ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    assertNull (aCSS.getSourceText ());
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      CSSReader.setDefaultKeepSourceText (true);
+      final CascadingStyleSheet aCSS;
+      try
+      {
+        aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      }
+      finally
+      {
+        CSSReader.setDefaultKeepSourceText (false);
+      }
+      assertNotNull (sKey, aCSS);
+      assertNotNull (sKey, aCSS.getSourceText ());
+
+      // Copying the original text must result in the same style sheet
+      final String sPassthrough = new CSSWriter (ECSSVersion.CSS30, false).setUseSourceText (true)
+                                                                          .getCSSAsString (aCSS);
+      final CascadingStyleSheet aCSS2 = CSSReader.readFromString (sPassthrough, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS2);
+      assertEquals (sKey, aCSS, aCSS2);
+    }
+  }
+}
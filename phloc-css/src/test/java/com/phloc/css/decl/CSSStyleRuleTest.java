@@ -18,6 +18,7 @@
 package com.phloc.css.decl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -112,4 +113,26 @@ public final class CSSStyleRuleTest
                                                                                   "red")));
     PhlocTestUtils.testDefaultImplementationWithEqualContentObject (aSR, aCreated);
   }
+
+  @Test
+  public void testHashCodeAfterModification ()
+  {
+    final CSSStyleRule aSR = _parse ("div { color: red; }");
+    final CSSStyleRule aCreated = new CSSStyleRule ();
+    aCreated.addSelector (new CSSSelectorSimpleMember ("div"));
+    aCreated.addDeclaration ("color", CSSExpression.createSimple ("red"), false);
+    assertEquals (aSR, aCreated);
+    assertEquals (aSR.hashCode (), aCreated.hashCode ());
+
+    // Modify a nested object - the cached hash code must be invalidated
+    aSR.getDeclarationAtIndex (0).getExpression ().addTermSimple ("blue");
+    assertFalse (aSR.equals (aCreated));
+    aCreated.getDeclarationAtIndex (0).getExpression ().addTermSimple ("blue");
+    assertEquals (aSR, aCreated);
+    assertEquals (aSR.hashCode (), aCreated.hashCode ());
+
+    aSR.getSelectorAtIndex (0).addMember (new CSSSelectorSimpleMember (".x"));
+    aCreated.getSelectorAtIndex (0).addMember (new CSSSelectorSimpleMember (".x"));
+    PhlocTestUtils.testDefaultImplementationWithEqualContentObject (aSR, aCreated);
+  }
 }
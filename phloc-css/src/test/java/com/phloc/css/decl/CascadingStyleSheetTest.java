@@ -20,14 +20,24 @@ package com.phloc.css.decl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+
 import javax.annotation.Nonnull;
 
 import org.junit.Test;
 
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
 import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.visit.AbstractModifyingCSSUrlVisitor;
+import com.phloc.css.decl.visit.CSSVisitor;
+import com.phloc.css.decl.visit.DefaultCSSVisitor;
 import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
 
 /**
  * Test class for class {@link CascadingStyleSheet}.
@@ -617,4 +627,79 @@ public final class CascadingStyleSheetTest
     assertEquals (1, aCSS.getUnknownRuleCount ());
     assertNotNull (aCSS.getAllUnknownRules ().get (0));
   }
+
+  @Test
+  public void testGetClone ()
+  {
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, false);
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+      final String sOriginalCSS = aWriter.getCSSAsString (aCSS);
+
+      final CascadingStyleSheet aClone = aCSS.getClone ();
+      assertNotSame (sKey, aCSS, aClone);
+      assertEquals (sKey, aCSS, aClone);
+      assertEquals (sKey, sOriginalCSS, aWriter.getCSSAsString (aClone));
+
+      // Modify the clone deeply
+      CSSVisitor.visitCSS (aClone, new DefaultCSSVisitor ()
+      {
+        @Override
+        public void onDeclaration (@Nonnull final CSSDeclaration aDeclaration)
+        {
+          aDeclaration.setImportant (!aDeclaration.isImportant ());
+          aDeclaration.getExpression ().addTermSimple ("cloned");
+        }
+      });
+      CSSVisitor.visitCSSUrl (aClone, new AbstractModifyingCSSUrlVisitor ()
+      {
+        @Override
+        @Nonnull
+        protected String getModifiedURI (@Nonnull final String sURI)
+        {
+          return "cloned/" + sURI;
+        }
+      });
+
+      // The original must not be affected
+      assertEquals (sKey, sOriginalCSS, aWriter.getCSSAsString (aCSS));
+    }
+  }
+
+  @Test
+  public void testHashCodeCache ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("@import url(a.css);a{color:red}", ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final long nModificationCount = aCSS.getDeepModificationCount ();
+    final int nHashCode = aCSS.hashCode ();
+
+    // Reading another style sheet does not modify this one
+    assertNotNull (CSSReader.readFromString ("b{color:blue}", ECSSVersion.CSS30));
+    assertEquals (nModificationCount, aCSS.getDeepModificationCount ());
+    assertEquals (nHashCode, aCSS.hashCode ());
+
+    // Modifying a nested object is detected
+    aCSS.getAllStyleRules ().get (0).getDeclarationAtIndex (0).getExpression ().addTermSimple ("x");
+    assertTrue (aCSS.getDeepModificationCount () > nModificationCount);
+    final CascadingStyleSheet aExpected = CSSReader.readFromString ("@import url(a.css);a{color:red x}",
+                                                                    ECSSVersion.CSS30);
+    assertEquals (aExpected, aCSS);
+    assertEquals (aExpected.hashCode (), aCSS.hashCode ());
+
+    final long nModificationCount2 = aCSS.getDeepModificationCount ();
+    aCSS.getImportRuleAtIndex (0).addMediaQuery (new CSSMediaQuery ("print"));
+    assertTrue (aCSS.getDeepModificationCount () > nModificationCount2);
+    assertFalse (aExpected.equals (aCSS));
+
+    // Repeated calls without any modification in between use the cached value
+    final int nHashCode2 = aCSS.hashCode ();
+    assertEquals (nHashCode2, aCSS.hashCode ());
+    aCSS.getImportRuleAtIndex (0).removeAllMediaQueries ();
+    assertEquals (aExpected.hashCode (), aCSS.hashCode ());
+  }
 }
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import javax.annotation.Nonnull;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSCompiledSelector}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSCompiledSelectorTest
+{
+  @Nonnull
+  private static CSSSelector _getSelector (@Nonnull final String sSelector)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sSelector + "{}", ECSSVersion.CSS30);
+    assertNotNull (sSelector, aCSS);
+    return aCSS.getAllStyleRules ().get (0).getSelectorAtIndex (0);
+  }
+
+  @Nonnull
+  private static String _getSpecificity (@Nonnull final String sSelector)
+  {
+    return CSSCompiledSelector.compile (_getSelector (sSelector)).getSpecificity ().getAsString ();
+  }
+
+  @Test
+  public void testSpecificity ()
+  {
+    assertEquals ("0,0,0", _getSpecificity ("*"));
+    assertEquals ("0,0,1", _getSpecificity ("li"));
+    assertEquals ("0,0,1", _getSpecificity ("ns|li"));
+    assertEquals ("0,0,2", _getSpecificity ("ul li"));
+    assertEquals ("0,0,3", _getSpecificity ("ul ol+li"));
+    assertEquals ("0,1,1", _getSpecificity ("h1 + *[rel=up]"));
+    assertEquals ("0,1,3", _getSpecificity ("ul ol li.red"));
+    assertEquals ("0,2,1", _getSpecificity ("li.red.level"));
+    assertEquals ("1,0,0", _getSpecificity ("#x34y"));
+    assertEquals ("1,0,1", _getSpecificity ("#s12:not(FOO)"));
+    assertEquals ("0,1,1", _getSpecificity ("a:hover"));
+    assertEquals ("0,1,1", _getSpecificity ("p:nth-child(2n+1)"));
+    assertEquals ("0,1,1", _getSpecificity ("p:lang(en)"));
+    assertEquals ("0,0,2", _getSpecificity ("p::first-line"));
+    assertEquals ("0,0,2", _getSpecificity ("p:before"));
+    assertEquals ("1,0,0", _getSpecificity (":not(.a, #b)"));
+  }
+
+  @Test
+  public void testDynamicPseudo ()
+  {
+    assertFalse (CSSCompiledSelector.compile (_getSelector ("ul > li:first-child")).containsDynamicPseudo ());
+    assertTrue (CSSCompiledSelector.compile (_getSelector ("a:hover")).containsDynamicPseudo ());
+    assertTrue (CSSCompiledSelector.compile (_getSelector ("p::after")).containsDynamicPseudo ());
+    assertTrue (CSSCompiledSelector.compile (_getSelector ("a:not(:visited)")).containsDynamicPseudo ());
+  }
+
+  private static int _count (@Nonnull final Document aDoc, @Nonnull final String sSelector)
+  {
+    final CSSCompiledSelector aSelector = CSSCompiledSelector.compile (_getSelector (sSelector));
+    final NodeList aElements = aDoc.getElementsByTagName ("*");
+    int ret = 0;
+    for (int i = 0; i < aElements.getLength (); ++i)
+      if (aSelector.matches ((Element) aElements.item (i), W3CElementNavigator.getInstance (), false))
+        ++ret;
+    return ret;
+  }
+
+  @Test
+  public void testW3CDocument () throws Exception
+  {
+    final String sXML = "<html lang='en'><body>" +
+                        "<div id='main' class='a b'>" +
+                        "<p class='first'>1</p>" +
+                        "<p>2</p>" +
+                        "<span title='x'/>" +
+                        "<p>3<em/></p>" +
+                        "</div>" +
+                        "<ul><li/><li/><li/></ul>" +
+                        "</body></html>";
+    final Document aDoc = DocumentBuilderFactory.newInstance ()
+                                                .newDocumentBuilder ()
+                                                .parse (new InputSource (new StringReader (sXML)));
+    assertEquals (12, _count (aDoc, "*"));
+    assertEquals (1, _count (aDoc, ":root"));
+    assertEquals (3, _count (aDoc, "div > p"));
+    assertEquals (1, _count (aDoc, "#main .first"));
+    assertEquals (1, _count (aDoc, "p + span"));
+    assertEquals (1, _count (aDoc, "span ~ p"));
+    assertEquals (1, _count (aDoc, "body div p em"));
+    assertEquals (0, _count (aDoc, "ul em"));
+    assertEquals (2, _count (aDoc, "li:nth-child(odd)"));
+    assertEquals (1, _count (aDoc, "li:nth-last-child(2)"));
+    assertEquals (1, _count (aDoc, "p:last-of-type"));
+    assertEquals (1, _count (aDoc, "span:only-of-type"));
+    assertEquals (1, _count (aDoc, "[title=x]"));
+    assertEquals (1, _count (aDoc, "div[class~=b]"));
+    assertEquals (2, _count (aDoc, "div > p:not(.first)"));
+    assertEquals (12, _count (aDoc, ":lang(en)"));
+    assertEquals (5, _count (aDoc, ":empty"));
+    assertEquals (0, _count (aDoc, "a:hover"));
+  }
+
+  @Test
+  public void testCache ()
+  {
+    CSSCompiledSelectorCache.clearCache ();
+    assertEquals (0, CSSCompiledSelectorCache.getCacheSize ());
+
+    final CSSCompiledSelector aCompiled = CSSCompiledSelectorCache.getCompiledSelector (_getSelector ("div  >  p.a"));
+    assertEquals ("div>p.a", aCompiled.getSelectorString ());
+    assertEquals (1, CSSCompiledSelectorCache.getCacheSize ());
+    // Equal selectors share the compiled version
+    assertSame (aCompiled, CSSCompiledSelectorCache.getCompiledSelector (_getSelector ("div>p.a")));
+    assertSame (aCompiled.getSpecificity (), CSSCompiledSelectorCache.getSpecificity (_getSelector ("div>p.a")));
+    assertNotSame (aCompiled, CSSCompiledSelectorCache.getCompiledSelector (_getSelector ("div p.a")));
+    assertEquals (2, CSSCompiledSelectorCache.getCacheSize ());
+
+    CSSCompiledSelectorCache.clearCache ();
+    assertEquals (0, CSSCompiledSelectorCache.getCacheSize ());
+  }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSSelectorMatcher}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSSelectorMatcherTest
+{
+  private static final IMicroDocument DOC = HTMLTolerantReader.readFromString ("<html lang='en-US'><body>"
+                                                                               + "<div id='main' class='a b'>"
+                                                                               + "<p class='first'>1</p>"
+                                                                               + "<p>2</p>"
+                                                                               + "<span data-x='foo-bar baz'></span>"
+                                                                               + "<p class='sm:flex'>3</p>"
+                                                                               + "</div>"
+                                                                               + "<ul><li>a<li>b<li>c<li>d</ul>"
+                                                                               + "<a href='x.pdf' lang='de'>d</a>"
+                                                                               + "</body></html>");
+
+  @Nonnull
+  private static CSSSelector _getSelector (@Nonnull final String sSelector)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sSelector + "{}", ECSSVersion.CSS30);
+    assertNotNull (sSelector, aCSS);
+    return aCSS.getAllStyleRules ().get (0).getSelectorAtIndex (0);
+  }
+
+  private static int _count (@Nonnull final String sSelector, final boolean bAssumeDynamicStates)
+  {
+    final CSSSelector aSelector = _getSelector (sSelector);
+    final IMicroElement aRoot = DOC.getDocumentElement ();
+    int ret = CSSSelectorMatcher.matches (aSelector, aRoot, bAssumeDynamicStates) ? 1 : 0;
+    for (final IMicroElement aElement : aRoot.getAllChildElementsRecursive ())
+      if (CSSSelectorMatcher.matches (aSelector, aElement, bAssumeDynamicStates))
+        ++ret;
+    return ret;
+  }
+
+  private static int _count (@Nonnull final String sSelector)
+  {
+    return _count (sSelector, false);
+  }
+
+  @Test
+  public void testSimple ()
+  {
+    assertEquals (3, _count ("p"));
+    assertEquals (3, _count ("P"));
+    assertEquals (14, _count ("*"));
+    assertEquals (1, _count ("#main"));
+    assertEquals (1, _count ("div.a.b"));
+    assertEquals (0, _count ("div.a.c"));
+    assertEquals (1, _count (".sm\\:flex"));
+    assertEquals (0, _count ("#MAIN"));
+    assertEquals (3, _count ("*|p"));
+  }
+
+  @Test
+  public void testCombinators ()
+  {
+    assertEquals (3, _count ("body p"));
+    assertEquals (3, _count ("div > p"));
+    assertEquals (0, _count ("body > p"));
+    assertEquals (1, _count ("p + p"));
+    assertEquals (1, _count ("span + p"));
+    assertEquals (2, _count (".first ~ p"));
+    assertEquals (3, _count ("li ~ li"));
+    assertEquals (1, _count ("html div#main > .first + p ~ p"));
+    assertEquals (0, _count ("ul div"));
+  }
+
+  @Test
+  public void testAttributes ()
+  {
+    assertEquals (1, _count ("[data-x]"));
+    assertEquals (1, _count ("[DATA-X]"));
+    assertEquals (1, _count ("[data-x=\"foo-bar baz\"]"));
+    assertEquals (1, _count ("[data-x~=baz]"));
+    assertEquals (0, _count ("[data-x~=foo]"));
+    assertEquals (1, _count ("[data-x|=foo]"));
+    assertEquals (1, _count ("[data-x^=foo]"));
+    assertEquals (1, _count ("[href$='.pdf']"));
+    assertEquals (1, _count ("[data-x*='r b']"));
+    assertEquals (0, _count ("[data-x*='']"));
+    assertEquals (1, _count ("[lang|=en]"));
+    assertEquals (2, _count ("[lang]"));
+  }
+
+  @Test
+  public void testPseudoClasses ()
+  {
+    assertEquals (1, _count (":root"));
+    assertEquals (1, _count ("span:empty"));
+    assertEquals (2, _count ("li:nth-child(odd)"));
+    assertEquals (2, _count ("li:nth-child(2n)"));
+    assertEquals (1, _count ("li:nth-child(3)"));
+    assertEquals (3, _count ("li:nth-child(-n+3)"));
+    assertEquals (1, _count ("li:nth-last-child(1)"));
+    assertEquals (1, _count ("p:nth-of-type(2)"));
+    assertEquals (1, _count ("p:last-of-type"));
+    assertEquals (1, _count ("span:only-of-type"));
+    assertEquals (1, _count ("li:first-child"));
+    assertEquals (0, _count ("span:only-child"));
+    assertEquals (2, _count ("p:not(.first)"));
+    assertEquals (1, _count ("p:not(.first, :last-of-type)"));
+    assertEquals (10, _count ("body :lang(en)"));
+    assertEquals (1, _count ("a:lang(de)"));
+  }
+
+  @Test
+  public void testDynamicStates ()
+  {
+    assertEquals (0, _count ("a:hover"));
+    assertEquals (1, _count ("a:hover", true));
+    assertEquals (0, _count ("p::before"));
+    assertEquals (3, _count ("p::before", true));
+    assertEquals (3, _count ("p:not(:hover)"));
+    // A negated dynamic state may match
+    assertEquals (3, _count ("p:not(.first:focus)", true));
+
+    assertTrue (CSSSelectorMatcher.isDynamicPseudo (":HOVER"));
+    assertTrue (CSSSelectorMatcher.isDynamicPseudo (":before"));
+    assertTrue (CSSSelectorMatcher.isDynamicPseudo ("::-moz-selection"));
+    assertFalse (CSSSelectorMatcher.isDynamicPseudo (":nth-child(2n+1)"));
+    assertFalse (CSSSelectorMatcher.isDynamicPseudo (":lang("));
+    assertTrue (CSSSelectorMatcher.containsDynamicPseudo (_getSelector ("a:not(.x:hover)")));
+    assertFalse (CSSSelectorMatcher.containsDynamicPseudo (_getSelector ("a:not(.x) > b:first-child")));
+  }
+
+  @Test
+  public void testHelper ()
+  {
+    assertEquals ("sm:flex", CSSSelectorMatcher.unescapeIdentifier ("sm\\:flex"));
+    assertEquals ("1a", CSSSelectorMatcher.unescapeIdentifier ("\\31 a"));
+    assertEquals ("abc", CSSSelectorMatcher.unescapeIdentifier ("abc"));
+    assertArrayEquals (new int [] { 2, 1 }, CSSSelectorMatcher.parseNth ("odd"));
+    assertArrayEquals (new int [] { -1, 3 }, CSSSelectorMatcher.parseNth ("-n+3"));
+    assertArrayEquals (new int [] { 0, 5 }, CSSSelectorMatcher.parseNth ("+5"));
+    assertArrayEquals (new int [] { 3, -2 }, CSSSelectorMatcher.parseNth ("3n-2"));
+    assertNull (CSSSelectorMatcher.parseNth ("3n2"));
+    assertNull (CSSSelectorMatcher.parseNth ("xn"));
+  }
+}
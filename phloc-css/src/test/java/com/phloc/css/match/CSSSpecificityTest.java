@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.phloc.commons.mock.PhlocTestUtils;
+
+/**
+ * Test class for class {@link CSSSpecificity}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSSpecificityTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final CSSSpecificity a = new CSSSpecificity (1, 2, 3);
+    assertEquals (1, a.getIDs ());
+    assertEquals (2, a.getClasses ());
+    assertEquals (3, a.getElements ());
+    assertEquals ("1,2,3", a.getAsString ());
+    assertEquals (new CSSSpecificity (2, 2, 4), a.getAdded (new CSSSpecificity (1, 0, 1)));
+    assertEquals (a, a.getAdded (CSSSpecificity.ZERO));
+
+    // Components are compared one after the other
+    assertTrue (new CSSSpecificity (1, 0, 0).compareTo (new CSSSpecificity (0, 99, 99)) > 0);
+    assertTrue (new CSSSpecificity (0, 1, 0).compareTo (new CSSSpecificity (0, 0, 99)) > 0);
+    assertTrue (new CSSSpecificity (0, 0, 1).compareTo (CSSSpecificity.ZERO) > 0);
+    assertEquals (0, a.compareTo (new CSSSpecificity (1, 2, 3)));
+
+    PhlocTestUtils.testDefaultImplementationWithEqualContentObject (a, new CSSSpecificity (1, 2, 3));
+    PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (a, new CSSSpecificity (1, 2, 4));
+    PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (a, new CSSSpecificity (0, 2, 3));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNegative ()
+  {
+    new CSSSpecificity (0, -1, 0);
+  }
+}
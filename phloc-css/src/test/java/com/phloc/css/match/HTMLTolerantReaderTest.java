@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+
+/**
+ * Test class for class {@link HTMLTolerantReader}.
+ * 
+ * @author Philip Helger
+ */
+public final class HTMLTolerantReaderTest
+{
+  private static void _appendStructure (@Nonnull final IMicroElement aElement, @Nonnull final StringBuilder aSB)
+  {
+    aSB.append (aElement.getTagName ());
+    if (aElement.hasChildElements ())
+    {
+      aSB.append ('(');
+      boolean bFirst = true;
+      for (final IMicroElement aChild : aElement.getAllChildElements ())
+      {
+        if (bFirst)
+          bFirst = false;
+        else
+          aSB.append (',');
+        _appendStructure (aChild, aSB);
+      }
+      aSB.append (')');
+    }
+  }
+
+  @Nonnull
+  private static String _getStructure (@Nonnull final String sHTML)
+  {
+    final IMicroDocument aDoc = HTMLTolerantReader.readFromString (sHTML);
+    assertNotNull (aDoc);
+    final StringBuilder aSB = new StringBuilder ();
+    _appendStructure (aDoc.getDocumentElement (), aSB);
+    return aSB.toString ();
+  }
+
+  @Test
+  public void testStructure ()
+  {
+    assertEquals ("html(head,body)", _getStructure (""));
+    assertEquals ("html(head(title,meta),body(div(p,p)))",
+                  _getStructure ("<!DOCTYPE html><HTML><head><title>a<b></title><meta charset=utf-8></head>"
+                                 + "<body><!-- <span> --><div><p>1<p>2</div></body></html>"));
+    // Fragments get an implicit html, head and body
+    assertEquals ("html(head(link),body(ul(li,li(ul(li))),br,img))",
+                  _getStructure ("<link rel=stylesheet href=a.css><ul><li>a<li>b<ul><li>c</ul></ul><br><img/>"));
+    // Unknown end tags are ignored, missing end tags are implied
+    assertEquals ("html(head,body(div(span(em)),section))",
+                  _getStructure ("<div><span><em></i>x</div><section></section></body>trailing"));
+    // Raw text is not parsed
+    assertEquals ("html(head(script),body(textarea))",
+                  _getStructure ("<script>if (a<b) document.write('<div>');</script><textarea><p></textarea>"));
+    assertEquals ("html(head,body(table(tr(td,td),tr(td))))",
+                  _getStructure ("<table><tr><td>1<td>2<tr><td>3</table>"));
+  }
+
+  @Test
+  public void testAttributes ()
+  {
+    final String sHTML = "<html lang=de><body class='x y'>"
+                         + "<input TYPE=checkbox checked data-a=\"1&amp;2&#x41;&bogus;\" id = 'i' id='j'></body>";
+    final IMicroDocument aDoc = HTMLTolerantReader.readFromString (sHTML);
+    final IMicroElement aHtml = aDoc.getDocumentElement ();
+    assertEquals ("de", aHtml.getAttribute ("lang"));
+    final IMicroElement aBody = aHtml.getFirstChildElement ("body");
+    assertEquals ("x y", aBody.getAttribute ("class"));
+    final IMicroElement aInput = aBody.getFirstChildElement ();
+    assertEquals ("input", aInput.getTagName ());
+    assertEquals ("checkbox", aInput.getAttribute ("type"));
+    assertEquals ("", aInput.getAttribute ("checked"));
+    assertEquals ("1&2A&bogus;", aInput.getAttribute ("data-a"));
+    // The first occurrence wins
+    assertEquals ("i", aInput.getAttribute ("id"));
+  }
+}
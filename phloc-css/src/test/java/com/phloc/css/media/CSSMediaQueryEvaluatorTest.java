@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.state.ETriState;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSMediaQuery;
+import com.phloc.css.tools.MediaQueryTools;
+
+/**
+ * Test class for class {@link CSSMediaQueryEvaluator}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSMediaQueryEvaluatorTest
+{
+  @Nonnull
+  private static ETriState _eval (@Nonnull final CSSDeviceProfile aProfile, @Nonnull final String sMediaQuery)
+  {
+    final List <CSSMediaQuery> aMediaQueries = MediaQueryTools.parseToMediaQuery (sMediaQuery, ECSSVersion.CSS30);
+    assertNotNull (sMediaQuery, aMediaQueries);
+    return new CSSMediaQueryEvaluator (aProfile).evaluateMediaQueries (aMediaQueries);
+  }
+
+  @Test
+  public void testFixedDevice ()
+  {
+    final CSSDeviceProfile aPhone = new CSSDeviceProfile ().setWidth (375)
+                                                           .setHeight (667)
+                                                           .setResolution (2)
+                                                           .setColor (Integer.valueOf (8))
+                                                           .setMonochrome (Integer.valueOf (0))
+                                                           .setGrid (Boolean.FALSE);
+    assertEquals (ETriState.TRUE, _eval (aPhone, "screen"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "all"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "only screen"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "print"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "not print"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "unknownmedium"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "print, screen"));
+
+    assertEquals (ETriState.TRUE, _eval (aPhone, "screen and (max-width: 767px)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "screen and (min-width: 768px)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "not screen and (min-width: 768px)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(width: 375px)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(min-width: 20em)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(min-width: 24em)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(max-device-width: 480px)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(orientation: portrait)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(orientation: landscape)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(max-aspect-ratio: 1/1)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(min-aspect-ratio: 16/9)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(min-resolution: 192dpi)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(min-resolution: 2dppx)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(min-resolution: 3dppx)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(-webkit-min-device-pixel-ratio: 1.5)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(color)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(min-color: 4)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(monochrome)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(grid: 0)"));
+    // Scan is unknown
+    assertEquals (ETriState.UNDEFINED, _eval (aPhone, "(scan: progressive)"));
+
+    // Unknown features and invalid values are "not all"
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(hover: hover)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "not screen and (hover: hover)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(min-width: 10%)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(min-width)"));
+    assertEquals (ETriState.FALSE, _eval (aPhone, "(orientation: up)"));
+    assertEquals (ETriState.TRUE, _eval (aPhone, "(hover: hover), screen"));
+  }
+
+  @Test
+  public void testDeviceRange ()
+  {
+    final CSSDeviceProfile aTablet = new CSSDeviceProfile ().setWidthRange (768, 1023.98);
+    assertEquals (ETriState.TRUE, _eval (aTablet, "screen and (min-width: 768px)"));
+    assertEquals (ETriState.TRUE, _eval (aTablet, "(min-width: 48em) and (max-width: 1023.98px)"));
+    assertEquals (ETriState.FALSE, _eval (aTablet, "(min-width: 1024px)"));
+    assertEquals (ETriState.FALSE, _eval (aTablet, "(max-width: 767.98px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(min-width: 992px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(max-width: 1023px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "not all and (min-width: 992px)"));
+    assertEquals (ETriState.FALSE, _eval (aTablet, "(min-width: 992px) and (max-width: 500px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(min-width: 992px), print"));
+    assertEquals (ETriState.TRUE, _eval (aTablet, "(min-width: 992px), (min-width: 500px)"));
+    // Height, resolution and colors are unknown
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(orientation: portrait)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(min-resolution: 2dppx)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aTablet, "(color)"));
+    assertEquals (ETriState.TRUE, _eval (aTablet, "(width)"));
+
+    final CSSDeviceProfile aPrint = new CSSDeviceProfile ().setMedium (ECSSMedium.PRINT);
+    assertEquals (ETriState.FALSE, _eval (aPrint, "screen and (min-width: 768px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aPrint, "print and (min-width: 768px)"));
+    assertEquals (ETriState.UNDEFINED, _eval (aPrint, "(width)"));
+  }
+
+  @Test
+  public void testMediaContext ()
+  {
+    final CSSMediaQueryEvaluator aEvaluator = new CSSMediaQueryEvaluator (new CSSDeviceProfile ().setWidth (1280));
+    final List <CSSMediaQuery> aMediaQueries = MediaQueryTools.parseToMediaQuery ("(min-width: 768px)",
+                                                                                  ECSSVersion.CSS30);
+    assertTrue (aEvaluator.matchesMediaQueries (aMediaQueries));
+    aEvaluator.getProfile ().setWidthRange (0, 1280);
+    assertFalse (aEvaluator.matchesMediaQueries (aMediaQueries));
+    assertEquals (ETriState.UNDEFINED, aEvaluator.evaluateMediaQueries (aMediaQueries));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidRange ()
+  {
+    new CSSDeviceProfile ().setWidthRange (100, 50);
+  }
+}
@@ -37,6 +37,8 @@ import com.phloc.css.decl.CSSExpressionMemberFunction;
 import com.phloc.css.decl.CSSExpressionMemberMath;
 import com.phloc.css.decl.CSSExpressionMemberTermSimple;
 import com.phloc.css.decl.CSSExpressionMemberTermURI;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSSelectorMemberNot;
 import com.phloc.css.decl.CSSStyleRule;
 import com.phloc.css.decl.CascadingStyleSheet;
 import com.phloc.css.decl.ICSSExpressionMember;
@@ -443,4 +445,24 @@ public final class CSSReader30Test extends AbstractFuncTestCSSReader
     assertEquals (0, aCSS.getStyleRuleAtIndex (4).getDeclarationCount ());
     assertEquals (0, aCSS.getStyleRuleAtIndex (5).getDeclarationCount ());
   }
+
+  @Test
+  public void testReadNegationWithSelectorList ()
+  {
+    final ECSSVersion eVersion = ECSSVersion.CSS30;
+    final CSSWriterSettings aCSSWS = new CSSWriterSettings (eVersion, true);
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a:not(.b, #c, [d]){}", eVersion);
+    assertNotNull (aCSS);
+    final CSSSelector aSelector = aCSS.getStyleRuleAtIndex (0).getSelectorAtIndex (0);
+    assertEquals (2, aSelector.getMemberCount ());
+    assertTrue (aSelector.getMemberAtIndex (1) instanceof CSSSelectorMemberNot);
+
+    // All selectors of the list must be kept
+    final CSSSelectorMemberNot aNot = (CSSSelectorMemberNot) aSelector.getMemberAtIndex (1);
+    assertEquals (3, aNot.getSelectorCount ());
+    assertEquals (".b", aNot.getSelectorAtIndex (0).getAsCSSString (aCSSWS, 0));
+    assertEquals ("#c", aNot.getSelectorAtIndex (1).getAsCSSString (aCSSWS, 0));
+    assertEquals ("[d]", aNot.getSelectorAtIndex (2).getAsCSSString (aCSSWS, 0));
+    assertEquals ("a:not(.b,#c,[d]){}", new CSSWriter (aCSSWS).getCSSAsString (aCSS));
+  }
 }
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.supplementary.main;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.SimpleFileIO;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.timing.StopWatch;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.binary.CSSBinaryReader;
+import com.phloc.css.binary.CSSBinaryWriter;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Compare the time to parse the test CSS files with the time to read the same
+ * files from the binary format.
+ * 
+ * @author Philip Helger
+ */
+public final class MainBenchmarkBinaryCSS
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (MainBenchmarkBinaryCSS.class);
+  private static final int RUNS = 20;
+
+  public static void main (final String [] args)
+  {
+    final List <String> aTexts = new ArrayList <String> ();
+    final List <byte []> aBinaries = new ArrayList <byte []> ();
+    long nTextBytes = 0;
+    long nBinaryBytes = 0;
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      if (aCSS != null)
+      {
+        final String sText = SimpleFileIO.readFileAsString (aFile, CCharset.CHARSET_UTF_8_OBJ);
+        final byte [] aBinary = CSSBinaryWriter.getAsBytes (aCSS);
+        aTexts.add (sText);
+        aBinaries.add (aBinary);
+        nTextBytes += sText.length ();
+        nBinaryBytes += aBinary.length;
+      }
+    }
+    s_aLogger.info (aTexts.size () + " files; " + nTextBytes + " chars of CSS; " + nBinaryBytes + " bytes binary");
+
+    for (int nRun = 0; nRun < RUNS; ++nRun)
+    {
+      final StopWatch aSW = new StopWatch (true);
+      for (final String sText : aTexts)
+        CSSReader.readFromString (sText, ECSSVersion.CSS30);
+      final long nParseNanos = aSW.stopAndGetNanos ();
+
+      aSW.restart ();
+      for (final byte [] aBinary : aBinaries)
+        CSSBinaryReader.readFromBytes (aBinary);
+      final long nBinaryNanos = aSW.stopAndGetNanos ();
+
+      s_aLogger.info ("Run " +
+                      nRun +
+                      ": parsing " +
+                      nParseNanos / 1000 +
+                      "us; binary " +
+                      nBinaryNanos / 1000 +
+                      "us; factor " +
+                      (double) nParseNanos / nBinaryNanos);
+    }
+  }
+}
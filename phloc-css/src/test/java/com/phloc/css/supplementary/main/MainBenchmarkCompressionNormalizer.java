@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.supplementary.main;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.tools.CSSCompressionNormalizer;
+import com.phloc.css.writer.CSSWriter;
+
+/**
+ * Compare the GZIP compressed size of the minified test CSS files with and
+ * without {@link CSSCompressionNormalizer}.
+ * 
+ * @author Philip Helger
+ */
+public final class MainBenchmarkCompressionNormalizer
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (MainBenchmarkCompressionNormalizer.class);
+
+  private static int _getGZIPSize (final CSSWriter aWriter, final CascadingStyleSheet aCSS) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aOS = new NonBlockingByteArrayOutputStream ();
+    aWriter.writeCSSAsGZIP (aCSS, aOS);
+    return aOS.size ();
+  }
+
+  public static void main (final String [] args) throws IOException
+  {
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true);
+    int nFiles = 0;
+    long nPlainBefore = 0;
+    long nPlainAfter = 0;
+    long nGZIPBefore = 0;
+    long nGZIPAfter = 0;
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      if (aCSS != null)
+      {
+        nFiles++;
+        nPlainBefore += aWriter.getCSSAsUTF8Bytes (aCSS).length;
+        nGZIPBefore += _getGZIPSize (aWriter, aCSS);
+
+        CSSCompressionNormalizer.normalize (aCSS);
+        nPlainAfter += aWriter.getCSSAsUTF8Bytes (aCSS).length;
+        nGZIPAfter += _getGZIPSize (aWriter, aCSS);
+      }
+    }
+    s_aLogger.info (nFiles + " files");
+    s_aLogger.info ("Minified: " + nPlainBefore + " bytes before, " + nPlainAfter + " bytes after");
+    s_aLogger.info ("GZIP: " +
+                    nGZIPBefore +
+                    " bytes before, " +
+                    nGZIPAfter +
+                    " bytes after (" +
+                    (nGZIPAfter - nGZIPBefore) * 100.0 / nGZIPBefore +
+                    "%)");
+  }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.supplementary.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroNode;
+import com.phloc.commons.microdom.impl.MicroDocument;
+import com.phloc.commons.timing.StopWatch;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.match.CSSCompiledSelector;
+import com.phloc.css.match.CSSSelectorMatcher;
+import com.phloc.css.match.MicroElementNavigator;
+import com.phloc.css.match.W3CElementNavigator;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Match thousands of generated selectors against large generated documents.
+ * Compares compiling the selectors, matching the compiled selectors against a
+ * micro DOM and a W3C DOM, and matching via {@link CSSSelectorMatcher}, which
+ * looks up the compiled selectors in the cache.
+ * 
+ * @author Philip Helger
+ */
+public final class MainBenchmarkSelectorMatching
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (MainBenchmarkSelectorMatching.class);
+  private static final int RUNS = 3;
+  private static final int SELECTOR_COUNT = 3000;
+  private static final int SECTION_COUNT = 100;
+  private static final String [] TAGS = new String [] { "div", "p", "span", "ul", "li", "a", "em", "table" };
+  private static final String [] PSEUDOS = new String [] { ":first-child",
+                                                          ":last-child",
+                                                          ":nth-child(2n+1)",
+                                                          ":nth-of-type(3)",
+                                                          ":empty",
+                                                          ":hover",
+                                                          ":not(.c1)" };
+  private static final String [] COMBINATORS = new String [] { " ", " > ", " + ", " ~ " };
+
+  @Nonnull
+  private static String _createCompound (@Nonnull final Random aRandom)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    if (aRandom.nextInt (3) > 0)
+      aSB.append (TAGS[aRandom.nextInt (TAGS.length)]);
+    if (aRandom.nextInt (2) == 0)
+      aSB.append (".c").append (aRandom.nextInt (50));
+    if (aRandom.nextInt (20) == 0)
+      aSB.append ("#id").append (aRandom.nextInt (SECTION_COUNT));
+    if (aRandom.nextInt (8) == 0)
+      aSB.append ("[data-x=\"v").append (aRandom.nextInt (10)).append ("\"]");
+    if (aRandom.nextInt (6) == 0)
+      aSB.append (PSEUDOS[aRandom.nextInt (PSEUDOS.length)]);
+    if (aSB.length () == 0)
+      aSB.append ('*');
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  private static List <CSSSelector> _createSelectors (@Nonnull final Random aRandom)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < SELECTOR_COUNT; ++i)
+    {
+      aSB.append (_createCompound (aRandom));
+      final int nCompounds = aRandom.nextInt (4);
+      for (int j = 0; j < nCompounds; ++j)
+        aSB.append (COMBINATORS[aRandom.nextInt (COMBINATORS.length)]).append (_createCompound (aRandom));
+      aSB.append ("{color:red}\n");
+    }
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (aSB.toString (), ECSSVersion.CSS30);
+    final List <CSSSelector> ret = new ArrayList <CSSSelector> ();
+    for (final CSSStyleRule aRule : aCSS.getAllStyleRules ())
+      ret.addAll (aRule.getAllSelectors ());
+    return ret;
+  }
+
+  private static void _fill (@Nonnull final IMicroElement aParent,
+                             @Nonnull final Random aRandom,
+                             final int nDepth,
+                             final int nSection)
+  {
+    final int nChildren = 2 + aRandom.nextInt (4);
+    for (int i = 0; i < nChildren; ++i)
+    {
+      final IMicroElement aElement = aParent.appendElement (TAGS[aRandom.nextInt (TAGS.length)]);
+      if (aRandom.nextInt (2) == 0)
+        aElement.setAttribute ("class", "c" + aRandom.nextInt (50) + " c" + aRandom.nextInt (50));
+      if (aRandom.nextInt (8) == 0)
+        aElement.setAttribute ("data-x", "v" + aRandom.nextInt (10));
+      if (nDepth > 0)
+        _fill (aElement, aRandom, nDepth - 1, nSection);
+      else
+        if (aRandom.nextInt (2) == 0)
+          aElement.appendText ("text");
+    }
+    if (nDepth == 3)
+      aParent.setAttribute ("id", "id" + nSection);
+  }
+
+  @Nonnull
+  private static IMicroDocument _createDocument (@Nonnull final Random aRandom)
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eBody = aDoc.appendElement ("html").appendElement ("body");
+    for (int i = 0; i < SECTION_COUNT; ++i)
+      _fill (eBody.appendElement ("section"), aRandom, 3, i);
+    return aDoc;
+  }
+
+  private static void _copy (@Nonnull final IMicroElement aSrc,
+                             @Nonnull final Document aDoc,
+                             @Nonnull final org.w3c.dom.Node aDstParent)
+  {
+    final Element aDst = aDoc.createElement (aSrc.getTagName ());
+    if (aSrc.hasAttributes ())
+      for (final String sAttrName : aSrc.getAllAttributeNames ())
+        aDst.setAttribute (sAttrName, aSrc.getAttribute (sAttrName));
+    aDstParent.appendChild (aDst);
+    if (aSrc.hasChildren ())
+      for (final IMicroNode aChild : aSrc.getChildren ())
+        if (aChild.isElement ())
+          _copy ((IMicroElement) aChild, aDoc, aDst);
+        else
+          if (aChild.isText ())
+            aDst.appendChild (aDoc.createTextNode (aChild.getNodeValue ()));
+  }
+
+  public static void main (final String [] args) throws Exception
+  {
+    final Random aRandom = new Random (47);
+    final List <CSSSelector> aSelectors = _createSelectors (aRandom);
+    final IMicroDocument aMicroDoc = _createDocument (aRandom);
+    final List <IMicroElement> aMicroElements = aMicroDoc.getDocumentElement ().getAllChildElementsRecursive ();
+    aMicroElements.add (0, aMicroDoc.getDocumentElement ());
+
+    final Document aW3CDoc = DocumentBuilderFactory.newInstance ().newDocumentBuilder ().newDocument ();
+    _copy (aMicroDoc.getDocumentElement (), aW3CDoc, aW3CDoc);
+    final NodeList aW3CNodes = aW3CDoc.getElementsByTagName ("*");
+    final List <Element> aW3CElements = new ArrayList <Element> ();
+    for (int i = 0; i < aW3CNodes.getLength (); ++i)
+      aW3CElements.add ((Element) aW3CNodes.item (i));
+
+    s_aLogger.info (aSelectors.size () + " selectors; " + aMicroElements.size () + " elements");
+
+    for (int nRun = 0; nRun < RUNS; ++nRun)
+    {
+      final StopWatch aSW = new StopWatch (true);
+      final List <CSSCompiledSelector> aCompiled = new ArrayList <CSSCompiledSelector> ();
+      for (final CSSSelector aSelector : aSelectors)
+        aCompiled.add (CSSCompiledSelector.compile (aSelector));
+      final long nCompileNanos = aSW.stopAndGetNanos ();
+
+      aSW.restart ();
+      long nMicroMatches = 0;
+      final MicroElementNavigator aMicroNav = MicroElementNavigator.getInstance ();
+      for (final CSSCompiledSelector aSelector : aCompiled)
+        for (final IMicroElement aElement : aMicroElements)
+          if (aSelector.matches (aElement, aMicroNav, false))
+            ++nMicroMatches;
+      final long nMicroNanos = aSW.stopAndGetNanos ();
+
+      aSW.restart ();
+      long nW3CMatches = 0;
+      final W3CElementNavigator aW3CNav = W3CElementNavigator.getInstance ();
+      for (final CSSCompiledSelector aSelector : aCompiled)
+        for (final Element aElement : aW3CElements)
+          if (aSelector.matches (aElement, aW3CNav, false))
+            ++nW3CMatches;
+      final long nW3CNanos = aSW.stopAndGetNanos ();
+
+      // Only a part of the elements, as each call looks up the cache
+      aSW.restart ();
+      long nCachedMatches = 0;
+      final List <IMicroElement> aSomeElements = aMicroElements.subList (0, aMicroElements.size () / 20);
+      for (final CSSSelector aSelector : aSelectors)
+        for (final IMicroElement aElement : aSomeElements)
+          if (CSSSelectorMatcher.matches (aSelector, aElement, false))
+            ++nCachedMatches;
+      final long nCachedNanos = aSW.stopAndGetNanos ();
+
+      s_aLogger.info ("Run " +
+                      nRun +
+                      ": compile " +
+                      nCompileNanos / 1000 +
+                      "us; micro DOM " +
+                      nMicroNanos / 1000 +
+                      "us (" +
+                      nMicroMatches +
+                      " matches); W3C DOM " +
+                      nW3CNanos / 1000 +
+                      "us (" +
+                      nW3CMatches +
+                      " matches); cached on 5% " +
+                      nCachedNanos / 1000 +
+                      "us (" +
+                      nCachedMatches +
+                      " matches)");
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.utils.ECSSColor;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSColorMinifier}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSColorMinifierTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _minify (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    CSSColorMinifier.minifyColors (aCSS);
+    return new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+  }
+
+  @Test
+  public void testGetMinifiedColor ()
+  {
+    // Hex
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("#FF0000", true));
+    assertEquals ("#f00", CSSColorMinifier.getMinifiedColor ("#FF0000", false));
+    assertEquals ("#fff", CSSColorMinifier.getMinifiedColor ("#ffffff", true));
+    assertEquals ("silver", CSSColorMinifier.getMinifiedColor ("#C0C0C0", true));
+    assertEquals ("#123456", CSSColorMinifier.getMinifiedColor ("#123456", true));
+    assertEquals ("#abc", CSSColorMinifier.getMinifiedColor ("#ABC", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("#abcd", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("#ggg", true));
+
+    // Names
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("RED", true));
+    assertEquals ("#fff", CSSColorMinifier.getMinifiedColor ("white", true));
+    assertEquals ("#f0f8ff", CSSColorMinifier.getMinifiedColor ("AliceBlue", true));
+    assertEquals ("gray", CSSColorMinifier.getMinifiedColor ("grey", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("white", false));
+    assertEquals ("activeborder", CSSColorMinifier.getMinifiedColor ("ActiveBorder", true));
+    assertEquals ("currentcolor", CSSColorMinifier.getMinifiedColor ("currentColor", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("foo", true));
+
+    // rgb
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("rgb(255, 0, 0)", true));
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("RGB(100%,0%,0%)", true));
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("rgb(300,-10,0)", true));
+    assertEquals ("#0080ff", CSSColorMinifier.getMinifiedColor ("rgb(0,128,255)", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("rgb(0,0)", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("rgb(0,0,1e2)", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("foo(0,0,0)", true));
+
+    // rgba
+    assertEquals ("#000", CSSColorMinifier.getMinifiedColor ("rgba(0,0,0,1)", true));
+    assertEquals ("navy", CSSColorMinifier.getMinifiedColor ("rgba(0,0,128,1.0)", true));
+    assertEquals ("rgba(0,0,0,.5)", CSSColorMinifier.getMinifiedColor ("RGBA(0, 0, 0, .5)", true));
+    assertEquals ("transparent", CSSColorMinifier.getMinifiedColor ("rgba(0,0,0,0)", true));
+    assertEquals ("rgba(0,0,0,0)", CSSColorMinifier.getMinifiedColor ("rgba(0,0,0,0)", false));
+    assertEquals ("rgba(255,0,0,0)", CSSColorMinifier.getMinifiedColor ("rgba(255,0,0,-1)", true));
+
+    // hsl
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("hsl(0,100%,50%)", true));
+    assertEquals ("red", CSSColorMinifier.getMinifiedColor ("hsl(360,100%,50%)", true));
+    // "lime" has the same length as "#0f0"
+    assertEquals ("#0f0", CSSColorMinifier.getMinifiedColor ("hsl(120,100%,50%)", true));
+    assertEquals ("green", CSSColorMinifier.getMinifiedColor ("hsl(120,100%,25%)", true));
+    assertEquals ("#000", CSSColorMinifier.getMinifiedColor ("hsl(0,0,0)", true));
+    assertEquals ("#fff", CSSColorMinifier.getMinifiedColor ("hsla(0,0%,100%,1)", true));
+    assertEquals ("rgba(0,128,0,.5)", CSSColorMinifier.getMinifiedColor ("hsla(120,100%,25%,.5)", true));
+    // The original is shorter
+    assertEquals ("hsla(0,0%,100%,.5)", CSSColorMinifier.getMinifiedColor ("HSLA(0,0%,100%,.5)", true));
+    assertNull (CSSColorMinifier.getMinifiedColor ("hsl(0,100,50%)", true));
+  }
+
+  @Test
+  public void testAllNamedColors ()
+  {
+    for (final ECSSColor eColor : ECSSColor.values ())
+    {
+      final String sMinified = CSSColorMinifier.getMinifiedColor (eColor.getName (), true);
+      assertNotNull (sMinified);
+      assertTrue (sMinified, sMinified.length () <= eColor.getName ().length ());
+      // Stable
+      assertEquals (sMinified, CSSColorMinifier.getMinifiedColor (sMinified, true));
+      // Same color
+      assertEquals (CSSColorMinifier.getMinifiedColor (eColor.getAsHexColorValue (), true), sMinified);
+      assertEquals (CSSColorMinifier.getMinifiedColor (eColor.getAsRGBColorValue (), true), sMinified);
+    }
+  }
+
+  @Test
+  public void testStyleSheet ()
+  {
+    assertEquals ("a{color:red;background:#000 url(a.png)}",
+                  _minify ("a{color:rgb(255,0,0);background:rgba(0,0,0,1) url(a.png)}"));
+    assertEquals ("a{border:1px solid silver;box-shadow:0 0 1px rgba(0,0,0,.5)}",
+                  _minify ("a{border:1px solid #C0C0C0;box-shadow:0 0 1px hsla(0,0%,0%,.5)}"));
+    assertEquals ("a{background-image:linear-gradient(red,#00f)}",
+                  _minify ("a{background-image:linear-gradient(#ff0000,BLUE)}"));
+    // Names are not touched outside of color properties
+    assertEquals ("a{animation-name:white;font-family:Red;filter:drop-shadow(0 0 1px #f00)}",
+                  _minify ("a{animation-name:white;font-family:Red;filter:drop-shadow(0 0 1px #ff0000)}"));
+    assertEquals ("@media print{a{color:#000}}", _minify ("@media print{a{color:BLACK}}"));
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+      CSSColorMinifier.minifyColors (aCSS);
+      final String sMinified = new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+      assertTrue (sKey, CSSReader.isValidCSS (sMinified, ECSSVersion.CSS30));
+      // Idempotent
+      assertEquals (sKey, EChange.UNCHANGED, CSSColorMinifier.minifyColors (aCSS));
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+
+/**
+ * Test class for class {@link CSSCompressionNormalizer}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSCompressionNormalizerTest
+{
+  @Test
+  public void testGetPropertyFamily ()
+  {
+    assertEquals ("color", CSSCompressionNormalizer.getPropertyFamily ("color"));
+    assertEquals ("border", CSSCompressionNormalizer.getPropertyFamily ("border-top-color"));
+    assertEquals ("border", CSSCompressionNormalizer.getPropertyFamily ("-webkit-border-radius"));
+    assertEquals ("zoom", CSSCompressionNormalizer.getPropertyFamily ("*zoom"));
+    assertEquals ("font", CSSCompressionNormalizer.getPropertyFamily ("line-height"));
+    assertEquals ("inset", CSSCompressionNormalizer.getPropertyFamily ("top"));
+    assertEquals ("gap", CSSCompressionNormalizer.getPropertyFamily ("grid-row-gap"));
+    // Logical properties
+    for (final String sProperty : new String [] { "width",
+                                                  "height",
+                                                  "min-width",
+                                                  "max-height",
+                                                  "inline-size",
+                                                  "block-size",
+                                                  "min-inline-size",
+                                                  "max-block-size" })
+      assertEquals (sProperty, "size", CSSCompressionNormalizer.getPropertyFamily (sProperty));
+    assertEquals ("inset", CSSCompressionNormalizer.getPropertyFamily ("inset-inline-start"));
+    assertEquals ("margin", CSSCompressionNormalizer.getPropertyFamily ("margin-block"));
+    assertEquals ("padding", CSSCompressionNormalizer.getPropertyFamily ("padding-inline-end"));
+    assertEquals ("border", CSSCompressionNormalizer.getPropertyFamily ("border-inline-start-width"));
+    assertNull (CSSCompressionNormalizer.getPropertyFamily ("all"));
+    assertNull (CSSCompressionNormalizer.getPropertyFamily ("--main-color"));
+  }
+
+  @Test
+  public void testGetNormalizedTermValue ()
+  {
+    assertEquals ("#abcdef", CSSCompressionNormalizer.getNormalizedTermValue ("#ABCdef", false));
+    assertEquals ("10px", CSSCompressionNormalizer.getNormalizedTermValue ("10PX", false));
+    assertEquals ("-1.5em", CSSCompressionNormalizer.getNormalizedTermValue ("-1.5Em", false));
+    assertEquals ("50%", CSSCompressionNormalizer.getNormalizedTermValue ("50%", false));
+    assertEquals ("10Foo", CSSCompressionNormalizer.getNormalizedTermValue ("10Foo", false));
+    assertEquals ("red", CSSCompressionNormalizer.getNormalizedTermValue ("RED", true));
+    assertEquals ("RED", CSSCompressionNormalizer.getNormalizedTermValue ("RED", false));
+    assertEquals ("MyFont", CSSCompressionNormalizer.getNormalizedTermValue ("MyFont", true));
+  }
+
+  @Test
+  public void testNormalize ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("p, a, div { margin-top: 1PX; color: RED; margin: 0; font: 12px Arial; line-height: 2; background: url(a.gif) #FFF; animation-name: Red; }\n"
+                                                                   + "b { z-index: 1; all: initial; color: RED; }\n"
+                                                                   + "i { z-index: 1; display: -webkit-box; display: flex; color: RGB(0,0,0) }",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    assertTrue (CSSCompressionNormalizer.normalize (aCSS).isChanged ());
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true);
+    assertEquals ("a,div,p{animation-name:Red;background:url(a.gif) #fff;color:red;font:12px Arial;line-height:2;margin-top:1px;margin:0}"
+                      + "b{z-index:1;all:initial;color:red}"
+                      + "i{color:rgb(0,0,0);display:-webkit-box;display:flex;z-index:1}",
+                  aWriter.getCSSAsString (aCSS));
+
+    // Idempotent
+    assertTrue (CSSCompressionNormalizer.normalize (aCSS).isUnchanged ());
+  }
+
+  @Test
+  public void testLogicalProperties ()
+  {
+    // The order of logical and physical properties must be kept
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{width:1px;inline-size:2px}"
+                                                                   + "b{inline-size:2px;color:red;width:1px;left:0;inset-inline-start:1px}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    CSSCompressionNormalizer.normalize (aCSS);
+    assertEquals ("a{width:1px;inline-size:2px}b{color:red;left:0;inset-inline-start:1px;inline-size:2px;width:1px}",
+                  new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false).getCSSAsString (aCSS));
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true);
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+      CSSCompressionNormalizer.normalize (aCSS);
+
+      // The result must be readable and stable
+      final String sNormalized = aWriter.getCSSAsString (aCSS);
+      final CascadingStyleSheet aCSS2 = CSSReader.readFromString (sNormalized, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS2);
+      assertTrue (sKey, CSSCompressionNormalizer.normalize (aCSS2).isUnchanged ());
+      assertEquals (sKey, sNormalized, aWriter.getCSSAsString (aCSS2));
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclarationList;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.reader.CSSReaderDeclarationList;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSDeadDeclarationEliminator}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSDeadDeclarationEliminatorTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _eliminate (@Nonnull final String sDecls, final boolean bKeepFallbacks)
+  {
+    final CSSDeclarationList aDecls = CSSReaderDeclarationList.readFromString (sDecls, ECSSVersion.CSS30);
+    assertNotNull (sDecls, aDecls);
+    CSSDeadDeclarationEliminator.removeDeadDeclarations (aDecls, bKeepFallbacks);
+    return aDecls.getAsCSSString (SETTINGS, 0);
+  }
+
+  @Nonnull
+  private static String _eliminate (@Nonnull final String sDecls)
+  {
+    return _eliminate (sDecls, true);
+  }
+
+  @Test
+  public void testGetAllLonghands ()
+  {
+    assertEquals (ContainerHelper.newSet ("color"), CSSDeadDeclarationEliminator.getAllLonghands ("COLOR"));
+    assertEquals (ContainerHelper.newSet ("margin-top", "margin-right", "margin-bottom", "margin-left"),
+                  CSSDeadDeclarationEliminator.getAllLonghands ("margin"));
+    // Nested shorthands
+    assertEquals (12, CSSDeadDeclarationEliminator.getAllLonghands ("border").size ());
+    assertEquals (ContainerHelper.newSet ("*zoom"), CSSDeadDeclarationEliminator.getAllLonghands ("*zoom"));
+  }
+
+  @Test
+  public void testSameProperty ()
+  {
+    assertEquals ("color:blue", _eliminate ("color:red;color:blue"));
+    assertEquals ("color:blue;margin:0", _eliminate ("color:red;COLOR:green;color:blue;margin:0"));
+    // Important
+    assertEquals ("color:red !important", _eliminate ("color:red!important;color:blue"));
+    assertEquals ("color:blue !important", _eliminate ("color:red;color:blue!important"));
+    assertEquals ("color:blue !important", _eliminate ("color:red!important;color:blue!important"));
+    assertEquals ("color:red !important;margin:0", _eliminate ("color:red!important;margin:0;color:blue"));
+    // An unsupported !important value falls back to later normal values
+    assertEquals ("width:calc(100% - 1px) !important;width:100px",
+                  _eliminate ("width:calc(100% - 1px)!important;width:100px"));
+    // Hacks are different properties
+    assertEquals ("zoom:1;*zoom:1", _eliminate ("zoom:1;*zoom:1"));
+    assertEquals ("*zoom:1", _eliminate ("*zoom:1;*zoom:1"));
+  }
+
+  @Test
+  public void testShortHands ()
+  {
+    assertEquals ("margin:0", _eliminate ("margin-top:1px;margin-left:2px;margin:0"));
+    assertEquals ("border:1px solid red", _eliminate ("border-top-color:blue;border-width:2px;border:1px solid red"));
+    // A longhand never overrides the complete shorthand
+    assertEquals ("margin:0;margin-top:1px", _eliminate ("margin:0;margin-top:1px"));
+    // All longhands together override the shorthand
+    assertEquals ("margin-top:1px;margin-right:1px;margin-bottom:1px;margin-left:1px",
+                  _eliminate ("margin:0;margin-top:1px;margin-right:1px;margin-bottom:1px;margin-left:1px"));
+    assertEquals ("margin-top:1px !important;margin:0",
+                  _eliminate ("margin-top:1px!important;margin:0"));
+    // border also resets border-image, which is not covered by the longhands
+    final String sBorder = "border-image:url(b.png) 30;border:1px solid red;border-width:2px;"
+                           + "border-style:dashed;border-color:blue";
+    assertEquals (sBorder, _eliminate (sBorder));
+    assertEquals (sBorder, _eliminate (sBorder, false));
+    final String sFont = "font:12px Arial;font-style:normal;font-variant:normal;font-weight:bold;"
+                         + "font-size:12px;line-height:1;font-family:Arial";
+    assertEquals (sFont, _eliminate (sFont, false));
+    // But they are overridden by the same shorthand
+    assertEquals ("border:2px solid blue", _eliminate ("border:1px solid red;border:2px solid blue"));
+  }
+
+  @Test
+  public void testFallbacks ()
+  {
+    // Vendor prefixes
+    assertEquals ("display:-webkit-box;display:-ms-flexbox;display:flex",
+                  _eliminate ("display:-webkit-box;display:-ms-flexbox;display:flex"));
+    assertEquals ("display:flex", _eliminate ("display:-webkit-box;display:-ms-flexbox;display:flex", false));
+    assertEquals ("background:red;background:-webkit-linear-gradient(red,blue)",
+                  _eliminate ("background:red;background:-webkit-linear-gradient(red,blue)"));
+    // Exact duplicates are never fallbacks
+    assertEquals ("display:-webkit-box", _eliminate ("display:-webkit-box;display:-webkit-box"));
+    // New functions and units
+    assertEquals ("width:100px;width:calc(100% - 10px)", _eliminate ("width:100px;width:calc(100% - 10px)"));
+    assertEquals ("color:#000;color:rgba(0,0,0,.5)", _eliminate ("color:#000;color:rgba(0,0,0,.5)"));
+    assertEquals ("font-size:12px;font-size:1rem", _eliminate ("font-size:12px;font-size:1rem"));
+    assertEquals ("margin-top:1px;margin:1rem", _eliminate ("margin-top:1px;margin:1rem"));
+    // But not the other way round
+    assertEquals ("font-size:12px", _eliminate ("font-size:1rem;font-size:12px"));
+    assertEquals ("color:#000", _eliminate ("color:rgba(0,0,0,.5);color:#000"));
+    // New keywords
+    assertEquals ("display:block;display:grid", _eliminate ("display:block;display:grid"));
+    assertEquals ("position:relative;position:sticky", _eliminate ("position:relative;position:sticky"));
+    assertEquals ("position:sticky", _eliminate ("position:relative;position:sticky", false));
+    assertEquals ("position:sticky", _eliminate ("position:sticky;position:sticky"));
+    // Color names are no new keywords
+    assertEquals ("color:blue", _eliminate ("color:red;color:blue"));
+    // Value hacks
+    assertEquals ("width:100px;width:90px \\9", _eliminate ("width:100px;width:90px\\9"));
+  }
+
+  @Test
+  public void testStyleSheet ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red;color:blue}@media print{b{padding-top:1px;padding:0}}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    assertEquals (EChange.CHANGED, CSSDeadDeclarationEliminator.removeDeadDeclarations (aCSS));
+    assertEquals ("a{color:blue}@media print{b{padding:0}}", new CSSWriter (SETTINGS).getCSSAsString (aCSS));
+    assertEquals (EChange.UNCHANGED, CSSDeadDeclarationEliminator.removeDeadDeclarations (aCSS));
+
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS2 = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS2);
+      CSSDeadDeclarationEliminator.removeDeadDeclarations (aCSS2, false);
+      assertTrue (sKey, CSSReader.isValidCSS (new CSSWriter (SETTINGS).getCSSAsString (aCSS2), ECSSVersion.CSS30));
+      assertEquals (sKey, EChange.UNCHANGED, CSSDeadDeclarationEliminator.removeDeadDeclarations (aCSS2, false));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.mock.PhlocTestUtils;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSSelector;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSDigestHelper}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSDigestHelperTest
+{
+  @Nonnull
+  private static CascadingStyleSheet _parse (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    return aCSS;
+  }
+
+  @Test
+  public void testRuleDigest ()
+  {
+    final CascadingStyleSheet aCSS1 = _parse ("div { color: red; }\nspan{color:blue}");
+    final CascadingStyleSheet aCSS2 = _parse ("span {\n  color : blue ;\n}\n\n   div{color:red}");
+
+    final ICSSTopLevelRule aDiv1 = aCSS1.getRuleAtIndex (0);
+    final ICSSTopLevelRule aSpan1 = aCSS1.getRuleAtIndex (1);
+    final ICSSTopLevelRule aSpan2 = aCSS2.getRuleAtIndex (0);
+    final ICSSTopLevelRule aDiv2 = aCSS2.getRuleAtIndex (1);
+
+    // Formatting does not matter
+    assertEquals (CSSDigestHelper.getDigest64 (aDiv1), CSSDigestHelper.getDigest64 (aDiv2));
+    assertEquals (CSSDigestHelper.getDigest128 (aDiv1), CSSDigestHelper.getDigest128 (aDiv2));
+    assertEquals (CSSDigestHelper.getDigest64 (aSpan1), CSSDigestHelper.getDigest64 (aSpan2));
+    assertEquals (CSSDigestHelper.getDigest128 (aSpan1), CSSDigestHelper.getDigest128 (aSpan2));
+
+    // Different rules
+    assertFalse (CSSDigestHelper.getDigest64 (aDiv1) == CSSDigestHelper.getDigest64 (aSpan1));
+    assertFalse (CSSDigestHelper.getDigest128 (aDiv1).equals (CSSDigestHelper.getDigest128 (aSpan1)));
+
+    // Rule order matters for the whole sheet
+    assertFalse (CSSDigestHelper.getDigest64 (aCSS1) == CSSDigestHelper.getDigest64 (aCSS2));
+    assertFalse (CSSDigestHelper.getDigest128 (aCSS1).equals (CSSDigestHelper.getDigest128 (aCSS2)));
+
+    // Modification changes the digest
+    final CSSDigest aOld = CSSDigestHelper.getDigest128 (aCSS1);
+    aCSS1.getAllStyleRules ().get (0).getDeclarationAtIndex (0).getExpression ().addTermSimple ("x");
+    assertFalse (aOld.equals (CSSDigestHelper.getDigest128 (aCSS1)));
+  }
+
+  @Test
+  public void testDigestCache ()
+  {
+    final CascadingStyleSheet aCSS = _parse ("div { color: red; }");
+    final ICSSTopLevelRule aRule = aCSS.getRuleAtIndex (0);
+    final CSSDigest aDigest = CSSDigestHelper.getDigest128 (aRule);
+    final CSSDigest aCSSDigest = CSSDigestHelper.getDigest128 (aCSS);
+
+    // Not calculated again, even if other objects are modified
+    _parse ("span{color:blue}").getAllStyleRules ().get (0).addSelector (new CSSSelector ());
+    assertSame (aDigest, CSSDigestHelper.getDigest128 (aRule));
+    assertSame (aCSSDigest, CSSDigestHelper.getDigest128 (aCSS));
+
+    // Calculated again after a modification
+    aCSS.getAllStyleRules ().get (0).getDeclarationAtIndex (0).setImportant (true);
+    assertEquals (CSSDigestHelper.getDigest128 (_parse ("div{color:red!important}").getRuleAtIndex (0)),
+                  CSSDigestHelper.getDigest128 (aRule));
+    assertFalse (aDigest.equals (CSSDigestHelper.getDigest128 (aRule)));
+    assertFalse (aCSSDigest.equals (CSSDigestHelper.getDigest128 (aCSS)));
+  }
+
+  @Test
+  public void testDigestStable ()
+  {
+    // The digest must not change between JVM runs
+    final CSSExpressionMemberTermSimple aTerm = new CSSExpressionMemberTermSimple ("red");
+    assertEquals (0xd0b287a2a0c37f2eL, CSSDigestHelper.getDigest64 (aTerm));
+    assertEquals ("bda9643ac6601722a28f238714274da4", CSSDigestHelper.getDigest128 (aTerm).getAsHexString ());
+  }
+
+  @Test
+  public void testDigest ()
+  {
+    final byte [] aBytes = new byte [CSSDigest.DIGEST_BYTES];
+    for (int i = 0; i < aBytes.length; ++i)
+      aBytes[i] = (byte) i;
+    final CSSDigest aDigest = CSSDigest.createFromBytes (aBytes);
+    assertEquals (0x0001020304050607L, aDigest.getHigh ());
+    assertEquals (0x08090a0b0c0d0e0fL, aDigest.getLow ());
+    assertEquals ("000102030405060708090a0b0c0d0e0f", aDigest.getAsHexString ());
+    PhlocTestUtils.testDefaultImplementationWithEqualContentObject (aDigest,
+                                                                   new CSSDigest (0x0001020304050607L,
+                                                                                  0x08090a0b0c0d0e0fL));
+    PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (aDigest, new CSSDigest (0, 0));
+    PhlocTestUtils.testDefaultSerialization (aDigest);
+  }
+}
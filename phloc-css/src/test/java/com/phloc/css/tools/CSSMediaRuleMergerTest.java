@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSCompressor;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSMediaRuleMerger}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSMediaRuleMergerTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static CascadingStyleSheet _parse (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    return aCSS;
+  }
+
+  @Nonnull
+  private static String _getAsString (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    return new CSSWriter (SETTINGS).setWriteHeaderText (false).getCSSAsString (aCSS);
+  }
+
+  @Nonnull
+  private static String _optimize (@Nonnull final String sCSS, final boolean bHoistToEnd)
+  {
+    final CascadingStyleSheet aCSS = _parse (sCSS);
+    CSSMediaRuleMerger.optimize (aCSS, bHoistToEnd);
+    return _getAsString (aCSS);
+  }
+
+  @Nonnull
+  private static String _normalize (@Nonnull final String sMediaQuery)
+  {
+    return CSSMediaRuleMerger.getNormalizedMediaQueryList (MediaQueryTools.parseToMediaQuery (sMediaQuery,
+                                                                                             ECSSVersion.CSS30));
+  }
+
+  @Test
+  public void testGetNormalizedMediaQueryList ()
+  {
+    assertEquals ("(min-width:768px)", _normalize ("(min-width:768px)"));
+    assertEquals ("(min-width:768px)", _normalize ("(MIN-WIDTH: 768PX)"));
+    assertEquals ("(min-width:768px)", _normalize ("all and (min-width: 768px)"));
+    assertEquals ("(min-width:768px)", _normalize ("(min-width:768px), (min-width:768px)"));
+    assertEquals ("print,screen and (max-width:10px) and (min-width:5px)",
+                  _normalize ("Screen and (min-width:5px) and (max-width:10px), print"));
+    assertEquals ("not all and (color)", _normalize ("not all and (color)"));
+  }
+
+  @Test
+  public void testMerge ()
+  {
+    // Different property families
+    assertEquals ("a{padding:0}b{border:0}@media all and (min-width:768px){a{color:blue}b{margin:1px}}",
+                  _optimize ("@media (min-width:768px){a{color:blue}}a{padding:0}"
+                                 + "b{border:0}@media all and (min-width: 768px){b{margin:1px}}",
+                             false));
+    // Moving down is not possible, but moving up is
+    assertEquals ("@media (min-width:768px){a{color:blue}b{margin:1px}}a{color:red}",
+                  _optimize ("@media (min-width:768px){a{color:blue}}a{color:red}"
+                                 + "@media (min-width:768px){b{margin:1px}}",
+                             false));
+    // Moving in any direction would change the cascade
+    final String sUnsafe = "@media print{a{color:blue}}a{color:red}@media print{a{color:green}}";
+    assertEquals (sUnsafe, _optimize (sUnsafe, false));
+    // Logical properties belong to the same family as the physical ones
+    assertEquals ("@media (min-width:1px){.a{width:10px}.c{color:red}}.b{inline-size:5px}",
+                  _optimize ("@media (min-width:1px){.a{width:10px}}.b{inline-size:5px}"
+                                 + "@media (min-width:1px){.c{color:red}}",
+                             false));
+    final String sLogical = "@media print{.a{width:10px}}.b{inline-size:5px}@media print{.c{block-size:1px}}";
+    assertEquals (sLogical, _optimize (sLogical, false));
+    // Unknown rules are never moved across
+    final String sUnknown = "@media print{a{color:blue}}@foo bar;@media print{b{margin:0}}";
+    assertEquals (sUnknown, _optimize (sUnknown, false));
+    // Other at-rules only conflict with rules of the same type
+    assertEquals ("@font-face{font-family:x}@media print{a{color:blue}b{margin:0}}",
+                  _optimize ("@media print{a{color:blue}}@font-face{font-family:x}@media print{b{margin:0}}", false));
+    // Multiple groups
+    assertEquals ("a{color:red}@media print{a{margin:0}b{margin:0}}@media screen{a{padding:0}b{padding:0}}",
+                  _optimize ("@media print{a{margin:0}}@media screen{a{padding:0}}a{color:red}"
+                                 + "@media print{b{margin:0}}@media screen{b{padding:0}}",
+                             false));
+  }
+
+  @Test
+  public void testSupports ()
+  {
+    // Nested duplicates inside @supports
+    assertEquals ("@supports (display:grid){a{display:grid}@media (min-width:768px){a{color:red}b{color:red}}}",
+                  _optimize ("@supports (display:grid){@media (min-width:768px){a{color:red}}a{display:grid}"
+                                 + "@media (min-width:768px){b{color:red}}}",
+                             false));
+    // Identical @supports rules
+    assertEquals ("a{margin:0}@supports (display:grid){a{display:grid}b{display:grid}}",
+                  _optimize ("@supports (display:grid){a{display:grid}}a{margin:0}"
+                                 + "@supports (display:grid){b{display:grid}}",
+                             false));
+    // Nested rules with the same condition as an enclosing rule
+    assertEquals ("@media print{a{color:red}b{color:red}}",
+                  _optimize ("@media print{a{color:red}@media print{b{color:red}}}", false));
+  }
+
+  @Test
+  public void testHoist ()
+  {
+    assertEquals ("a{color:red}b{border:0}@media screen{a{padding:0}}@media print{a{margin:1px}b{color:blue}}",
+                  _optimize ("@media print{a{margin:1px}}a{color:red}@media screen{a{padding:0}}"
+                                 + "b{border:0}@media print{b{color:blue}}",
+                             true));
+    // A media rule may not be moved across a rule of the same property family
+    assertEquals ("@media print{a{color:blue}}a{color:red}@media screen{a{margin:0}}",
+                  _optimize ("@media print{a{color:blue}}@media screen{a{margin:0}}a{color:red}", true));
+
+    assertEquals ("@media print{a{width:1px}}a{inline-size:2px}",
+                  _optimize ("@media print{a{width:1px}}a{inline-size:2px}", true));
+
+    final CascadingStyleSheet aCSS = _parse ("a{color:red}@media print{a{color:blue}}");
+    assertEquals (EChange.UNCHANGED, CSSMediaRuleMerger.hoistMediaRules (aCSS));
+  }
+
+  @Test
+  public void testMinificationResult ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < 100; ++i)
+      aSB.append (".c").append (i).append ("{color:red}@media (min-width:768px){.c").append (i).append ("{margin:0}}");
+    final CascadingStyleSheet aCSS = _parse (aSB.toString ());
+    assertEquals (200, aCSS.getRuleCount ());
+    final CSSMinificationResult aResult = CSSMediaRuleMerger.optimize (aCSS, SETTINGS, true);
+    assertEquals (101, aCSS.getRuleCount ());
+    assertEquals (100, aCSS.getMediaRuleAtIndex (0).getRuleCount ());
+    assertTrue (aResult.getBytesSaved () > 0);
+
+    assertEquals ("a{color:red}@media print{a,b{margin:0}}",
+                  CSSCompressor.getMinifiedCSS ("@media print{a{margin:0}}a{color:red}@media print{b{margin:0}}",
+                                                SETTINGS));
+  }
+}
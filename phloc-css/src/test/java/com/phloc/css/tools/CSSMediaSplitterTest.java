@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.media.CSSDeviceProfile;
+import com.phloc.css.media.ECSSMedium;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSMediaSplitter}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSMediaSplitterTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static CascadingStyleSheet _parse (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    return aCSS;
+  }
+
+  @Nonnull
+  private static String _getAsString (@Nonnull final CascadingStyleSheet aCSS)
+  {
+    return new CSSWriter (SETTINGS).setWriteHeaderText (false).getCSSAsString (aCSS);
+  }
+
+  @Test
+  public void testCreateBreakpointProfiles ()
+  {
+    final List <CSSDeviceProfile> aProfiles = CSSMediaSplitter.createBreakpointProfiles (ECSSMedium.SCREEN, 768, 1024);
+    assertEquals (3, aProfiles.size ());
+    assertEquals ("screen and (max-width:767.98px)", CSSMediaSplitter.getMediaQueryString (aProfiles.get (0)));
+    assertEquals ("screen and (min-width:768px) and (max-width:1023.98px)",
+                  CSSMediaSplitter.getMediaQueryString (aProfiles.get (1)));
+    assertEquals ("screen and (min-width:1024px)", CSSMediaSplitter.getMediaQueryString (aProfiles.get (2)));
+    assertEquals ("print",
+                  CSSMediaSplitter.getMediaQueryString (CSSMediaSplitter.createBreakpointProfiles (ECSSMedium.PRINT)
+                                                                        .get (0)));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testCreateBreakpointProfilesUnordered ()
+  {
+    CSSMediaSplitter.createBreakpointProfiles (ECSSMedium.SCREEN, 1024, 768);
+  }
+
+  @Test
+  public void testPrune ()
+  {
+    final CascadingStyleSheet aCSS = _parse ("@import 'print.css' print;"
+                                             + "@import 'small.css' (max-width:900px);"
+                                             + "@import 'screen.css' screen;"
+                                             + "a{color:red}"
+                                             + "@media print{a{color:black}}"
+                                             + "@media screen and (min-width:768px){a{color:blue}b{color:blue}}"
+                                             + "@media (min-width:992px){a{color:green}}"
+                                             + "@supports (display:grid){@media (max-width:767.98px){a{display:grid}}"
+                                             + "@media (min-width:768px){a{display:flex}}}"
+                                             + "@media (orientation:portrait){@media (min-width:1px){i{color:red}}"
+                                             + "@media (max-width:10px){i{color:blue}}}"
+                                             + "b{color:red}");
+    final CSSDeviceProfile aProfile = new CSSDeviceProfile ().setWidthRange (768, 1023.98);
+    assertEquals (EChange.CHANGED, CSSMediaSplitter.prune (aCSS, aProfile));
+    assertEquals ("@import url(small.css) (max-width:900px);\n"
+                      + "@import url(screen.css);\n"
+                      + "a{color:red}"
+                      + "a{color:blue}"
+                      + "b{color:blue}"
+                      + "@media (min-width:992px){a{color:green}}"
+                      + "@supports (display:grid){a{display:flex}}"
+                      + "@media (orientation:portrait){i{color:red}}"
+                      + "b{color:red}",
+                  _getAsString (aCSS));
+    assertEquals (EChange.UNCHANGED, CSSMediaSplitter.prune (aCSS, aProfile));
+  }
+
+  @Test
+  public void testSplit ()
+  {
+    final CascadingStyleSheet aCSS = _parse ("a{color:red}"
+                                             + "@media (max-width:767.98px){a{color:blue}}"
+                                             + "@media (min-width:768px){a{color:green}}"
+                                             + "@media print{a{color:black}}");
+    final String sOriginal = _getAsString (aCSS);
+    final List <CSSDeviceProfile> aProfiles = CSSMediaSplitter.createBreakpointProfiles (ECSSMedium.SCREEN, 768);
+    final Map <CSSDeviceProfile, CascadingStyleSheet> aSplit = CSSMediaSplitter.split (aCSS, aProfiles);
+    assertEquals (2, aSplit.size ());
+    final Iterator <Map.Entry <CSSDeviceProfile, CascadingStyleSheet>> it = aSplit.entrySet ().iterator ();
+    Map.Entry <CSSDeviceProfile, CascadingStyleSheet> aEntry = it.next ();
+    assertSame (aProfiles.get (0), aEntry.getKey ());
+    assertEquals ("a{color:red}a{color:blue}", _getAsString (aEntry.getValue ()));
+    aEntry = it.next ();
+    assertSame (aProfiles.get (1), aEntry.getKey ());
+    assertEquals ("a{color:red}a{color:green}", _getAsString (aEntry.getValue ()));
+    // The source is unchanged
+    assertEquals (sOriginal, _getAsString (aCSS));
+  }
+}
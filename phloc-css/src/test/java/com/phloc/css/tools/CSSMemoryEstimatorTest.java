@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSSelectorSimpleMember;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSMemoryEstimator}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSMemoryEstimatorTest
+{
+  @Test
+  public void testSimpleObject ()
+  {
+    // Object: header + 2 references = 20 -> 24 bytes
+    // String "a": 24 bytes + char/byte array 24 bytes
+    assertEquals (72, CSSMemoryEstimator.getEstimatedBytes (new CSSSelectorSimpleMember ("a")));
+  }
+
+  @Test
+  public void testStyleSheet ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("@import 'a.css';\n"
+                                                                   + "div { color: red; }\n"
+                                                                   + "span, p > a { color: blue; margin: 0 1px 2px 3px }\n"
+                                                                   + "@media print { div { color: black } }",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    final CSSMemoryEstimate aEstimate = CSSMemoryEstimator.estimate (aCSS);
+    assertEquals (3, aEstimate.getRuleCount ());
+    long nSum = aEstimate.getStyleSheetBytes ();
+    for (int i = 0; i < aEstimate.getRuleCount (); ++i)
+    {
+      assertTrue (aEstimate.getRuleBytes (i) > 0);
+      nSum += aEstimate.getRuleBytes (i);
+    }
+    assertEquals (nSum, aEstimate.getTotalBytes ());
+    assertTrue (aEstimate.getStyleSheetBytes () > 0);
+
+    // The bigger rule needs more memory
+    assertTrue (aEstimate.getRuleBytes (1) > aEstimate.getRuleBytes (0));
+
+    // Estimating a single rule gives the same result
+    for (int i = 0; i < aEstimate.getRuleCount (); ++i)
+      assertEquals (aEstimate.getRuleBytes (i), CSSMemoryEstimator.getEstimatedBytes (aCSS.getRuleAtIndex (i)));
+
+    // Breakdown by rule type
+    final Map <Class <? extends ICSSTopLevelRule>, Long> aBytesPerType = aEstimate.getBytesPerRuleType ();
+    assertEquals (2, aBytesPerType.size ());
+    assertEquals (aEstimate.getRuleBytes (0) + aEstimate.getRuleBytes (1),
+                  aBytesPerType.get (CSSStyleRule.class).longValue ());
+    assertEquals (aEstimate.getRuleBytes (2), aBytesPerType.get (CSSMediaRule.class).longValue ());
+    assertEquals (2, aEstimate.getCountPerRuleType ().get (CSSStyleRule.class).intValue ());
+    assertEquals (1, aEstimate.getCountPerRuleType ().get (CSSMediaRule.class).intValue ());
+
+    // Modification changes the estimate
+    final long nOld = aEstimate.getRuleBytes (0);
+    aCSS.getAllStyleRules ().get (0).getDeclarationAtIndex (0).getExpression ().addTermSimple ("important-value");
+    assertTrue (CSSMemoryEstimator.getEstimatedBytes (aCSS.getRuleAtIndex (0)) > nOld);
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+
+      final CSSMemoryEstimate aEstimate = CSSMemoryEstimator.estimate (aCSS);
+      assertEquals (sKey, aCSS.getRuleCount (), aEstimate.getRuleCount ());
+      long nSum = aEstimate.getStyleSheetBytes ();
+      for (final Long aRuleBytes : aEstimate.getAllRuleBytes ())
+        nSum += aRuleBytes.longValue ();
+      assertEquals (sKey, nSum, aEstimate.getTotalBytes ());
+
+      long nTypeSum = aEstimate.getStyleSheetBytes ();
+      for (final Long aTypeBytes : aEstimate.getBytesPerRuleType ().values ())
+        nTypeSum += aTypeBytes.longValue ();
+      assertEquals (sKey, nSum, nTypeSum);
+    }
+  }
+}
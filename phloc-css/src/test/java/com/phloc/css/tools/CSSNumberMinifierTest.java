@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.binary.CSSBinaryReader;
+import com.phloc.css.binary.CSSBinaryWriter;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSNumberMinifier}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSNumberMinifierTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _minify (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    CSSNumberMinifier.minifyNumbers (aCSS);
+    return new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+  }
+
+  @Test
+  public void testBinaryRoundTrip ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{width:max(0.0px,10vw);flex:1 1 0px}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    CSSNumberMinifier.minifyNumbers (aCSS);
+    final CascadingStyleSheet aRead = CSSBinaryReader.readFromBytes (CSSBinaryWriter.getAsBytes (aCSS));
+    assertNotNull (aRead);
+    // The units of the zero lengths must survive
+    assertEquals ("a{width:max(0px,10vw);flex:1 1 0px}", new CSSWriter (SETTINGS).getCSSAsString (aRead));
+  }
+
+  @Test
+  public void testGetMinifiedNumber ()
+  {
+    assertEquals (".5", CSSNumberMinifier.getMinifiedNumber ("0.50", true));
+    assertEquals ("0", CSSNumberMinifier.getMinifiedNumber ("-0.0", true));
+    assertEquals ("10", CSSNumberMinifier.getMinifiedNumber ("10.0", true));
+    assertEquals ("5", CSSNumberMinifier.getMinifiedNumber ("+5", true));
+    assertEquals ("10", CSSNumberMinifier.getMinifiedNumber ("010", true));
+    assertEquals ("-.25", CSSNumberMinifier.getMinifiedNumber ("-0.250", true));
+    assertEquals ("100", CSSNumberMinifier.getMinifiedNumber ("100", true));
+    assertEquals ("1.5em", CSSNumberMinifier.getMinifiedNumber ("1.50EM", true));
+    assertEquals ("2fr", CSSNumberMinifier.getMinifiedNumber ("2.0fr", true));
+
+    // Zero values
+    assertEquals ("0", CSSNumberMinifier.getMinifiedNumber ("0.0px", true));
+    assertEquals ("0px", CSSNumberMinifier.getMinifiedNumber ("0.0px", false));
+    assertEquals ("0", CSSNumberMinifier.getMinifiedNumber ("-0em", true));
+    assertEquals ("0s", CSSNumberMinifier.getMinifiedNumber ("0.0s", true));
+    assertEquals ("0deg", CSSNumberMinifier.getMinifiedNumber ("0deg", true));
+    assertEquals ("0%", CSSNumberMinifier.getMinifiedNumber ("0.0%", true));
+
+    // Unit conversion
+    assertEquals (".5s", CSSNumberMinifier.getMinifiedNumber ("500ms", true));
+    assertEquals ("1.5s", CSSNumberMinifier.getMinifiedNumber ("1500ms", true));
+    assertEquals ("50ms", CSSNumberMinifier.getMinifiedNumber ("50ms", true));
+    assertEquals ("2s", CSSNumberMinifier.getMinifiedNumber ("2000ms", true));
+    assertEquals ("1ms", CSSNumberMinifier.getMinifiedNumber ("0.001s", true));
+    assertEquals ("1khz", CSSNumberMinifier.getMinifiedNumber ("1000Hz", true));
+
+    // Not numbers
+    assertEquals ("auto", CSSNumberMinifier.getMinifiedNumber ("auto", true));
+    assertEquals ("-moz-box", CSSNumberMinifier.getMinifiedNumber ("-moz-box", true));
+    assertEquals ("#000", CSSNumberMinifier.getMinifiedNumber ("#000", true));
+    assertEquals (".", CSSNumberMinifier.getMinifiedNumber (".", true));
+    assertEquals ("1e3", CSSNumberMinifier.getMinifiedNumber ("1e3", true));
+  }
+
+  @Test
+  public void testStyleSheet ()
+  {
+    assertEquals ("a{opacity:.5;line-height:1.5;transition:opacity .3s ease 0s}",
+                  _minify ("a{opacity:0.50;line-height:1.50;transition:opacity 300ms ease 0.0s}"));
+    assertEquals ("a{margin:0 10px;width:0;background-position:0% 0%}",
+                  _minify ("a{margin:0.0% 10.0px;width:0%;background-position:0% 0%}"));
+    assertEquals ("a{transform:rotate(0) translate(.5px,0)}", _minify ("a{transform:rotate(0deg) translate(0.5px,0px)}"));
+    assertEquals ("a{color:rgba(0,0,0,.5);cubic:cubic-bezier(.25,.1,.25,1)}",
+                  _minify ("a{color:rgba(0,0,0,0.50);cubic:cubic-bezier(0.25,0.10,0.25,1.0)}"));
+    // hsl percentages must keep their unit
+    assertEquals ("a{color:hsl(0,0%,50%)}", _minify ("a{color:hsl(0,0.0%,50.0%)}"));
+    // Units within calc() are always kept
+    assertEquals ("a{width:calc(100% - 0px);height:calc(1.5*2px + .5em)}",
+                  _minify ("a{width:calc(100% - 0.0px);height:calc(1.50*2px + 0.5em)}"));
+    assertEquals ("a{width:max(0px,10vw);height:clamp(0px,1vw,2px);top:min(0px,.5em);left:-webkit-calc(0px)}",
+                  _minify ("a{width:max(0px,10vw);height:clamp(0.0px,1vw,2px);top:min(0px,0.5em);"
+                           + "left:-webkit-calc(0px)}"));
+    assertEquals ("a{margin:max(0px,min(0em,1em))}", _minify ("a{margin:max(0.0px,min(0em,1em))}"));
+    // The flex basis keeps its unit
+    assertEquals ("a{flex:1 1 0px;-ms-flex:1 1 0px;flex-basis:0}",
+                  _minify ("a{flex:1 1 0.0px;-ms-flex:1 1 0px;flex-basis:0px}"));
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+      final String sOriginal = new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+      CSSNumberMinifier.minifyNumbers (aCSS);
+      final String sMinified = new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+      assertTrue (sKey, sMinified.length () <= sOriginal.length ());
+      assertTrue (sKey, CSSReader.isValidCSS (sMinified, ECSSVersion.CSS30));
+      // Idempotent
+      assertEquals (sKey, EChange.UNCHANGED, CSSNumberMinifier.minifyNumbers (aCSS));
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.match.HTMLTolerantReader;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSPurger}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSPurgerTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _purge (@Nonnull final String sCSS,
+                                @Nonnull final CSSPurgeSettings aSettings,
+                                @Nonnull final String... aHTMLs)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    final List <IMicroDocument> aDocs = ContainerHelper.newList ();
+    for (final String sHTML : aHTMLs)
+      aDocs.add (HTMLTolerantReader.readFromString (sHTML));
+    CSSPurger.purge (aCSS, aDocs, aSettings);
+    return new CSSWriter (SETTINGS).setWriteHeaderText (false).getCSSAsString (aCSS);
+  }
+
+  @Nonnull
+  private static String _purge (@Nonnull final String sCSS, @Nonnull final String... aHTMLs)
+  {
+    return _purge (sCSS, new CSSPurgeSettings (), aHTMLs);
+  }
+
+  @Test
+  public void testStyleRules ()
+  {
+    assertEquals ("", _purge ("div{color:red}", ""));
+    assertEquals ("div{color:red}", _purge ("div{color:red}span{color:blue}", "<div></div>"));
+    // Unused selectors are removed from the list
+    assertEquals (".a,.c{color:red}", _purge (".a,.b,.c{color:red}", "<p class='a'>", "<p class=c>"));
+    assertEquals ("ul>li+li{color:red}", _purge ("ul>li+li{color:red}ol li{color:blue}", "<ul><li>1<li>2</ul>"));
+    // Media and supports rules are processed recursively
+    assertEquals ("@media print{.a{color:red}}",
+                  _purge ("@media print{.a{color:red}.b{color:blue}}@supports (display:grid){.b{display:grid}}",
+                          "<div class=a></div>"));
+    // Other rules are untouched
+    assertEquals ("@import url(a.css);\n@page{margin:1cm}",
+                  _purge ("@import 'a.css';@page{margin:1cm}.x{color:red}", ""));
+  }
+
+  @Test
+  public void testDynamicStates ()
+  {
+    final String sHTML = "<a href='#'>x</a><input type=checkbox><label>l</label>";
+    assertEquals ("a:hover,a::before,input:checked+label:not(:focus){color:red}",
+                  _purge ("a:hover,a::before,input:checked+label:not(:focus),b:hover{color:red}", sHTML));
+    assertEquals ("a:not(.active){color:red}", _purge ("a:not(.active){color:red}span:not(.x){color:blue}", sHTML));
+  }
+
+  @Test
+  public void testSafelist ()
+  {
+    final CSSPurgeSettings aSettings = new CSSPurgeSettings ().addSafelistedClass (".is-open")
+                                                              .addSafelistedID ("modal")
+                                                              .addSafelistedElementName ("DIALOG")
+                                                              .addSafelistedPattern ("^js-");
+    assertEquals (".menu.is-open{color:red}#modal{color:red}dialog{color:red}.js-toggle>span{color:red}",
+                  _purge (".menu.is-open{color:red}#modal{color:red}dialog{color:red}.js-toggle>span{color:red}"
+                              + ".other{color:red}.x:not(.is-open){color:red}",
+                          aSettings,
+                          "<p>"));
+  }
+
+  @Test
+  public void testKeyframesAndFontFaces ()
+  {
+    final String sCSS = "@keyframes spin{to{transform:rotate(360deg)}}"
+                        + "@-webkit-keyframes fade{to{opacity:0}}"
+                        + "@keyframes pulse{to{opacity:0}}"
+                        + "@font-face{font-family:'Open Sans';src:url(a.woff)}"
+                        + "@font-face{font-family:Icons;src:url(b.woff)}"
+                        + ".spinner{-webkit-animation:fade 1s;animation:spin 1s linear infinite}"
+                        + ".icon{font:12px/1 Icons,sans-serif}"
+                        + "body{font-family:\"open sans\",Arial}"
+                        + ".pulse{animation-name:pulse}";
+
+    // Everything is used
+    assertEquals (new CSSWriter (SETTINGS).setWriteHeaderText (false)
+                                          .getCSSAsString (CSSReader.readFromString (sCSS, ECSSVersion.CSS30)),
+                  _purge (sCSS, "<div class='spinner icon pulse'>"));
+
+    // Only body is used
+    assertEquals ("@font-face{font-family:'Open Sans';src:url(a.woff)}body{font-family:\"open sans\",Arial}",
+                  _purge (sCSS, "<p>"));
+
+    // Removal of keyframes and font faces can be disabled
+    assertEquals ("@keyframes spin{to{transform:rotate(360deg)}}"
+                      + "@-webkit-keyframes fade{to{opacity:0}}"
+                      + "@keyframes pulse{to{opacity:0}}"
+                      + "@font-face{font-family:'Open Sans';src:url(a.woff)}"
+                      + "@font-face{font-family:Icons;src:url(b.woff)}"
+                      + "body{font-family:\"open sans\",Arial}",
+                  _purge (sCSS,
+                          new CSSPurgeSettings ().setRemoveUnusedKeyframes (false).setRemoveUnusedFontFaces (false),
+                          "<p>"));
+  }
+
+  @Test
+  public void testParallelFiles ()
+  {
+    final String sCSS = ".test1,.test7{color:green}.test6{color:red}div[style]{color:blue}h1{color:black}"
+                        + "@media screen{.unused{color:red}}";
+    final String sExpected = ".test1{color:green}.test6{color:red}div[style]{color:blue}";
+    final List <File> aFiles = ContainerHelper.newList (new File ("src/test/resources/browsertest.html"),
+                                                       new File ("src/test/resources/shorthand-test.html"));
+    for (final int nThreads : new int [] { 1, 2, 4 })
+    {
+      final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+      assertEquals (EChange.CHANGED,
+                    CSSPurger.purgeWithHTMLFiles (aCSS,
+                                                  aFiles,
+                                                  CCharset.CHARSET_UTF_8_OBJ,
+                                                  new CSSPurgeSettings ().setThreadCount (nThreads)));
+      assertEquals (sExpected, new CSSWriter (SETTINGS).setWriteHeaderText (false).getCSSAsString (aCSS));
+      // Nothing left to purge
+      assertEquals (EChange.UNCHANGED,
+                    CSSPurger.purgeWithHTMLFiles (aCSS, aFiles, CCharset.CHARSET_UTF_8_OBJ, new CSSPurgeSettings ()));
+    }
+
+    try
+    {
+      CSSPurger.purgeWithHTMLFiles (CSSReader.readFromString (sCSS, ECSSVersion.CSS30),
+                                    ContainerHelper.newList (new File ("does-not-exist.html")),
+                                    CCharset.CHARSET_UTF_8_OBJ,
+                                    new CSSPurgeSettings ());
+      assertTrue (false);
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSDeclarationList;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.shorthand.CSSShortHandDescriptor;
+import com.phloc.css.decl.shorthand.CSSShortHandRegistry;
+import com.phloc.css.property.ECSSProperty;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.reader.CSSReaderDeclarationList;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSShortHandCollapser}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSShortHandCollapserTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _collapse (@Nonnull final String sDecls)
+  {
+    final CSSDeclarationList aDecls = CSSReaderDeclarationList.readFromString (sDecls, ECSSVersion.CSS30);
+    assertNotNull (sDecls, aDecls);
+    CSSShortHandCollapser.collapseShortHands (aDecls);
+    return aDecls.getAsCSSString (SETTINGS, 0);
+  }
+
+  @Test
+  public void testBoxValueCount ()
+  {
+    assertEquals ("margin:1px", _collapse ("margin-top:1px;margin-right:1px;margin-bottom:1px;margin-left:1px"));
+    assertEquals ("margin:1px 2px", _collapse ("margin-top:1px;margin-right:2px;margin-bottom:1px;margin-left:2px"));
+    assertEquals ("margin:1px 2px 3px",
+                  _collapse ("margin-top:1px;margin-right:2px;margin-bottom:3px;margin-left:2px"));
+    assertEquals ("margin:1px 2px 3px 4px",
+                  _collapse ("margin-top:1px;margin-right:2px;margin-bottom:3px;margin-left:4px"));
+    // Values are compared in their optimized form
+    assertEquals ("padding:0", _collapse ("padding-left:0;padding-top:0px;padding-bottom:0;padding-right:0em"));
+    assertEquals ("border-color:red #00f",
+                  _collapse ("border-top-color:red;border-right-color:#0000ff;border-bottom-color:red;border-left-color:#00f"));
+  }
+
+  @Test
+  public void testImportantAndOrder ()
+  {
+    assertEquals ("margin:1px 2px !important",
+                  _collapse ("margin-top:1px!important;margin-right:2px!important;margin-bottom:1px!important;margin-left:2px!important"));
+    // Mixed importance
+    assertEquals ("margin-top:1px !important;margin-right:1px;margin-bottom:1px;margin-left:1px",
+                  _collapse ("margin-top:1px!important;margin-right:1px;margin-bottom:1px;margin-left:1px"));
+    // Unrelated declarations in between are fine - shorthand is at the last
+    // position
+    assertEquals ("color:red;margin:1px;display:block",
+                  _collapse ("margin-top:1px;color:red;margin-right:1px;margin-bottom:1px;margin-left:1px;display:block"));
+    // Same family in between
+    assertEquals ("margin-top:1px;margin:0;margin-right:1px;margin-bottom:1px;margin-left:1px",
+                  _collapse ("margin-top:1px;margin:0;margin-right:1px;margin-bottom:1px;margin-left:1px"));
+    // Declarations of the same family before and after are fine
+    assertEquals ("margin:0;margin:1px;margin:2px",
+                  _collapse ("margin:0;margin-top:1px;margin-right:1px;margin-bottom:1px;margin-left:1px;margin:2px"));
+  }
+
+  @Test
+  public void testNotCollapsible ()
+  {
+    // Incomplete
+    assertEquals ("margin-top:1px;margin-right:1px;margin-bottom:1px",
+                  _collapse ("margin-top:1px;margin-right:1px;margin-bottom:1px"));
+    // Fallback
+    assertEquals ("margin-top:1px;margin-top:2rem;margin-right:1px;margin-bottom:1px;margin-left:1px",
+                  _collapse ("margin-top:1px;margin-top:2rem;margin-right:1px;margin-bottom:1px;margin-left:1px"));
+    // Multiple members
+    assertEquals ("padding-top:1px 2px;padding-right:1px;padding-bottom:1px;padding-left:1px",
+                  _collapse ("padding-top:1px 2px;padding-right:1px;padding-bottom:1px;padding-left:1px"));
+    // CSS-wide keywords
+    assertEquals ("padding:inherit",
+                  _collapse ("padding-top:inherit;padding-right:inherit;padding-bottom:inherit;padding-left:inherit"));
+    assertEquals ("padding-top:inherit;padding-right:1px;padding-bottom:1px;padding-left:1px",
+                  _collapse ("padding-top:inherit;padding-right:1px;padding-bottom:1px;padding-left:1px"));
+    // "border" would reset "border-image"
+    assertEquals ("border-width:1px;border-style:solid;border-color:red",
+                  _collapse ("border-width:1px;border-style:solid;border-color:red"));
+  }
+
+  @Test
+  public void testListShortHands ()
+  {
+    assertEquals ("border-top:1px solid red",
+                  _collapse ("border-top-color:red;border-top-width:1px;border-top-style:solid"));
+    assertEquals ("outline:thin dotted blue", _collapse ("outline-width:thin;outline-style:dotted;outline-color:blue"));
+    assertEquals ("list-style:square inside none",
+                  _collapse ("list-style-type:square;list-style-position:inside;list-style-image:none"));
+    // Box shorthands are preferred
+    assertEquals ("border-width:1px;border-style:solid;border-color:red",
+                  _collapse ("border-top-width:1px;border-right-width:1px;border-bottom-width:1px;border-left-width:1px;"
+                             + "border-top-style:solid;border-right-style:solid;border-bottom-style:solid;border-left-style:solid;"
+                             + "border-top-color:red;border-right-color:red;border-bottom-color:red;border-left-color:red"));
+  }
+
+  @Test
+  public void testRoundTrip ()
+  {
+    // Split and collapse again
+    for (final String sMargin : new String [] { "1px", "1px 2px", "1px 2px 3px", "1px 2px 3px 4px" })
+    {
+      final CSSShortHandDescriptor aSHD = CSSShortHandRegistry.getShortHandDescriptor (ECSSProperty.MARGIN);
+      final CSSDeclaration aDecl = CSSReaderDeclarationList.readFromString ("margin:" + sMargin, ECSSVersion.CSS30)
+                                                           .getDeclarationAtIndex (0);
+      final CSSDeclarationList aDecls = new CSSDeclarationList ();
+      for (final CSSDeclaration aPiece : aSHD.getSplitIntoPieces (aDecl))
+        aDecls.addDeclaration (aPiece);
+      assertEquals (4, aDecls.getDeclarationCount ());
+      assertEquals (EChange.CHANGED, CSSShortHandCollapser.collapseShortHands (aDecls));
+      assertEquals ("margin:" + sMargin, aDecls.getAsCSSString (SETTINGS, 0));
+    }
+  }
+
+  @Test
+  public void testStyleSheet ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{margin-top:0;margin-right:0;margin-bottom:0;margin-left:0}"
+                                                                   + "@media print{b{padding-top:1px;padding-right:2px;padding-bottom:1px;padding-left:2px}}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    assertEquals (EChange.CHANGED, CSSShortHandCollapser.collapseShortHands (aCSS));
+    assertEquals ("a{margin:0}@media print{b{padding:1px 2px}}", new CSSWriter (SETTINGS).getCSSAsString (aCSS));
+    assertEquals (EChange.UNCHANGED, CSSShortHandCollapser.collapseShortHands (aCSS));
+
+    // Collapsing never breaks existing files
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final CascadingStyleSheet aCSS2 = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (aFile.getAbsolutePath (), aCSS2);
+      CSSShortHandCollapser.collapseShortHands (aCSS2);
+      final String sCollapsed = new CSSWriter (SETTINGS).getCSSAsString (aCSS2);
+      assertTrue (aFile.getAbsolutePath (), CSSReader.isValidCSS (sCollapsed, ECSSVersion.CSS30));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.state.EChange;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.writer.CSSCompressor;
+import com.phloc.css.writer.CSSWriter;
+import com.phloc.css.writer.CSSWriterSettings;
+
+/**
+ * Test class for class {@link CSSStructuralMinifier}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSStructuralMinifierTest
+{
+  private static final CSSWriterSettings SETTINGS = new CSSWriterSettings (ECSSVersion.CSS30, true);
+
+  @Nonnull
+  private static String _minify (@Nonnull final String sCSS)
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+    assertNotNull (sCSS, aCSS);
+    CSSStructuralMinifier.minify (aCSS);
+    return new CSSWriter (SETTINGS).getCSSAsString (aCSS);
+  }
+
+  @Test
+  public void testRemoveDuplicates ()
+  {
+    assertEquals ("b{color:blue}a{color:red}", _minify ("a{color:red} b{color:blue} a{color:red}"));
+    assertEquals ("@font-face{font-family:x}a{color:red}",
+                  _minify ("@font-face{font-family:x} @font-face{font-family:x} a{color:red}"));
+  }
+
+  @Test
+  public void testMergeAdjacent ()
+  {
+    assertEquals ("a,b{color:red;margin:0}", _minify ("a,b{color:red} a,b{margin:0}"));
+    // Order of the selectors matters for the equality
+    assertEquals ("a,b{color:red}b,a{margin:0}", _minify ("a,b{color:red} b,a{margin:0}"));
+    assertEquals ("@media print{a{x:1;y:2}}", _minify ("@media print{a{x:1} a{y:2}}"));
+  }
+
+  @Test
+  public void testMergeSameDeclarations ()
+  {
+    assertEquals ("a,b{color:red}", _minify ("a{color:red} b{color:red}"));
+    assertEquals ("c{margin:0}a,b{color:red}", _minify ("a{color:red} c{margin:0} b{color:red}"));
+    assertEquals ("@font-face{font-family:x}a,b{color:red}", _minify ("a{color:red} @font-face{font-family:x} b{color:red}"));
+
+    // Blocked by a rule in between changing the same property
+    assertEquals ("a{color:red}c{color:blue}b{color:red}", _minify ("a{color:red} c{color:blue} b{color:red}"));
+    // Blocked by a shorthand in between
+    assertEquals ("a{margin-top:0}c{margin:1px}b{margin-top:0}",
+                  _minify ("a{margin-top:0} c{margin:1px} b{margin-top:0}"));
+    // Blocked by a media rule in between
+    assertEquals ("a{color:red}@media print{c{color:blue}}b{color:red}",
+                  _minify ("a{color:red} @media print{c{color:blue}} b{color:red}"));
+    // Blocked by a logical property of the same family in between
+    assertEquals (".a{width:1px}.b{inline-size:2px}.c{width:1px}",
+                  _minify (".a{width:1px} .b{inline-size:2px} .c{width:1px}"));
+    // Only selectors supported by all browsers are merged
+    assertEquals ("::-moz-selection{color:red}::selection{color:red}",
+                  _minify ("::-moz-selection{color:red} ::selection{color:red}"));
+    assertEquals ("a{color:red}a::selection{color:red}", _minify ("a{color:red} a::selection{color:red}"));
+    assertEquals ("a{color:red}a:focus-visible{color:red}", _minify ("a{color:red} a:focus-visible{color:red}"));
+    assertEquals ("a{color:red}a:not(.b){color:red}", _minify ("a{color:red} a:not(.b){color:red}"));
+    assertEquals ("a{color:red}a:nth-child(2){color:red}", _minify ("a{color:red} a:nth-child(2){color:red}"));
+    assertEquals ("a:hover,a:FOCUS,b:first-child,[x=y]>c,#d:before{color:red}",
+                  _minify ("a:hover{color:red} a:FOCUS{color:red} b:first-child{color:red} "
+                           + "[x=y]>c{color:red} #d:before{color:red}"));
+    assertEquals ("p:lang(de),a{color:red}", _minify ("p:lang(de){color:red} a{color:red}"));
+    // Important flag is part of the declaration
+    assertEquals ("a{color:red}b{color:red !important}", _minify ("a{color:red} b{color:red!important}"));
+  }
+
+  @Test
+  public void testCombined ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red}\n"
+                                                               + "b{margin:0}\n"
+                                                               + "b{padding:0}\n"
+                                                               + "c{color:red}\n"
+                                                               + "d{margin:0;padding:0}\n",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSMinificationResult aResult = CSSStructuralMinifier.minify (aCSS, SETTINGS);
+    assertEquals ("a,c{color:red}b,d{margin:0;padding:0}", new CSSWriter (SETTINGS).getCSSAsString (aCSS));
+    assertEquals (68, aResult.getOriginalBytes ());
+    assertEquals (37, aResult.getMinifiedBytes ());
+    assertEquals (31, aResult.getBytesSaved ());
+    assertTrue (aResult.isSizeChanged ());
+
+    // Nothing left to do
+    assertEquals (EChange.UNCHANGED, CSSStructuralMinifier.minify (aCSS));
+
+    assertEquals ("a,b{color:red}", CSSCompressor.getMinifiedCSS ("a{color:red}b{color:red}", SETTINGS));
+    assertEquals ("a{", CSSCompressor.getMinifiedCSS ("a{", SETTINGS));
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+      final CSSMinificationResult aResult = CSSStructuralMinifier.minify (aCSS, SETTINGS);
+      assertTrue (sKey, aResult.getBytesSaved () >= 0);
+      assertEquals (sKey, EChange.UNCHANGED, CSSStructuralMinifier.minify (aCSS));
+
+      // The result must still be readable
+      assertNotNull (sKey, CSSReader.readFromString (new CSSWriter (SETTINGS).getCSSAsString (aCSS), ECSSVersion.CSS30));
+    }
+  }
+}
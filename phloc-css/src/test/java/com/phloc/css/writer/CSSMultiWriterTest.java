@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.filter.IFilter;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSMultiWriter}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSMultiWriterTest
+{
+  private static final IFilter <ICSSTopLevelRule> FILTER_MEDIA_ONLY = new IFilter <ICSSTopLevelRule> ()
+  {
+    public boolean matchesFilter (final ICSSTopLevelRule aRule)
+    {
+      return aRule instanceof CSSMediaRule;
+    }
+  };
+
+  @Test
+  public void testCorpus () throws IOException
+  {
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+
+      final CSSWriter aPretty = new CSSWriter (ECSSVersion.CSS30, false);
+      final CSSWriter aPrettyTabs = new CSSWriter (new CSSWriterSettings (ECSSVersion.CSS30, false).setIndent ("\t")).setFooterText ("end");
+      final CSSWriter aMinified = new CSSWriter (new CSSWriterSettings (ECSSVersion.CSS30, true).setRemoveUnnecessaryCode (true));
+      final CSSWriter aMinifiedCached = new CSSWriter (ECSSVersion.CSS30, true).setContentCharset ("UTF-8")
+                                                                               .setRuleOutputCache (new CSSRuleOutputCache ());
+      final CSSWriter aMediaOnly = new CSSWriter (ECSSVersion.CSS30, true);
+
+      final StringBuilder aSBPretty = new StringBuilder ();
+      final StringBuilder aSBPrettyTabs = new StringBuilder ();
+      final StringBuilder aSBMinified = new StringBuilder ();
+      final StringBuilder aSBMinifiedCached = new StringBuilder ();
+      final StringBuilder aSBMediaOnly = new StringBuilder ();
+      final CSSMultiWriter aMW = new CSSMultiWriter ().addVariant (aPretty, aSBPretty)
+                                                      .addVariant (aPrettyTabs, aSBPrettyTabs)
+                                                      .addVariant (aMinified, aSBMinified)
+                                                      .addVariant (aMinifiedCached, aSBMinifiedCached)
+                                                      .addVariant (aMediaOnly, FILTER_MEDIA_ONLY, aSBMediaOnly);
+      assertEquals (5, aMW.getVariantCount ());
+
+      // Write twice to check that nothing is left over
+      for (int i = 0; i < 2; ++i)
+      {
+        aSBPretty.setLength (0);
+        aSBPrettyTabs.setLength (0);
+        aSBMinified.setLength (0);
+        aSBMinifiedCached.setLength (0);
+        aSBMediaOnly.setLength (0);
+        aMW.appendCSS (aCSS);
+        assertEquals (sKey, aPretty.getCSSAsString (aCSS), aSBPretty.toString ());
+        assertEquals (sKey, aPrettyTabs.getCSSAsString (aCSS), aSBPrettyTabs.toString ());
+        assertEquals (sKey, aMinified.getCSSAsString (aCSS), aSBMinified.toString ());
+        assertEquals (sKey, aMinifiedCached.getCSSAsString (aCSS), aSBMinifiedCached.toString ());
+
+        // Compare with a copy containing only the matching rules
+        final CascadingStyleSheet aFiltered = aCSS.getClone ();
+        for (final ICSSTopLevelRule aRule : aFiltered.getAllRules ())
+          if (!FILTER_MEDIA_ONLY.matchesFilter (aRule))
+            aFiltered.removeRule (aRule);
+        assertEquals (sKey, aMediaOnly.getCSSAsString (aFiltered), aSBMediaOnly.toString ());
+      }
+    }
+  }
+}
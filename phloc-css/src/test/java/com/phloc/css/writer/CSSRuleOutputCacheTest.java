@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CSSDeclaration;
+import com.phloc.css.decl.CSSExpression;
+import com.phloc.css.decl.CSSExpressionMemberTermSimple;
+import com.phloc.css.decl.CSSMediaRule;
+import com.phloc.css.decl.CSSModificationCounter;
+import com.phloc.css.decl.CSSStyleRule;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSRuleOutputCache}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSRuleOutputCacheTest
+{
+  @Test
+  public void testCorpus ()
+  {
+    final CSSRuleOutputCache aCache = new CSSRuleOutputCache ();
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+
+      for (final boolean bOptimized : new boolean [] { true, false })
+      {
+        final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, bOptimized);
+        final String sExpected = aWriter.getCSSAsString (aCSS);
+        aWriter.setRuleOutputCache (aCache);
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS));
+
+        // All rules are taken from the cache now
+        final long nMisses = aCache.getMissCount ();
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS));
+        assertEquals (sKey, nMisses, aCache.getMissCount ());
+
+        // An equal copy is rendered again
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS.getClone ()));
+      }
+    }
+  }
+
+  @Test
+  public void testModification ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red}b{color:blue}c{color:green}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSRuleOutputCache aCache = new CSSRuleOutputCache ();
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false)
+                                                                     .setRuleOutputCache (aCache);
+    assertSame (aCache, aWriter.getRuleOutputCache ());
+    assertEquals ("a{color:red}b{color:blue}c{color:green}", aWriter.getCSSAsString (aCSS));
+    assertEquals (3, aCache.getMissCount ());
+    assertEquals (0, aCache.getHitCount ());
+
+    // Modify something nested in the second rule
+    final CSSStyleRule aRule = aCSS.getAllStyleRules ().get (1);
+    aRule.getDeclarationAtIndex (0).getExpression ().addTermSimple ("!ie");
+    assertEquals ("a{color:red}b{color:blue !ie}c{color:green}", aWriter.getCSSAsString (aCSS));
+    assertEquals (4, aCache.getMissCount ());
+    assertEquals (2, aCache.getHitCount ());
+
+    aRule.addDeclaration (new CSSDeclaration ("x", CSSExpression.createSimple ("y"), false));
+    assertEquals ("a{color:red}b{color:blue !ie;x:y}c{color:green}", aWriter.getCSSAsString (aCSS));
+    assertEquals (5, aCache.getMissCount ());
+
+    // Other settings
+    aWriter.getSettings ().setOptimizedOutput (false);
+    aWriter.getCSSAsString (aCSS);
+    assertEquals (8, aCache.getMissCount ());
+    assertEquals (6, aCache.getSize ());
+
+    aCache.clear ();
+    assertEquals (0, aCache.getSize ());
+    assertEquals (0, aCache.getMissCount ());
+  }
+
+  @Test
+  public void testModifyCachedRule ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red}", ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSRuleOutputCache aCache = new CSSRuleOutputCache ();
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (false)
+                                                                     .setRuleOutputCache (aCache);
+    assertEquals ("a{color:red}", aWriter.getCSSAsString (aCSS));
+
+    // Modifying the written rule does not modify the cached text of the
+    // original content
+    aCSS.getAllStyleRules ().get (0).getDeclarationAtIndex (0).setExpression (CSSExpression.createSimple ("blue"));
+    assertEquals ("a{color:blue}", aWriter.getCSSAsString (aCSS));
+    assertEquals (2, aCache.getMissCount ());
+    assertEquals ("a{color:red}",
+                  aWriter.getCSSAsString (CSSReader.readFromString ("a { color : red }", ECSSVersion.CSS30)));
+    assertEquals (3, aCache.getMissCount ());
+    assertEquals (0, aCache.getHitCount ());
+  }
+
+  @Test
+  public void testEqualOptimizedOutput ()
+  {
+    // Rules with the same optimized output must not share the non-optimized
+    // text
+    final CSSRuleOutputCache aCache = new CSSRuleOutputCache ();
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, false).setWriteHeaderText (false)
+                                                                      .setRuleOutputCache (aCache);
+    final String s1 = aWriter.getCSSAsString (CSSReader.readFromString ("a{margin:0px;color:#aabbcc}",
+                                                                        ECSSVersion.CSS30));
+    assertTrue (s1, s1.contains ("margin:0px;"));
+    assertTrue (s1, s1.contains ("color:#aabbcc;"));
+    final String s2 = aWriter.getCSSAsString (CSSReader.readFromString ("a{margin:0;color:#abc}", ECSSVersion.CSS30));
+    assertTrue (s2, s2.contains ("margin:0;"));
+    assertTrue (s2, s2.contains ("color:#abc;"));
+    assertEquals (2, aCache.getMissCount ());
+  }
+
+  @Test
+  public void testMaxSize ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red}b{color:blue}c{color:green}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSRuleOutputCache aCache = new CSSRuleOutputCache (2);
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setRuleOutputCache (aCache);
+    aWriter.getCSSAsString (aCSS);
+    assertEquals (2, aCache.getSize ());
+    assertEquals (3, aCache.getMissCount ());
+  }
+
+  @Test
+  public void testDeepModificationCount ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("@media print{a{color:red}}b{margin:calc(1px + 2px)}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final ICSSTopLevelRule aMediaRule = aCSS.getRuleAtIndex (0);
+    final CSSStyleRule aStyleRule = aCSS.getAllStyleRules ().get (0);
+
+    final long nCount = CSSModificationCounter.getModificationCount ();
+    assertTrue (aMediaRule.getDeepModificationCount () <= nCount);
+    assertTrue (aStyleRule.getDeepModificationCount () <= nCount);
+
+    // Modify a term nested in the media rule
+    final CSSStyleRule aNestedRule = (CSSStyleRule) ((CSSMediaRule) aMediaRule).getAllRules ().get (0);
+    ((CSSExpressionMemberTermSimple) aNestedRule.getDeclarationAtIndex (0).getExpression ().getMemberAtIndex (0)).setValue ("blue");
+    assertTrue (aMediaRule.getDeepModificationCount () > nCount);
+    assertTrue (aStyleRule.getDeepModificationCount () <= nCount);
+
+    // Unrelated objects do not matter
+    CSSExpression.createSimple ("x").addTermSimple ("y");
+    assertTrue (aStyleRule.getDeepModificationCount () <= nCount);
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.SimpleFileIO;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.io.streams.NonBlockingStringReader;
+import com.phloc.commons.io.streams.NonBlockingStringWriter;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+import com.phloc.css.tools.CSSCompressionNormalizer;
+
+/**
+ * Test class for class {@link CSSStreamingCompressor}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSStreamingCompressorTest
+{
+  /**
+   * A reader creating many style rules without ever holding them in memory.
+   */
+  private static final class GeneratingReader extends Reader
+  {
+    private final int m_nRules;
+    private int m_nIndex = 0;
+    private String m_sCurrent = "";
+    private int m_nPos = 0;
+
+    GeneratingReader (final int nRules)
+    {
+      m_nRules = nRules;
+    }
+
+    @Override
+    public int read (final char [] aBuf, final int nOfs, final int nLen)
+    {
+      if (m_nPos == m_sCurrent.length ())
+      {
+        if (m_nIndex == m_nRules)
+          return -1;
+        m_sCurrent = "/* rule " + m_nIndex + " */\n.c" + m_nIndex + " > a { color : #FF0000 ; margin : 0px }\n";
+        m_nIndex++;
+        m_nPos = 0;
+      }
+      final int nCount = Math.min (nLen, m_sCurrent.length () - m_nPos);
+      m_sCurrent.getChars (m_nPos, m_nPos + nCount, aBuf, nOfs);
+      m_nPos += nCount;
+      return nCount;
+    }
+
+    @Override
+    public void close ()
+    {}
+  }
+
+  @Nonnull
+  private static String _compress (@Nonnull final CSSStreamingCompressor aCompressor, @Nonnull final String sCSS) throws IOException
+  {
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    aCompressor.writeCompressedCSS (new NonBlockingStringReader (sCSS), aSW);
+    return aSW.getAsString ();
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    final CSSStreamingCompressor aCompressor = new CSSStreamingCompressor (new CSSWriterSettings (ECSSVersion.CSS30,
+                                                                                                 true));
+    assertEquals ("", _compress (aCompressor, ""));
+    assertEquals (0, aCompressor.getRuleCount ());
+
+    assertEquals ("@import url(a.css);\n"
+                  + "@namespace url(http://www.w3.org/1999/xhtml);\n"
+                  + "a{color:red}"
+                  + "@media print{b{c:d}}"
+                  + "e{content:\"};{\";f:url(x;y)}",
+                  _compress (aCompressor, "@charset \"UTF-8\";\n"
+                                          + "@import 'a.css';\n"
+                                          + "@namespace url(http://www.w3.org/1999/xhtml);\n"
+                                          + "/* a } b */ a { color : red }\n"
+                                          + "@media print { b { c : d } }\n"
+                                          + "e { content: \"};{\"; f: url(x;y) }\n  "));
+    assertEquals (5, aCompressor.getRuleCount ());
+    assertEquals (0, aCompressor.getUnparsableRuleCount ());
+
+    // Invalid rules are kept unchanged
+    assertEquals ("a{color:red}b { c : ( }e{f:g}@media print {",
+                  _compress (aCompressor, "a { color : red }\nb { c : ( }\ne { f : g }\n@media print {"));
+    assertEquals (4, aCompressor.getRuleCount ());
+    assertEquals (2, aCompressor.getUnparsableRuleCount ());
+  }
+
+  @Test
+  public void testFragmentProcessor () throws IOException
+  {
+    final CSSStreamingCompressor aCompressor = new CSSStreamingCompressor (new CSSWriterSettings (ECSSVersion.CSS30,
+                                                                                                 true));
+    aCompressor.addFragmentProcessor (new INonThrowingRunnableWithParameter <CascadingStyleSheet> ()
+    {
+      public void run (final CascadingStyleSheet aFragment)
+      {
+        CSSCompressionNormalizer.normalize (aFragment);
+      }
+    });
+    assertEquals (1, aCompressor.getAllFragmentProcessors ().size ());
+    assertEquals ("a,b{color:red;margin:0}", _compress (aCompressor, "b, a { margin: 0; color: RED }"));
+  }
+
+  @Test
+  public void testBoundedMemory () throws IOException
+  {
+    final int nRules = 20000;
+    final CSSStreamingCompressor aCompressor = new CSSStreamingCompressor (new CSSWriterSettings (ECSSVersion.CSS30,
+                                                                                                 true));
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    aCompressor.writeCompressedCSS (new GeneratingReader (nRules), aSW);
+    assertEquals (nRules, aCompressor.getRuleCount ());
+    assertEquals (0, aCompressor.getUnparsableRuleCount ());
+    assertTrue (aCompressor.getMaxRuleLength () < 100);
+    assertTrue (aSW.getAsString ().startsWith (".c0>a{color:#F00;margin:0}.c1>a{"));
+  }
+
+  @Test
+  public void testSameAsCompressor () throws IOException
+  {
+    final CSSWriterSettings aSettings = new CSSWriterSettings (ECSSVersion.CSS30, false);
+    final CSSStreamingCompressor aCompressor = new CSSStreamingCompressor (aSettings);
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final String sCSS = SimpleFileIO.readFileAsString (aFile, CCharset.CHARSET_UTF_8_OBJ);
+      assertNotNull (sKey, sCSS);
+      final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+      assertNotNull (sKey, aCSS);
+
+      assertEquals (sKey, new CSSWriter (aSettings).getCSSAsString (aCSS), _compress (aCompressor, sCSS));
+      assertEquals (sKey, 0, aCompressor.getUnparsableRuleCount ());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSTemplate} and {@link CSSTemplateCompiler}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSTemplateTest
+{
+  private static final String CSS = "a { color : $brand ; background : url($logo) no-repeat }\n"
+                                    + "b { border : 1px solid rgba($brand, 0.5); font-family: $font; color: #FF0000 }\n"
+                                    + "@media print { c:before { content : $label; color : $brand } }\n"
+                                    + "d { color : $unknown }";
+
+  @Test
+  public void testCompileAndRender () throws IOException
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (CSS, ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    final Map <String, String> aValues = new HashMap <String, String> ();
+    aValues.put ("$brand", "#123456");
+    aValues.put ("$logo", "http://x.org/a b.png");
+    aValues.put ("$font", "Georgia");
+    aValues.put ("$label", "It's \"new\"");
+
+    final String sOriginal = new CSSWriter (ECSSVersion.CSS30, true).getCSSAsString (aCSS);
+
+    for (final boolean bOptimized : new boolean [] { true, false })
+    {
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, bOptimized);
+      final CSSTemplateCompiler aCompiler = new CSSTemplateCompiler (aWriter).addHole ("$brand",
+                                                                                      ECSSTemplateHoleType.COLOR)
+                                                                             .addHole ("$logo", ECSSTemplateHoleType.URL)
+                                                                             .addHole ("$font", ECSSTemplateHoleType.RAW)
+                                                                             .addHole ("$label",
+                                                                                       ECSSTemplateHoleType.STRING)
+                                                                             .addHole ("$unused",
+                                                                                       ECSSTemplateHoleType.RAW);
+      final CSSTemplate aTemplate = aCompiler.compile (aCSS);
+      assertEquals (6, aTemplate.getHoleCount ());
+      assertEquals (4, aTemplate.getAllPlaceholders ().size ());
+      assertEquals (ECSSTemplateHoleType.URL, aTemplate.getHoleType ("$logo"));
+      assertNull (aTemplate.getHoleType ("$unused"));
+
+      // Must be identical to modifying the model and writing it
+      final CascadingStyleSheet aExpected = CSSReader.readFromString (CSS.replace ("$brand", "#123456")
+                                                                         .replace ("url($logo)",
+                                                                                   "url('http://x.org/a b.png')")
+                                                                         .replace ("$font", "Georgia")
+                                                                         .replace ("$label", "\"It's \\\"new\\\"\""),
+                                                                      ECSSVersion.CSS30);
+      assertNotNull (aExpected);
+      final String sExpected = aWriter.getCSSAsString (aExpected);
+      assertEquals (sExpected, aTemplate.getAsString (aValues));
+      assertArrayEquals (sExpected.getBytes (CCharset.CHARSET_UTF_8_OBJ), aTemplate.getAsBytes (aValues));
+
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      aTemplate.writeTo (aValues, aBAOS);
+      assertEquals (sExpected, aBAOS.getAsString (CCharset.CHARSET_UTF_8_OBJ));
+    }
+
+    // The source was not modified
+    assertEquals (sOriginal, new CSSWriter (ECSSVersion.CSS30, true).getCSSAsString (aCSS));
+  }
+
+  @Test
+  public void testInvalidValues ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:$c;font-family:$f}", ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSTemplate aTemplate = new CSSTemplateCompiler (new CSSWriter (ECSSVersion.CSS30, true)).addHole ("$c",
+                                                                                                           ECSSTemplateHoleType.COLOR)
+                                                                                                  .addHole ("$f",
+                                                                                                            ECSSTemplateHoleType.RAW)
+                                                                                                  .compile (aCSS);
+
+    final Map <String, String> aValues = new HashMap <String, String> ();
+    aValues.put ("$c", "red");
+    aValues.put ("$f", "serif");
+    assertEquals ("a{color:red;font-family:serif}", aTemplate.getAsString (aValues));
+
+    // Missing value
+    aValues.remove ("$f");
+    try
+    {
+      aTemplate.getAsString (aValues);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+
+    // No color
+    aValues.put ("$c", "notacolor");
+    aValues.put ("$f", "serif");
+    try
+    {
+      aTemplate.getAsString (aValues);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+
+    // Injection
+    aValues.put ("$c", "red");
+    aValues.put ("$f", "serif}body{display:none");
+    try
+    {
+      aTemplate.getAsString (aValues);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.charset.CharsetManager;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for class {@link CSSUTF8Appendable}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSUTF8AppendableTest
+{
+  @Test
+  public void testEncoding () throws IOException
+  {
+    final Random aRandom = new Random (17);
+    final CSSUTF8Appendable aInMemory = new CSSUTF8Appendable (1);
+    for (int i = 0; i < 500; ++i)
+    {
+      // Mix of ASCII, Latin-1, BMP, surrogate pairs and lone surrogates
+      final StringBuilder aSB = new StringBuilder ();
+      final int nLen = aRandom.nextInt (100);
+      for (int j = 0; j < nLen; ++j)
+        switch (aRandom.nextInt (6))
+        {
+          case 0:
+            aSB.append ((char) (0x80 + aRandom.nextInt (0x780)));
+            break;
+          case 1:
+            aSB.append ((char) (0x800 + aRandom.nextInt (0xd000)));
+            break;
+          case 2:
+            aSB.appendCodePoint (0x10000 + aRandom.nextInt (0x100000));
+            break;
+          case 3:
+            aSB.append ((char) (0xd800 + aRandom.nextInt (0x800)));
+            break;
+          default:
+            aSB.append ((char) aRandom.nextInt (0x80));
+            break;
+        }
+      final String s = aSB.toString ();
+      final byte [] aExpected = s.getBytes (CCharset.CHARSET_UTF_8_OBJ);
+
+      // In memory, appended in pieces
+      aInMemory.reset ();
+      int nStart = 0;
+      while (nStart < s.length ())
+      {
+        final int nEnd = Math.min (s.length (), nStart + aRandom.nextInt (5));
+        if (nEnd - nStart == 1)
+          aInMemory.append (s.charAt (nStart));
+        else
+          aInMemory.append (s, nStart, nEnd);
+        nStart = nEnd;
+      }
+      aInMemory.close ();
+      assertArrayEquals (s, aExpected, aInMemory.getAsBytes ());
+      assertEquals (aExpected.length, aInMemory.getByteCount ());
+      final ByteBuffer aBB = aInMemory.getAsByteBuffer ();
+      assertEquals (aExpected.length, aBB.remaining ());
+
+      // To a stream
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      final CSSUTF8Appendable aStreamed = new CSSUTF8Appendable (aBAOS);
+      aStreamed.append (s);
+      aStreamed.close ();
+      assertArrayEquals (s, aExpected, aBAOS.toByteArray ());
+    }
+  }
+
+  @Test
+  public void testWriteCSS () throws IOException
+  {
+    final CSSUTF8Appendable aBuffer = new CSSUTF8Appendable ();
+    for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good"),
+                                                                new FilenameFilterEndsWith (".css")))
+    {
+      final String sKey = aFile.getAbsolutePath ();
+      final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+      if (aCSS == null)
+      {
+        // Some files require special browser compliance settings
+        continue;
+      }
+
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, false).setContentCharset ("utf-8");
+      final byte [] aExpected = CharsetManager.getAsBytes (aWriter.getCSSAsString (aCSS), CCharset.CHARSET_UTF_8_OBJ);
+      assertArrayEquals (sKey, aExpected, aWriter.getCSSAsUTF8Bytes (aCSS));
+
+      final ByteBuffer aBB = aWriter.getCSSAsUTF8 (aCSS, aBuffer);
+      final byte [] aBytes = new byte [aBB.remaining ()];
+      aBB.get (aBytes);
+      assertArrayEquals (sKey, aExpected, aBytes);
+
+      NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      aWriter.writeCSSAsUTF8 (aCSS, aBAOS);
+      assertArrayEquals (sKey, aExpected, aBAOS.toByteArray ());
+
+      aBAOS = new NonBlockingByteArrayOutputStream ();
+      aWriter.writeCSSAsUTF8 (aCSS, Channels.newChannel (aBAOS));
+      assertArrayEquals (sKey, aExpected, aBAOS.toByteArray ());
+    }
+  }
+
+  @Test
+  public void testContentCharset ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("h1{color:red}", ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setWriteHeaderText (true)
+                                                                    .setHeaderText ("Header");
+
+    // @charset must be the very first element
+    aWriter.setContentCharset ("UTF-8");
+    final String sCSS = CharsetManager.getAsString (aWriter.getCSSAsUTF8Bytes (aCSS), CCharset.CHARSET_UTF_8_OBJ);
+    assertTrue (sCSS, sCSS.startsWith ("@charset \"UTF-8\";/*\n * Header\n */\n"));
+
+    // A different charset does not match the output
+    aWriter.setContentCharset ("iso-8859-1");
+    try
+    {
+      aWriter.getCSSAsUTF8Bytes (aCSS);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {}
+    // But is fine for character output
+    assertTrue (aWriter.getCSSAsString (aCSS).startsWith ("@charset \"iso-8859-1\";"));
+  }
+}
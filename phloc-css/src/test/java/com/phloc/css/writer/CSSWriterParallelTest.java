@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.css.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.filter.FilenameFilterEndsWith;
+import com.phloc.commons.io.file.iterate.FileSystemRecursiveIterator;
+import com.phloc.css.ECSSVersion;
+import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.reader.CSSReader;
+
+/**
+ * Test class for the parallel mode of class {@link CSSWriter}.
+ * 
+ * @author Philip Helger
+ */
+public final class CSSWriterParallelTest
+{
+  private static void _assertSameOutput (final String sKey,
+                                         final CascadingStyleSheet aCSS,
+                                         final ExecutorService aExecutor,
+                                         final int nChunkSize)
+  {
+    for (final boolean bOptimized : new boolean [] { true, false })
+      for (final boolean bRemoveUnnecessaryCode : new boolean [] { true, false })
+      {
+        final CSSWriterSettings aSettings = new CSSWriterSettings (ECSSVersion.CSS30, bOptimized).setRemoveUnnecessaryCode (bRemoveUnnecessaryCode);
+        final CSSWriter aWriter = new CSSWriter (aSettings);
+        final String sExpected = aWriter.getCSSAsString (aCSS);
+
+        aWriter.setParallelExecutor (aExecutor).setParallelChunkSize (nChunkSize);
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS));
+
+        // With rule output cache
+        aWriter.setRuleOutputCache (new CSSRuleOutputCache ());
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS));
+        assertEquals (sKey, sExpected, aWriter.getCSSAsString (aCSS));
+      }
+  }
+
+  @Test
+  public void testCorpus ()
+  {
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      for (final File aFile : FileSystemRecursiveIterator.create (new File ("src/test/resources/testfiles/css30/good/artificial"),
+                                                                  new FilenameFilterEndsWith (".css")))
+      {
+        final String sKey = aFile.getAbsolutePath ();
+        final CascadingStyleSheet aCSS = CSSReader.readFromFile (aFile, CCharset.CHARSET_UTF_8_OBJ, ECSSVersion.CSS30);
+        assertNotNull (sKey, aCSS);
+        for (final int nChunkSize : new int [] { 1, 2, 3, 7 })
+          _assertSameOutput (sKey, aCSS, aExecutor, nChunkSize);
+      }
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testEmptyRules ()
+  {
+    // Empty rules are skipped in optimized mode - even complete chunks
+    final StringBuilder aSB = new StringBuilder ("@import url(a.css);\n");
+    for (int i = 0; i < 200; ++i)
+    {
+      if ((i / 10) % 3 == 0)
+        aSB.append ("div.e").append (i).append (" {}\n@media print { span {} }\n");
+      else
+        aSB.append ("div.c").append (i).append (" { color: red; }\n");
+    }
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (aSB.toString (), ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (3);
+    try
+    {
+      for (final int nChunkSize : new int [] { 1, 5, 10, 20, 33 })
+        _assertSameOutput ("chunk" + nChunkSize, aCSS, aExecutor, nChunkSize);
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testException ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{color:red}\n@supports (color:red) { b{color:red} }\nc{color:red}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      // @supports is not available in CSS 2.1
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS21, true).setParallelExecutor (aExecutor)
+                                                                       .setParallelChunkSize (1);
+      aWriter.getCSSAsString (aCSS);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      assertTrue (ex.getMessage () != null);
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+}
@@ -17,14 +17,32 @@
  */
 package com.phloc.css.writer;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.Nonnull;
 
 import org.junit.Test;
 
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.charset.CharsetManager;
+import com.phloc.commons.io.streams.NonBlockingByteArrayInputStream;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.commons.io.streams.StreamUtils;
 import com.phloc.css.AbstractCSS30Test;
 import com.phloc.css.ECSSVersion;
+import com.phloc.css.ICSSWriteable;
+import com.phloc.css.ICSSWriterSettings;
 import com.phloc.css.decl.CascadingStyleSheet;
+import com.phloc.css.decl.ICSSTopLevelRule;
 import com.phloc.css.reader.CSSReader;
 
 /**
@@ -300,6 +318,34 @@ public final class CSSWriterTest extends AbstractCSS30Test
                   aWriter.getCSSAsString (aCSS));
   }
 
+  @Test
+  public void testCharsetBeforeHeaderText ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (CSS5, ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    // Non-optimized version
+    CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, false).setContentCharset ("UTF-8")
+                                                                .setWriteHeaderText (true)
+                                                                .setHeaderText ("Unit test");
+    String sCSS = aWriter.getCSSAsString (aCSS);
+    assertTrue (sCSS, sCSS.startsWith ("@charset \"UTF-8\";\n/*\n * Unit test\n */\nh1 {\n"));
+
+    // Optimized version
+    aWriter = new CSSWriter (ECSSVersion.CSS30, true).setContentCharset ("UTF-8")
+                                                     .setWriteHeaderText (true)
+                                                     .setHeaderText ("Unit test2");
+    sCSS = aWriter.getCSSAsString (aCSS);
+    assertEquals ("@charset \"UTF-8\";/*\n * Unit test2\n */\nh1{color:red;margin:1px}h2{color:red;margin:1px}", sCSS);
+
+    // The @charset rule must be the very first bytes
+    final byte [] aBytes = aWriter.getCSSAsUTF8Bytes (aCSS);
+    final byte [] aExpected = CharsetManager.getAsBytes ("@charset \"UTF-8\";", CCharset.CHARSET_UTF_8_OBJ);
+    assertTrue (aBytes.length > aExpected.length);
+    for (int i = 0; i < aExpected.length; ++i)
+      assertEquals (aExpected[i], aBytes[i]);
+  }
+
   @Test
   public void testWriteCertainRules ()
   {
@@ -325,4 +371,133 @@ public final class CSSWriterTest extends AbstractCSS30Test
     assertNotNull (aCSS);
     assertEquals ("h1{color:red;margin:1px}h2{color:red;margin:1px}", aWriter.getCSSAsString (aCSS));
   }
+
+  @Test
+  public void testAppendCSS () throws IOException
+  {
+    for (final String sCSS : new String [] { CSS1, CSS2, CSS3, CSS4, CSS5 })
+      for (final boolean bOptimized : new boolean [] { true, false })
+      {
+        final CascadingStyleSheet aCSS = CSSReader.readFromString (sCSS, ECSSVersion.CSS30);
+        assertNotNull (aCSS);
+        final CSSWriterSettings aSettings = new CSSWriterSettings (ECSSVersion.CSS30, bOptimized);
+        aSettings.setRemoveUnnecessaryCode (true);
+        final CSSWriter aWriter = new CSSWriter (aSettings);
+
+        // Streaming and string based output must be identical
+        final StringBuilder aSB = new StringBuilder ();
+        aWriter.appendCSS (aCSS, aSB);
+        assertEquals (aWriter.getCSSAsString (aCSS), aSB.toString ());
+
+        for (final ICSSTopLevelRule aRule : aCSS.getAllRules ())
+        {
+          aSB.setLength (0);
+          CSSWriterHelper.appendTo (aRule, aSettings, 0, aSB);
+          assertEquals (aRule.getAsCSSString (aSettings, 0), aSB.toString ());
+        }
+      }
+  }
+
+  @Test
+  public void testAppendExternalWriteable () throws IOException
+  {
+    // Implements only the public interface
+    final ICSSWriteable aWriteable = new ICSSWriteable ()
+    {
+      @Nonnull
+      public String getAsCSSString (@Nonnull final ICSSWriterSettings aSettings, final int nIndentLevel)
+      {
+        return "a{color:red}";
+      }
+    };
+    final CSSWriterSettings aSettings = new CSSWriterSettings (ECSSVersion.CSS30, true);
+    final StringBuilder aSB = new StringBuilder ("x");
+    CSSWriterHelper.appendTo (aWriteable, aSettings, 0, aSB);
+    assertEquals ("xa{color:red}", aSB.toString ());
+    assertEquals ("a{color:red}", CSSWriterHelper.getAsCSSString (aWriteable, aSettings, 0));
+    assertEquals ("a{color:red}", new CSSWriter (aSettings).getCSSAsString (aWriteable));
+  }
+
+  @Test
+  public void testZeroLengthUnits ()
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString ("a{margin:0px;width:MAX(0px,10vw);"
+                                                               + "height:clamp(0em,1vw,translate(0px));"
+                                                               + "flex:1 1 0px;-ms-flex:0px;transform:translate(0px)}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+    // A unitless zero is invalid in math functions and in the flex shorthand
+    assertEquals ("a{margin:0;width:MAX(0px,10vw);height:clamp(0em,1vw,translate(0px));"
+                  + "flex:1 1 0px;-ms-flex:0px;transform:translate(0)}",
+                  new CSSWriter (ECSSVersion.CSS30, true).getCSSAsString (aCSS));
+  }
+
+  @Test
+  public void testPrefixingAppendable () throws IOException
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    final CSSPrefixingAppendable aPA = new CSSPrefixingAppendable (aSB);
+    aPA.startItem ("[");
+    assertFalse (aPA.hasItemContent ());
+    aPA.append ("").append ("abc", 1, 1);
+    assertFalse (aPA.hasItemContent ());
+    assertEquals ("", aSB.toString ());
+    aPA.append ('a').append ("bc");
+    assertTrue (aPA.hasItemContent ());
+    aPA.startItem ("[");
+    aPA.startItem (null);
+    aPA.append ("xyz", 1, 3);
+    assertEquals ("[abcyz", aSB.toString ());
+  }
+
+  @Test
+  public void testWriteCSSAsGZIP () throws IOException
+  {
+    final CascadingStyleSheet aCSS = CSSReader.readFromString (CSS5 + "\n.x:before{content:'\u00e4\u20ac'}",
+                                                               ECSSVersion.CSS30);
+    assertNotNull (aCSS);
+
+    for (final int nLevel : new int [] { Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION })
+    {
+      final CSSWriter aWriter = new CSSWriter (ECSSVersion.CSS30, true).setGZIPCompressionLevel (nLevel);
+      assertEquals (nLevel, aWriter.getGZIPCompressionLevel ());
+      final byte [] aExpected = aWriter.getCSSAsUTF8Bytes (aCSS);
+
+      // GZIP only
+      NonBlockingByteArrayOutputStream aGZIPOS = new NonBlockingByteArrayOutputStream ();
+      aWriter.writeCSSAsGZIP (aCSS, aGZIPOS);
+      assertArrayEquals (aExpected, _gunzip (aGZIPOS.toByteArray ()));
+
+      // Plain and GZIP in one pass
+      final NonBlockingByteArrayOutputStream aPlainOS = new NonBlockingByteArrayOutputStream ();
+      aGZIPOS = new NonBlockingByteArrayOutputStream ();
+      aWriter.writeCSSAsGZIP (aCSS, CCharset.CHARSET_UTF_8_OBJ, aPlainOS, aGZIPOS);
+      assertArrayEquals (aExpected, aPlainOS.toByteArray ());
+      assertArrayEquals (aExpected, _gunzip (aGZIPOS.toByteArray ()));
+
+      // Other charset
+      aGZIPOS = new NonBlockingByteArrayOutputStream ();
+      aWriter.writeCSSAsGZIP (aCSS, CCharset.CHARSET_UTF_16_OBJ, null, aGZIPOS);
+      assertArrayEquals (aWriter.getCSSAsString (aCSS).getBytes (CCharset.CHARSET_UTF_16_OBJ),
+                         _gunzip (aGZIPOS.toByteArray ()));
+    }
+
+    try
+    {
+      new CSSWriter (ECSSVersion.CSS30).setGZIPCompressionLevel (10);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  private static byte [] _gunzip (final byte [] aBytes) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aOS = new NonBlockingByteArrayOutputStream ();
+    StreamUtils.copyInputStreamToOutputStreamAndCloseOS (new GZIPInputStream (new NonBlockingByteArrayInputStream (aBytes)),
+                                                         aOS);
+    return aOS.toByteArray ();
+  }
 }